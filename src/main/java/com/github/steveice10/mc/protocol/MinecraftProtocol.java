@@ -212,6 +212,14 @@ public class MinecraftProtocol extends PacketProtocol {
     @Setter
     private boolean useDefaultListeners = true;
 
+    /**
+     * Whether received chunk data keeps its sections serialized until they are accessed, see
+     * {@link ServerChunkDataPacket.Lazy}. Changes take effect when the session next enters the game state.
+     */
+    @Getter
+    @Setter
+    private boolean lazySectionDecoding;
+
     /**
      * Constructs a new MinecraftProtocol instance for making status queries.
      */
@@ -315,8 +323,13 @@ public class MinecraftProtocol extends PacketProtocol {
             case GAME:
                 if (client) {
                     this.initGame(this::registerIncoming, this::registerOutgoing);
+                    if (this.lazySectionDecoding) {
+                        this.registerIncoming(0x22, ServerChunkDataPacket.Lazy.class);
+                    }
                 } else {
                     this.initGame(this::registerOutgoing, this::registerIncoming);
+                    // Lets lazily decoded chunk data received by another session be sent on, e.g. by proxies.
+                    this.registerOutgoing(0x22, ServerChunkDataPacket.Lazy.class);
                 }
 
                 break;
@@ -0,0 +1,248 @@
+package com.github.steveice10.mc.protocol.codec;
+
+import com.github.steveice10.packetlib.Session;
+import com.github.steveice10.packetlib.event.session.DisconnectedEvent;
+import com.github.steveice10.packetlib.event.session.SessionAdapter;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import com.github.steveice10.packetlib.packet.BufferedPacket;
+import com.github.steveice10.packetlib.packet.Packet;
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Sends packets to sessions, encoding heavy packet types on a worker pool instead of the session's I/O thread.
+ * <p>
+ * Only packet types enabled through {@link #enable(Class[])} and their subclasses are encoded asynchronously, for
+ * example chunk data, light updates, recipes and commands. Packets of a subclass, such as lazily read chunk data,
+ * are buffered as the enabled type so that they are sent with its packet id. Every packet sent through this encoder reaches its
+ * session in the order it was passed to {@link #send(Session, Packet)}, so lighter packets queue up behind
+ * heavy packets that are still being encoded. Packets encoded ahead of time are sent as
+ * {@link BufferedPacket}s, which is what packet sent listeners will observe for them. Packets still queued
+ * for a session when it disconnects are dropped.
+ */
+public class AsyncPacketEncoder {
+    private static final String QUEUE_KEY = "async-packet-encoder-queue";
+    private static final Object QUEUE_LOCK = new Object();
+
+    private final Executor executor;
+    private final Set<Class<? extends Packet>> asyncTypes = ConcurrentHashMap.newKeySet();
+    private final Map<Class<? extends Packet>, Optional<Class<? extends Packet>>> resolvedTypes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an encoder that runs on the common fork-join pool.
+     */
+    public AsyncPacketEncoder() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an encoder that runs on the given executor.
+     *
+     * @param executor Executor to encode packets on.
+     */
+    public AsyncPacketEncoder(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Enables asynchronous encoding for the given packet types.
+     *
+     * @param types Packet types to encode asynchronously.
+     */
+    @SafeVarargs
+    public final void enable(Class<? extends Packet>... types) {
+        for (Class<? extends Packet> type : types) {
+            this.asyncTypes.add(type);
+        }
+
+        this.resolvedTypes.clear();
+    }
+
+    /**
+     * Disables asynchronous encoding for the given packet types.
+     *
+     * @param types Packet types to encode on the session's I/O thread.
+     */
+    @SafeVarargs
+    public final void disable(Class<? extends Packet>... types) {
+        for (Class<? extends Packet> type : types) {
+            this.asyncTypes.remove(type);
+        }
+
+        this.resolvedTypes.clear();
+    }
+
+    /**
+     * Gets whether the given packet type is encoded asynchronously, because it or one of its superclasses is enabled.
+     *
+     * @param type Packet type to check.
+     * @return Whether the type is encoded asynchronously.
+     */
+    public boolean isEnabled(@NonNull Class<? extends Packet> type) {
+        return this.resolve(type).isPresent();
+    }
+
+    /**
+     * Sends a packet to a session, preserving the order of all packets sent to that session through this encoder.
+     *
+     * @param session Session to send to.
+     * @param packet  Packet to send.
+     */
+    public void send(@NonNull Session session, @NonNull Packet packet) {
+        SessionQueue queue = this.getQueue(session);
+        Optional<Class<? extends Packet>> type = this.resolve(packet.getClass());
+        if (!type.isPresent()) {
+            queue.add(new Slot(packet));
+            queue.drain();
+            return;
+        }
+
+        Slot slot = new Slot(null);
+        queue.add(slot);
+        this.executor.execute(() -> {
+            Packet encoded;
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                packet.write(new StreamNetOutput(out));
+                encoded = new BufferedPacket(type.get(), out.toByteArray());
+            } catch (Throwable t) {
+                // Leave encoding to the session, which reports the failure through its own pipeline.
+                encoded = packet;
+            }
+
+            queue.complete(slot, encoded);
+        });
+    }
+
+    /**
+     * Finds the enabled type that the given type is encoded as, caching the result per type.
+     */
+    private Optional<Class<? extends Packet>> resolve(Class<? extends Packet> type) {
+        Optional<Class<? extends Packet>> resolved = this.resolvedTypes.get(type);
+        if (resolved == null) {
+            resolved = Optional.empty();
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                if (this.asyncTypes.contains(current)) {
+                    resolved = Optional.of(current.asSubclass(Packet.class));
+                    break;
+                }
+            }
+
+            this.resolvedTypes.put(type, resolved);
+        }
+
+        return resolved;
+    }
+
+    private SessionQueue getQueue(Session session) {
+        SessionQueue queue = session.getFlag(QUEUE_KEY);
+        if (queue == null) {
+            synchronized (QUEUE_LOCK) {
+                queue = session.getFlag(QUEUE_KEY);
+                if (queue == null) {
+                    SessionQueue created = new SessionQueue(session);
+                    session.setFlag(QUEUE_KEY, created);
+                    session.addListener(new SessionAdapter() {
+                        @Override
+                        public void disconnected(DisconnectedEvent event) {
+                            created.close();
+                            session.setFlag(QUEUE_KEY, null);
+                        }
+                    });
+
+                    queue = created;
+                }
+            }
+        }
+
+        return queue;
+    }
+
+    private static class Slot {
+        private Packet packet;
+
+        private Slot(Packet packet) {
+            this.packet = packet;
+        }
+    }
+
+    private static class SessionQueue {
+        private final Session session;
+        private final Queue<Slot> slots = new ArrayDeque<>();
+        private boolean draining;
+        private boolean closed;
+
+        private SessionQueue(Session session) {
+            this.session = session;
+        }
+
+        private synchronized void add(Slot slot) {
+            if (!this.closed) {
+                this.slots.add(slot);
+            }
+        }
+
+        private void complete(Slot slot, Packet packet) {
+            synchronized (this) {
+                slot.packet = packet;
+            }
+
+            this.drain();
+        }
+
+        private synchronized void close() {
+            this.closed = true;
+            this.slots.clear();
+        }
+
+        /**
+         * Sends the completed packets at the head of the queue. Only one thread drains at a time, so packets keep
+         * their order, and packets are sent without holding the lock, so other threads can keep adding to the queue.
+         */
+        private void drain() {
+            synchronized (this) {
+                if (this.draining) {
+                    // The draining thread picks up whatever became ready before it releases the queue.
+                    return;
+                }
+
+                this.draining = true;
+            }
+
+            boolean done = false;
+            try {
+                while (true) {
+                    Packet packet;
+                    synchronized (this) {
+                        Slot slot = this.slots.peek();
+                        if (slot == null || slot.packet == null) {
+                            this.draining = false;
+                            done = true;
+                            return;
+                        }
+
+                        this.slots.poll();
+                        packet = slot.packet;
+                    }
+
+                    this.session.send(packet);
+                }
+            } finally {
+                if (!done) {
+                    synchronized (this) {
+                        this.draining = false;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.github.steveice10.mc.protocol.codec;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.Column;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerChunkDataPacket;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches encoded chunk data packets so that a column sent to many sessions is only encoded once.
+ * <p>
+ * Encodings are attached to their {@link Column} and are invalidated as soon as one of its chunks is
+ * modified or {@link Column#markModified()} is called. Every {@link ServerChunkDataPacket} written for a
+ * column with a valid encoding writes the shared cached bytes instead of encoding the column again.
+ * The total size of cached encodings is bounded, evicting the least recently used columns first.
+ * <p>
+ * The cache holds strong references to the columns it has encodings for until they are evicted, so callers must
+ * call {@link #invalidate(Column)} when a column is unloaded to let it be garbage collected.
+ */
+public class ChunkDataCache {
+    private final long maxBytes;
+
+    private final Map<Column, Node> nodes = new IdentityHashMap<>();
+    private final Node head = new Node(null, 0);
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a new chunk data cache.
+     *
+     * @param maxBytes Maximum total size of cached encodings, in bytes.
+     */
+    public ChunkDataCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive.");
+        }
+
+        this.maxBytes = maxBytes;
+        this.head.prev = this.head;
+        this.head.next = this.head;
+    }
+
+    /**
+     * Creates a chunk data packet for the given column, encoding and caching the column first if needed.
+     * The returned packet can be sent to any number of sessions.
+     *
+     * @param column Column to create a packet for.
+     * @return The chunk data packet.
+     * @throws IOException If the column could not be encoded.
+     */
+    public ServerChunkDataPacket getPacket(@NonNull Column column) throws IOException {
+        this.encode(column);
+        return new ServerChunkDataPacket(column);
+    }
+
+    /**
+     * Gets the encoded chunk data packet for the given column, encoding and caching it if
+     * it is not cached yet or the column was modified since it was cached.
+     *
+     * @param column Column to encode.
+     * @return The encoded packet data. The returned array is shared and must not be modified.
+     * @throws IOException If the column could not be encoded.
+     */
+    public byte[] encode(@NonNull Column column) throws IOException {
+        byte[] data = column.getCachedPacketData();
+        if (data != null) {
+            this.hits.incrementAndGet();
+            synchronized (this) {
+                Node node = this.nodes.get(column);
+                if (node != null) {
+                    node.unlink();
+                    node.linkAfter(this.head);
+                }
+            }
+
+            return data;
+        }
+
+        this.misses.incrementAndGet();
+        Column.ModState state = column.getModState();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ServerChunkDataPacket(column).write(new StreamNetOutput(out));
+        data = out.toByteArray();
+        if (data.length > this.maxBytes) {
+            return data;
+        }
+
+        synchronized (this) {
+            this.remove(column);
+            if (!column.setCachedPacketData(state, data)) {
+                // The column was modified while it was being encoded.
+                return data;
+            }
+
+            Node node = new Node(column, data.length);
+            node.linkAfter(this.head);
+            this.nodes.put(column, node);
+            this.bytes += data.length;
+
+            while (this.bytes > this.maxBytes) {
+                Node eldest = this.head.prev;
+                this.remove(eldest.column);
+                this.evictions.incrementAndGet();
+            }
+        }
+
+        return data;
+    }
+
+    /**
+     * Removes the cached encoding of the given column and releases the cache's reference to it.
+     * This must be called when the column is unloaded.
+     *
+     * @param column Column to remove.
+     */
+    public synchronized void invalidate(@NonNull Column column) {
+        this.remove(column);
+    }
+
+    /**
+     * Removes all cached encodings.
+     */
+    public synchronized void clear() {
+        while (this.head.next != this.head) {
+            this.remove(this.head.next.column);
+        }
+    }
+
+    /**
+     * Gets the number of lookups that were served from the cache.
+     *
+     * @return The number of cache hits.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that required the column to be encoded.
+     *
+     * @return The number of cache misses.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Gets the number of encodings evicted to stay within the size limit.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Gets the total size of the currently cached encodings.
+     *
+     * @return The cache size, in bytes.
+     */
+    public synchronized long getSize() {
+        return this.bytes;
+    }
+
+    /**
+     * Gets the number of columns with a cached encoding.
+     *
+     * @return The number of cached columns.
+     */
+    public synchronized int getEntryCount() {
+        return this.nodes.size();
+    }
+
+    private void remove(Column column) {
+        Node node = this.nodes.remove(column);
+        if (node != null) {
+            node.unlink();
+            this.bytes -= node.size;
+            column.clearCachedPacketData();
+        }
+    }
+
+    private static class Node {
+        private final Column column;
+        private final int size;
+        private Node prev;
+        private Node next;
+
+        private Node(Column column, int size) {
+            this.column = column;
+            this.size = size;
+        }
+
+        private void linkAfter(Node node) {
+            this.prev = node;
+            this.next = node.next;
+            node.next.prev = this;
+            node.next = this;
+        }
+
+        private void unlink() {
+            this.prev.next = this.next;
+            this.next.prev = this.prev;
+            this.prev = null;
+            this.next = null;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.github.steveice10.mc.protocol.codec;
+
+import com.github.steveice10.mc.protocol.packet.ingame.client.ClientKeepAlivePacket;
+import com.github.steveice10.mc.protocol.packet.ingame.client.player.ClientPlayerPositionPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.client.player.ClientPlayerPositionRotationPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.client.player.ClientPlayerRotationPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.ServerKeepAlivePacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityHeadLookPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityPositionPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityPositionRotationPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityRotationPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityTeleportPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityVelocityPacket;
+import com.github.steveice10.packetlib.Session;
+import com.github.steveice10.packetlib.io.NetInput;
+import com.github.steveice10.packetlib.packet.Packet;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reuses instances of high-frequency packet types, such as movement and keep alive packets, instead of allocating
+ * a new instance for every decoded packet.
+ * <p>
+ * PacketLib instantiates received packets itself and gives their read method no session context, so this pool
+ * does not apply to the default receive path. Pooled decoding is an explicit call, for code that reads packets
+ * itself such as relays. Lifetime rules:
+ * <ul>
+ *     <li>{@link #read(Class, NetInput)} returns an instance owned by the caller until it is passed to {@link #release(Packet)}.</li>
+ *     <li>A released instance must no longer be used or referenced; it will be overwritten by a later read. Copy the
+ *     values you need, or use a wither to get an unpooled copy, before releasing.</li>
+ * </ul>
+ * When {@link #setDebug(boolean) debug mode} is enabled, releasing an instance twice throws an
+ * {@link IllegalStateException}, and released instances are never reused. Their fields are overwritten instead:
+ * floating point values with NaN, other numbers with their minimum value and objects with null. Getters and writes
+ * of a released instance then return or send these values rather than those of a later read, and
+ * {@link #isReleased(Packet)} tells whether an instance was released. A pool is not thread-safe;
+ * {@link #get(Session)} gives every session its own.
+ */
+public class PacketPool {
+    private static final String SESSION_KEY = "packet-pool";
+    private static final int DEFAULT_MAX_SIZE = 16;
+
+    private final int maxSize;
+    private final Map<Class<? extends Packet>, Pool> pools = new IdentityHashMap<>();
+
+    /**
+     * Instances released in debug mode.
+     */
+    private Set<Packet> released;
+
+    /**
+     * Creates a packet pool for the default high-frequency packet types.
+     */
+    public PacketPool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a packet pool for the default high-frequency packet types.
+     *
+     * @param maxSize Maximum number of released instances kept per packet type.
+     */
+    public PacketPool(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive.");
+        }
+
+        this.maxSize = maxSize;
+        this.register(ServerEntityPositionPacket.class);
+        this.register(ServerEntityRotationPacket.class);
+        this.register(ServerEntityPositionRotationPacket.class);
+        this.register(ServerEntityTeleportPacket.class);
+        this.register(ServerEntityHeadLookPacket.class);
+        this.register(ServerEntityVelocityPacket.class);
+        this.register(ServerKeepAlivePacket.class);
+        this.register(ClientKeepAlivePacket.class);
+        this.register(ClientPlayerPositionPacket.class);
+        this.register(ClientPlayerRotationPacket.class);
+        this.register(ClientPlayerPositionRotationPacket.class);
+    }
+
+    /**
+     * Gets the packet pool of a session, creating it if needed.
+     *
+     * @param session Session to get the pool of.
+     * @return The session's packet pool.
+     */
+    public static PacketPool get(@NonNull Session session) {
+        PacketPool pool = session.getFlag(SESSION_KEY);
+        if (pool == null) {
+            pool = new PacketPool();
+            session.setFlag(SESSION_KEY, pool);
+        }
+
+        return pool;
+    }
+
+    /**
+     * Gets whether this pool checks for uses of released instances.
+     *
+     * @return Whether debug mode is enabled.
+     */
+    public boolean isDebug() {
+        return this.released != null;
+    }
+
+    /**
+     * Enables or disables checking for uses of released instances. In debug mode, released instances are kept
+     * reachable and are not reused, so this is meant for testing. Instances already in the pool stay reusable.
+     *
+     * @param debug Whether to enable debug mode.
+     */
+    public void setDebug(boolean debug) {
+        if (debug == this.isDebug()) {
+            return;
+        }
+
+        this.released = debug ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+    }
+
+    /**
+     * Gets whether an instance was released to this pool while debug mode was enabled.
+     *
+     * @param packet Packet to check.
+     * @return Whether the packet was released.
+     */
+    public boolean isReleased(@NonNull Packet packet) {
+        return this.released != null && this.released.contains(packet);
+    }
+
+    /**
+     * Adds a packet type to this pool. The type must have a no-arguments constructor, which may be private.
+     *
+     * @param type Packet type to pool.
+     */
+    public void register(@NonNull Class<? extends Packet> type) {
+        try {
+            Constructor<? extends Packet> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            List<Field> fields = new ArrayList<>();
+            for (Field field : type.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers())) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+
+            this.pools.put(type, new Pool(constructor, fields.toArray(new Field[0])));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Packet type " + type.getName() + " does not have a no-arguments constructor.", e);
+        }
+    }
+
+    /**
+     * Gets whether a packet type is pooled.
+     *
+     * @param type Packet type to check.
+     * @return Whether the type is pooled.
+     */
+    public boolean isPooled(@NonNull Class<? extends Packet> type) {
+        return this.pools.containsKey(type);
+    }
+
+    /**
+     * Reads a packet into a reused instance. The instance belongs to the caller until it is released.
+     *
+     * @param type Type of the packet.
+     * @param in   Input to read from.
+     * @param <T>  Type of the packet.
+     * @return The read packet.
+     * @throws IOException If the packet could not be read.
+     */
+    public <T extends Packet> T read(@NonNull Class<T> type, @NonNull NetInput in) throws IOException {
+        T packet = this.acquire(type);
+        try {
+            packet.read(in);
+        } catch (IOException | RuntimeException e) {
+            this.release(packet);
+            throw e;
+        }
+
+        return packet;
+    }
+
+    /**
+     * Returns a packet to this pool. It must not be used afterwards.
+     *
+     * @param packet Packet to release.
+     * @throws IllegalArgumentException If the packet type is not pooled.
+     * @throws IllegalStateException    If debug mode is enabled and the packet was already released.
+     */
+    public void release(@NonNull Packet packet) {
+        Pool pool = this.pools.get(packet.getClass());
+        if (pool == null) {
+            throw new IllegalArgumentException("Packet type " + packet.getClass().getName() + " is not pooled.");
+        }
+
+        if (this.released != null) {
+            if (!this.released.add(packet)) {
+                throw new IllegalStateException(packet.getClass().getSimpleName() + " was released twice.");
+            }
+
+            pool.poison(packet);
+            return;
+        }
+
+        if (pool.free.size() < this.maxSize) {
+            pool.free.push(packet);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Packet> T acquire(Class<T> type) {
+        Pool pool = this.pools.get(type);
+        if (pool == null) {
+            throw new IllegalArgumentException("Packet type " + type.getName() + " is not pooled.");
+        }
+
+        Packet packet = pool.free.poll();
+        if (packet != null) {
+            return (T) packet;
+        }
+
+        try {
+            return (T) pool.constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to instantiate packet type " + type.getName() + ".", e);
+        }
+    }
+
+    private static class Pool {
+        private final Constructor<? extends Packet> constructor;
+        private final Field[] fields;
+        private final ArrayDeque<Packet> free = new ArrayDeque<>();
+
+        private Pool(Constructor<? extends Packet> constructor, Field[] fields) {
+            this.constructor = constructor;
+            this.fields = fields;
+        }
+
+        private void poison(Packet packet) {
+            try {
+                for (Field field : this.fields) {
+                    Class<?> type = field.getType();
+                    if (type == double.class) {
+                        field.setDouble(packet, Double.NaN);
+                    } else if (type == float.class) {
+                        field.setFloat(packet, Float.NaN);
+                    } else if (type == long.class) {
+                        field.setLong(packet, Long.MIN_VALUE);
+                    } else if (type == int.class) {
+                        field.setInt(packet, Integer.MIN_VALUE);
+                    } else if (type == short.class) {
+                        field.setShort(packet, Short.MIN_VALUE);
+                    } else if (type == byte.class) {
+                        field.setByte(packet, Byte.MIN_VALUE);
+                    } else if (type == char.class) {
+                        field.setChar(packet, Character.MAX_VALUE);
+                    } else if (type == boolean.class) {
+                        field.setBoolean(packet, false);
+                    } else {
+                        field.set(packet, null);
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Failed to clear released packet " + packet.getClass().getName() + ".", e);
+            }
+        }
+    }
+}
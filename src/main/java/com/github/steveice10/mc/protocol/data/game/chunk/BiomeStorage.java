@@ -0,0 +1,378 @@
+package com.github.steveice10.mc.protocol.data.game.chunk;
+
+import com.github.steveice10.packetlib.io.NetInput;
+import com.github.steveice10.packetlib.io.NetOutput;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Biome data of a column, stored as a single value while the whole column has one biome and as
+ * palette indices packed into a {@link BitStorage} otherwise.
+ */
+public class BiomeStorage {
+    private final int size;
+
+    private int[] palette;
+    private int paletteSize;
+    private BitStorage storage;
+
+    /**
+     * Column this storage belongs to, which is marked as modified when a biome changes.
+     */
+    private Column column;
+
+    /**
+     * Creates a new biome storage with every entry set to the given biome.
+     *
+     * @param size  Number of biome entries.
+     * @param biome Biome to fill the storage with.
+     */
+    public BiomeStorage(int size, int biome) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size cannot be negative.");
+        }
+
+        this.size = size;
+        this.palette = new int[]{biome};
+        this.paletteSize = 1;
+    }
+
+    private BiomeStorage(int size, int[] palette, int paletteSize, BitStorage storage) {
+        this.size = size;
+        this.palette = palette;
+        this.paletteSize = paletteSize;
+        this.storage = storage;
+    }
+
+    /**
+     * Creates a biome storage holding the given biomes.
+     *
+     * @param biomes Biomes to store, which are copied.
+     * @return The biome storage.
+     */
+    public static BiomeStorage of(@NonNull int[] biomes) {
+        return build(biomes.clone(), biomes.length);
+    }
+
+    public static BiomeStorage read(NetInput in) throws IOException {
+        int size = in.readVarInt();
+        if (size == 0) {
+            return new BiomeStorage(0, 0);
+        }
+
+        int[] biomes = new int[size];
+        for (int index = 0; index < size; index++) {
+            biomes[index] = in.readVarInt();
+        }
+
+        return build(biomes, size);
+    }
+
+    public static void write(NetOutput out, BiomeStorage storage) throws IOException {
+        out.writeVarInt(storage.size);
+        if (storage.size == 0) {
+            return;
+        }
+
+        // Encode each palette entry once and copy its bytes for every index that uses it.
+        byte[][] encoded = new byte[storage.paletteSize][];
+        for (int id = 0; id < storage.paletteSize; id++) {
+            encoded[id] = encodeVarInt(storage.palette[id]);
+        }
+
+        byte[] data;
+        if (storage.storage == null) {
+            byte[] pattern = encoded[0];
+            data = new byte[storage.size * pattern.length];
+            for (int offset = 0; offset < data.length; offset += pattern.length) {
+                System.arraycopy(pattern, 0, data, offset, pattern.length);
+            }
+        } else {
+            int[] ids = storage.storage.toIntArray();
+            int length = 0;
+            for (int id : ids) {
+                length += encoded[id].length;
+            }
+
+            data = new byte[length];
+            int offset = 0;
+            for (int id : ids) {
+                byte[] bytes = encoded[id];
+                System.arraycopy(bytes, 0, data, offset, bytes.length);
+                offset += bytes.length;
+            }
+        }
+
+        out.writeBytes(data);
+    }
+
+    /**
+     * Gets the number of bytes {@link #write(NetOutput, BiomeStorage)} writes for this storage.
+     *
+     * @return The serialized size.
+     */
+    public int getSerializedSize() {
+        int size = varIntSize(this.size);
+        if (this.storage == null) {
+            return size + this.size * varIntSize(this.palette[0]);
+        }
+
+        int[] biomeSizes = new int[this.paletteSize];
+        for (int id = 0; id < this.paletteSize; id++) {
+            biomeSizes[id] = varIntSize(this.palette[id]);
+        }
+
+        for (int index = 0; index < this.size; index++) {
+            size += biomeSizes[this.storage.get(index)];
+        }
+
+        return size;
+    }
+
+    /**
+     * Creates a copy of this storage that does not belong to any column.
+     *
+     * @return The copy.
+     */
+    public BiomeStorage copy() {
+        return new BiomeStorage(this.size, this.palette.clone(), this.paletteSize, this.storage != null ? this.storage.copy() : null);
+    }
+
+    /**
+     * Gets the number of biome entries.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the number of distinct biomes this storage has held.
+     *
+     * @return The size of the palette.
+     */
+    public int getPaletteSize() {
+        return this.paletteSize;
+    }
+
+    /**
+     * Gets the biome at the given index.
+     *
+     * @param index Index of the entry.
+     * @return The biome.
+     */
+    public int get(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return this.storage != null ? this.palette[this.storage.get(index)] : this.palette[0];
+    }
+
+    /**
+     * Sets the biome at the given index.
+     *
+     * @param index Index of the entry.
+     * @param biome Biome to set.
+     */
+    public void set(int index, int biome) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        int id = this.indexOf(biome);
+        if (id == -1) {
+            id = this.add(biome);
+        }
+
+        if (this.storage != null) {
+            if (this.storage.get(index) != id) {
+                this.storage.set(index, id);
+                this.markModified();
+            }
+        } else if (id != 0) {
+            this.storage = new BitStorage(1, this.size);
+            this.storage.set(index, id);
+            this.markModified();
+        }
+    }
+
+    /**
+     * Copies the biomes into a new array.
+     *
+     * @return The biomes.
+     */
+    public int[] toIntArray() {
+        int[] result = new int[this.size];
+        if (this.storage == null) {
+            Arrays.fill(result, this.palette[0]);
+        } else {
+            this.storage.toIntArray(result);
+            for (int index = 0; index < result.length; index++) {
+                result[index] = this.palette[result[index]];
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof BiomeStorage)) {
+            return false;
+        }
+
+        BiomeStorage other = (BiomeStorage) o;
+        if (this.size != other.size) {
+            return false;
+        }
+
+        for (int index = 0; index < this.size; index++) {
+            if (this.get(index) != other.get(index)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int index = 0; index < this.size; index++) {
+            result = 31 * result + this.get(index);
+        }
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "BiomeStorage(size=" + this.size + ", palette=" + Arrays.toString(Arrays.copyOf(this.palette, this.paletteSize)) + ")";
+    }
+
+    private int indexOf(int biome) {
+        for (int id = 0; id < this.paletteSize; id++) {
+            if (this.palette[id] == biome) {
+                return id;
+            }
+        }
+
+        return -1;
+    }
+
+    private int add(int biome) {
+        if (this.paletteSize == this.palette.length) {
+            this.palette = Arrays.copyOf(this.palette, this.paletteSize << 1);
+        }
+
+        int id = this.paletteSize++;
+        this.palette[id] = biome;
+        if (this.storage != null && id > (1 << this.storage.getBitsPerEntry()) - 1) {
+            BitStorage resized = new BitStorage(this.storage.getBitsPerEntry() + 1, this.size);
+            for (int index = 0; index < this.size; index++) {
+                resized.set(index, this.storage.get(index));
+            }
+
+            this.storage = resized;
+        }
+
+        return id;
+    }
+
+    /**
+     * Builds a storage from the given biomes in a single pass, replacing each biome in the array with its palette id.
+     */
+    private static BiomeStorage build(int[] biomes, int size) {
+        if (size == 0) {
+            return new BiomeStorage(0, 0);
+        }
+
+        int[] palette = new int[]{biomes[0]};
+        int paletteSize = 1;
+        int lastBiome = biomes[0];
+        int lastId = 0;
+        for (int index = 0; index < size; index++) {
+            int biome = biomes[index];
+            if (biome != lastBiome) {
+                lastBiome = biome;
+                lastId = -1;
+                for (int id = 0; id < paletteSize; id++) {
+                    if (palette[id] == biome) {
+                        lastId = id;
+                        break;
+                    }
+                }
+
+                if (lastId == -1) {
+                    if (paletteSize == palette.length) {
+                        palette = Arrays.copyOf(palette, paletteSize << 1);
+                    }
+
+                    lastId = paletteSize++;
+                    palette[lastId] = biome;
+                }
+            }
+
+            biomes[index] = lastId;
+        }
+
+        if (paletteSize == 1) {
+            return new BiomeStorage(size, palette, paletteSize, null);
+        }
+
+        BitStorage storage = new BitStorage(Math.max(1, 32 - Integer.numberOfLeadingZeros(paletteSize - 1)), size);
+        for (int index = 0; index < size; index++) {
+            storage.set(index, biomes[index]);
+        }
+
+        return new BiomeStorage(size, palette, paletteSize, storage);
+    }
+
+    private static byte[] encodeVarInt(int value) {
+        byte[] bytes = new byte[varIntSize(value)];
+        for (int index = 0; index < bytes.length - 1; index++) {
+            bytes[index] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+
+        bytes[bytes.length - 1] = (byte) value;
+        return bytes;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+
+        return size;
+    }
+
+    /**
+     * Attaches this storage to the column it belongs to.
+     *
+     * @throws IllegalArgumentException If this storage already belongs to another column.
+     */
+    void attach(Column column) {
+        if (this.column != null && this.column != column) {
+            throw new IllegalArgumentException("Biome storage already belongs to another column, use copy() to share its biomes.");
+        }
+
+        this.column = column;
+    }
+
+    private void markModified() {
+        if (this.column != null) {
+            this.column.markModified();
+        }
+    }
+}
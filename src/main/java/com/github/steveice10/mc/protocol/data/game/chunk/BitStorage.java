@@ -4,6 +4,8 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
 
+import java.util.function.IntConsumer;
+
 @EqualsAndHashCode
 public class BitStorage {
     private static final int[] MAGIC_VALUES = {
@@ -97,8 +99,77 @@ public class BitStorage {
         this.data[cellIndex] = this.data[cellIndex] & ~(this.maxValue << bitIndex) | ((long) value & this.maxValue) << bitIndex;
     }
 
+    /**
+     * Creates a copy of this storage that can be modified independently.
+     *
+     * @return The copied storage.
+     */
+    public BitStorage copy() {
+        return new BitStorage(this.bitsPerEntry, this.size, this.data.clone());
+    }
+
+    /**
+     * Finds every index holding the given value. Each backing long is tested for the value
+     * in all of its entries at once, so longs without a match are skipped without decoding them.
+     *
+     * @param value    Value to search for.
+     * @param consumer Consumer to pass each matching index to, in ascending order.
+     * @return The number of matching indices.
+     */
+    public int forEachMatch(int value, IntConsumer consumer) {
+        // Entries of 32 bits hold values that get(int) returns as negative ints.
+        long unsignedValue = Integer.toUnsignedLong(value);
+        if (unsignedValue > this.maxValue) {
+            return 0;
+        }
+
+        long highBits = 0;
+        long pattern = 0;
+        for (int i = 0; i < this.valuesPerLong; i++) {
+            highBits |= 1L << (i * this.bitsPerEntry + this.bitsPerEntry - 1);
+            pattern |= unsignedValue << (i * this.bitsPerEntry);
+        }
+
+        long lowBits = 0;
+        for (int i = 0; i < this.valuesPerLong; i++) {
+            lowBits |= (this.maxValue >>> 1) << (i * this.bitsPerEntry);
+        }
+
+        int count = 0;
+        for (int cellIndex = 0; cellIndex < this.data.length; cellIndex++) {
+            long cell = this.data[cellIndex] ^ pattern;
+            // The high bit of each entry ends up set only if the entry is zero, i.e. equal to the value.
+            long matches = ~(((cell & lowBits) + lowBits) | cell) & highBits;
+            while (matches != 0) {
+                int index = cellIndex * this.valuesPerLong + Long.numberOfTrailingZeros(matches) / this.bitsPerEntry;
+                if (index >= this.size) {
+                    return count;
+                }
+
+                consumer.accept(index);
+                count++;
+                matches &= matches - 1;
+            }
+        }
+
+        return count;
+    }
+
     public int[] toIntArray() {
-        int[] result = new int[this.size];
+        return this.toIntArray(new int[this.size]);
+    }
+
+    /**
+     * Decodes every value of this storage into the given array.
+     *
+     * @param result Array to decode into, at least {@link #getSize()} long.
+     * @return The given array.
+     */
+    public int[] toIntArray(@NonNull int[] result) {
+        if (result.length < this.size) {
+            throw new IllegalArgumentException("Array must be at least " + this.size + " long.");
+        }
+
         int index = 0;
         for (long cell : this.data) {
             for (int bitIndex = 0; bitIndex < this.valuesPerLong; bitIndex++) {
@@ -0,0 +1,217 @@
+package com.github.steveice10.mc.protocol.data.game.chunk;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.palette.GlobalPalette;
+import com.github.steveice10.mc.protocol.data.game.chunk.palette.Palette;
+import lombok.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Bulk block access for axis-aligned boxes spanning any number of columns.
+ * <p>
+ * Block states are exchanged through a flat array indexed by {@code (y * sizeZ + z) * sizeX + x},
+ * relative to the box's minimum corner.
+ */
+public final class BlockRegion {
+    private static final int CHUNK_SIZE = 4096;
+
+    private BlockRegion() {
+    }
+
+    /**
+     * Source of the columns a region is read from or written to.
+     */
+    @FunctionalInterface
+    public interface ColumnSource {
+        /**
+         * Gets the column at the given chunk coordinates.
+         *
+         * @param x X coordinate of the column.
+         * @param z Z coordinate of the column.
+         * @return The column, or null if it is not loaded.
+         */
+        Column getColumn(int x, int z);
+    }
+
+    /**
+     * Reads the block states of a box. Blocks in unloaded columns or missing sections read as air.
+     *
+     * @param columns Columns to read from.
+     * @param minY    Lowest Y coordinate of the world, which the first section of each column starts at.
+     * @param x       Minimum X coordinate of the box.
+     * @param y       Minimum Y coordinate of the box.
+     * @param z       Minimum Z coordinate of the box.
+     * @param sizeX   Size of the box along the X axis.
+     * @param sizeY   Size of the box along the Y axis.
+     * @param sizeZ   Size of the box along the Z axis.
+     * @return The block states of the box.
+     */
+    public static int[] read(@NonNull ColumnSource columns, int minY, int x, int y, int z, int sizeX, int sizeY, int sizeZ) {
+        int[] states = new int[checkSize(sizeX, sizeY, sizeZ)];
+        int[] ids = new int[CHUNK_SIZE];
+        forEachSection(columns, minY, x, y, z, sizeX, sizeY, sizeZ, (column, sectionIndex, sx, sy, sz, ex, ey, ez) -> {
+            Chunk chunk = column.getChunk(sectionIndex);
+            if (chunk == null) {
+                return;
+            }
+
+            chunk.storage().toIntArray(ids);
+            int[] lookup = lookupTable(chunk.palette(), chunk.storage().getBitsPerEntry());
+            for (int by = sy; by < ey; by++) {
+                for (int bz = sz; bz < ez; bz++) {
+                    int src = ((by - minY) & 15) << 8 | (bz & 15) << 4;
+                    int dst = ((by - y) * sizeZ + (bz - z)) * sizeX - x;
+                    for (int bx = sx; bx < ex; bx++) {
+                        int id = ids[src | (bx & 15)];
+                        states[dst + bx] = lookup != null ? lookup[id] : id;
+                    }
+                }
+            }
+        });
+
+        return states;
+    }
+
+    /**
+     * Writes the block states of a box. Each touched section has its palette grown once to fit all
+     * of the states written to it, and palette ids are then stored directly. Blocks in unloaded columns are skipped,
+     * and missing sections are created as needed.
+     *
+     * @param columns Columns to write to.
+     * @param minY    Lowest Y coordinate of the world, which the first section of each column starts at.
+     * @param x       Minimum X coordinate of the box.
+     * @param y       Minimum Y coordinate of the box.
+     * @param z       Minimum Z coordinate of the box.
+     * @param sizeX   Size of the box along the X axis.
+     * @param sizeY   Size of the box along the Y axis.
+     * @param sizeZ   Size of the box along the Z axis.
+     * @param states  Block states to write.
+     */
+    public static void write(@NonNull ColumnSource columns, int minY, int x, int y, int z, int sizeX, int sizeY, int sizeZ, @NonNull int[] states) {
+        if (states.length < checkSize(sizeX, sizeY, sizeZ)) {
+            throw new IllegalArgumentException("State array is too small for the region.");
+        }
+
+        int[] distinct = new int[CHUNK_SIZE];
+        forEachSection(columns, minY, x, y, z, sizeX, sizeY, sizeZ, (column, sectionIndex, sx, sy, sz, ex, ey, ez) -> {
+            int count = 0;
+            for (int by = sy; by < ey; by++) {
+                for (int bz = sz; bz < ez; bz++) {
+                    int src = ((by - y) * sizeZ + (bz - z)) * sizeX - x;
+                    for (int bx = sx; bx < ex; bx++) {
+                        distinct[count++] = states[src + bx];
+                    }
+                }
+            }
+
+            Arrays.sort(distinct, 0, count);
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || distinct[unique - 1] != distinct[i]) {
+                    distinct[unique++] = distinct[i];
+                }
+            }
+
+            Chunk chunk = column.getChunk(sectionIndex);
+            if (chunk == null) {
+                if (unique == 1 && distinct[0] == 0) {
+                    // Only air is written, which a missing section already holds.
+                    return;
+                }
+
+                chunk = Chunk.air();
+                column.setChunk(sectionIndex, chunk);
+            }
+
+            // Map each distinct state to its id once, then store ids without going through Chunk.set.
+            int[] ids = chunk.prepareBulkWrite(distinct, unique);
+            BitStorage storage = chunk.storage();
+            int[] lookup = lookupTable(chunk.palette(), storage.getBitsPerEntry());
+            int lastState = distinct[0];
+            int lastId = ids[0];
+            int blockCountDelta = 0;
+            for (int by = sy; by < ey; by++) {
+                for (int bz = sz; bz < ez; bz++) {
+                    int src = ((by - y) * sizeZ + (bz - z)) * sizeX - x;
+                    int dst = ((by - minY) & 15) << 8 | (bz & 15) << 4;
+                    for (int bx = sx; bx < ex; bx++) {
+                        int state = states[src + bx];
+                        if (state != lastState) {
+                            lastState = state;
+                            lastId = ids[Arrays.binarySearch(distinct, 0, unique, state)];
+                        }
+
+                        int index = dst | (bx & 15);
+                        int current = storage.get(index);
+                        int currentState = lookup != null ? lookup[current] : current;
+                        if (state != 0 && currentState == 0) {
+                            blockCountDelta++;
+                        } else if (state == 0 && currentState != 0) {
+                            blockCountDelta--;
+                        }
+
+                        storage.set(index, lastId);
+                    }
+                }
+            }
+
+            chunk.finishBulkWrite(blockCountDelta);
+        });
+    }
+
+    private static int checkSize(int sizeX, int sizeY, int sizeZ) {
+        if (sizeX < 0 || sizeY < 0 || sizeZ < 0) {
+            throw new IllegalArgumentException("Region size cannot be negative.");
+        }
+
+        return Math.multiplyExact(Math.multiplyExact(sizeX, sizeY), sizeZ);
+    }
+
+    private static int[] lookupTable(Palette palette, int bitsPerEntry) {
+        if (palette instanceof GlobalPalette) {
+            return null;
+        }
+
+        int[] lookup = new int[1 << bitsPerEntry];
+        for (int id = 0; id < lookup.length; id++) {
+            lookup[id] = palette.idToState(id);
+        }
+
+        return lookup;
+    }
+
+    private static void forEachSection(ColumnSource columns, int minY, int x, int y, int z, int sizeX, int sizeY, int sizeZ, SectionVisitor visitor) {
+        if (sizeX == 0 || sizeY == 0 || sizeZ == 0) {
+            return;
+        }
+
+        int maxX = x + sizeX;
+        int maxY = y + sizeY;
+        int maxZ = z + sizeZ;
+        for (int cx = x >> 4; cx <= (maxX - 1) >> 4; cx++) {
+            int sx = Math.max(x, cx << 4);
+            int ex = Math.min(maxX, (cx + 1) << 4);
+            for (int cz = z >> 4; cz <= (maxZ - 1) >> 4; cz++) {
+                Column column = columns.getColumn(cx, cz);
+                if (column == null) {
+                    continue;
+                }
+
+                int sz = Math.max(z, cz << 4);
+                int ez = Math.min(maxZ, (cz + 1) << 4);
+                int first = Math.max(0, (y - minY) >> 4);
+                int last = Math.min(column.getChunkCount() - 1, (maxY - 1 - minY) >> 4);
+                for (int index = first; index <= last; index++) {
+                    int sy = Math.max(y, minY + (index << 4));
+                    int ey = Math.min(maxY, minY + ((index + 1) << 4));
+                    visitor.visit(column, index, sx, sy, sz, ex, ey, ez);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface SectionVisitor {
+        void visit(Column column, int index, int minX, int minY, int minZ, int maxX, int maxY, int maxZ);
+    }
+}
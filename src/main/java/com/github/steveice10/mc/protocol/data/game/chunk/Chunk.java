@@ -6,17 +6,22 @@ import com.github.steveice10.mc.protocol.data.game.chunk.palette.MapPalette;
 import com.github.steveice10.mc.protocol.data.game.chunk.palette.Palette;
 import com.github.steveice10.packetlib.io.NetInput;
 import com.github.steveice10.packetlib.io.NetOutput;
+import io.netty.buffer.ByteBuf;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
+import lombok.ToString;
 
 import java.io.IOException;
+import java.util.function.IntConsumer;
 
 @Data
 @Setter(AccessLevel.NONE)
-@AllArgsConstructor
+@EqualsAndHashCode(doNotUseGetters = true)
+@ToString(doNotUseGetters = true)
 public class Chunk {
     private static final int CHUNK_SIZE = 4096;
     private static final int MIN_PALETTE_BITS_PER_ENTRY = 4;
@@ -26,13 +31,51 @@ public class Chunk {
     private static final int AIR = 0;
 
     private int blockCount;
+    @Getter(AccessLevel.NONE)
     private @NonNull Palette palette;
+    @Getter(AccessLevel.NONE)
     private @NonNull BitStorage storage;
 
+    /**
+     * Number of modifications made through {@link #set(int, int, int, int)}, {@link #getMutablePalette()} and {@link #getMutableStorage()}.
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int modCount;
+
+    /**
+     * Whether the palette and storage may be shared with other chunks and must be copied before being modified.
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean shared;
+
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private ChunkSectionStore.Entry sharedEntry;
+
     public Chunk() {
         this(0, new ListPalette(MIN_PALETTE_BITS_PER_ENTRY), new BitStorage(MIN_PALETTE_BITS_PER_ENTRY, CHUNK_SIZE));
     }
 
+    public Chunk(int blockCount, @NonNull Palette palette, @NonNull BitStorage storage) {
+        this.blockCount = blockCount;
+        this.palette = palette;
+        this.storage = storage;
+    }
+
+    /**
+     * Creates an empty section whose palette already maps id 0, which its storage is filled with, to air.
+     *
+     * @return The new section.
+     */
+    static Chunk air() {
+        Palette palette = new ListPalette(MIN_PALETTE_BITS_PER_ENTRY);
+        palette.stateToId(0);
+        return new Chunk(0, palette, new BitStorage(MIN_PALETTE_BITS_PER_ENTRY, CHUNK_SIZE));
+    }
+
     public static Chunk read(NetInput in) throws IOException {
         int blockCount = in.readShort();
         int bitsPerEntry = in.readUnsignedByte();
@@ -43,6 +86,24 @@ public class Chunk {
         return new Chunk(blockCount, palette, storage);
     }
 
+    /**
+     * Skips over a serialized chunk without decoding its palette or storage.
+     *
+     * @param buf Buffer positioned at the start of the chunk.
+     */
+    static void skip(ByteBuf buf) {
+        buf.skipBytes(Short.BYTES);
+        int bitsPerEntry = buf.readUnsignedByte();
+        if (bitsPerEntry <= MAX_PALETTE_BITS_PER_ENTRY) {
+            int paletteLength = readVarInt(buf);
+            for (int i = 0; i < paletteLength; i++) {
+                readVarInt(buf);
+            }
+        }
+
+        buf.skipBytes(readVarInt(buf) * Long.BYTES);
+    }
+
     public static void write(NetOutput out, Chunk chunk) throws IOException {
         out.writeShort(chunk.blockCount);
         out.writeByte(chunk.storage.getBitsPerEntry());
@@ -60,12 +121,106 @@ public class Chunk {
         out.writeLongs(data);
     }
 
+    /**
+     * Computes the number of bytes {@link #write(NetOutput, Chunk)} will produce for the given chunk.
+     *
+     * @param chunk Chunk to measure.
+     * @return The serialized size of the chunk.
+     */
+    public static int serializedSize(Chunk chunk) {
+        int size = Short.BYTES + Byte.BYTES;
+        if (!(chunk.palette instanceof GlobalPalette)) {
+            int paletteLength = chunk.palette.size();
+            size += varIntSize(paletteLength);
+            for (int i = 0; i < paletteLength; i++) {
+                size += varIntSize(chunk.palette.idToState(i));
+            }
+        }
+
+        int dataLength = chunk.storage.getData().length;
+        return size + varIntSize(dataLength) + dataLength * Long.BYTES;
+    }
+
+    /**
+     * Gets the palette of this chunk for reading. It may be shared with other chunks through a
+     * {@link ChunkSectionStore}, so it must not be modified; use {@link #getMutablePalette()} for that.
+     *
+     * @return The palette.
+     */
+    public Palette getPalette() {
+        return this.palette;
+    }
+
+    /**
+     * Gets the storage of this chunk for reading. It may be shared with other chunks through a
+     * {@link ChunkSectionStore}, so it must not be modified; use {@link #getMutableStorage()} for that.
+     *
+     * @return The storage.
+     */
+    public BitStorage getStorage() {
+        return this.storage;
+    }
+
+    /**
+     * Gets the palette of this chunk for direct modification. Changes made to it cannot be tracked, so this marks
+     * the chunk as modified, and first copies the palette and storage if they are shared through a
+     * {@link ChunkSectionStore}. Retrieve the palette again for changes made after the chunk was written.
+     *
+     * @return The palette.
+     */
+    public Palette getMutablePalette() {
+        this.prepareDirectAccess();
+        return this.palette;
+    }
+
+    /**
+     * Gets the storage of this chunk for direct modification. Changes made to it cannot be tracked, so this marks
+     * the chunk as modified, and first copies the palette and storage if they are shared through a
+     * {@link ChunkSectionStore}. Retrieve the storage again for changes made after the chunk was written.
+     *
+     * @return The storage.
+     */
+    public BitStorage getMutableStorage() {
+        this.prepareDirectAccess();
+        return this.storage;
+    }
+
+    /**
+     * Gets the block states in the palette of this chunk, without marking it as modified.
+     *
+     * @return The states indexed by storage ID, or null if this chunk uses the global palette.
+     */
+    public int[] getPaletteStates() {
+        if (this.palette instanceof GlobalPalette) {
+            return null;
+        }
+
+        int[] states = new int[this.palette.size()];
+        for (int id = 0; id < states.length; id++) {
+            states[id] = this.palette.idToState(id);
+        }
+
+        return states;
+    }
+
+    Palette palette() {
+        return this.palette;
+    }
+
+    BitStorage storage() {
+        return this.storage;
+    }
+
     public int get(int x, int y, int z) {
         int id = this.storage.get(index(x, y, z));
         return this.palette.idToState(id);
     }
 
     public void set(int x, int y, int z, @NonNull int state) {
+        if (this.shared) {
+            this.unshare();
+        }
+
         int id = this.palette.stateToId(state);
         if (id == -1) {
             this.resizePalette();
@@ -81,12 +236,181 @@ public class Chunk {
         }
 
         this.storage.set(index, id);
+        this.modCount++;
+    }
+
+    /**
+     * Checks whether this chunk may contain the given block state, using only its palette.
+     *
+     * @param state Block state to check for.
+     * @return False if the chunk cannot contain the state, true otherwise.
+     */
+    public boolean mayContain(int state) {
+        if (state == AIR || this.palette instanceof GlobalPalette) {
+            return true;
+        }
+
+        if (this.isEmpty()) {
+            return false;
+        }
+
+        for (int id = 0; id < this.palette.size(); id++) {
+            if (this.palette.idToState(id) == state) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Finds every block in this chunk with the given state. The palette is checked first,
+     * and the storage is then scanned for matching storage IDs without decoding each block.
+     *
+     * @param state    Block state to search for.
+     * @param consumer Consumer to pass the index ({@code y << 8 | z << 4 | x}) of each matching block to.
+     * @return The number of matching blocks.
+     */
+    public int find(int state, @NonNull IntConsumer consumer) {
+        if (state == AIR) {
+            // Storage IDs outside the palette also read as air, so check every block.
+            int count = 0;
+            for (int index = 0; index < CHUNK_SIZE; index++) {
+                if (this.palette.idToState(this.storage.get(index)) == AIR) {
+                    consumer.accept(index);
+                    count++;
+                }
+            }
+
+            return count;
+        }
+
+        if (this.palette instanceof GlobalPalette) {
+            return this.storage.forEachMatch(state, consumer);
+        }
+
+        if (this.isEmpty()) {
+            return 0;
+        }
+
+        int count = 0;
+        for (int id = 0; id < this.palette.size(); id++) {
+            if (this.palette.idToState(id) == state) {
+                count += this.storage.forEachMatch(id, consumer);
+            }
+        }
+
+        return count;
     }
 
     public boolean isEmpty() {
         return this.blockCount == 0;
     }
 
+    void share(ChunkSectionStore.Entry entry, Palette palette, BitStorage storage) {
+        this.palette = palette;
+        this.storage = storage;
+        this.shared = true;
+        this.sharedEntry = entry;
+    }
+
+    ChunkSectionStore.Entry detach() {
+        ChunkSectionStore.Entry entry = this.sharedEntry;
+        this.sharedEntry = null;
+        return entry;
+    }
+
+    private void prepareDirectAccess() {
+        if (this.shared) {
+            this.unshare();
+        }
+
+        this.modCount++;
+    }
+
+    private void unshare() {
+        this.palette = this.palette.copy();
+        this.storage = this.storage.copy();
+        this.shared = false;
+
+        ChunkSectionStore.Entry entry = this.detach();
+        if (entry != null) {
+            entry.release();
+        }
+    }
+
+    /**
+     * Grows the palette once, if needed, so that all of the given states can be stored without it being resized again.
+     *
+     * @param states Array holding the distinct states that are about to be stored.
+     * @param length Number of states to read from the array.
+     */
+    public void reservePalette(@NonNull int[] states, int length) {
+        if (this.palette instanceof GlobalPalette) {
+            return;
+        }
+
+        int required = this.palette.size();
+        for (int i = 0; i < length; i++) {
+            if (!this.containsState(states[i])) {
+                required++;
+            }
+        }
+
+        int bitsPerEntry = this.storage.getBitsPerEntry();
+        if (required > 1 << bitsPerEntry) {
+            this.resizePalette(sanitizeBitsPerEntry(32 - Integer.numberOfLeadingZeros(required - 1)));
+        }
+    }
+
+    /**
+     * Maps states to their palette ids so that blocks can be stored straight into {@link #storage()}, first copying
+     * shared contents and growing the palette once to fit every state. The change in block count caused by the
+     * stored blocks must then be passed to {@link #finishBulkWrite(int)}.
+     *
+     * @param states Array holding the distinct states that are about to be stored.
+     * @param length Number of states to read from the array.
+     * @return The palette id of each state.
+     */
+    int[] prepareBulkWrite(int[] states, int length) {
+        if (this.shared) {
+            this.unshare();
+        }
+
+        this.reservePalette(states, length);
+        int[] ids = new int[length];
+        for (int i = 0; i < length; i++) {
+            ids[i] = this.palette.stateToId(states[i]);
+            if (ids[i] == -1) {
+                // The palette was full after all; grow it and map every state again.
+                this.resizePalette();
+                i = -1;
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Completes a write started with {@link #prepareBulkWrite(int[], int)}.
+     *
+     * @param blockCountDelta Change in the number of non-air blocks.
+     */
+    void finishBulkWrite(int blockCountDelta) {
+        this.blockCount += blockCountDelta;
+        this.modCount++;
+    }
+
+    private boolean containsState(int state) {
+        for (int id = 0; id < this.palette.size(); id++) {
+            if (this.palette.idToState(id) == state) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     private int sanitizeBitsPerEntry(int bitsPerEntry) {
         if (bitsPerEntry <= MAX_PALETTE_BITS_PER_ENTRY) {
             return Math.max(MIN_PALETTE_BITS_PER_ENTRY, bitsPerEntry);
@@ -96,16 +420,30 @@ public class Chunk {
     }
 
     private void resizePalette() {
+        this.resizePalette(sanitizeBitsPerEntry(this.storage.getBitsPerEntry() + 1));
+    }
+
+    private void resizePalette(int bitsPerEntry) {
         Palette oldPalette = this.palette;
         BitStorage oldData = this.storage;
 
-        int bitsPerEntry = sanitizeBitsPerEntry(oldData.getBitsPerEntry() + 1);
         this.palette = createPalette(bitsPerEntry);
         this.storage = new BitStorage(bitsPerEntry, CHUNK_SIZE);
 
         for (int i = 0; i < CHUNK_SIZE; i++) {
             this.storage.set(i, this.palette.stateToId(oldPalette.idToState(oldData.get(i))));
         }
+
+        // The old palette and storage are no longer referenced, so nothing is shared anymore.
+        if (this.shared) {
+            this.shared = false;
+            ChunkSectionStore.Entry entry = this.detach();
+            if (entry != null) {
+                entry.release();
+            }
+        }
+
+        this.modCount++;
     }
 
     private static Palette createPalette(int bitsPerEntry) {
@@ -128,6 +466,34 @@ public class Chunk {
         }
     }
 
+    static int varIntSize(int value) {
+        if ((value & 0xFFFFFF80) == 0) {
+            return 1;
+        } else if ((value & 0xFFFFC000) == 0) {
+            return 2;
+        } else if ((value & 0xFFE00000) == 0) {
+            return 3;
+        } else if ((value & 0xF0000000) == 0) {
+            return 4;
+        }
+
+        return 5;
+    }
+
+    private static int readVarInt(ByteBuf buf) {
+        int value = 0;
+        int size = 0;
+        int b;
+        while (((b = buf.readByte()) & 0x80) == 0x80) {
+            value |= (b & 0x7F) << (size++ * 7);
+            if (size > 5) {
+                throw new IndexOutOfBoundsException("VarInt too long (length must be <= 5)");
+            }
+        }
+
+        return value | ((b & 0x7F) << (size * 7));
+    }
+
     private static int index(int x, int y, int z) {
         return y << 8 | z << 4 | x;
     }
@@ -0,0 +1,222 @@
+package com.github.steveice10.mc.protocol.data.game.chunk;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.palette.GlobalPalette;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A content-addressed store of chunk sections, letting chunks with identical contents share
+ * a single palette and storage.
+ * <p>
+ * Interned chunks are reference counted and copy their palette and storage the first time they are
+ * modified through {@link Chunk#set(int, int, int, int)} or retrieved through {@link Chunk#getPalette()} or
+ * {@link Chunk#getStorage()}. Chunks that are discarded without
+ * being modified should be {@link #release(Chunk) released} so their contents can be dropped from the store.
+ * <p>
+ * Set a store on a column with {@link Column#setSectionStore(ChunkSectionStore)}, or pass one to a
+ * {@link com.github.steveice10.mc.protocol.world.WorldCache}, to deduplicate the column's sections against it.
+ * A store may be shared by any number of columns and sessions.
+ */
+public class ChunkSectionStore {
+    private final Map<Key, Entry> entries = new HashMap<>();
+
+    private long lookups;
+    private long hits;
+    private long savedBytes;
+
+    /**
+     * Interns a chunk, making it share its palette and storage with any chunk of identical contents
+     * already in the store. Chunks that are already shared are returned as they are.
+     *
+     * @param chunk Chunk to intern.
+     * @return The given chunk.
+     */
+    public synchronized Chunk intern(@NonNull Chunk chunk) {
+        if (chunk.isShared()) {
+            return chunk;
+        }
+
+        this.lookups++;
+        Key key = new Key(chunk);
+        Entry entry = this.entries.get(key);
+        if (entry == null) {
+            Chunk canonical = new Chunk(chunk.getBlockCount(), chunk.palette(), chunk.storage());
+            entry = new Entry(this, new Key(canonical, key.hash), estimateSize(canonical));
+            this.entries.put(entry.key, entry);
+        } else {
+            this.hits++;
+            this.savedBytes += entry.size;
+        }
+
+        entry.refs++;
+        chunk.share(entry, entry.key.chunk.palette(), entry.key.chunk.storage());
+        return chunk;
+    }
+
+    /**
+     * Releases a chunk's reference to its shared contents. The chunk remains usable and
+     * will still copy its contents before it is modified.
+     *
+     * @param chunk Chunk to release.
+     */
+    public void release(@NonNull Chunk chunk) {
+        Entry entry = chunk.detach();
+        if (entry != null) {
+            entry.release();
+        }
+    }
+
+    /**
+     * Releases the shared contents of every decoded chunk in a column, for example when it is unloaded.
+     *
+     * @param column Column to release.
+     */
+    public void release(@NonNull Column column) {
+        for (int index = 0; index < column.getChunkCount(); index++) {
+            Chunk chunk = column.getDecodedChunk(index);
+            if (chunk != null) {
+                this.release(chunk);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of distinct sections in the store.
+     *
+     * @return The number of distinct sections.
+     */
+    public synchronized int getEntryCount() {
+        return this.entries.size();
+    }
+
+    /**
+     * Gets the number of chunks interned into this store.
+     *
+     * @return The number of lookups.
+     */
+    public synchronized long getLookups() {
+        return this.lookups;
+    }
+
+    /**
+     * Gets the number of interned chunks whose contents were already in the store.
+     *
+     * @return The number of hits.
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Gets the fraction of interned chunks whose contents were already in the store.
+     *
+     * @return The hit rate, between 0 and 1.
+     */
+    public synchronized double getHitRate() {
+        return this.lookups == 0 ? 0 : (double) this.hits / this.lookups;
+    }
+
+    /**
+     * Gets an estimate of the palette and storage memory currently saved by sharing sections.
+     *
+     * @return The saved memory, in bytes.
+     */
+    public synchronized long getSavedBytes() {
+        return this.savedBytes;
+    }
+
+    private synchronized void release(Entry entry) {
+        if (--entry.refs > 0) {
+            this.savedBytes -= entry.size;
+        } else {
+            this.entries.remove(entry.key);
+        }
+    }
+
+    private static int estimateSize(Chunk chunk) {
+        int size = chunk.storage().getData().length * Long.BYTES;
+        if (!(chunk.palette() instanceof GlobalPalette)) {
+            size += chunk.palette().size() * Integer.BYTES;
+        }
+
+        return size;
+    }
+
+    /**
+     * Looks up a chunk by its contents. The hash only samples the storage, as hashing all of it would cost as
+     * much as decoding the section again; chunks with equal hashes are still compared in full.
+     */
+    private static class Key {
+        private static final int SAMPLE_STRIDE = 16;
+
+        private final Chunk chunk;
+        private final int hash;
+
+        private Key(Chunk chunk) {
+            this(chunk, hash(chunk));
+        }
+
+        private Key(Chunk chunk, int hash) {
+            this.chunk = chunk;
+            this.hash = hash;
+        }
+
+        private static int hash(Chunk chunk) {
+            BitStorage storage = chunk.storage();
+            int hash = chunk.getBlockCount();
+            hash = 31 * hash + storage.getBitsPerEntry();
+
+            int[] states = chunk.getPaletteStates();
+            if (states != null) {
+                hash = 31 * hash + Arrays.hashCode(states);
+            }
+
+            long[] data = storage.getData();
+            for (int index = 0; index < data.length; index += SAMPLE_STRIDE) {
+                hash = 31 * hash + Long.hashCode(data[index]);
+            }
+
+            return data.length > 0 ? 31 * hash + Long.hashCode(data[data.length - 1]) : hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            return this.hash == other.hash && this.chunk.getBlockCount() == other.chunk.getBlockCount()
+                    && this.chunk.palette().equals(other.chunk.palette()) && this.chunk.storage().equals(other.chunk.storage());
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    static class Entry {
+        private final ChunkSectionStore store;
+        private final Key key;
+        private final int size;
+        private int refs;
+
+        private Entry(ChunkSectionStore store, Key key, int size) {
+            this.store = store;
+            this.key = key;
+            this.size = size;
+        }
+
+        void release() {
+            this.store.release(this);
+        }
+    }
+}
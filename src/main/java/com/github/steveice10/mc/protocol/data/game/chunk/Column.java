@@ -1,19 +1,120 @@
 package com.github.steveice10.mc.protocol.data.game.chunk;
 
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.Position;
 import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.opennbt.tag.builtin.IntTag;
+import com.github.steveice10.opennbt.tag.builtin.LongArrayTag;
+import com.github.steveice10.opennbt.tag.builtin.Tag;
+import com.github.steveice10.packetlib.io.NetOutput;
+import com.github.steveice10.packetlib.io.stream.StreamNetInput;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
 
 @Data
+@ToString(doNotUseGetters = true)
 public class Column {
     private final int x;
     private final int z;
     private final @NonNull Chunk[] chunks;
-    private final @NonNull CompoundTag[] tileEntities;
+    @Setter(AccessLevel.NONE)
+    private @NonNull CompoundTag[] tileEntities;
     private final @NonNull CompoundTag heightMaps;
-    private final @NonNull int[] biomeData;
+    private final @NonNull BiomeStorage biomes;
+
+    /**
+     * Serialized sections of a lazily read column, indexed like {@link #chunks}.
+     * Set to null once the chunk array has been handed out and can no longer be tracked.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile byte[][] rawChunks;
+
+    /**
+     * Number of modifications made to this column outside of its chunks, see {@link #markModified()}.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final AtomicInteger modCount = new AtomicInteger();
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile CachedPacketData cachedPacketData;
+
+    /**
+     * Tracked heightmaps, indexed by {@link HeightmapType} ordinal, see {@link #trackHeightmap(HeightmapType, int, IntPredicate)}.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final Heightmap[] typedHeightMaps = new Heightmap[HeightmapType.values().length];
+
+    /**
+     * Tile entities keyed by their packed position, built from {@link #tileEntities} when first needed.
+     * While this is set, {@link #tileEntities} is only rebuilt from it when requested.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private LongObjectMap<TileEntity> tileEntityIndex;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private List<TileEntity> unpositionedTileEntities;
+
+    /**
+     * Position in {@link #tileEntities} given to the next tile entity added through {@link #setTileEntity(int, int, int, CompoundTag)}.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int nextTileEntityOrder;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean tileEntitiesChanged;
+
+    /**
+     * Store that sections are interned into when they are decoded, see {@link #setSectionStore(ChunkSectionStore)}.
+     */
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile ChunkSectionStore sectionStore;
 
     /**
      * @deprecated Non-full chunks no longer exist since 1.17.
@@ -24,11 +125,782 @@ public class Column {
     }
 
     public Column(int x, int z, @NonNull Chunk[] chunks, @NonNull CompoundTag[] tileEntities, @NonNull CompoundTag heightMaps, @NonNull int[] biomeData) {
+        this(x, z, chunks, tileEntities, heightMaps, BiomeStorage.of(biomeData));
+    }
+
+    public Column(int x, int z, @NonNull Chunk[] chunks, @NonNull CompoundTag[] tileEntities, @NonNull CompoundTag heightMaps, @NonNull BiomeStorage biomes) {
         this.x = x;
         this.z = z;
         this.chunks = Arrays.copyOf(chunks, chunks.length);
-        this.biomeData = biomeData != null ? Arrays.copyOf(biomeData, biomeData.length) : null;
+        this.biomes = biomes;
+        biomes.attach(this);
+        this.tileEntities = tileEntities != null ? tileEntities : new CompoundTag[0];
+        this.heightMaps = heightMaps;
+    }
+
+    private Column(int x, int z, byte[][] rawChunks, CompoundTag[] tileEntities, CompoundTag heightMaps, BiomeStorage biomes) {
+        this.x = x;
+        this.z = z;
+        this.chunks = new Chunk[rawChunks.length];
+        this.rawChunks = rawChunks;
+        this.biomes = biomes;
+        biomes.attach(this);
         this.tileEntities = tileEntities != null ? tileEntities : new CompoundTag[0];
         this.heightMaps = heightMaps;
     }
+
+    /**
+     * Creates a column that keeps its sections in serialized form and only decodes each one
+     * into a {@link Chunk} the first time it is accessed. Sections that are never modified
+     * are written back using their original bytes.
+     *
+     * @param chunkMask   Mask of the sections present in the section data.
+     * @param chunkCount  Number of section slots in the column.
+     * @param sectionData Serialized sections, as sent in a chunk data packet.
+     * @return The lazily decoded column.
+     * @throws IOException If the section data is malformed.
+     */
+    public static Column lazy(int x, int z, @NonNull BitSet chunkMask, int chunkCount, @NonNull byte[] sectionData,
+                              @NonNull CompoundTag[] tileEntities, @NonNull CompoundTag heightMaps, @NonNull BiomeStorage biomes) throws IOException {
+        byte[][] rawChunks = new byte[chunkCount][];
+        ByteBuf buf = Unpooled.wrappedBuffer(sectionData);
+        try {
+            for (int index = 0; index < chunkCount; index++) {
+                if (chunkMask.get(index)) {
+                    int start = buf.readerIndex();
+                    Chunk.skip(buf);
+                    rawChunks[index] = Arrays.copyOfRange(sectionData, start, buf.readerIndex());
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Malformed chunk section data.", e);
+        }
+
+        return new Column(x, z, rawChunks, tileEntities, heightMaps, biomes);
+    }
+
+    /**
+     * Gets a copy of the biome data of this column as a plain array.
+     * Changes made to the array are not reflected in this column.
+     *
+     * @return The biome data.
+     * @deprecated Biomes are stored in a {@link BiomeStorage}, which should be read and changed through {@link #getBiomes()}.
+     */
+    @Deprecated
+    public int[] getBiomeData() {
+        return this.biomes.toIntArray();
+    }
+
+    /**
+     * Gets the number of section slots in this column without decoding any sections.
+     *
+     * @return The number of section slots.
+     */
+    public int getChunkCount() {
+        return this.chunks.length;
+    }
+
+    /**
+     * Gets whether the section at the given index can be retrieved without being decoded first, which is
+     * the case for every section except those of a lazily read column that have not been accessed yet.
+     *
+     * @param index Index of the section.
+     * @return Whether the section is decoded.
+     */
+    public boolean isChunkDecoded(int index) {
+        byte[][] rawChunks = this.rawChunks;
+        return rawChunks == null || rawChunks[index] == null || this.chunks[index] != null;
+    }
+
+    /**
+     * Gets the section at the given index, decoding it first if this column was read lazily.
+     *
+     * @param index Index of the section.
+     * @return The section, or null if it is missing.
+     */
+    public Chunk getChunk(int index) {
+        if (this.rawChunks != null) {
+            synchronized (this) {
+                if (this.rawChunks != null) {
+                    return this.decodeChunk(index);
+                }
+            }
+        }
+
+        return this.chunks[index];
+    }
+
+    /**
+     * Gets the section at the given index without decoding it.
+     *
+     * @param index Index of the section.
+     * @return The section, or null if it is missing or has not been decoded yet.
+     */
+    Chunk getDecodedChunk(int index) {
+        return this.chunks[index];
+    }
+
+    /**
+     * Replaces the section at the given index.
+     *
+     * @param index Index of the section.
+     * @param chunk The new section, or null to remove it.
+     */
+    public void setChunk(int index, Chunk chunk) {
+        if (this.rawChunks != null) {
+            synchronized (this) {
+                if (this.rawChunks != null) {
+                    this.rawChunks[index] = null;
+                }
+
+                this.chunks[index] = chunk;
+            }
+        } else {
+            this.chunks[index] = chunk;
+        }
+    }
+
+    /**
+     * Gets all sections of this column. For a lazily read column this decodes every remaining section,
+     * and since the returned array may then be modified freely, the original section bytes are dropped.
+     *
+     * @return The sections of this column.
+     */
+    public Chunk[] getChunks() {
+        if (this.rawChunks != null) {
+            synchronized (this) {
+                if (this.rawChunks != null) {
+                    for (int index = 0; index < this.chunks.length; index++) {
+                        this.decodeChunk(index);
+                    }
+
+                    this.rawChunks = null;
+                }
+            }
+        }
+
+        return this.chunks;
+    }
+
+    /**
+     * Gets the block state at the given position.
+     *
+     * @param x X coordinate within the column, 0-15.
+     * @param y Y coordinate above the bottom of the column.
+     * @param z Z coordinate within the column, 0-15.
+     * @return The block state, or 0 (air) if the block's section is missing.
+     */
+    public int getBlock(int x, int y, int z) {
+        Chunk chunk = this.getChunk(y >> 4);
+        return chunk != null ? chunk.get(x, y & 15, z) : 0;
+    }
+
+    /**
+     * Sets the block state at the given position, creating its section if needed
+     * and updating the heightmaps tracked by this column.
+     *
+     * @param x     X coordinate within the column, 0-15.
+     * @param y     Y coordinate above the bottom of the column.
+     * @param z     Z coordinate within the column, 0-15.
+     * @param state Block state to set.
+     */
+    public void setBlock(int x, int y, int z, int state) {
+        Chunk chunk = this.getChunk(y >> 4);
+        if (chunk == null) {
+            if (state == 0) {
+                return;
+            }
+
+            chunk = Chunk.air();
+            this.setChunk(y >> 4, chunk);
+        }
+
+        chunk.set(x, y & 15, z, state);
+        for (Heightmap heightmap : this.typedHeightMaps) {
+            if (heightmap != null) {
+                heightmap.update(this, x, y, z, state);
+            }
+        }
+    }
+
+    /**
+     * Gets the heightmap of the given type if it is tracked by this column.
+     *
+     * @param type Type of the heightmap.
+     * @return The heightmap, or null if it is not tracked, see {@link #trackHeightmap(HeightmapType, int, IntPredicate)}.
+     */
+    public synchronized Heightmap getHeightmap(@NonNull HeightmapType type) {
+        return this.typedHeightMaps[type.ordinal()];
+    }
+
+    /**
+     * Starts tracking the heightmap of the given type, so that it is updated when blocks are set through
+     * {@link #setBlock(int, int, int, int)}. The heightmap is parsed from the height map compound if it contains
+     * heights packed for the given world height, and otherwise calculated from the blocks of this column.
+     * Changes made to the heightmap are written back to the compound by {@link #getHeightMaps()}.
+     * If the heightmap is already tracked, it is returned as is.
+     *
+     * @param type      Type of the heightmap.
+     * @param height    Height of the world, in blocks.
+     * @param predicate Predicate deciding whether a block state counts towards the heightmap.
+     * @return The heightmap.
+     */
+    public synchronized Heightmap trackHeightmap(@NonNull HeightmapType type, int height, @NonNull IntPredicate predicate) {
+        Heightmap heightmap = this.typedHeightMaps[type.ordinal()];
+        if (heightmap == null) {
+            Tag tag = this.heightMaps.get(type.name());
+            if (tag instanceof LongArrayTag && ((LongArrayTag) tag).getValue().length == Heightmap.getDataLength(height)) {
+                heightmap = new Heightmap(type, height, ((LongArrayTag) tag).getValue().clone(), predicate);
+                heightmap.column = this;
+            } else {
+                heightmap = new Heightmap(type, height, predicate);
+                heightmap.column = this;
+                heightmap.recalculate(this);
+            }
+
+            this.typedHeightMaps[type.ordinal()] = heightmap;
+        }
+
+        return heightmap;
+    }
+
+    /**
+     * Gets the height map compound of this column, first writing back any heightmaps changed since it was last retrieved.
+     *
+     * @return The height map compound.
+     */
+    public synchronized CompoundTag getHeightMaps() {
+        for (Heightmap heightmap : this.typedHeightMaps) {
+            if (heightmap != null && heightmap.dirty) {
+                this.heightMaps.put(new LongArrayTag(heightmap.getType().name(), heightmap.toLongArray()));
+                heightmap.dirty = false;
+            }
+        }
+
+        return this.heightMaps;
+    }
+
+    /**
+     * Gets the tile entities of this column, rebuilding the array if they were changed through
+     * {@link #setTileEntity(int, int, int, CompoundTag)}. Tile entities keep their order, replaced ones
+     * stay in place and added ones follow the existing ones.
+     *
+     * @return The tile entities.
+     */
+    public synchronized CompoundTag[] getTileEntities() {
+        if (this.tileEntitiesChanged) {
+            this.tileEntities = this.buildTileEntities();
+            this.tileEntitiesChanged = false;
+        }
+
+        return this.tileEntities;
+    }
+
+    private CompoundTag[] buildTileEntities() {
+        List<TileEntity> entries = new ArrayList<>(this.tileEntityIndex.size() + this.unpositionedTileEntities.size());
+        entries.addAll(this.tileEntityIndex.values());
+        entries.addAll(this.unpositionedTileEntities);
+        entries.sort(Comparator.comparingInt(entry -> entry.order));
+
+        CompoundTag[] tileEntities = new CompoundTag[entries.size()];
+        for (int index = 0; index < tileEntities.length; index++) {
+            tileEntities[index] = entries.get(index).tag;
+        }
+
+        return tileEntities;
+    }
+
+    /**
+     * Gets the tile entity at the given world position.
+     *
+     * @param x X coordinate of the block.
+     * @param y Y coordinate of the block.
+     * @param z Z coordinate of the block.
+     * @return The tile entity's NBT, or null if there is none.
+     */
+    public synchronized CompoundTag getTileEntity(int x, int y, int z) {
+        TileEntity entry = this.getTileEntityIndex().get(packPosition(x, y, z));
+        return entry != null ? entry.tag : null;
+    }
+
+    /**
+     * Sets or removes the tile entity at the given world position. A copy of the tag is stored, with the
+     * position written into its {@code x}, {@code y} and {@code z} entries; the given tag is not modified.
+     *
+     * @param x   X coordinate of the block.
+     * @param y   Y coordinate of the block.
+     * @param z   Z coordinate of the block.
+     * @param tag The tile entity's NBT, or null to remove it.
+     */
+    public synchronized void setTileEntity(int x, int y, int z, CompoundTag tag) {
+        LongObjectMap<TileEntity> index = this.getTileEntityIndex();
+        long key = packPosition(x, y, z);
+        if (tag != null) {
+            CompoundTag copy = tag.clone();
+            copy.put(new IntTag("x", x));
+            copy.put(new IntTag("y", y));
+            copy.put(new IntTag("z", z));
+            TileEntity previous = index.get(key);
+            index.put(key, new TileEntity(copy, previous != null ? previous.order : this.nextTileEntityOrder++));
+        } else if (index.remove(key) == null) {
+            return;
+        }
+
+        this.tileEntitiesChanged = true;
+        this.markModified();
+    }
+
+    private LongObjectMap<TileEntity> getTileEntityIndex() {
+        if (this.tileEntityIndex == null) {
+            LongObjectMap<TileEntity> index = new LongObjectHashMap<>(Math.max(this.tileEntities.length, 4));
+            List<TileEntity> unpositioned = new ArrayList<>();
+            for (int order = 0; order < this.tileEntities.length; order++) {
+                CompoundTag tag = this.tileEntities[order];
+                Tag x = tag.get("x");
+                Tag y = tag.get("y");
+                Tag z = tag.get("z");
+                if (x instanceof IntTag && y instanceof IntTag && z instanceof IntTag) {
+                    // A later tile entity at the same position replaces an earlier one, as it does on clients.
+                    index.put(packPosition(((IntTag) x).getValue(), ((IntTag) y).getValue(), ((IntTag) z).getValue()), new TileEntity(tag, order));
+                } else {
+                    unpositioned.add(new TileEntity(tag, order));
+                }
+            }
+
+            this.tileEntityIndex = index;
+            this.unpositionedTileEntities = unpositioned;
+            this.nextTileEntityOrder = this.tileEntities.length;
+        }
+
+        return this.tileEntityIndex;
+    }
+
+    private static long packPosition(int x, int y, int z) {
+        return (x & 0x3FFFFFFL) << 38 | (z & 0x3FFFFFFL) << 12 | (y & 0xFFFL);
+    }
+
+    /**
+     * Gets the number of bytes {@link #writeChunk(NetOutput, int)} will write for the section at the given index.
+     *
+     * @param index Index of the section.
+     * @return The serialized size of the section, or 0 if it is missing or empty and will not be sent.
+     */
+    public int getChunkSize(int index) {
+        byte[] raw = this.getUnmodifiedRawChunk(index);
+        if (raw != null) {
+            return isEmpty(raw) ? 0 : raw.length;
+        }
+
+        Chunk chunk = this.getChunk(index);
+        if (chunk == null || chunk.isEmpty()) {
+            return 0;
+        }
+
+        return Chunk.serializedSize(chunk);
+    }
+
+    /**
+     * Writes the section at the given index. Sections read lazily that have not been modified since
+     * are written from their original bytes.
+     *
+     * @param out   Output to write to.
+     * @param index Index of the section.
+     * @return Whether the section was written. Missing and empty sections are not sent.
+     * @throws IOException If an I/O error occurs.
+     */
+    public boolean writeChunk(NetOutput out, int index) throws IOException {
+        byte[] raw = this.getUnmodifiedRawChunk(index);
+        if (raw != null) {
+            if (isEmpty(raw)) {
+                return false;
+            }
+
+            out.writeBytes(raw);
+            return true;
+        }
+
+        Chunk chunk = this.getChunk(index);
+        if (chunk == null || chunk.isEmpty()) {
+            return false;
+        }
+
+        Chunk.write(out, chunk);
+        return true;
+    }
+
+    /**
+     * Captures the sections of this column in the form they will be written, so that the section data of a chunk
+     * data packet is sized and written from the same state. Without this, a lazily read section decoded between
+     * sizing and writing would be written re-encoded, possibly with a different length than it was sized with.
+     *
+     * @return The captured sections.
+     */
+    public SectionSnapshot snapshotSections() {
+        Object[] sections = new Object[this.chunks.length];
+        BitSet mask = new BitSet();
+        int size = 0;
+        for (int index = 0; index < sections.length; index++) {
+            byte[] raw = this.getUnmodifiedRawChunk(index);
+            if (raw != null) {
+                if (!isEmpty(raw)) {
+                    sections[index] = raw;
+                    mask.set(index);
+                    size += raw.length;
+                }
+
+                continue;
+            }
+
+            Chunk chunk = this.getChunk(index);
+            if (chunk != null && !chunk.isEmpty()) {
+                sections[index] = chunk;
+                mask.set(index);
+                size += Chunk.serializedSize(chunk);
+            }
+        }
+
+        return new SectionSnapshot(sections, mask, size);
+    }
+
+    /**
+     * Finds every block in this column with the given state. Sections whose palette cannot
+     * contain the state are skipped.
+     *
+     * @param state Block state to search for.
+     * @param minY  Lowest Y coordinate of the world, which the first section starts at.
+     * @return The world positions of the matching blocks.
+     */
+    public List<Position> find(int state, int minY) {
+        List<Position> positions = new ArrayList<>();
+        int baseX = this.x << 4;
+        int baseZ = this.z << 4;
+        for (int index = 0; index < this.chunks.length; index++) {
+            Chunk chunk = this.getChunk(index);
+            if (chunk == null || !chunk.mayContain(state)) {
+                continue;
+            }
+
+            int baseY = minY + (index << 4);
+            chunk.find(state, block -> positions.add(new Position(baseX + (block & 15), baseY + (block >> 8), baseZ + (block >> 4 & 15))));
+        }
+
+        return positions;
+    }
+
+    /**
+     * Finds every block with the given state across many columns, on the calling thread.
+     * Callers that want to search in parallel can split the columns across their own executor.
+     *
+     * @param columns Columns to search.
+     * @param state   Block state to search for.
+     * @param minY    Lowest Y coordinate of the world, which the first section of each column starts at.
+     * @return The world positions of the matching blocks.
+     */
+    public static List<Position> find(@NonNull Collection<Column> columns, int state, int minY) {
+        List<Position> positions = new ArrayList<>();
+        for (Column column : columns) {
+            positions.addAll(column.find(state, minY));
+        }
+
+        return positions;
+    }
+
+    /**
+     * Sets the store that the sections of this column are deduplicated against. Sections that are already
+     * decoded are interned immediately, and sections of a lazily read column as they are decoded.
+     *
+     * @param sectionStore The section store, or null to stop interning sections decoded from now on.
+     */
+    public synchronized void setSectionStore(ChunkSectionStore sectionStore) {
+        this.sectionStore = sectionStore;
+        if (sectionStore != null) {
+            for (Chunk chunk : this.chunks) {
+                if (chunk != null) {
+                    sectionStore.intern(chunk);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks this column as modified. This must be called after changing its tile entities or
+     * height map compound in place so that cached encodings are invalidated. Changes made through
+     * {@link Chunk#set(int, int, int, int)}, {@link Heightmap} and {@link BiomeStorage#set(int, int)}
+     * are tracked automatically.
+     */
+    public void markModified() {
+        this.modCount.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of times this column has been marked as modified.
+     *
+     * @return The modification count.
+     */
+    public int getModCount() {
+        return this.modCount.get();
+    }
+
+    /**
+     * Gets the encoded chunk data packet previously cached for this column.
+     *
+     * @return The cached packet data, or null if none is cached or the column has been modified since.
+     */
+    public byte[] getCachedPacketData() {
+        CachedPacketData cached = this.cachedPacketData;
+        return cached != null && cached.state.matches(this) ? cached.data : null;
+    }
+
+    /**
+     * Captures the modification state of this column and its sections. Capture it before encoding the column,
+     * and pass it to {@link #setCachedPacketData(ModState, byte[])} along with the encoding.
+     *
+     * @return The current modification state.
+     */
+    public synchronized ModState getModState() {
+        return new ModState(this);
+    }
+
+    /**
+     * Caches the encoded chunk data packet for this column, if the column was not modified since the given state
+     * was captured. Otherwise the encoding may contain changes made while it was being written, and it is dropped.
+     *
+     * @param state State of the column captured before it was encoded.
+     * @param data  Encoded packet data.
+     * @return Whether the data was cached.
+     */
+    public boolean setCachedPacketData(@NonNull ModState state, @NonNull byte[] data) {
+        if (!state.matches(this)) {
+            return false;
+        }
+
+        // A modification made from here on is still caught by the state check in getCachedPacketData.
+        this.cachedPacketData = new CachedPacketData(state, data);
+        return true;
+    }
+
+    /**
+     * Removes the cached encoded chunk data packet of this column.
+     */
+    public void clearCachedPacketData() {
+        this.cachedPacketData = null;
+    }
+
+    /**
+     * Compares the contents of two columns. Sections are compared in serialized form, so neither column decodes
+     * its lazily read sections, and pending heightmap and tile entity changes are compared without being applied.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+
+        if (!(o instanceof Column)) {
+            return false;
+        }
+
+        Column other = (Column) o;
+        return this.x == other.x && this.z == other.z
+                && this.biomes.equals(other.biomes)
+                && this.snapshotHeightMaps().equals(other.snapshotHeightMaps())
+                && Arrays.equals(this.snapshotTileEntities(), other.snapshotTileEntities())
+                && Arrays.deepEquals(this.snapshotSectionBytes(), other.snapshotSectionBytes());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 31 * this.x + this.z;
+        result = 31 * result + this.biomes.hashCode();
+        result = 31 * result + this.snapshotHeightMaps().hashCode();
+        result = 31 * result + Arrays.hashCode(this.snapshotTileEntities());
+        return 31 * result + Arrays.deepHashCode(this.snapshotSectionBytes());
+    }
+
+    private synchronized CompoundTag snapshotHeightMaps() {
+        CompoundTag heightMaps = this.heightMaps;
+        for (Heightmap heightmap : this.typedHeightMaps) {
+            if (heightmap != null && heightmap.dirty) {
+                if (heightMaps == this.heightMaps) {
+                    heightMaps = this.heightMaps.clone();
+                }
+
+                heightMaps.put(new LongArrayTag(heightmap.getType().name(), heightmap.toLongArray()));
+            }
+        }
+
+        return heightMaps;
+    }
+
+    private synchronized CompoundTag[] snapshotTileEntities() {
+        return this.tileEntitiesChanged ? this.buildTileEntities() : this.tileEntities;
+    }
+
+    private synchronized byte[][] snapshotSectionBytes() {
+        byte[][] sections = new byte[this.chunks.length][];
+        for (int index = 0; index < sections.length; index++) {
+            Chunk chunk = this.chunks[index];
+            byte[] raw = this.rawChunks != null ? this.rawChunks[index] : null;
+            if (raw != null && (chunk == null || chunk.getModCount() == 0)) {
+                sections[index] = raw;
+            } else if (chunk != null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(Chunk.serializedSize(chunk));
+                try {
+                    Chunk.write(new StreamNetOutput(out), chunk);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to encode chunk section " + index + ".", e);
+                }
+
+                sections[index] = out.toByteArray();
+            }
+        }
+
+        return sections;
+    }
+
+    private byte[] getUnmodifiedRawChunk(int index) {
+        if (this.rawChunks == null) {
+            return null;
+        }
+
+        synchronized (this) {
+            byte[] raw = this.rawChunks != null ? this.rawChunks[index] : null;
+            if (raw != null && (this.chunks[index] == null || this.chunks[index].getModCount() == 0)) {
+                return raw;
+            }
+
+            return null;
+        }
+    }
+
+    private Chunk decodeChunk(int index) {
+        Chunk chunk = this.chunks[index];
+        byte[] raw = this.rawChunks[index];
+        if (chunk == null && raw != null) {
+            try {
+                chunk = Chunk.read(new StreamNetInput(new ByteArrayInputStream(raw)));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to decode chunk section " + index + ".", e);
+            }
+
+            ChunkSectionStore store = this.sectionStore;
+            if (store != null) {
+                store.intern(chunk);
+            }
+
+            this.chunks[index] = chunk;
+        }
+
+        return chunk;
+    }
+
+    private static boolean isEmpty(byte[] raw) {
+        // The block count is the leading short of a serialized section.
+        return raw[0] == 0 && raw[1] == 0;
+    }
+
+    /**
+     * The sections of a column captured by {@link #snapshotSections()}.
+     */
+    public static class SectionSnapshot {
+        private final Object[] sections;
+        private final BitSet mask;
+        private final int size;
+
+        private SectionSnapshot(Object[] sections, BitSet mask, int size) {
+            this.sections = sections;
+            this.mask = mask;
+            this.size = size;
+        }
+
+        /**
+         * Gets the mask of the sections that will be written.
+         *
+         * @return A copy of the section mask.
+         */
+        public BitSet getMask() {
+            return (BitSet) this.mask.clone();
+        }
+
+        /**
+         * Gets the number of bytes {@link #write(NetOutput)} will write.
+         *
+         * @return The size of the section data.
+         */
+        public int getSize() {
+            return this.size;
+        }
+
+        /**
+         * Writes the captured sections. The column's chunks must not be modified in the meantime.
+         *
+         * @param out Output to write to.
+         * @throws IOException If an I/O error occurs.
+         */
+        public void write(NetOutput out) throws IOException {
+            for (int index = this.mask.nextSetBit(0); index >= 0; index = this.mask.nextSetBit(index + 1)) {
+                Object section = this.sections[index];
+                if (section instanceof byte[]) {
+                    out.writeBytes((byte[]) section);
+                } else {
+                    Chunk.write(out, (Chunk) section);
+                }
+            }
+        }
+    }
+
+    private static class TileEntity {
+        private final CompoundTag tag;
+        private final int order;
+
+        private TileEntity(CompoundTag tag, int order) {
+            this.tag = tag;
+            this.order = order;
+        }
+    }
+
+    /**
+     * The modification state of a column and its sections, captured by {@link #getModState()}.
+     */
+    public static final class ModState {
+        private final int modCount;
+        private final Chunk[] chunks;
+        private final int[] chunkModCounts;
+
+        private ModState(Column column) {
+            this.modCount = column.modCount.get();
+            this.chunks = column.chunks.clone();
+            this.chunkModCounts = new int[this.chunks.length];
+            for (int index = 0; index < this.chunks.length; index++) {
+                if (this.chunks[index] != null) {
+                    this.chunkModCounts[index] = this.chunks[index].getModCount();
+                }
+            }
+        }
+
+        private boolean matches(Column column) {
+            if (this.modCount != column.modCount.get() || this.chunks.length != column.chunks.length) {
+                return false;
+            }
+
+            for (int index = 0; index < this.chunks.length; index++) {
+                Chunk chunk = column.chunks[index];
+                if (chunk != this.chunks[index] || (chunk != null && chunk.getModCount() != this.chunkModCounts[index])) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static class CachedPacketData {
+        private final ModState state;
+        private final byte[] data;
+
+        private CachedPacketData(ModState state, byte[] data) {
+            this.state = state;
+            this.data = data;
+        }
+    }
 }
@@ -0,0 +1,190 @@
+package com.github.steveice10.mc.protocol.data.game.chunk;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.function.IntPredicate;
+
+/**
+ * A heightmap of a column, holding for each block column the height above the bottom of the column
+ * of the block above the highest block counted by the heightmap's predicate, or 0 if no block is counted.
+ * Heights are packed into a {@link BitStorage} in the same layout as the long array sent to clients,
+ * using as many bits per entry as the height of the world needs.
+ */
+@EqualsAndHashCode(exclude = {"predicate", "dirty", "column"})
+public class Heightmap {
+    @Getter
+    private final @NonNull HeightmapType type;
+    @Getter
+    private final int height;
+    @Getter
+    private final @NonNull IntPredicate predicate;
+    private final @NonNull BitStorage storage;
+
+    /**
+     * Whether this heightmap has changed since it was last serialized.
+     */
+    boolean dirty;
+
+    /**
+     * Column this heightmap belongs to, which is marked as modified when a height changes.
+     */
+    Column column;
+
+    /**
+     * Creates a new heightmap with every height set to 0.
+     *
+     * @param type      Type of the heightmap.
+     * @param height    Height of the world, in blocks.
+     * @param predicate Predicate deciding whether a block state counts towards the heightmap.
+     */
+    public Heightmap(@NonNull HeightmapType type, int height, @NonNull IntPredicate predicate) {
+        this(type, height, null, predicate);
+    }
+
+    /**
+     * Creates a heightmap from its serialized long array.
+     *
+     * @param type      Type of the heightmap.
+     * @param height    Height of the world, in blocks.
+     * @param data      Packed heights, see {@link #getDataLength(int)}.
+     * @param predicate Predicate deciding whether a block state counts towards the heightmap.
+     * @throws IllegalArgumentException If the length of the data does not match the height of the world.
+     */
+    public Heightmap(@NonNull HeightmapType type, int height, long[] data, @NonNull IntPredicate predicate) {
+        if (height < 0) {
+            throw new IllegalArgumentException("Height cannot be negative.");
+        }
+
+        this.type = type;
+        this.height = height;
+        this.predicate = predicate;
+        this.storage = new BitStorage(bitsFor(height), 256, data);
+    }
+
+    /**
+     * Gets the number of longs the heights of a heightmap are packed into.
+     *
+     * @param height Height of the world, in blocks.
+     * @return The length of the serialized long array.
+     */
+    public static int getDataLength(int height) {
+        int valuesPerLong = 64 / bitsFor(height);
+        return (256 + valuesPerLong - 1) / valuesPerLong;
+    }
+
+    /**
+     * Gets the height of a block column.
+     *
+     * @param x X coordinate within the column, 0-15.
+     * @param z Z coordinate within the column, 0-15.
+     * @return The height above the bottom of the column.
+     */
+    public int get(int x, int z) {
+        return this.storage.get(z << 4 | x);
+    }
+
+    /**
+     * Sets the height of a block column.
+     *
+     * @param x      X coordinate within the column, 0-15.
+     * @param z      Z coordinate within the column, 0-15.
+     * @param height The height above the bottom of the column.
+     */
+    public void set(int x, int z, int height) {
+        int index = z << 4 | x;
+        if (this.storage.get(index) == height) {
+            return;
+        }
+
+        this.storage.set(index, height);
+        this.dirty = true;
+        if (this.column != null) {
+            this.column.markModified();
+        }
+    }
+
+    /**
+     * Updates this heightmap after a block in the given column has been set.
+     *
+     * @param column Column the block was set in.
+     * @param x      X coordinate within the column, 0-15.
+     * @param y      Y coordinate above the bottom of the column.
+     * @param z      Z coordinate within the column, 0-15.
+     * @param state  The new block state.
+     * @return Whether the height of the block column changed.
+     */
+    public boolean update(@NonNull Column column, int x, int y, int z, int state) {
+        if (y >= this.height) {
+            // Blocks above the world do not affect the heightmap.
+            return false;
+        }
+
+        int height = this.get(x, z);
+        if (y < height - 1) {
+            // Blocks below the top one do not affect the height.
+            return false;
+        }
+
+        if (this.predicate.test(state)) {
+            if (y >= height) {
+                this.set(x, z, y + 1);
+                return true;
+            }
+
+            return false;
+        }
+
+        if (y == height - 1) {
+            this.set(x, z, this.findHeight(column, x, y - 1, z));
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Recalculates every height of this heightmap from the blocks of a column.
+     *
+     * @param column Column to calculate the heights of.
+     */
+    public void recalculate(@NonNull Column column) {
+        int top = Math.min(this.height, column.getChunkCount() << 4) - 1;
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                this.set(x, z, this.findHeight(column, x, top, z));
+            }
+        }
+    }
+
+    /**
+     * Gets the serialized form of this heightmap.
+     *
+     * @return A copy of the packed heights.
+     */
+    public long[] toLongArray() {
+        return this.storage.getData().clone();
+    }
+
+    private int findHeight(Column column, int x, int startY, int z) {
+        for (int y = startY; y >= 0; y--) {
+            Chunk chunk = column.getChunk(y >> 4);
+            if (chunk == null) {
+                // Skip to the top of the section below.
+                y &= ~15;
+                continue;
+            }
+
+            if (this.predicate.test(chunk.get(x, y & 15, z))) {
+                return y + 1;
+            }
+        }
+
+        return 0;
+    }
+
+    private static int bitsFor(int height) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(height));
+    }
+}
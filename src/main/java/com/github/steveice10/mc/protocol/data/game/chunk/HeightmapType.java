@@ -0,0 +1,9 @@
+package com.github.steveice10.mc.protocol.data.game.chunk;
+
+/**
+ * Heightmaps sent to clients, named as their tags in a column's height map compound.
+ */
+public enum HeightmapType {
+    MOTION_BLOCKING,
+    WORLD_SURFACE;
+}
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NonNull;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 @Data
 @AllArgsConstructor
@@ -44,14 +45,6 @@ public class NibbleArray3d {
     }
 
     public void fill(int val) {
-        for (int index = 0; index < this.data.length << 1; index++) {
-            int ind = index >> 1;
-            int part = index & 1;
-            if (part == 0) {
-                this.data[ind] = (byte) (this.data[ind] & 240 | val & 15);
-            } else {
-                this.data[ind] = (byte) (this.data[ind] & 15 | (val & 15) << 4);
-            }
-        }
+        Arrays.fill(this.data, (byte) ((val & 15) | (val & 15) << 4));
     }
 }
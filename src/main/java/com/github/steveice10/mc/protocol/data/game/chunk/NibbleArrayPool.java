@@ -0,0 +1,199 @@
+package com.github.steveice10.mc.protocol.data.game.chunk;
+
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of the 2048-byte nibble arrays that back light sections, along with shared
+ * arrays for sections that have the same light level throughout.
+ * <p>
+ * Shared uniform arrays are handed out to many sections at once and must never be modified.
+ * Use {@link #isUniform(byte[])} to check for them before writing to a light array.
+ */
+public class NibbleArrayPool {
+    /**
+     * Size of a light section's nibble array, in bytes.
+     */
+    public static final int SECTION_SIZE = 2048;
+
+    private static final byte[][] UNIFORM = new byte[16][];
+
+    static {
+        for (int level = 0; level < UNIFORM.length; level++) {
+            UNIFORM[level] = new byte[SECTION_SIZE];
+            Arrays.fill(UNIFORM[level], (byte) (level | level << 4));
+        }
+    }
+
+    private final int maxSize;
+    private final Queue<byte[]> arrays = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Arrays currently in the pool, tracked in debug mode to detect arrays released twice.
+     */
+    private volatile Set<byte[]> pooled;
+
+    /**
+     * Creates a new nibble array pool.
+     *
+     * @param maxSize Maximum number of arrays kept in the pool.
+     */
+    public NibbleArrayPool(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize cannot be negative.");
+        }
+
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets whether this pool checks for arrays released more than once.
+     *
+     * @return Whether debug mode is enabled.
+     */
+    public boolean isDebug() {
+        return this.pooled != null;
+    }
+
+    /**
+     * Enables or disables checking for arrays released more than once. An array released twice would
+     * otherwise be handed out to two owners at once. Checking costs a set lookup on every acquire and release.
+     *
+     * @param debug Whether to enable debug mode.
+     */
+    public synchronized void setDebug(boolean debug) {
+        if (debug == this.isDebug()) {
+            return;
+        }
+
+        if (debug) {
+            Set<byte[]> pooled = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+            pooled.addAll(this.arrays);
+            this.pooled = pooled;
+        } else {
+            this.pooled = null;
+        }
+    }
+
+    /**
+     * Gets the shared array for a section with the given light level throughout.
+     * The returned array must not be modified.
+     *
+     * @param level Light level, between 0 and 15.
+     * @return The shared uniform array.
+     */
+    public static byte[] uniform(int level) {
+        return UNIFORM[level & 15];
+    }
+
+    /**
+     * Gets whether an array is one of the shared uniform arrays.
+     *
+     * @param array Array to check.
+     * @return Whether the array is shared.
+     */
+    public static boolean isUniform(@NonNull byte[] array) {
+        return array.length == SECTION_SIZE && array == UNIFORM[array[0] & 15];
+    }
+
+    /**
+     * Gets the light level shared by every nibble of an array.
+     *
+     * @param array Array to check.
+     * @return The shared light level, or -1 if the array is not uniform.
+     */
+    public static int uniformLevel(@NonNull byte[] array) {
+        if (array.length == 0) {
+            return -1;
+        }
+
+        byte first = array[0];
+        if ((first & 15) != (first >> 4 & 15)) {
+            return -1;
+        }
+
+        for (int index = 1; index < array.length; index++) {
+            if (array[index] != first) {
+                return -1;
+            }
+        }
+
+        return first & 15;
+    }
+
+    /**
+     * Takes an array from the pool, allocating a new one if the pool is empty.
+     * The contents of the returned array are undefined.
+     *
+     * @return A 2048-byte array.
+     */
+    public byte[] acquire() {
+        byte[] array = this.arrays.poll();
+        if (array == null) {
+            return new byte[SECTION_SIZE];
+        }
+
+        this.size.decrementAndGet();
+        Set<byte[]> pooled = this.pooled;
+        if (pooled != null) {
+            pooled.remove(array);
+        }
+
+        return array;
+    }
+
+    /**
+     * Takes an array from the pool wrapped as a nibble array. The contents of the returned array are undefined.
+     *
+     * @return A nibble array covering one section.
+     */
+    public NibbleArray3d acquireNibbleArray() {
+        return new NibbleArray3d(this.acquire());
+    }
+
+    /**
+     * Returns an array to the pool. Shared uniform arrays and arrays of the wrong size are ignored.
+     * The array must not be used by the caller afterwards.
+     *
+     * @param array Array to return.
+     * @throws IllegalStateException If debug mode is enabled and the array is already in the pool.
+     */
+    public void release(@NonNull byte[] array) {
+        if (array.length != SECTION_SIZE || isUniform(array)) {
+            return;
+        }
+
+        Set<byte[]> pooled = this.pooled;
+        if (pooled != null && !pooled.add(array)) {
+            throw new IllegalStateException("Nibble array was released to the pool twice.");
+        }
+
+        if (this.size.incrementAndGet() > this.maxSize) {
+            this.size.decrementAndGet();
+            if (pooled != null) {
+                pooled.remove(array);
+            }
+
+            return;
+        }
+
+        this.arrays.offer(array);
+    }
+
+    /**
+     * Gets the number of arrays currently in the pool.
+     *
+     * @return The number of pooled arrays.
+     */
+    public int getSize() {
+        return this.size.get();
+    }
+}
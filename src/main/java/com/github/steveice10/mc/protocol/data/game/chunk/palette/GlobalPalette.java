@@ -21,4 +21,10 @@ public class GlobalPalette implements Palette {
     public int idToState(int id) {
         return id;
     }
+
+    @Override
+    public GlobalPalette copy() {
+        // Stateless, so it can be shared.
+        return this;
+    }
 }
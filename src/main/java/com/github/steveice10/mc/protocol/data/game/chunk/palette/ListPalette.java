@@ -31,6 +31,12 @@ public class ListPalette implements Palette {
         this.nextId = paletteLength;
     }
 
+    private ListPalette(ListPalette palette) {
+        this.maxId = palette.maxId;
+        this.data = palette.data.clone();
+        this.nextId = palette.nextId;
+    }
+
     @Override
     public int size() {
         return this.nextId;
@@ -61,4 +67,9 @@ public class ListPalette implements Palette {
             return 0;
         }
     }
+
+    @Override
+    public ListPalette copy() {
+        return new ListPalette(this);
+    }
 }
@@ -36,6 +36,15 @@ public class MapPalette implements Palette {
         this.nextId = paletteLength;
     }
 
+    private MapPalette(MapPalette palette) {
+        this.maxId = palette.maxId;
+        this.idToState = palette.idToState.clone();
+        for (int i = 0; i < palette.nextId; i++) {
+            this.stateToId.putIfAbsent(this.idToState[i], i);
+        }
+        this.nextId = palette.nextId;
+    }
+
     @Override
     public int size() {
         return this.nextId;
@@ -65,4 +74,9 @@ public class MapPalette implements Palette {
             return 0;
         }
     }
+
+    @Override
+    public MapPalette copy() {
+        return new MapPalette(this);
+    }
 }
@@ -28,4 +28,11 @@ public interface Palette {
      * @return The resulting block state.
      */
     public int idToState(int id);
+
+    /**
+     * Creates a copy of this palette that can be modified independently.
+     *
+     * @return The copied palette.
+     */
+    public Palette copy();
 }
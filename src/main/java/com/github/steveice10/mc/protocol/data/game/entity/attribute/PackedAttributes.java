@@ -0,0 +1,443 @@
+package com.github.steveice10.mc.protocol.data.game.entity.attribute;
+
+import com.github.steveice10.mc.protocol.data.MagicValues;
+import com.github.steveice10.mc.protocol.data.game.Identifier;
+import com.github.steveice10.packetlib.io.NetInput;
+import com.github.steveice10.packetlib.io.NetOutput;
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A list of attributes stored in flat primitive arrays, with the modifiers of all attributes laid out
+ * one after another. This avoids creating an {@link Attribute} and {@link AttributeModifier} per entry.
+ * <p>
+ * Attribute identifiers are read and written through byte tables precomputed from {@link MagicValues}, so known
+ * identifiers are matched without decoding them into strings.
+ */
+@EqualsAndHashCode
+@ToString
+public class PackedAttributes {
+    private static final AttributeType[] TYPES = AttributeType.values();
+    private static final String MINECRAFT_NAMESPACE = "minecraft:";
+    private static final long[] NO_UUIDS = new long[0];
+    private static final double[] NO_AMOUNTS = new double[0];
+    private static final byte[] NO_OPERATIONS = new byte[0];
+
+    /**
+     * UTF-8 identifier of each attribute type, by ordinal.
+     */
+    private static final byte[][] IDENTIFIERS = new byte[TYPES.length][];
+    /**
+     * UTF-8 identifier of each attribute type without the minecraft namespace, by ordinal, or null if it has another namespace.
+     */
+    private static final byte[][] SHORT_IDENTIFIERS = new byte[TYPES.length][];
+    /**
+     * Identifier of each attribute type as written by {@link NetOutput#writeString(String)}, by ordinal.
+     */
+    private static final byte[][] ENCODED_IDENTIFIERS = new byte[TYPES.length][];
+    private static final int MAX_IDENTIFIER_LENGTH;
+
+    static {
+        int maxLength = 0;
+        for (AttributeType type : TYPES) {
+            String name = MagicValues.value(String.class, type);
+            byte[] identifier = name.getBytes(StandardCharsets.UTF_8);
+            IDENTIFIERS[type.ordinal()] = identifier;
+            if (name.startsWith(MINECRAFT_NAMESPACE)) {
+                SHORT_IDENTIFIERS[type.ordinal()] = name.substring(MINECRAFT_NAMESPACE.length()).getBytes(StandardCharsets.UTF_8);
+            }
+
+            maxLength = Math.max(maxLength, identifier.length);
+
+            byte[] encoded = new byte[varIntLength(identifier.length) + identifier.length];
+            int index = 0;
+            int length = identifier.length;
+            while ((length & ~0x7F) != 0) {
+                encoded[index++] = (byte) ((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+
+            encoded[index++] = (byte) length;
+            System.arraycopy(identifier, 0, encoded, index, identifier.length);
+            ENCODED_IDENTIFIERS[type.ordinal()] = encoded;
+        }
+
+        MAX_IDENTIFIER_LENGTH = maxLength;
+    }
+
+    private final @NonNull AttributeType[] types;
+    private final @NonNull double[] values;
+    /**
+     * Index of the first modifier of each attribute, followed by the total number of modifiers.
+     */
+    private final @NonNull int[] modifierStarts;
+    /**
+     * Modifier UUIDs, as consecutive most and least significant bits.
+     */
+    private final @NonNull long[] modifierUuids;
+    private final @NonNull double[] modifierAmounts;
+    private final @NonNull byte[] modifierOperations;
+
+    private PackedAttributes(AttributeType[] types, double[] values, int[] modifierStarts, long[] modifierUuids, double[] modifierAmounts, byte[] modifierOperations) {
+        this.types = types;
+        this.values = values;
+        this.modifierStarts = modifierStarts;
+        this.modifierUuids = modifierUuids;
+        this.modifierAmounts = modifierAmounts;
+        this.modifierOperations = modifierOperations;
+    }
+
+    /**
+     * Packs a list of attributes.
+     *
+     * @param attributes Attributes to pack.
+     * @return The packed attributes.
+     */
+    public static PackedAttributes of(@NonNull List<Attribute> attributes) {
+        int modifierCount = 0;
+        for (Attribute attribute : attributes) {
+            modifierCount += attribute.getModifiers().size();
+        }
+
+        AttributeType[] types = new AttributeType[attributes.size()];
+        double[] values = new double[types.length];
+        int[] modifierStarts = new int[types.length + 1];
+        long[] modifierUuids = new long[modifierCount * 2];
+        double[] modifierAmounts = new double[modifierCount];
+        byte[] modifierOperations = new byte[modifierCount];
+        int modifier = 0;
+        for (int index = 0; index < types.length; index++) {
+            Attribute attribute = attributes.get(index);
+            types[index] = attribute.getType();
+            values[index] = attribute.getValue();
+            modifierStarts[index] = modifier;
+            for (AttributeModifier entry : attribute.getModifiers()) {
+                modifierUuids[modifier * 2] = entry.getUuid().getMostSignificantBits();
+                modifierUuids[modifier * 2 + 1] = entry.getUuid().getLeastSignificantBits();
+                modifierAmounts[modifier] = entry.getAmount();
+                modifierOperations[modifier] = (byte) (int) MagicValues.value(Integer.class, entry.getOperation());
+                modifier++;
+            }
+        }
+
+        modifierStarts[types.length] = modifier;
+        return new PackedAttributes(types, values, modifierStarts, modifierUuids, modifierAmounts, modifierOperations);
+    }
+
+    public static PackedAttributes read(NetInput in) throws IOException {
+        int length = in.readVarInt();
+        AttributeType[] types = new AttributeType[length];
+        double[] values = new double[length];
+        int[] modifierStarts = new int[length + 1];
+        long[] modifierUuids = NO_UUIDS;
+        double[] modifierAmounts = NO_AMOUNTS;
+        byte[] modifierOperations = NO_OPERATIONS;
+        byte[] buffer = new byte[MAX_IDENTIFIER_LENGTH];
+        int modifier = 0;
+        for (int index = 0; index < length; index++) {
+            types[index] = readType(in, buffer);
+            values[index] = in.readDouble();
+            modifierStarts[index] = modifier;
+
+            int count = in.readVarInt();
+            if (count == 0) {
+                continue;
+            }
+
+            if (modifier + count > modifierAmounts.length) {
+                int capacity = Math.max(modifier + count, modifierAmounts.length * 2);
+                modifierUuids = Arrays.copyOf(modifierUuids, capacity * 2);
+                modifierAmounts = Arrays.copyOf(modifierAmounts, capacity);
+                modifierOperations = Arrays.copyOf(modifierOperations, capacity);
+            }
+
+            for (int i = 0; i < count; i++) {
+                modifierUuids[modifier * 2] = in.readLong();
+                modifierUuids[modifier * 2 + 1] = in.readLong();
+                modifierAmounts[modifier] = in.readDouble();
+                modifierOperations[modifier] = in.readByte();
+                modifier++;
+            }
+        }
+
+        modifierStarts[length] = modifier;
+        if (modifier != modifierAmounts.length) {
+            modifierUuids = Arrays.copyOf(modifierUuids, modifier * 2);
+            modifierAmounts = Arrays.copyOf(modifierAmounts, modifier);
+            modifierOperations = Arrays.copyOf(modifierOperations, modifier);
+        }
+
+        return new PackedAttributes(types, values, modifierStarts, modifierUuids, modifierAmounts, modifierOperations);
+    }
+
+    public static void write(NetOutput out, PackedAttributes attributes) throws IOException {
+        out.writeVarInt(attributes.types.length);
+        for (int index = 0; index < attributes.types.length; index++) {
+            out.writeBytes(ENCODED_IDENTIFIERS[attributes.types[index].ordinal()]);
+            out.writeDouble(attributes.values[index]);
+            int start = attributes.modifierStarts[index];
+            int end = attributes.modifierStarts[index + 1];
+            out.writeVarInt(end - start);
+            for (int modifier = start; modifier < end; modifier++) {
+                out.writeLong(attributes.modifierUuids[modifier * 2]);
+                out.writeLong(attributes.modifierUuids[modifier * 2 + 1]);
+                out.writeDouble(attributes.modifierAmounts[modifier]);
+                out.writeByte(attributes.modifierOperations[modifier]);
+            }
+        }
+    }
+
+    private static AttributeType readType(NetInput in, byte[] buffer) throws IOException {
+        int length = in.readVarInt();
+        if (length > buffer.length) {
+            return MagicValues.key(AttributeType.class, Identifier.formalize(new String(in.readBytes(length), StandardCharsets.UTF_8)));
+        }
+
+        int read = 0;
+        while (read < length) {
+            int count = in.readBytes(buffer, read, length - read);
+            if (count < 0) {
+                throw new EOFException("Attribute identifier ended early.");
+            }
+
+            read += count;
+        }
+
+        for (int ordinal = 0; ordinal < TYPES.length; ordinal++) {
+            if (matches(buffer, length, IDENTIFIERS[ordinal]) || matches(buffer, length, SHORT_IDENTIFIERS[ordinal])) {
+                return TYPES[ordinal];
+            }
+        }
+
+        // Not a known spelling of an identifier; let the lookup table decide.
+        return MagicValues.key(AttributeType.class, Identifier.formalize(new String(buffer, 0, length, StandardCharsets.UTF_8)));
+    }
+
+    private static boolean matches(byte[] bytes, int length, byte[] identifier) {
+        if (identifier == null || identifier.length != length) {
+            return false;
+        }
+
+        for (int index = 0; index < length; index++) {
+            if (bytes[index] != identifier[index]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            length++;
+            value >>>= 7;
+        }
+
+        return length;
+    }
+
+    /**
+     * Gets the number of attributes.
+     *
+     * @return The number of attributes.
+     */
+    public int size() {
+        return this.types.length;
+    }
+
+    /**
+     * Gets the type of an attribute.
+     *
+     * @param index Index of the attribute.
+     * @return The attribute type.
+     */
+    public AttributeType getType(int index) {
+        return this.types[index];
+    }
+
+    /**
+     * Gets the base value of an attribute.
+     *
+     * @param index Index of the attribute.
+     * @return The base value.
+     */
+    public double getValue(int index) {
+        return this.values[index];
+    }
+
+    /**
+     * Gets the number of modifiers of an attribute.
+     *
+     * @param index Index of the attribute.
+     * @return The number of modifiers.
+     */
+    public int getModifierCount(int index) {
+        return this.modifierStarts[index + 1] - this.modifierStarts[index];
+    }
+
+    /**
+     * Gets the amount of one of an attribute's modifiers.
+     *
+     * @param index    Index of the attribute.
+     * @param modifier Index of the modifier within the attribute.
+     * @return The modifier amount.
+     */
+    public double getModifierAmount(int index, int modifier) {
+        return this.modifierAmounts[this.modifierStarts[index] + modifier];
+    }
+
+    /**
+     * Gets the UUID of one of an attribute's modifiers.
+     *
+     * @param index    Index of the attribute.
+     * @param modifier Index of the modifier within the attribute.
+     * @return The modifier UUID.
+     */
+    public UUID getModifierUuid(int index, int modifier) {
+        int position = this.modifierStarts[index] + modifier;
+        return new UUID(this.modifierUuids[position * 2], this.modifierUuids[position * 2 + 1]);
+    }
+
+    /**
+     * Gets the most significant bits of the UUID of one of an attribute's modifiers, without creating a UUID.
+     *
+     * @param index    Index of the attribute.
+     * @param modifier Index of the modifier within the attribute.
+     * @return The most significant bits of the modifier UUID.
+     */
+    public long getModifierUuidMost(int index, int modifier) {
+        return this.modifierUuids[(this.modifierStarts[index] + modifier) * 2];
+    }
+
+    /**
+     * Gets the least significant bits of the UUID of one of an attribute's modifiers, without creating a UUID.
+     *
+     * @param index    Index of the attribute.
+     * @param modifier Index of the modifier within the attribute.
+     * @return The least significant bits of the modifier UUID.
+     */
+    public long getModifierUuidLeast(int index, int modifier) {
+        return this.modifierUuids[(this.modifierStarts[index] + modifier) * 2 + 1];
+    }
+
+    /**
+     * Gets the operation of one of an attribute's modifiers.
+     *
+     * @param index    Index of the attribute.
+     * @param modifier Index of the modifier within the attribute.
+     * @return The modifier operation.
+     */
+    public ModifierOperation getModifierOperation(int index, int modifier) {
+        return MagicValues.key(ModifierOperation.class, this.modifierOperations[this.modifierStarts[index] + modifier]);
+    }
+
+    /**
+     * Unpacks the attributes into objects.
+     *
+     * @return The attributes.
+     */
+    public List<Attribute> toAttributes() {
+        List<Attribute> attributes = new ArrayList<>(this.types.length);
+        for (int index = 0; index < this.types.length; index++) {
+            int start = this.modifierStarts[index];
+            int end = this.modifierStarts[index + 1];
+            List<AttributeModifier> modifiers = new ArrayList<>(end - start);
+            for (int modifier = start; modifier < end; modifier++) {
+                UUID uuid = new UUID(this.modifierUuids[modifier * 2], this.modifierUuids[modifier * 2 + 1]);
+                modifiers.add(new AttributeModifier(uuid, this.modifierAmounts[modifier], MagicValues.key(ModifierOperation.class, this.modifierOperations[modifier])));
+            }
+
+            attributes.add(new Attribute(this.types[index], this.values[index], modifiers));
+        }
+
+        return attributes;
+    }
+
+    /**
+     * Builds packed attributes one attribute and modifier at a time, without creating attribute or modifier objects.
+     */
+    public static class Builder {
+        private AttributeType[] types = new AttributeType[4];
+        private double[] values = new double[4];
+        private int[] modifierStarts = new int[5];
+        private long[] modifierUuids = NO_UUIDS;
+        private double[] modifierAmounts = NO_AMOUNTS;
+        private byte[] modifierOperations = NO_OPERATIONS;
+        private int size;
+        private int modifierCount;
+
+        /**
+         * Adds an attribute. Modifiers added afterwards belong to it.
+         *
+         * @param type  Type of the attribute.
+         * @param value Base value of the attribute.
+         * @return This builder.
+         */
+        public Builder add(@NonNull AttributeType type, double value) {
+            if (this.size == this.types.length) {
+                this.types = Arrays.copyOf(this.types, this.size << 1);
+                this.values = Arrays.copyOf(this.values, this.size << 1);
+                this.modifierStarts = Arrays.copyOf(this.modifierStarts, (this.size << 1) + 1);
+            }
+
+            this.types[this.size] = type;
+            this.values[this.size] = value;
+            this.modifierStarts[this.size] = this.modifierCount;
+            this.size++;
+            return this;
+        }
+
+        /**
+         * Adds a modifier to the last added attribute.
+         *
+         * @param uuidMost  Most significant bits of the modifier UUID.
+         * @param uuidLeast Least significant bits of the modifier UUID.
+         * @param amount    Amount of the modifier.
+         * @param operation Operation of the modifier.
+         * @return This builder.
+         * @throws IllegalStateException If no attribute was added yet.
+         */
+        public Builder addModifier(long uuidMost, long uuidLeast, double amount, @NonNull ModifierOperation operation) {
+            if (this.size == 0) {
+                throw new IllegalStateException("An attribute must be added before its modifiers.");
+            }
+
+            if (this.modifierCount == this.modifierAmounts.length) {
+                int capacity = Math.max(4, this.modifierCount << 1);
+                this.modifierUuids = Arrays.copyOf(this.modifierUuids, capacity * 2);
+                this.modifierAmounts = Arrays.copyOf(this.modifierAmounts, capacity);
+                this.modifierOperations = Arrays.copyOf(this.modifierOperations, capacity);
+            }
+
+            this.modifierUuids[this.modifierCount * 2] = uuidMost;
+            this.modifierUuids[this.modifierCount * 2 + 1] = uuidLeast;
+            this.modifierAmounts[this.modifierCount] = amount;
+            this.modifierOperations[this.modifierCount] = (byte) (int) MagicValues.value(Integer.class, operation);
+            this.modifierCount++;
+            return this;
+        }
+
+        /**
+         * Builds the packed attributes.
+         *
+         * @return The packed attributes.
+         */
+        public PackedAttributes build() {
+            int[] modifierStarts = Arrays.copyOf(this.modifierStarts, this.size + 1);
+            modifierStarts[this.size] = this.modifierCount;
+            return new PackedAttributes(Arrays.copyOf(this.types, this.size), Arrays.copyOf(this.values, this.size), modifierStarts,
+                    Arrays.copyOf(this.modifierUuids, this.modifierCount * 2), Arrays.copyOf(this.modifierAmounts, this.modifierCount),
+                    Arrays.copyOf(this.modifierOperations, this.modifierCount));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.steveice10.mc.protocol.data.game.entity.metadata;
+
+/**
+ * Entity metadata holding a boolean value without boxing it.
+ */
+public class BooleanEntityMetadata extends EntityMetadata {
+    private final boolean primitiveValue;
+
+    public BooleanEntityMetadata(int id, boolean value) {
+        super(id, MetadataType.BOOLEAN, null);
+        this.primitiveValue = value;
+    }
+
+    /**
+     * Gets the value of this metadata without boxing it.
+     *
+     * @return The value.
+     */
+    public boolean getPrimitiveValue() {
+        return this.primitiveValue;
+    }
+
+    @Override
+    public Boolean getValue() {
+        return this.primitiveValue;
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.steveice10.mc.protocol.data.game.entity.metadata;
+
+/**
+ * Entity metadata holding a byte value without boxing it.
+ */
+public class ByteEntityMetadata extends EntityMetadata {
+    private final byte primitiveValue;
+
+    public ByteEntityMetadata(int id, byte value) {
+        super(id, MetadataType.BYTE, null);
+        this.primitiveValue = value;
+    }
+
+    /**
+     * Gets the value of this metadata without boxing it.
+     *
+     * @return The value.
+     */
+    public byte getPrimitiveValue() {
+        return this.primitiveValue;
+    }
+
+    @Override
+    public Byte getValue() {
+        return this.primitiveValue;
+    }
+}
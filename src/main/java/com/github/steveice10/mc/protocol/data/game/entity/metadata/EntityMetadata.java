@@ -16,36 +16,77 @@ import lombok.NonNull;
 import net.kyori.adventure.text.Component;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.OptionalInt;
 import java.util.UUID;
 
 @Data
 @AllArgsConstructor
 public class EntityMetadata {
+    /**
+     * Metadata types indexed by their network id, which is what the decoder has to look a type up by.
+     */
+    private static final MetadataType[] TYPES_BY_ID;
+    /**
+     * Network ids of the metadata types, indexed by {@link MetadataType} ordinal.
+     */
+    private static final int[] TYPE_IDS = new int[MetadataType.values().length];
+
+    static {
+        int maxId = 0;
+        for (MetadataType type : MetadataType.values()) {
+            int id = MagicValues.value(Integer.class, type);
+            TYPE_IDS[type.ordinal()] = id;
+            maxId = Math.max(maxId, id);
+        }
+
+        TYPES_BY_ID = new MetadataType[maxId + 1];
+        for (MetadataType type : MetadataType.values()) {
+            TYPES_BY_ID[TYPE_IDS[type.ordinal()]] = type;
+        }
+    }
+
     private final int id;
     private final @NonNull MetadataType type;
     private final Object value;
 
+    /**
+     * Gets the network id of a metadata type.
+     *
+     * @param type Type to get the id of.
+     * @return The network id.
+     */
+    public static int getTypeId(@NonNull MetadataType type) {
+        return TYPE_IDS[type.ordinal()];
+    }
+
     public static EntityMetadata[] read(NetInput in) throws IOException {
-        List<EntityMetadata> ret = new ArrayList<EntityMetadata>();
+        EntityMetadata[] ret = new EntityMetadata[8];
+        int length = 0;
         int id;
         while ((id = in.readUnsignedByte()) != 255) {
             int typeId = in.readVarInt();
-            MetadataType type = MagicValues.key(MetadataType.class, typeId);
+            MetadataType type = typeId >= 0 && typeId < TYPES_BY_ID.length ? TYPES_BY_ID[typeId] : null;
+            if (type == null) {
+                throw new IOException("Unknown metadata type id: " + typeId);
+            }
+
+            if (length == ret.length) {
+                ret = Arrays.copyOf(ret, length << 1);
+            }
+
             Object value = null;
             switch (type) {
                 case BYTE:
-                    value = in.readByte();
-                    break;
+                    ret[length++] = new ByteEntityMetadata(id, in.readByte());
+                    continue;
                 case INT:
                 case BLOCK_STATE:
-                    value = in.readVarInt();
-                    break;
+                    ret[length++] = new IntEntityMetadata(id, type, in.readVarInt());
+                    continue;
                 case FLOAT:
-                    value = in.readFloat();
-                    break;
+                    ret[length++] = new FloatEntityMetadata(id, in.readFloat());
+                    continue;
                 case STRING:
                     value = in.readString();
                     break;
@@ -63,8 +104,8 @@ public class EntityMetadata {
                     value = ItemStack.read(in);
                     break;
                 case BOOLEAN:
-                    value = in.readBoolean();
-                    break;
+                    ret[length++] = new BooleanEntityMetadata(id, in.readBoolean());
+                    continue;
                 case ROTATION:
                     value = Rotation.read(in);
                     break;
@@ -109,25 +150,26 @@ public class EntityMetadata {
                     throw new IOException("Unknown metadata type id: " + typeId);
             }
 
-            ret.add(new EntityMetadata(id, type, value));
+            ret[length++] = new EntityMetadata(id, type, value);
         }
 
-        return ret.toArray(new EntityMetadata[ret.size()]);
+        return length == ret.length ? ret : Arrays.copyOf(ret, length);
     }
 
     public static void write(NetOutput out, EntityMetadata[] metadata) throws IOException {
         for (EntityMetadata meta : metadata) {
             out.writeByte(meta.getId());
-            out.writeVarInt(MagicValues.value(Integer.class, meta.getType()));
+            out.writeVarInt(TYPE_IDS[meta.getType().ordinal()]);
             switch (meta.getType()) {
                 case BYTE:
-                    out.writeByte((Byte) meta.getValue());
+                    out.writeByte(meta instanceof ByteEntityMetadata ? ((ByteEntityMetadata) meta).getPrimitiveValue() : (Byte) meta.getValue());
                     break;
                 case INT:
-                    out.writeVarInt((Integer) meta.getValue());
+                case BLOCK_STATE:
+                    out.writeVarInt(meta instanceof IntEntityMetadata ? ((IntEntityMetadata) meta).getPrimitiveValue() : (Integer) meta.getValue());
                     break;
                 case FLOAT:
-                    out.writeFloat((Float) meta.getValue());
+                    out.writeFloat(meta instanceof FloatEntityMetadata ? ((FloatEntityMetadata) meta).getPrimitiveValue() : (Float) meta.getValue());
                     break;
                 case STRING:
                     out.writeString((String) meta.getValue());
@@ -146,7 +188,7 @@ public class EntityMetadata {
                     ItemStack.write(out, (ItemStack) meta.getValue());
                     break;
                 case BOOLEAN:
-                    out.writeBoolean((Boolean) meta.getValue());
+                    out.writeBoolean(meta instanceof BooleanEntityMetadata ? ((BooleanEntityMetadata) meta).getPrimitiveValue() : (Boolean) meta.getValue());
                     break;
                 case ROTATION:
                     Rotation.write(out, (Rotation) meta.getValue());
@@ -170,9 +212,6 @@ public class EntityMetadata {
                         out.writeUUID((UUID) meta.getValue());
                     }
 
-                    break;
-                case BLOCK_STATE:
-                    out.writeVarInt((int) meta.getValue());
                     break;
                 case NBT_TAG:
                     NBT.write(out, (CompoundTag) meta.getValue());
@@ -0,0 +1,27 @@
+package com.github.steveice10.mc.protocol.data.game.entity.metadata;
+
+/**
+ * Entity metadata holding a float value without boxing it.
+ */
+public class FloatEntityMetadata extends EntityMetadata {
+    private final float primitiveValue;
+
+    public FloatEntityMetadata(int id, float value) {
+        super(id, MetadataType.FLOAT, null);
+        this.primitiveValue = value;
+    }
+
+    /**
+     * Gets the value of this metadata without boxing it.
+     *
+     * @return The value.
+     */
+    public float getPrimitiveValue() {
+        return this.primitiveValue;
+    }
+
+    @Override
+    public Float getValue() {
+        return this.primitiveValue;
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.steveice10.mc.protocol.data.game.entity.metadata;
+
+/**
+ * Entity metadata holding an int value without boxing it.
+ */
+public class IntEntityMetadata extends EntityMetadata {
+    private final int primitiveValue;
+
+    public IntEntityMetadata(int id, int value) {
+        this(id, MetadataType.INT, value);
+    }
+
+    /**
+     * Creates a new int entity metadata.
+     *
+     * @param id    Id of the metadata.
+     * @param type  Type of the metadata, either {@link MetadataType#INT} or {@link MetadataType#BLOCK_STATE}.
+     * @param value Value of the metadata.
+     */
+    public IntEntityMetadata(int id, MetadataType type, int value) {
+        super(id, type, null);
+        if (type != MetadataType.INT && type != MetadataType.BLOCK_STATE) {
+            throw new IllegalArgumentException("Int entity metadata must be of type INT or BLOCK_STATE.");
+        }
+
+        this.primitiveValue = value;
+    }
+
+    /**
+     * Gets the value of this metadata without boxing it.
+     *
+     * @return The value.
+     */
+    public int getPrimitiveValue() {
+        return this.primitiveValue;
+    }
+
+    @Override
+    public Integer getValue() {
+        return this.primitiveValue;
+    }
+}
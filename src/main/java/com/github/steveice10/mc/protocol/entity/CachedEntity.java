@@ -0,0 +1,178 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.EntityMetadata;
+import com.github.steveice10.mc.protocol.data.game.entity.type.EntityType;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * The state of an entity as seen by a client, kept up to date by an {@link EntityCache}.
+ * <p>
+ * Positions are kept in the protocol's fixed-point format of 1/4096 blocks and rotations as the protocol's
+ * byte angles, so relative moves are applied exactly. The cache updates its own instances in place and only hands
+ * out copies, so an instance obtained from the cache is a snapshot that does not change.
+ */
+@Getter
+@ToString
+public class CachedEntity {
+    private static final EntityMetadata[] NO_METADATA = new EntityMetadata[0];
+    private static final int[] NO_PASSENGERS = new int[0];
+
+    private final int entityId;
+    UUID uuid;
+    EntityType type;
+    /**
+     * Position as sent over the network, in 1/4096 blocks.
+     */
+    long rawX;
+    long rawY;
+    long rawZ;
+    /**
+     * Rotation as sent over the network, in 1/256 turns.
+     */
+    byte rawYaw;
+    byte rawPitch;
+    byte rawHeadYaw;
+    /**
+     * Velocity as sent over the network, in 1/8000 blocks per tick.
+     */
+    short rawMotionX;
+    short rawMotionY;
+    short rawMotionZ;
+    boolean onGround;
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    EntityMetadata[] metadata = NO_METADATA;
+    @Getter(AccessLevel.NONE)
+    int[] passengerIds = NO_PASSENGERS;
+    /**
+     * Id of the entity this entity is riding, or -1 if it is not riding anything.
+     */
+    int vehicleId = -1;
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    int chunkX;
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    int chunkZ;
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    int cellIndex;
+
+    CachedEntity(int entityId) {
+        this.entityId = entityId;
+    }
+
+    CachedEntity(CachedEntity entity) {
+        this.entityId = entity.entityId;
+        this.uuid = entity.uuid;
+        this.type = entity.type;
+        this.rawX = entity.rawX;
+        this.rawY = entity.rawY;
+        this.rawZ = entity.rawZ;
+        this.rawYaw = entity.rawYaw;
+        this.rawPitch = entity.rawPitch;
+        this.rawHeadYaw = entity.rawHeadYaw;
+        this.rawMotionX = entity.rawMotionX;
+        this.rawMotionY = entity.rawMotionY;
+        this.rawMotionZ = entity.rawMotionZ;
+        this.onGround = entity.onGround;
+        // Metadata entries are set in place, while passenger arrays are always replaced as a whole.
+        this.metadata = entity.metadata.length != 0 ? entity.metadata.clone() : NO_METADATA;
+        this.passengerIds = entity.passengerIds;
+        this.vehicleId = entity.vehicleId;
+    }
+
+    public double getX() {
+        return this.rawX / 4096D;
+    }
+
+    public double getY() {
+        return this.rawY / 4096D;
+    }
+
+    public double getZ() {
+        return this.rawZ / 4096D;
+    }
+
+    public float getYaw() {
+        return this.rawYaw * 360 / 256f;
+    }
+
+    public float getPitch() {
+        return this.rawPitch * 360 / 256f;
+    }
+
+    public float getHeadYaw() {
+        return this.rawHeadYaw * 360 / 256f;
+    }
+
+    public double getMotionX() {
+        return this.rawMotionX / 8000D;
+    }
+
+    public double getMotionY() {
+        return this.rawMotionY / 8000D;
+    }
+
+    public double getMotionZ() {
+        return this.rawMotionZ / 8000D;
+    }
+
+    /**
+     * Gets a metadata entry of this entity.
+     *
+     * @param id Id of the entry.
+     * @return The entry, or null if it was never received.
+     */
+    public EntityMetadata getMetadata(int id) {
+        EntityMetadata[] metadata = this.metadata;
+        return id >= 0 && id < metadata.length ? metadata[id] : null;
+    }
+
+    /**
+     * Gets the ids of the entities riding this entity.
+     *
+     * @return A copy of the passenger ids.
+     */
+    public int[] getPassengerIds() {
+        return this.passengerIds.clone();
+    }
+
+    /**
+     * Gets the squared distance between this entity and a point.
+     *
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @param z Z coordinate of the point.
+     * @return The squared distance.
+     */
+    public double distanceSquared(double x, double y, double z) {
+        double dx = this.getX() - x;
+        double dy = this.getY() - y;
+        double dz = this.getZ() - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    void setPosition(double x, double y, double z) {
+        this.rawX = (long) Math.floor(x * 4096);
+        this.rawY = (long) Math.floor(y * 4096);
+        this.rawZ = (long) Math.floor(z * 4096);
+    }
+
+    void putMetadata(EntityMetadata[] entries) {
+        for (EntityMetadata entry : entries) {
+            int id = entry.getId();
+            if (id >= this.metadata.length) {
+                this.metadata = Arrays.copyOf(this.metadata, id + 1);
+            }
+
+            this.metadata[id] = entry;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.data.game.entity.attribute.AttributeType;
+import com.github.steveice10.mc.protocol.data.game.entity.attribute.ModifierOperation;
+import com.github.steveice10.mc.protocol.data.game.entity.attribute.PackedAttributes;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityPropertiesPacket;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Holds the current attributes of an entity and tracks which attributes changed since they were last sent.
+ * <p>
+ * {@link #createUpdatePacket()} creates a packet with only the attributes whose value or modifiers changed, for
+ * viewers that already see the entity, and {@link #getSnapshotPacket()} creates a packet with every attribute for
+ * new viewers. Attributes and modifiers are stored in primitive arrays and packets are built as
+ * {@link PackedAttributes}, so no attribute or modifier objects are created. Setting a value or modifier to what
+ * it already is does not mark the attribute as changed. This class is not thread-safe.
+ */
+public class EntityAttributeStore {
+    private static final AttributeType[] TYPES = AttributeType.values();
+
+    private final int entityId;
+
+    private final double[] values = new double[TYPES.length];
+    private final Modifiers[] modifiers = new Modifiers[TYPES.length];
+    private long present;
+    private long dirty;
+
+    private ServerEntityPropertiesPacket snapshot;
+
+    /**
+     * Creates a new entity attribute store.
+     *
+     * @param entityId Id of the entity the attributes belong to.
+     */
+    public EntityAttributeStore(int entityId) {
+        this.entityId = entityId;
+    }
+
+    /**
+     * Gets the id of the entity the attributes belong to.
+     *
+     * @return The entity id.
+     */
+    public int getEntityId() {
+        return this.entityId;
+    }
+
+    /**
+     * Gets whether an attribute is set.
+     *
+     * @param type Type of the attribute.
+     * @return Whether the attribute is set.
+     */
+    public boolean has(@NonNull AttributeType type) {
+        return (this.present & 1L << type.ordinal()) != 0;
+    }
+
+    /**
+     * Gets the base value of an attribute.
+     *
+     * @param type Type of the attribute.
+     * @return The base value, or the attribute type's default if it is not set.
+     */
+    public double getValue(@NonNull AttributeType type) {
+        return this.has(type) ? this.values[type.ordinal()] : type.getDef();
+    }
+
+    /**
+     * Gets the number of modifiers of an attribute.
+     *
+     * @param type Type of the attribute.
+     * @return The number of modifiers.
+     */
+    public int getModifierCount(@NonNull AttributeType type) {
+        Modifiers modifiers = this.modifiers[type.ordinal()];
+        return modifiers != null ? modifiers.count : 0;
+    }
+
+    /**
+     * Sets the base value of an attribute, marking it as changed if the value differs from the current one.
+     *
+     * @param type  Type of the attribute.
+     * @param value New base value.
+     * @return Whether the attribute changed.
+     */
+    public boolean setValue(@NonNull AttributeType type, double value) {
+        int index = type.ordinal();
+        if (this.has(type) && Double.doubleToLongBits(this.values[index]) == Double.doubleToLongBits(value)) {
+            return false;
+        }
+
+        this.values[index] = value;
+        this.present |= 1L << index;
+        this.markChanged(index);
+        return true;
+    }
+
+    /**
+     * Adds or replaces a modifier of an attribute, marking the attribute as changed if the modifier differs from the
+     * current one. An attribute that is not set yet is set to its type's default value.
+     *
+     * @param type      Type of the attribute.
+     * @param uuid      UUID of the modifier.
+     * @param amount    Amount of the modifier.
+     * @param operation Operation of the modifier.
+     * @return Whether the attribute changed.
+     */
+    public boolean setModifier(@NonNull AttributeType type, @NonNull UUID uuid, double amount, @NonNull ModifierOperation operation) {
+        int index = type.ordinal();
+        if (!this.has(type)) {
+            this.values[index] = type.getDef();
+            this.present |= 1L << index;
+        }
+
+        Modifiers modifiers = this.modifiers[index];
+        if (modifiers == null) {
+            modifiers = new Modifiers();
+            this.modifiers[index] = modifiers;
+        }
+
+        if (!modifiers.set(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), amount, operation)) {
+            return false;
+        }
+
+        this.markChanged(index);
+        return true;
+    }
+
+    /**
+     * Removes a modifier of an attribute, marking the attribute as changed if it had the modifier.
+     *
+     * @param type Type of the attribute.
+     * @param uuid UUID of the modifier.
+     * @return Whether the attribute changed.
+     */
+    public boolean removeModifier(@NonNull AttributeType type, @NonNull UUID uuid) {
+        int index = type.ordinal();
+        Modifiers modifiers = this.modifiers[index];
+        if (modifiers == null || !modifiers.remove(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits())) {
+            return false;
+        }
+
+        this.markChanged(index);
+        return true;
+    }
+
+    /**
+     * Gets whether any attribute changed since the last update packet was created.
+     *
+     * @return Whether any attribute changed.
+     */
+    public boolean hasChanges() {
+        return this.dirty != 0;
+    }
+
+    /**
+     * Creates a packet with the attributes that changed since the last update packet was created, and marks them as sent.
+     *
+     * @return The update packet, or null if nothing changed.
+     */
+    public ServerEntityPropertiesPacket createUpdatePacket() {
+        if (this.dirty == 0) {
+            return null;
+        }
+
+        ServerEntityPropertiesPacket packet = this.createPacket(this.dirty);
+        this.dirty = 0;
+        return packet;
+    }
+
+    /**
+     * Creates a packet with every set attribute, for viewers that start seeing the entity. This does not affect
+     * which attributes are marked as changed. The same packet is returned until an attribute changes.
+     *
+     * @return The snapshot packet, or null if no attribute is set.
+     */
+    public ServerEntityPropertiesPacket getSnapshotPacket() {
+        if (this.present == 0) {
+            return null;
+        }
+
+        if (this.snapshot == null) {
+            this.snapshot = this.createPacket(this.present);
+        }
+
+        return this.snapshot;
+    }
+
+    private ServerEntityPropertiesPacket createPacket(long attributes) {
+        PackedAttributes.Builder builder = new PackedAttributes.Builder();
+        while (attributes != 0) {
+            int index = Long.numberOfTrailingZeros(attributes);
+            builder.add(TYPES[index], this.values[index]);
+            Modifiers modifiers = this.modifiers[index];
+            if (modifiers != null) {
+                for (int modifier = 0; modifier < modifiers.count; modifier++) {
+                    builder.addModifier(modifiers.uuids[modifier * 2], modifiers.uuids[modifier * 2 + 1], modifiers.amounts[modifier], modifiers.operations[modifier]);
+                }
+            }
+
+            attributes &= attributes - 1;
+        }
+
+        return new ServerEntityPropertiesPacket(this.entityId, builder.build());
+    }
+
+    private void markChanged(int index) {
+        this.dirty |= 1L << index;
+        this.snapshot = null;
+    }
+
+    private static class Modifiers {
+        private long[] uuids = new long[4];
+        private double[] amounts = new double[2];
+        private ModifierOperation[] operations = new ModifierOperation[2];
+        private int count;
+
+        private boolean set(long uuidMost, long uuidLeast, double amount, ModifierOperation operation) {
+            int index = this.indexOf(uuidMost, uuidLeast);
+            if (index == -1) {
+                if (this.count == this.amounts.length) {
+                    this.uuids = Arrays.copyOf(this.uuids, this.count << 2);
+                    this.amounts = Arrays.copyOf(this.amounts, this.count << 1);
+                    this.operations = Arrays.copyOf(this.operations, this.count << 1);
+                }
+
+                index = this.count++;
+                this.uuids[index * 2] = uuidMost;
+                this.uuids[index * 2 + 1] = uuidLeast;
+            } else if (Double.doubleToLongBits(this.amounts[index]) == Double.doubleToLongBits(amount) && this.operations[index] == operation) {
+                return false;
+            }
+
+            this.amounts[index] = amount;
+            this.operations[index] = operation;
+            return true;
+        }
+
+        private boolean remove(long uuidMost, long uuidLeast) {
+            int index = this.indexOf(uuidMost, uuidLeast);
+            if (index == -1) {
+                return false;
+            }
+
+            // Modifiers keep their order so that packets list them as they were added.
+            int moved = this.count - index - 1;
+            System.arraycopy(this.uuids, (index + 1) * 2, this.uuids, index * 2, moved * 2);
+            System.arraycopy(this.amounts, index + 1, this.amounts, index, moved);
+            System.arraycopy(this.operations, index + 1, this.operations, index, moved);
+            this.count--;
+            this.operations[this.count] = null;
+            return true;
+        }
+
+        private int indexOf(long uuidMost, long uuidLeast) {
+            for (int index = 0; index < this.count; index++) {
+                if (this.uuids[index * 2] == uuidMost && this.uuids[index * 2 + 1] == uuidLeast) {
+                    return index;
+                }
+            }
+
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.Position;
+import com.github.steveice10.mc.protocol.data.game.entity.type.EntityType;
+import com.github.steveice10.mc.protocol.packet.ingame.server.ServerJoinGamePacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.ServerRespawnPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityHeadLookPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityMetadataPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityPositionPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityPositionRotationPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityRotationPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntitySetPassengersPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityTeleportPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityVelocityPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerRemoveEntitiesPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn.ServerSpawnEntityPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn.ServerSpawnExpOrbPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn.ServerSpawnLivingEntityPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn.ServerSpawnPaintingPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn.ServerSpawnPlayerPacket;
+import com.github.steveice10.mc.protocol.world.WorldCache;
+import com.github.steveice10.packetlib.event.session.PacketReceivedEvent;
+import com.github.steveice10.packetlib.event.session.SessionAdapter;
+import com.github.steveice10.packetlib.packet.Packet;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A client-side view of the entities around the player, kept up to date from the spawn, movement, metadata,
+ * passenger and remove packets a session receives. Add it to a client session as a listener to use it.
+ * <p>
+ * Entities are stored by id in a primitive keyed map and indexed in a grid of chunk sized cells for range queries.
+ * The cache may be queried from any thread. Queries return copies of the entities taken under the cache's lock,
+ * so every {@link CachedEntity} returned is a consistent snapshot of the entity as of one packet and does not change
+ * afterwards. Query again to see later packets.
+ */
+public class EntityCache extends SessionAdapter {
+    private final IntObjectMap<CachedEntity> entities = new IntObjectHashMap<>();
+    private final LongObjectMap<List<CachedEntity>> cells = new LongObjectHashMap<>();
+    private final StampedLock lock = new StampedLock();
+
+    @Override
+    public void packetReceived(PacketReceivedEvent event) {
+        Packet packet = event.getPacket();
+        if (packet instanceof ServerEntityPositionPacket) {
+            ServerEntityPositionPacket position = (ServerEntityPositionPacket) packet;
+            this.moveRelative(position.getEntityId(), position.getRawMoveX(), position.getRawMoveY(), position.getRawMoveZ(), position.isOnGround());
+        } else if (packet instanceof ServerEntityPositionRotationPacket) {
+            ServerEntityPositionRotationPacket position = (ServerEntityPositionRotationPacket) packet;
+            long stamp = this.lock.writeLock();
+            try {
+                CachedEntity entity = this.entities.get(position.getEntityId());
+                if (entity != null) {
+                    entity.rawYaw = position.getRawYaw();
+                    entity.rawPitch = position.getRawPitch();
+                    this.moveRelative(entity, position.getRawMoveX(), position.getRawMoveY(), position.getRawMoveZ(), position.isOnGround());
+                }
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        } else if (packet instanceof ServerEntityRotationPacket) {
+            ServerEntityRotationPacket rotation = (ServerEntityRotationPacket) packet;
+            long stamp = this.lock.writeLock();
+            try {
+                CachedEntity entity = this.entities.get(rotation.getEntityId());
+                if (entity != null) {
+                    entity.rawYaw = rotation.getRawYaw();
+                    entity.rawPitch = rotation.getRawPitch();
+                    entity.onGround = rotation.isOnGround();
+                }
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        } else if (packet instanceof ServerEntityHeadLookPacket) {
+            ServerEntityHeadLookPacket headLook = (ServerEntityHeadLookPacket) packet;
+            long stamp = this.lock.writeLock();
+            try {
+                CachedEntity entity = this.entities.get(headLook.getEntityId());
+                if (entity != null) {
+                    entity.rawHeadYaw = headLook.getRawHeadYaw();
+                }
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        } else if (packet instanceof ServerEntityTeleportPacket) {
+            ServerEntityTeleportPacket teleport = (ServerEntityTeleportPacket) packet;
+            long stamp = this.lock.writeLock();
+            try {
+                CachedEntity entity = this.entities.get(teleport.getEntityId());
+                if (entity != null) {
+                    entity.setPosition(teleport.getX(), teleport.getY(), teleport.getZ());
+                    entity.rawYaw = teleport.getRawYaw();
+                    entity.rawPitch = teleport.getRawPitch();
+                    entity.onGround = teleport.isOnGround();
+                    this.updateCell(entity);
+                }
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        } else if (packet instanceof ServerEntityVelocityPacket) {
+            ServerEntityVelocityPacket velocity = (ServerEntityVelocityPacket) packet;
+            long stamp = this.lock.writeLock();
+            try {
+                CachedEntity entity = this.entities.get(velocity.getEntityId());
+                if (entity != null) {
+                    entity.rawMotionX = velocity.getRawMotionX();
+                    entity.rawMotionY = velocity.getRawMotionY();
+                    entity.rawMotionZ = velocity.getRawMotionZ();
+                }
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        } else if (packet instanceof ServerEntityMetadataPacket) {
+            ServerEntityMetadataPacket metadata = (ServerEntityMetadataPacket) packet;
+            long stamp = this.lock.writeLock();
+            try {
+                CachedEntity entity = this.entities.get(metadata.getEntityId());
+                if (entity != null) {
+                    entity.putMetadata(metadata.getMetadata());
+                }
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        } else if (packet instanceof ServerSpawnEntityPacket) {
+            ServerSpawnEntityPacket spawn = (ServerSpawnEntityPacket) packet;
+            CachedEntity entity = new CachedEntity(spawn.getEntityId());
+            entity.uuid = spawn.getUuid();
+            entity.type = spawn.getType();
+            entity.setPosition(spawn.getX(), spawn.getY(), spawn.getZ());
+            entity.rawYaw = spawn.getRawYaw();
+            entity.rawPitch = spawn.getRawPitch();
+            entity.rawMotionX = spawn.getRawMotionX();
+            entity.rawMotionY = spawn.getRawMotionY();
+            entity.rawMotionZ = spawn.getRawMotionZ();
+            this.add(entity);
+        } else if (packet instanceof ServerSpawnLivingEntityPacket) {
+            ServerSpawnLivingEntityPacket spawn = (ServerSpawnLivingEntityPacket) packet;
+            CachedEntity entity = new CachedEntity(spawn.getEntityId());
+            entity.uuid = spawn.getUuid();
+            entity.type = spawn.getType();
+            entity.setPosition(spawn.getX(), spawn.getY(), spawn.getZ());
+            entity.rawYaw = spawn.getRawYaw();
+            entity.rawPitch = spawn.getRawPitch();
+            entity.rawHeadYaw = spawn.getRawHeadYaw();
+            entity.rawMotionX = spawn.getRawMotionX();
+            entity.rawMotionY = spawn.getRawMotionY();
+            entity.rawMotionZ = spawn.getRawMotionZ();
+            this.add(entity);
+        } else if (packet instanceof ServerSpawnPlayerPacket) {
+            ServerSpawnPlayerPacket spawn = (ServerSpawnPlayerPacket) packet;
+            CachedEntity entity = new CachedEntity(spawn.getEntityId());
+            entity.uuid = spawn.getUuid();
+            entity.type = EntityType.PLAYER;
+            entity.setPosition(spawn.getX(), spawn.getY(), spawn.getZ());
+            entity.rawYaw = spawn.getRawYaw();
+            entity.rawPitch = spawn.getRawPitch();
+            this.add(entity);
+        } else if (packet instanceof ServerSpawnExpOrbPacket) {
+            ServerSpawnExpOrbPacket spawn = (ServerSpawnExpOrbPacket) packet;
+            CachedEntity entity = new CachedEntity(spawn.getEntityId());
+            entity.type = EntityType.EXPERIENCE_ORB;
+            entity.setPosition(spawn.getX(), spawn.getY(), spawn.getZ());
+            this.add(entity);
+        } else if (packet instanceof ServerSpawnPaintingPacket) {
+            ServerSpawnPaintingPacket spawn = (ServerSpawnPaintingPacket) packet;
+            Position position = spawn.getPosition();
+            CachedEntity entity = new CachedEntity(spawn.getEntityId());
+            entity.uuid = spawn.getUuid();
+            entity.type = EntityType.PAINTING;
+            entity.setPosition(position.getX() + 0.5, position.getY() + 0.5, position.getZ() + 0.5);
+            this.add(entity);
+        } else if (packet instanceof ServerEntitySetPassengersPacket) {
+            ServerEntitySetPassengersPacket passengers = (ServerEntitySetPassengersPacket) packet;
+            this.setPassengers(passengers.getEntityId(), passengers.getPassengerIds());
+        } else if (packet instanceof ServerRemoveEntitiesPacket) {
+            long stamp = this.lock.writeLock();
+            try {
+                for (int entityId : ((ServerRemoveEntitiesPacket) packet).getEntityIds()) {
+                    this.remove(entityId);
+                }
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        } else if (packet instanceof ServerJoinGamePacket || packet instanceof ServerRespawnPacket) {
+            this.clear();
+        }
+    }
+
+    /**
+     * Gets an entity.
+     *
+     * @param entityId Id of the entity.
+     * @return A snapshot of the entity, or null if it is not known.
+     */
+    public CachedEntity getEntity(int entityId) {
+        long stamp = this.lock.readLock();
+        try {
+            CachedEntity entity = this.entities.get(entityId);
+            return entity != null ? new CachedEntity(entity) : null;
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Gets the number of known entities.
+     *
+     * @return The number of entities.
+     */
+    public int getEntityCount() {
+        long stamp = this.lock.readLock();
+        try {
+            return this.entities.size();
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Gets all known entities.
+     *
+     * @return A new list of snapshots of the entities.
+     */
+    public List<CachedEntity> getEntities() {
+        long stamp = this.lock.readLock();
+        try {
+            List<CachedEntity> result = new ArrayList<>(this.entities.size());
+            for (CachedEntity entity : this.entities.values()) {
+                result.add(new CachedEntity(entity));
+            }
+
+            return result;
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Gets the entities within a distance of a point.
+     *
+     * @param x      X coordinate of the point.
+     * @param y      Y coordinate of the point.
+     * @param z      Z coordinate of the point.
+     * @param radius Maximum distance from the point.
+     * @return A new list of snapshots of the entities within the distance.
+     */
+    public List<CachedEntity> getEntitiesInRange(double x, double y, double z, double radius) {
+        List<CachedEntity> result = new ArrayList<>();
+        double radiusSquared = radius * radius;
+        long stamp = this.lock.readLock();
+        try {
+            this.forEachCell(x - radius, z - radius, x + radius, z + radius, entity -> {
+                if (entity.distanceSquared(x, y, z) <= radiusSquared) {
+                    result.add(new CachedEntity(entity));
+                }
+            });
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the entities inside a box.
+     *
+     * @param minX Lowest X coordinate of the box.
+     * @param minY Lowest Y coordinate of the box.
+     * @param minZ Lowest Z coordinate of the box.
+     * @param maxX Highest X coordinate of the box.
+     * @param maxY Highest Y coordinate of the box.
+     * @param maxZ Highest Z coordinate of the box.
+     * @return A new list of snapshots of the entities inside the box.
+     */
+    public List<CachedEntity> getEntitiesInBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        List<CachedEntity> result = new ArrayList<>();
+        long stamp = this.lock.readLock();
+        try {
+            this.forEachCell(minX, minZ, maxX, maxZ, entity -> {
+                double x = entity.getX();
+                double y = entity.getY();
+                double z = entity.getZ();
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ) {
+                    result.add(new CachedEntity(entity));
+                }
+            });
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes all entities.
+     */
+    public void clear() {
+        long stamp = this.lock.writeLock();
+        try {
+            this.entities.clear();
+            this.cells.clear();
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    private void add(CachedEntity entity) {
+        long stamp = this.lock.writeLock();
+        try {
+            // A spawn with an id that is still in use replaces the old entity.
+            this.remove(entity.getEntityId());
+            this.entities.put(entity.getEntityId(), entity);
+            entity.chunkX = (int) (entity.rawX >> 16);
+            entity.chunkZ = (int) (entity.rawZ >> 16);
+            this.addToCell(entity);
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    private void remove(int entityId) {
+        CachedEntity entity = this.entities.remove(entityId);
+        if (entity == null) {
+            return;
+        }
+
+        this.removeFromCell(entity);
+        if (entity.vehicleId != -1) {
+            CachedEntity vehicle = this.entities.get(entity.vehicleId);
+            if (vehicle != null) {
+                vehicle.passengerIds = without(vehicle.passengerIds, entityId);
+            }
+        }
+
+        for (int passengerId : entity.passengerIds) {
+            CachedEntity passenger = this.entities.get(passengerId);
+            if (passenger != null && passenger.vehicleId == entityId) {
+                passenger.vehicleId = -1;
+            }
+        }
+    }
+
+    private void moveRelative(int entityId, short moveX, short moveY, short moveZ, boolean onGround) {
+        long stamp = this.lock.writeLock();
+        try {
+            CachedEntity entity = this.entities.get(entityId);
+            if (entity != null) {
+                this.moveRelative(entity, moveX, moveY, moveZ, onGround);
+            }
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    private void moveRelative(CachedEntity entity, short moveX, short moveY, short moveZ, boolean onGround) {
+        entity.rawX += moveX;
+        entity.rawY += moveY;
+        entity.rawZ += moveZ;
+        entity.onGround = onGround;
+        this.updateCell(entity);
+    }
+
+    private void setPassengers(int entityId, int[] passengerIds) {
+        long stamp = this.lock.writeLock();
+        try {
+            CachedEntity vehicle = this.entities.get(entityId);
+            if (vehicle == null) {
+                return;
+            }
+
+            for (int passengerId : vehicle.passengerIds) {
+                CachedEntity passenger = this.entities.get(passengerId);
+                if (passenger != null && passenger.vehicleId == entityId) {
+                    passenger.vehicleId = -1;
+                }
+            }
+
+            vehicle.passengerIds = passengerIds.clone();
+            for (int passengerId : passengerIds) {
+                CachedEntity passenger = this.entities.get(passengerId);
+                if (passenger != null) {
+                    passenger.vehicleId = entityId;
+                }
+            }
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    private void updateCell(CachedEntity entity) {
+        // 4096 fixed-point units per block and 16 blocks per chunk.
+        int chunkX = (int) (entity.rawX >> 16);
+        int chunkZ = (int) (entity.rawZ >> 16);
+        if (chunkX != entity.chunkX || chunkZ != entity.chunkZ) {
+            this.removeFromCell(entity);
+            entity.chunkX = chunkX;
+            entity.chunkZ = chunkZ;
+            this.addToCell(entity);
+        }
+    }
+
+    private void addToCell(CachedEntity entity) {
+        long key = WorldCache.chunkKey(entity.chunkX, entity.chunkZ);
+        List<CachedEntity> cell = this.cells.get(key);
+        if (cell == null) {
+            cell = new ArrayList<>(4);
+            this.cells.put(key, cell);
+        }
+
+        entity.cellIndex = cell.size();
+        cell.add(entity);
+    }
+
+    private void removeFromCell(CachedEntity entity) {
+        long key = WorldCache.chunkKey(entity.chunkX, entity.chunkZ);
+        List<CachedEntity> cell = this.cells.get(key);
+        CachedEntity last = cell.remove(cell.size() - 1);
+        if (last != entity) {
+            cell.set(entity.cellIndex, last);
+            last.cellIndex = entity.cellIndex;
+        }
+
+        if (cell.isEmpty()) {
+            this.cells.remove(key);
+        }
+    }
+
+    private void forEachCell(double minX, double minZ, double maxX, double maxZ, EntityConsumer consumer) {
+        int minChunkX = (int) Math.floor(minX) >> 4;
+        int minChunkZ = (int) Math.floor(minZ) >> 4;
+        int maxChunkX = (int) Math.floor(maxX) >> 4;
+        int maxChunkZ = (int) Math.floor(maxZ) >> 4;
+        for (int x = minChunkX; x <= maxChunkX; x++) {
+            for (int z = minChunkZ; z <= maxChunkZ; z++) {
+                List<CachedEntity> cell = this.cells.get(WorldCache.chunkKey(x, z));
+                if (cell != null) {
+                    for (CachedEntity entity : cell) {
+                        consumer.accept(entity);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int[] without(int[] ids, int id) {
+        for (int index = 0; index < ids.length; index++) {
+            if (ids[index] == id) {
+                int[] result = new int[ids.length - 1];
+                System.arraycopy(ids, 0, result, 0, index);
+                System.arraycopy(ids, index + 1, result, index, ids.length - index - 1);
+                return result;
+            }
+        }
+
+        return ids;
+    }
+
+    private interface EntityConsumer {
+        void accept(CachedEntity entity);
+    }
+}
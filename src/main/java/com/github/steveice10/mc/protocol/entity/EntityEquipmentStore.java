@@ -0,0 +1,168 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.data.game.entity.EquipmentSlot;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.Equipment;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.ItemStack;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityEquipmentPacket;
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Holds the current equipment of an entity and tracks which slots changed since they were last sent.
+ * <p>
+ * {@link #createUpdatePacket()} creates a packet with only the changed slots for viewers that already see the
+ * entity, and {@link #getSnapshotPacket()} creates a packet with every equipped slot for new viewers. Each item is
+ * encoded once when it is first sent and the encoding is reused by every later packet until the slot changes, so
+ * item NBT is not encoded again for each packet or viewer. Setting a slot to an equal item does not mark it as
+ * changed. Items are copied, including their NBT, when they are set, so later changes to the given item do not
+ * affect the store. Items returned by {@link #getItem(EquipmentSlot)} and held by the created packets are the stored
+ * copies and must not be modified. This class is not thread-safe.
+ */
+public class EntityEquipmentStore {
+    private static final EquipmentSlot[] SLOTS = EquipmentSlot.values();
+
+    private final int entityId;
+
+    private final ItemStack[] items = new ItemStack[SLOTS.length];
+    private final byte[][] encodedItems = new byte[SLOTS.length][];
+    private int dirty;
+
+    private ServerEntityEquipmentPacket snapshot;
+
+    /**
+     * Creates a new entity equipment store.
+     *
+     * @param entityId Id of the entity the equipment belongs to.
+     */
+    public EntityEquipmentStore(int entityId) {
+        this.entityId = entityId;
+    }
+
+    /**
+     * Gets the id of the entity the equipment belongs to.
+     *
+     * @return The entity id.
+     */
+    public int getEntityId() {
+        return this.entityId;
+    }
+
+    /**
+     * Gets the item in a slot.
+     *
+     * @param slot Slot to get the item of.
+     * @return The item, or null if the slot is empty. The item must not be modified.
+     */
+    public ItemStack getItem(@NonNull EquipmentSlot slot) {
+        return this.items[slot.ordinal()];
+    }
+
+    /**
+     * Sets the item in a slot, marking the slot as changed if the item differs from the current one.
+     *
+     * @param slot Slot to set the item of.
+     * @param item Item to set, or null to empty the slot. The item is copied.
+     * @return Whether the slot changed.
+     */
+    public boolean setItem(@NonNull EquipmentSlot slot, ItemStack item) {
+        int index = slot.ordinal();
+        if (Objects.equals(this.items[index], item)) {
+            return false;
+        }
+
+        this.items[index] = item != null ? copy(item) : null;
+        this.encodedItems[index] = null;
+        this.dirty |= 1 << index;
+        this.snapshot = null;
+        return true;
+    }
+
+    /**
+     * Gets whether any slot changed since the last update packet was created.
+     *
+     * @return Whether any slot changed.
+     */
+    public boolean hasChanges() {
+        return this.dirty != 0;
+    }
+
+    /**
+     * Creates a packet with the slots that changed since the last update packet was created, and marks them as sent.
+     *
+     * @return The update packet, or null if nothing changed.
+     * @throws IOException If an item could not be encoded.
+     */
+    public ServerEntityEquipmentPacket createUpdatePacket() throws IOException {
+        if (this.dirty == 0) {
+            return null;
+        }
+
+        ServerEntityEquipmentPacket packet = this.createPacket(this.dirty);
+        this.dirty = 0;
+        return packet;
+    }
+
+    /**
+     * Creates a packet with every equipped slot, for viewers that start seeing the entity. This does not affect
+     * which slots are marked as changed. The same packet is returned until a slot changes.
+     *
+     * @return The snapshot packet, or null if no slot is equipped.
+     * @throws IOException If an item could not be encoded.
+     */
+    public ServerEntityEquipmentPacket getSnapshotPacket() throws IOException {
+        if (this.snapshot == null) {
+            int equipped = 0;
+            for (int index = 0; index < this.items.length; index++) {
+                if (this.items[index] != null) {
+                    equipped |= 1 << index;
+                }
+            }
+
+            if (equipped == 0) {
+                return null;
+            }
+
+            this.snapshot = this.createPacket(equipped);
+        }
+
+        return this.snapshot;
+    }
+
+    private ServerEntityEquipmentPacket createPacket(int slots) throws IOException {
+        int count = Integer.bitCount(slots);
+        Equipment[] equipment = new Equipment[count];
+        byte[][] encoded = new byte[count][];
+        int index = 0;
+        while (slots != 0) {
+            int slot = Integer.numberOfTrailingZeros(slots);
+            equipment[index] = new Equipment(SLOTS[slot], this.items[slot]);
+            encoded[index] = this.encode(slot);
+            index++;
+            slots &= slots - 1;
+        }
+
+        return new ServerEntityEquipmentPacket(this.entityId, equipment, encoded);
+    }
+
+    private static ItemStack copy(ItemStack item) {
+        CompoundTag nbt = item.getNbt();
+        return new ItemStack(item.getId(), item.getAmount(), nbt != null ? nbt.clone() : null);
+    }
+
+    private byte[] encode(int slot) throws IOException {
+        byte[] encoded = this.encodedItems[slot];
+        if (encoded == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ItemStack.write(new StreamNetOutput(out), this.items[slot]);
+            encoded = out.toByteArray();
+            this.encodedItems[slot] = encoded;
+        }
+
+        return encoded;
+    }
+}
@@ -0,0 +1,283 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.BooleanEntityMetadata;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.ByteEntityMetadata;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.EntityMetadata;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.FloatEntityMetadata;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.IntEntityMetadata;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.MetadataType;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityMetadataPacket;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Holds the current metadata of an entity and tracks which entries changed since they were last sent.
+ * <p>
+ * {@link #createUpdatePacket()} creates a packet with only the changed entries for viewers that already
+ * see the entity, and {@link #getSnapshotPacket()} creates a packet with every entry for new viewers. The
+ * snapshot and its encoding are cached until an entry changes, so spawning the entity for many viewers only
+ * encodes its metadata once. Setting an entry to the value it already has does not mark it as changed, and
+ * the typed setters do not allocate in that case. This class is not thread-safe.
+ */
+public class EntityMetadataStore {
+    /**
+     * Number of metadata ids; 255 is reserved to terminate the metadata list.
+     */
+    public static final int MAX_ENTRIES = 255;
+
+    private final int entityId;
+
+    private final EntityMetadata[] entries = new EntityMetadata[MAX_ENTRIES];
+    private final long[] dirty = new long[(MAX_ENTRIES + 63) >> 6];
+    private int size;
+    private int dirtyCount;
+
+    private EntityMetadata[] snapshot;
+    private byte[] encodedSnapshot;
+
+    /**
+     * Creates a new entity metadata store.
+     *
+     * @param entityId Id of the entity the metadata belongs to.
+     */
+    public EntityMetadataStore(int entityId) {
+        this.entityId = entityId;
+    }
+
+    /**
+     * Gets the id of the entity the metadata belongs to.
+     *
+     * @return The entity id.
+     */
+    public int getEntityId() {
+        return this.entityId;
+    }
+
+    /**
+     * Gets the number of metadata entries.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets whether any entry changed since the last update packet was created.
+     *
+     * @return Whether there are changes.
+     */
+    public boolean isDirty() {
+        return this.dirtyCount != 0;
+    }
+
+    /**
+     * Gets a metadata entry.
+     *
+     * @param id Id of the entry.
+     * @return The entry, or null if there is no entry with the given id.
+     */
+    public EntityMetadata get(int id) {
+        checkId(id);
+        return this.entries[id];
+    }
+
+    /**
+     * Sets a metadata entry, marking it as changed if it differs from the current entry with the same id.
+     *
+     * @param metadata The entry.
+     * @return Whether the entry changed.
+     */
+    public boolean set(@NonNull EntityMetadata metadata) {
+        int id = metadata.getId();
+        checkId(id);
+        if (metadata.equals(this.entries[id])) {
+            return false;
+        }
+
+        this.put(id, metadata);
+        return true;
+    }
+
+    /**
+     * Sets a byte metadata entry.
+     *
+     * @param id    Id of the entry.
+     * @param value The new value.
+     * @return Whether the entry changed.
+     */
+    public boolean setByte(int id, byte value) {
+        checkId(id);
+        EntityMetadata current = this.entries[id];
+        if (current instanceof ByteEntityMetadata && ((ByteEntityMetadata) current).getPrimitiveValue() == value) {
+            return false;
+        }
+
+        return this.set(new ByteEntityMetadata(id, value));
+    }
+
+    /**
+     * Sets an int metadata entry.
+     *
+     * @param id    Id of the entry.
+     * @param value The new value.
+     * @return Whether the entry changed.
+     */
+    public boolean setInt(int id, int value) {
+        return this.setInt(id, MetadataType.INT, value);
+    }
+
+    /**
+     * Sets an int metadata entry.
+     *
+     * @param id    Id of the entry.
+     * @param type  Type of the entry, either {@link MetadataType#INT} or {@link MetadataType#BLOCK_STATE}.
+     * @param value The new value.
+     * @return Whether the entry changed.
+     */
+    public boolean setInt(int id, @NonNull MetadataType type, int value) {
+        checkId(id);
+        EntityMetadata current = this.entries[id];
+        if (current instanceof IntEntityMetadata && current.getType() == type && ((IntEntityMetadata) current).getPrimitiveValue() == value) {
+            return false;
+        }
+
+        return this.set(new IntEntityMetadata(id, type, value));
+    }
+
+    /**
+     * Sets a float metadata entry.
+     *
+     * @param id    Id of the entry.
+     * @param value The new value.
+     * @return Whether the entry changed.
+     */
+    public boolean setFloat(int id, float value) {
+        checkId(id);
+        EntityMetadata current = this.entries[id];
+        if (current instanceof FloatEntityMetadata && Float.floatToIntBits(((FloatEntityMetadata) current).getPrimitiveValue()) == Float.floatToIntBits(value)) {
+            return false;
+        }
+
+        return this.set(new FloatEntityMetadata(id, value));
+    }
+
+    /**
+     * Sets a boolean metadata entry.
+     *
+     * @param id    Id of the entry.
+     * @param value The new value.
+     * @return Whether the entry changed.
+     */
+    public boolean setBoolean(int id, boolean value) {
+        checkId(id);
+        EntityMetadata current = this.entries[id];
+        if (current instanceof BooleanEntityMetadata && ((BooleanEntityMetadata) current).getPrimitiveValue() == value) {
+            return false;
+        }
+
+        return this.set(new BooleanEntityMetadata(id, value));
+    }
+
+    /**
+     * Sets or clears a bit of a byte metadata entry, such as the entity flags. A missing entry is treated as 0.
+     *
+     * @param id    Id of the entry.
+     * @param mask  Mask of the bits to set or clear.
+     * @param value Whether to set or clear the bits.
+     * @return Whether the entry changed.
+     * @throws IllegalStateException If the entry exists and is not a byte.
+     */
+    public boolean setFlag(int id, int mask, boolean value) {
+        checkId(id);
+        EntityMetadata current = this.entries[id];
+        byte flags = 0;
+        if (current != null) {
+            if (current.getType() != MetadataType.BYTE) {
+                throw new IllegalStateException("Metadata " + id + " is not a byte.");
+            }
+
+            flags = current instanceof ByteEntityMetadata ? ((ByteEntityMetadata) current).getPrimitiveValue() : (Byte) current.getValue();
+        }
+
+        return this.setByte(id, (byte) (value ? flags | mask : flags & ~mask));
+    }
+
+    /**
+     * Creates a packet with the entries that changed since the last update packet was created, and marks them as sent.
+     *
+     * @return The update packet, or null if nothing changed.
+     */
+    public ServerEntityMetadataPacket createUpdatePacket() {
+        if (this.dirtyCount == 0) {
+            return null;
+        }
+
+        EntityMetadata[] changed = new EntityMetadata[this.dirtyCount];
+        int index = 0;
+        for (int word = 0; word < this.dirty.length; word++) {
+            long bits = this.dirty[word];
+            while (bits != 0) {
+                changed[index++] = this.entries[word << 6 | Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+            }
+
+            this.dirty[word] = 0;
+        }
+
+        this.dirtyCount = 0;
+        return new ServerEntityMetadataPacket(this.entityId, changed);
+    }
+
+    /**
+     * Creates a packet with every entry, for viewers that start seeing the entity. This does not affect which
+     * entries are marked as changed. The packet shares its metadata and encoding with other snapshot packets
+     * created before the next change.
+     *
+     * @return The snapshot packet.
+     * @throws IOException If the metadata could not be encoded.
+     */
+    public ServerEntityMetadataPacket getSnapshotPacket() throws IOException {
+        if (this.encodedSnapshot == null) {
+            EntityMetadata[] snapshot = new EntityMetadata[this.size];
+            int index = 0;
+            for (EntityMetadata entry : this.entries) {
+                if (entry != null) {
+                    snapshot[index++] = entry;
+                }
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            EntityMetadata.write(new StreamNetOutput(out), snapshot);
+            this.snapshot = snapshot;
+            this.encodedSnapshot = out.toByteArray();
+        }
+
+        return new ServerEntityMetadataPacket(this.entityId, this.snapshot, this.encodedSnapshot);
+    }
+
+    private void put(int id, EntityMetadata metadata) {
+        if (this.entries[id] == null) {
+            this.size++;
+        }
+
+        this.entries[id] = metadata;
+        long bit = 1L << id;
+        if ((this.dirty[id >> 6] & bit) == 0) {
+            this.dirty[id >> 6] |= bit;
+            this.dirtyCount++;
+        }
+
+        this.snapshot = null;
+        this.encodedSnapshot = null;
+    }
+
+    private static void checkId(int id) {
+        if (id < 0 || id >= MAX_ENTRIES) {
+            throw new IllegalArgumentException("Metadata id must be between 0 and " + (MAX_ENTRIES - 1) + ".");
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityHeadLookPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityPositionPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityPositionRotationPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityRotationPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityTeleportPacket;
+import com.github.steveice10.packetlib.packet.Packet;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks the smallest movement packets that bring viewers from the last sent state of each entity to its current state.
+ * <p>
+ * Positions are tracked in the protocol's fixed-point format of 1/4096 blocks and rotations as the protocol's byte
+ * angles, exactly as viewers last received them, so relative moves never accumulate rounding errors. Changes made
+ * during a tick are batched and turned into packets by {@link #flush()}:
+ * <ul>
+ *     <li>Nothing is sent for an entity that did not change as far as viewers can tell.</li>
+ *     <li>A {@link ServerEntityRotationPacket} is sent if only the rotation changed.</li>
+ *     <li>A {@link ServerEntityPositionPacket} or {@link ServerEntityPositionRotationPacket} is sent if the position
+ *     moved by less than 8 blocks on every axis, or only the on ground flag changed.</li>
+ *     <li>A {@link ServerEntityTeleportPacket} is sent if the position moved further, or if the entity changed and its
+ *     last teleport is at least the resync interval ago, to correct any drift of the viewers' own movement simulation.</li>
+ *     <li>A {@link ServerEntityHeadLookPacket} is sent in addition if the head rotation changed.</li>
+ * </ul>
+ * This class is not thread-safe.
+ */
+public class EntityMovementEncoder {
+    /**
+     * Default number of ticks after which a changed entity is teleported instead of moved relatively.
+     */
+    public static final int DEFAULT_RESYNC_INTERVAL = 400;
+
+    private final int resyncInterval;
+
+    private final IntObjectMap<State> states = new IntObjectHashMap<>();
+    private final List<State> changed = new ArrayList<>();
+    private long tick;
+
+    /**
+     * Creates a new movement encoder with the default resync interval.
+     */
+    public EntityMovementEncoder() {
+        this(DEFAULT_RESYNC_INTERVAL);
+    }
+
+    /**
+     * Creates a new movement encoder.
+     *
+     * @param resyncInterval Number of flushes after which a changed entity is teleported instead of moved relatively, or 0 to never resync.
+     */
+    public EntityMovementEncoder(int resyncInterval) {
+        if (resyncInterval < 0) {
+            throw new IllegalArgumentException("Resync interval must not be negative.");
+        }
+
+        this.resyncInterval = resyncInterval;
+    }
+
+    /**
+     * Starts tracking the movement of an entity, with the state viewers received in its spawn packet.
+     *
+     * @param entityId Id of the entity.
+     * @param x        X coordinate of the entity.
+     * @param y        Y coordinate of the entity.
+     * @param z        Z coordinate of the entity.
+     * @param yaw      Yaw of the entity.
+     * @param pitch    Pitch of the entity.
+     * @param headYaw  Head yaw of the entity.
+     * @param onGround Whether the entity is on the ground.
+     * @throws IllegalArgumentException If the entity is already tracked.
+     */
+    public void add(int entityId, double x, double y, double z, float yaw, float pitch, float headYaw, boolean onGround) {
+        if (this.states.containsKey(entityId)) {
+            throw new IllegalArgumentException("Entity " + entityId + " is already tracked.");
+        }
+
+        State state = new State(entityId);
+        state.setSent(x, y, z, toAngle(yaw), toAngle(pitch), onGround);
+        state.headYaw = state.sentHeadYaw = toAngle(headYaw);
+        state.lastTeleport = this.tick;
+        this.states.put(entityId, state);
+    }
+
+    /**
+     * Stops tracking the movement of an entity, discarding its unsent changes.
+     *
+     * @param entityId Id of the entity.
+     * @return Whether the entity was tracked.
+     */
+    public boolean remove(int entityId) {
+        State state = this.states.remove(entityId);
+        if (state == null) {
+            return false;
+        }
+
+        if (state.changed) {
+            state.changed = false;
+            this.changed.remove(state);
+        }
+
+        return true;
+    }
+
+    /**
+     * Updates the position and rotation of an entity. Only the last update before a flush is sent.
+     *
+     * @param entityId Id of the entity.
+     * @param x        New X coordinate of the entity.
+     * @param y        New Y coordinate of the entity.
+     * @param z        New Z coordinate of the entity.
+     * @param yaw      New yaw of the entity.
+     * @param pitch    New pitch of the entity.
+     * @param onGround Whether the entity is on the ground.
+     * @throws IllegalArgumentException If the entity is not tracked.
+     */
+    public void move(int entityId, double x, double y, double z, float yaw, float pitch, boolean onGround) {
+        State state = this.getState(entityId);
+        state.x = x;
+        state.y = y;
+        state.z = z;
+        state.yaw = toAngle(yaw);
+        state.pitch = toAngle(pitch);
+        state.onGround = onGround;
+        this.markChanged(state);
+    }
+
+    /**
+     * Updates the head yaw of an entity. Only the last update before a flush is sent.
+     *
+     * @param entityId Id of the entity.
+     * @param headYaw  New head yaw of the entity.
+     * @throws IllegalArgumentException If the entity is not tracked.
+     */
+    public void setHeadYaw(int entityId, float headYaw) {
+        State state = this.getState(entityId);
+        state.headYaw = toAngle(headYaw);
+        this.markChanged(state);
+    }
+
+    /**
+     * Creates the movement packets for all changes since the last flush, and records them as sent.
+     *
+     * @return The packets to send to the viewers of the entities they belong to.
+     */
+    public List<Packet> flush() {
+        List<Packet> packets = new ArrayList<>(this.changed.size());
+        this.flush(packets);
+        return packets;
+    }
+
+    /**
+     * Sends the movement packets for all changes since the last flush to the viewers of their entities, and records them as sent.
+     *
+     * @param tracker Tracker that knows the viewers of the entities.
+     */
+    public void flush(@NonNull EntityTracker tracker) {
+        List<Packet> packets = new ArrayList<>(2);
+        for (State state : this.changed) {
+            state.changed = false;
+            this.encode(state, packets);
+            for (Packet packet : packets) {
+                tracker.broadcast(state.entityId, packet);
+            }
+
+            packets.clear();
+        }
+
+        this.changed.clear();
+        this.tick++;
+    }
+
+    private void flush(List<Packet> packets) {
+        for (State state : this.changed) {
+            state.changed = false;
+            this.encode(state, packets);
+        }
+
+        this.changed.clear();
+        this.tick++;
+    }
+
+    private void encode(State state, List<Packet> packets) {
+        long x = toFixed(state.x);
+        long y = toFixed(state.y);
+        long z = toFixed(state.z);
+        long moveX = x - state.sentX;
+        long moveY = y - state.sentY;
+        long moveZ = z - state.sentZ;
+        boolean moved = moveX != 0 || moveY != 0 || moveZ != 0 || state.onGround != state.sentOnGround;
+        boolean rotated = state.yaw != state.sentYaw || state.pitch != state.sentPitch;
+        if (moved || rotated) {
+            boolean overflow = moveX != (short) moveX || moveY != (short) moveY || moveZ != (short) moveZ;
+            boolean resync = this.resyncInterval > 0 && this.tick - state.lastTeleport >= this.resyncInterval;
+            if (overflow || resync) {
+                packets.add(ServerEntityTeleportPacket.ofRaw(state.entityId, state.x, state.y, state.z, state.yaw, state.pitch, state.onGround));
+                state.setSent(state.x, state.y, state.z, state.yaw, state.pitch, state.onGround);
+                state.lastTeleport = this.tick;
+            } else {
+                if (moved && rotated) {
+                    packets.add(ServerEntityPositionRotationPacket.ofRaw(state.entityId, (short) moveX, (short) moveY, (short) moveZ, state.yaw, state.pitch, state.onGround));
+                } else if (moved) {
+                    packets.add(ServerEntityPositionPacket.ofRaw(state.entityId, (short) moveX, (short) moveY, (short) moveZ, state.onGround));
+                } else {
+                    packets.add(ServerEntityRotationPacket.ofRaw(state.entityId, state.yaw, state.pitch, state.onGround));
+                }
+
+                // Viewers add the exact deltas, so the sent position stays in fixed point instead of snapping to the new one.
+                state.sentX += moveX;
+                state.sentY += moveY;
+                state.sentZ += moveZ;
+                state.sentYaw = state.yaw;
+                state.sentPitch = state.pitch;
+                state.sentOnGround = state.onGround;
+            }
+        }
+
+        if (state.headYaw != state.sentHeadYaw) {
+            packets.add(ServerEntityHeadLookPacket.ofRaw(state.entityId, state.headYaw));
+            state.sentHeadYaw = state.headYaw;
+        }
+    }
+
+    private void markChanged(State state) {
+        if (!state.changed) {
+            state.changed = true;
+            this.changed.add(state);
+        }
+    }
+
+    private State getState(int entityId) {
+        State state = this.states.get(entityId);
+        if (state == null) {
+            throw new IllegalArgumentException("Entity " + entityId + " is not tracked.");
+        }
+
+        return state;
+    }
+
+    private static long toFixed(double coordinate) {
+        return (long) Math.floor(coordinate * 4096);
+    }
+
+    // Same conversion as the float constructors of the packets, so a spawn packet built from the same angle agrees with the tracked state.
+    private static byte toAngle(float degrees) {
+        return (byte) (degrees * 256 / 360);
+    }
+
+    private static class State {
+        private final int entityId;
+        private double x;
+        private double y;
+        private double z;
+        private byte yaw;
+        private byte pitch;
+        private byte headYaw;
+        private boolean onGround;
+        private long sentX;
+        private long sentY;
+        private long sentZ;
+        private byte sentYaw;
+        private byte sentPitch;
+        private byte sentHeadYaw;
+        private boolean sentOnGround;
+        private long lastTeleport;
+        private boolean changed;
+
+        private State(int entityId) {
+            this.entityId = entityId;
+        }
+
+        private void setSent(double x, double y, double z, byte yaw, byte pitch, boolean onGround) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.yaw = yaw;
+            this.pitch = pitch;
+            this.onGround = onGround;
+            this.sentX = toFixed(x);
+            this.sentY = toFixed(y);
+            this.sentZ = toFixed(z);
+            this.sentYaw = yaw;
+            this.sentPitch = pitch;
+            this.sentOnGround = onGround;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerRemoveEntitiesPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn.ServerSpawnEntityPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn.ServerSpawnExpOrbPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn.ServerSpawnLivingEntityPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn.ServerSpawnPaintingPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn.ServerSpawnPlayerPacket;
+import com.github.steveice10.packetlib.Session;
+import com.github.steveice10.packetlib.io.stream.StreamNetInput;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import com.github.steveice10.packetlib.packet.BufferedPacket;
+import com.github.steveice10.packetlib.packet.Packet;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import lombok.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Collects the entities removed for a session during a tick and sends them as a single
+ * {@link ServerRemoveEntitiesPacket} when flushed, instead of one packet per entity.
+ * <p>
+ * Removals stay pending until {@link #flush()} is called, usually once at the end of every tick. To keep a spawn
+ * from reaching the client before a pending removal of the same id, which would make the client drop the new
+ * entity, spawn packets should be sent through {@link #send(Packet)}; it flushes the pending removals first when
+ * the spawned id is among them. This includes spawns already encoded into a {@link BufferedPacket}.
+ * {@link EntityTracker} does this for the spawns it sends. This class is thread-safe.
+ */
+public class EntityRemovalQueue {
+    private static final String SESSION_KEY = "entity-removal-queue";
+    private static final Object SESSION_LOCK = new Object();
+
+    private final Session session;
+    private final IntObjectMap<Boolean> pending = new IntObjectHashMap<>();
+    private int[] entityIds = new int[16];
+    private int size;
+
+    /**
+     * Creates a new removal queue.
+     *
+     * @param session Session to send the removals to.
+     */
+    public EntityRemovalQueue(@NonNull Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Gets the removal queue of a session, creating it if needed.
+     *
+     * @param session Session to get the queue of.
+     * @return The session's removal queue.
+     */
+    public static EntityRemovalQueue get(@NonNull Session session) {
+        EntityRemovalQueue queue = session.getFlag(SESSION_KEY);
+        if (queue == null) {
+            synchronized (SESSION_LOCK) {
+                queue = session.getFlag(SESSION_KEY);
+                if (queue == null) {
+                    queue = new EntityRemovalQueue(session);
+                    session.setFlag(SESSION_KEY, queue);
+                }
+            }
+        }
+
+        return queue;
+    }
+
+    /**
+     * Flushes the pending removals of a session if it has a removal queue and one of them is the given entity.
+     *
+     * @param session  Session to check.
+     * @param entityId Id of the entity about to be spawned.
+     */
+    public static void flushBeforeSpawn(@NonNull Session session, int entityId) {
+        EntityRemovalQueue queue = session.getFlag(SESSION_KEY);
+        if (queue != null) {
+            queue.flushIfPending(entityId);
+        }
+    }
+
+    /**
+     * Adds an entity to the pending removals. Adding an entity that is already pending has no effect.
+     *
+     * @param entityId Id of the entity.
+     */
+    public synchronized void remove(int entityId) {
+        if (this.pending.put(entityId, Boolean.TRUE) != null) {
+            return;
+        }
+
+        if (this.size == this.entityIds.length) {
+            this.entityIds = Arrays.copyOf(this.entityIds, this.size << 1);
+        }
+
+        this.entityIds[this.size++] = entityId;
+    }
+
+    /**
+     * Gets whether the removal of an entity is pending.
+     *
+     * @param entityId Id of the entity.
+     * @return Whether the removal is pending.
+     */
+    public synchronized boolean isPending(int entityId) {
+        return this.pending.containsKey(entityId);
+    }
+
+    /**
+     * Gets the number of pending removals.
+     *
+     * @return The number of pending removals.
+     */
+    public synchronized int getPendingCount() {
+        return this.size;
+    }
+
+    /**
+     * Sends all pending removals in a single packet. Nothing is sent if there are none.
+     */
+    public synchronized void flush() {
+        if (this.size == 0) {
+            return;
+        }
+
+        this.session.send(new ServerRemoveEntitiesPacket(Arrays.copyOf(this.entityIds, this.size)));
+        this.pending.clear();
+        this.size = 0;
+    }
+
+    /**
+     * Sends all pending removals if one of them is the given entity.
+     *
+     * @param entityId Id of the entity.
+     */
+    public synchronized void flushIfPending(int entityId) {
+        if (this.pending.containsKey(entityId)) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Sends a packet to the session, first flushing the pending removals if the packet spawns an entity
+     * whose removal is pending.
+     *
+     * @param packet Packet to send.
+     */
+    public synchronized void send(@NonNull Packet packet) {
+        if (this.size != 0 && isSpawn(packet)) {
+            try {
+                this.flushIfPending(getSpawnedEntityId(packet));
+            } catch (IOException e) {
+                // The id of a malformed buffered spawn is unknown, so it may be one of the pending removals.
+                this.flush();
+            }
+        }
+
+        this.session.send(packet);
+    }
+
+    private static boolean isSpawn(Packet packet) {
+        Class<? extends Packet> type = packet instanceof BufferedPacket ? ((BufferedPacket) packet).getPacketClass() : packet.getClass();
+        return type == ServerSpawnEntityPacket.class || type == ServerSpawnLivingEntityPacket.class || type == ServerSpawnPlayerPacket.class
+                || type == ServerSpawnExpOrbPacket.class || type == ServerSpawnPaintingPacket.class;
+    }
+
+    private static int getSpawnedEntityId(Packet packet) throws IOException {
+        if (packet instanceof BufferedPacket) {
+            // Every spawn packet starts with the entity id.
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            packet.write(new StreamNetOutput(out));
+            return new StreamNetInput(new ByteArrayInputStream(out.toByteArray())).readVarInt();
+        } else if (packet instanceof ServerSpawnEntityPacket) {
+            return ((ServerSpawnEntityPacket) packet).getEntityId();
+        } else if (packet instanceof ServerSpawnLivingEntityPacket) {
+            return ((ServerSpawnLivingEntityPacket) packet).getEntityId();
+        } else if (packet instanceof ServerSpawnPlayerPacket) {
+            return ((ServerSpawnPlayerPacket) packet).getEntityId();
+        } else if (packet instanceof ServerSpawnExpOrbPacket) {
+            return ((ServerSpawnExpOrbPacket) packet).getEntityId();
+        } else {
+            return ((ServerSpawnPaintingPacket) packet).getEntityId();
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerRemoveEntitiesPacket;
+import com.github.steveice10.mc.protocol.world.WorldCache;
+import com.github.steveice10.packetlib.Session;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import com.github.steveice10.packetlib.packet.BufferedPacket;
+import com.github.steveice10.packetlib.packet.Packet;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Works out which sessions see which entities and sends them spawn and remove packets as that changes.
+ * <p>
+ * Entities are kept in a grid of chunk sized cells. A viewer sees every entity in the square of chunks within its
+ * view distance of its own chunk, except its own entity. Viewers are indexed in a coarser grid of regions, so that
+ * an entity moving to another chunk is only checked against the viewers near it. Visibility is only recomputed
+ * for viewers and entities that moved to another chunk since the last {@link #update()}.
+ * <p>
+ * Each update sends every viewer a single {@link ServerRemoveEntitiesPacket} for the entities it stopped seeing,
+ * followed by the spawn packets of the entities it started seeing. Spawn packets are created once per entity and
+ * update, and are encoded once and shared when they go to more than one viewer. A spawn is never sent before a
+ * removal of the same id that is still pending in the viewer's {@link EntityRemovalQueue}. This class is not thread-safe.
+ */
+public class EntityTracker {
+    private static final int REGION_SHIFT = 4;
+
+    private final IntObjectMap<Entry> entities = new IntObjectHashMap<>();
+    private final LongObjectMap<List<Entry>> cells = new LongObjectHashMap<>();
+    private final Map<Session, Viewer> viewers = new IdentityHashMap<>();
+    private final LongObjectMap<List<Viewer>> regions = new LongObjectHashMap<>();
+
+    private final List<Entry> moved = new ArrayList<>();
+    private final List<Entry> spawning = new ArrayList<>();
+
+    /**
+     * Starts tracking an entity.
+     *
+     * @param entity The entity.
+     * @param x      X coordinate of the entity.
+     * @param z      Z coordinate of the entity.
+     * @throws IllegalArgumentException If an entity with the same id is already tracked.
+     */
+    public void track(@NonNull TrackedEntity entity, double x, double z) {
+        int entityId = entity.getEntityId();
+        if (this.entities.containsKey(entityId)) {
+            throw new IllegalArgumentException("Entity " + entityId + " is already tracked.");
+        }
+
+        Entry entry = new Entry(entity);
+        entry.chunkX = (int) Math.floor(x) >> 4;
+        entry.chunkZ = (int) Math.floor(z) >> 4;
+        this.entities.put(entityId, entry);
+        this.addToCell(entry);
+        this.markMoved(entry);
+    }
+
+    /**
+     * Stops tracking an entity. Its viewers are sent a remove packet on the next update.
+     *
+     * @param entityId Id of the entity.
+     * @return Whether the entity was tracked.
+     */
+    public boolean untrack(int entityId) {
+        Entry entry = this.entities.remove(entityId);
+        if (entry == null) {
+            return false;
+        }
+
+        this.removeFromCell(entry);
+        for (Viewer viewer : entry.viewers) {
+            viewer.visible.remove(entry);
+            viewer.addRemove(entityId);
+        }
+
+        entry.viewers.clear();
+        entry.removed = true;
+        return true;
+    }
+
+    /**
+     * Updates the position of an entity.
+     *
+     * @param entityId Id of the entity.
+     * @param x        New X coordinate of the entity.
+     * @param z        New Z coordinate of the entity.
+     * @throws IllegalArgumentException If the entity is not tracked.
+     */
+    public void move(int entityId, double x, double z) {
+        Entry entry = this.getEntry(entityId);
+        int chunkX = (int) Math.floor(x) >> 4;
+        int chunkZ = (int) Math.floor(z) >> 4;
+        if (chunkX != entry.chunkX || chunkZ != entry.chunkZ) {
+            this.removeFromCell(entry);
+            entry.chunkX = chunkX;
+            entry.chunkZ = chunkZ;
+            this.addToCell(entry);
+            this.markMoved(entry);
+        }
+    }
+
+    /**
+     * Gets whether an entity is tracked.
+     *
+     * @param entityId Id of the entity.
+     * @return Whether the entity is tracked.
+     */
+    public boolean isTracked(int entityId) {
+        return this.entities.containsKey(entityId);
+    }
+
+    /**
+     * Gets the number of tracked entities.
+     *
+     * @return The number of tracked entities.
+     */
+    public int getEntityCount() {
+        return this.entities.size();
+    }
+
+    /**
+     * Adds a viewer. It is sent the entities around it on the next update.
+     *
+     * @param session      Session of the viewer.
+     * @param entityId     Id of the viewer's own entity, which it is never sent, or -1 if it has none.
+     * @param x            X coordinate of the viewer.
+     * @param z            Z coordinate of the viewer.
+     * @param viewDistance View distance of the viewer, in chunks.
+     * @throws IllegalArgumentException If the session is already a viewer or the view distance is negative.
+     */
+    public void addViewer(@NonNull Session session, int entityId, double x, double z, int viewDistance) {
+        if (this.viewers.containsKey(session)) {
+            throw new IllegalArgumentException("Session is already a viewer.");
+        }
+
+        if (viewDistance < 0) {
+            throw new IllegalArgumentException("View distance must not be negative.");
+        }
+
+        Viewer viewer = new Viewer(session, entityId);
+        viewer.nextChunkX = (int) Math.floor(x) >> 4;
+        viewer.nextChunkZ = (int) Math.floor(z) >> 4;
+        viewer.nextViewDistance = viewDistance;
+        viewer.dirty = true;
+        this.viewers.put(session, viewer);
+    }
+
+    /**
+     * Updates the position of a viewer.
+     *
+     * @param session Session of the viewer.
+     * @param x       New X coordinate of the viewer.
+     * @param z       New Z coordinate of the viewer.
+     * @throws IllegalArgumentException If the session is not a viewer.
+     */
+    public void moveViewer(@NonNull Session session, double x, double z) {
+        Viewer viewer = this.getViewer(session);
+        int chunkX = (int) Math.floor(x) >> 4;
+        int chunkZ = (int) Math.floor(z) >> 4;
+        if (chunkX != viewer.nextChunkX || chunkZ != viewer.nextChunkZ) {
+            viewer.nextChunkX = chunkX;
+            viewer.nextChunkZ = chunkZ;
+            viewer.dirty = true;
+        }
+    }
+
+    /**
+     * Updates the view distance of a viewer.
+     *
+     * @param session      Session of the viewer.
+     * @param viewDistance New view distance of the viewer, in chunks.
+     * @throws IllegalArgumentException If the session is not a viewer or the view distance is negative.
+     */
+    public void setViewDistance(@NonNull Session session, int viewDistance) {
+        if (viewDistance < 0) {
+            throw new IllegalArgumentException("View distance must not be negative.");
+        }
+
+        Viewer viewer = this.getViewer(session);
+        if (viewDistance != viewer.nextViewDistance) {
+            viewer.nextViewDistance = viewDistance;
+            viewer.dirty = true;
+        }
+    }
+
+    /**
+     * Removes a viewer without sending it any packets, for example when it disconnects.
+     *
+     * @param session Session of the viewer.
+     * @return Whether the session was a viewer.
+     */
+    public boolean removeViewer(@NonNull Session session) {
+        Viewer viewer = this.viewers.remove(session);
+        if (viewer == null) {
+            return false;
+        }
+
+        if (viewer.placed) {
+            this.forEachRegion(viewer.chunkX, viewer.chunkZ, viewer.viewDistance, region -> {
+                List<Viewer> list = this.regions.get(region);
+                list.remove(viewer);
+                if (list.isEmpty()) {
+                    this.regions.remove(region);
+                }
+            });
+        }
+
+        for (Entry entry : viewer.visible) {
+            entry.viewers.remove(viewer);
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the number of viewers that currently see an entity.
+     *
+     * @param entityId Id of the entity.
+     * @return The number of viewers, or 0 if the entity is not tracked.
+     */
+    public int getViewerCount(int entityId) {
+        Entry entry = this.entities.get(entityId);
+        return entry != null ? entry.viewers.size() : 0;
+    }
+
+    /**
+     * Sends a packet about an entity, such as a movement or metadata packet, to every viewer that currently sees it.
+     * The packet is encoded once when there is more than one viewer.
+     *
+     * @param entityId Id of the entity.
+     * @param packet   Packet to send.
+     */
+    public void broadcast(int entityId, @NonNull Packet packet) {
+        Entry entry = this.entities.get(entityId);
+        if (entry == null || entry.viewers.isEmpty()) {
+            return;
+        }
+
+        if (entry.viewers.size() > 1) {
+            packet = encode(packet);
+        }
+
+        for (Viewer viewer : entry.viewers) {
+            viewer.session.send(packet);
+        }
+    }
+
+    /**
+     * Recomputes visibility for the viewers and entities that moved to another chunk since the last update,
+     * and sends the resulting remove and spawn packets.
+     */
+    public void update() {
+        for (Viewer viewer : this.viewers.values()) {
+            if (viewer.dirty) {
+                this.updateViewer(viewer);
+            }
+        }
+
+        for (Entry entry : this.moved) {
+            entry.moved = false;
+            if (!entry.removed) {
+                this.updateEntity(entry);
+            }
+        }
+
+        this.moved.clear();
+
+        for (Entry entry : this.spawning) {
+            List<Packet> packets = entry.entity.createSpawnPackets();
+            if (entry.spawnCount > 1) {
+                List<Packet> encoded = new ArrayList<>(packets.size());
+                for (Packet packet : packets) {
+                    encoded.add(encode(packet));
+                }
+
+                packets = encoded;
+            }
+
+            entry.spawnPackets = packets;
+        }
+
+        for (Viewer viewer : this.viewers.values()) {
+            if (viewer.removeCount > 0) {
+                viewer.session.send(new ServerRemoveEntitiesPacket(Arrays.copyOf(viewer.removes, viewer.removeCount)));
+                viewer.removeCount = 0;
+            }
+
+            for (Entry entry : viewer.spawns) {
+                EntityRemovalQueue.flushBeforeSpawn(viewer.session, entry.entity.getEntityId());
+                for (Packet packet : entry.spawnPackets) {
+                    viewer.session.send(packet);
+                }
+            }
+
+            viewer.spawns.clear();
+        }
+
+        for (Entry entry : this.spawning) {
+            entry.spawnPackets = null;
+            entry.spawnCount = 0;
+        }
+
+        this.spawning.clear();
+    }
+
+    private void updateViewer(Viewer viewer) {
+        int oldX = viewer.chunkX;
+        int oldZ = viewer.chunkZ;
+        int oldDistance = viewer.viewDistance;
+        boolean wasPlaced = viewer.placed;
+        if (wasPlaced) {
+            this.forEachRegion(oldX, oldZ, oldDistance, region -> {
+                List<Viewer> list = this.regions.get(region);
+                list.remove(viewer);
+                if (list.isEmpty()) {
+                    this.regions.remove(region);
+                }
+            });
+        }
+
+        viewer.chunkX = viewer.nextChunkX;
+        viewer.chunkZ = viewer.nextChunkZ;
+        viewer.viewDistance = viewer.nextViewDistance;
+        viewer.placed = true;
+        viewer.dirty = false;
+        this.forEachRegion(viewer.chunkX, viewer.chunkZ, viewer.viewDistance, region -> {
+            List<Viewer> list = this.regions.get(region);
+            if (list == null) {
+                list = new ArrayList<>(1);
+                this.regions.put(region, list);
+            }
+
+            list.add(viewer);
+        });
+
+        if (wasPlaced) {
+            for (int x = oldX - oldDistance; x <= oldX + oldDistance; x++) {
+                for (int z = oldZ - oldDistance; z <= oldZ + oldDistance; z++) {
+                    if (!viewer.inRange(x, z)) {
+                        List<Entry> cell = this.cells.get(WorldCache.chunkKey(x, z));
+                        if (cell != null) {
+                            for (Entry entry : cell) {
+                                this.hide(viewer, entry);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int x = viewer.chunkX - viewer.viewDistance; x <= viewer.chunkX + viewer.viewDistance; x++) {
+            for (int z = viewer.chunkZ - viewer.viewDistance; z <= viewer.chunkZ + viewer.viewDistance; z++) {
+                if (!wasPlaced || Math.abs(x - oldX) > oldDistance || Math.abs(z - oldZ) > oldDistance) {
+                    List<Entry> cell = this.cells.get(WorldCache.chunkKey(x, z));
+                    if (cell != null) {
+                        for (Entry entry : cell) {
+                            this.show(viewer, entry);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void updateEntity(Entry entry) {
+        if (!entry.viewers.isEmpty()) {
+            for (Viewer viewer : entry.viewers.toArray(new Viewer[0])) {
+                if (!viewer.inRange(entry.chunkX, entry.chunkZ)) {
+                    this.hide(viewer, entry);
+                }
+            }
+        }
+
+        List<Viewer> nearby = this.regions.get(WorldCache.chunkKey(entry.chunkX >> REGION_SHIFT, entry.chunkZ >> REGION_SHIFT));
+        if (nearby != null) {
+            for (Viewer viewer : nearby) {
+                if (viewer.inRange(entry.chunkX, entry.chunkZ)) {
+                    this.show(viewer, entry);
+                }
+            }
+        }
+    }
+
+    private void show(Viewer viewer, Entry entry) {
+        if (entry.entity.getEntityId() == viewer.entityId || !viewer.visible.add(entry)) {
+            return;
+        }
+
+        entry.viewers.add(viewer);
+        viewer.spawns.add(entry);
+        if (entry.spawnCount++ == 0) {
+            this.spawning.add(entry);
+        }
+    }
+
+    private void hide(Viewer viewer, Entry entry) {
+        if (!viewer.visible.remove(entry)) {
+            return;
+        }
+
+        entry.viewers.remove(viewer);
+        viewer.addRemove(entry.entity.getEntityId());
+    }
+
+    private void forEachRegion(int chunkX, int chunkZ, int viewDistance, RegionConsumer consumer) {
+        int minX = (chunkX - viewDistance) >> REGION_SHIFT;
+        int maxX = (chunkX + viewDistance) >> REGION_SHIFT;
+        int minZ = (chunkZ - viewDistance) >> REGION_SHIFT;
+        int maxZ = (chunkZ + viewDistance) >> REGION_SHIFT;
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                consumer.accept(WorldCache.chunkKey(x, z));
+            }
+        }
+    }
+
+    private void addToCell(Entry entry) {
+        long key = WorldCache.chunkKey(entry.chunkX, entry.chunkZ);
+        List<Entry> cell = this.cells.get(key);
+        if (cell == null) {
+            cell = new ArrayList<>(4);
+            this.cells.put(key, cell);
+        }
+
+        entry.cellIndex = cell.size();
+        cell.add(entry);
+    }
+
+    private void removeFromCell(Entry entry) {
+        long key = WorldCache.chunkKey(entry.chunkX, entry.chunkZ);
+        List<Entry> cell = this.cells.get(key);
+        Entry last = cell.remove(cell.size() - 1);
+        if (last != entry) {
+            cell.set(entry.cellIndex, last);
+            last.cellIndex = entry.cellIndex;
+        }
+
+        if (cell.isEmpty()) {
+            this.cells.remove(key);
+        }
+    }
+
+    private void markMoved(Entry entry) {
+        if (!entry.moved) {
+            entry.moved = true;
+            this.moved.add(entry);
+        }
+    }
+
+    private Entry getEntry(int entityId) {
+        Entry entry = this.entities.get(entityId);
+        if (entry == null) {
+            throw new IllegalArgumentException("Entity " + entityId + " is not tracked.");
+        }
+
+        return entry;
+    }
+
+    private Viewer getViewer(Session session) {
+        Viewer viewer = this.viewers.get(session);
+        if (viewer == null) {
+            throw new IllegalArgumentException("Session is not a viewer.");
+        }
+
+        return viewer;
+    }
+
+    private static Packet encode(Packet packet) {
+        if (packet instanceof BufferedPacket) {
+            return packet;
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            packet.write(new StreamNetOutput(out));
+            return new BufferedPacket(packet.getClass(), out.toByteArray());
+        } catch (IOException e) {
+            // Leave encoding to each session, which reports the failure through its own pipeline.
+            return packet;
+        }
+    }
+
+    private interface RegionConsumer {
+        void accept(long region);
+    }
+
+    private static class Entry {
+        private final TrackedEntity entity;
+        private final Set<Viewer> viewers = Collections.newSetFromMap(new IdentityHashMap<>());
+        private int chunkX;
+        private int chunkZ;
+        private int cellIndex;
+        private boolean moved;
+        private boolean removed;
+        private int spawnCount;
+        private List<Packet> spawnPackets;
+
+        private Entry(TrackedEntity entity) {
+            this.entity = entity;
+        }
+    }
+
+    private static class Viewer {
+        private final Session session;
+        private final int entityId;
+        private final Set<Entry> visible = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final List<Entry> spawns = new ArrayList<>();
+        private int[] removes = new int[8];
+        private int removeCount;
+        private int chunkX;
+        private int chunkZ;
+        private int viewDistance;
+        private int nextChunkX;
+        private int nextChunkZ;
+        private int nextViewDistance;
+        private boolean placed;
+        private boolean dirty;
+
+        private Viewer(Session session, int entityId) {
+            this.session = session;
+            this.entityId = entityId;
+        }
+
+        private boolean inRange(int chunkX, int chunkZ) {
+            return Math.abs(chunkX - this.chunkX) <= this.viewDistance && Math.abs(chunkZ - this.chunkZ) <= this.viewDistance;
+        }
+
+        private void addRemove(int entityId) {
+            if (this.removeCount == this.removes.length) {
+                this.removes = Arrays.copyOf(this.removes, this.removeCount << 1);
+            }
+
+            this.removes[this.removeCount++] = entityId;
+        }
+    }
+}
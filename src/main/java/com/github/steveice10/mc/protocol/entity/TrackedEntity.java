@@ -0,0 +1,26 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.packetlib.packet.Packet;
+
+import java.util.List;
+
+/**
+ * An entity whose visibility is managed by an {@link EntityTracker}.
+ */
+public interface TrackedEntity {
+    /**
+     * Gets the id of this entity.
+     *
+     * @return The entity id.
+     */
+    int getEntityId();
+
+    /**
+     * Creates the packets that make this entity appear for a viewer, such as its spawn packet followed by its
+     * metadata and equipment. The tracker creates them at most once per update and sends the same packets to
+     * every viewer that starts seeing the entity in that update.
+     *
+     * @return The spawn packets.
+     */
+    List<Packet> createSpawnPackets();
+}
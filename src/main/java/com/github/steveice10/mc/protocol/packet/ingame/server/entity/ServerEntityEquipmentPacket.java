@@ -8,39 +8,105 @@ import com.github.steveice10.packetlib.io.NetInput;
 import com.github.steveice10.packetlib.io.NetOutput;
 import com.github.steveice10.packetlib.packet.Packet;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.Setter;
+import lombok.ToString;
 import lombok.With;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Objects;
 
 @Data
 @With
 @Setter(AccessLevel.NONE)
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor
 public class ServerEntityEquipmentPacket implements Packet {
     private int entityId;
     private @NonNull Equipment[] equipment;
+    /**
+     * Encodings of the items as written by {@link ItemStack#write(NetOutput, ItemStack)}, in the same order as the
+     * equipment, or null to encode them when writing. Null entries are encoded when writing as well.
+     */
+    @Getter(AccessLevel.NONE)
+    @With(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private byte[][] encodedItems;
+
+    public ServerEntityEquipmentPacket(int entityId, @NonNull Equipment[] equipment) {
+        this(entityId, equipment, null);
+    }
+
+    /**
+     * Creates an entity equipment packet that writes already encoded items.
+     *
+     * @param entityId     Id of the entity.
+     * @param equipment    Equipment of the entity.
+     * @param encodedItems Encodings of the items as written by {@link ItemStack#write(NetOutput, ItemStack)}, in the
+     *                     same order as the equipment, or null to encode them when writing. Null entries are encoded
+     *                     when writing as well. The arrays are shared and must not be modified.
+     */
+    public ServerEntityEquipmentPacket(int entityId, @NonNull Equipment[] equipment, byte[][] encodedItems) {
+        if (encodedItems != null && encodedItems.length != equipment.length) {
+            throw new IllegalArgumentException("Encoded items must match the equipment.");
+        }
+
+        this.entityId = entityId;
+        this.equipment = equipment;
+        this.encodedItems = encodedItems;
+    }
+
+    public ServerEntityEquipmentPacket withEquipment(@NonNull Equipment[] equipment) {
+        if (this.equipment == equipment) {
+            return this;
+        }
+
+        if (this.encodedItems == null) {
+            return new ServerEntityEquipmentPacket(this.entityId, equipment);
+        }
+
+        // Keep the encodings of slots that hold the same item as before, the others are encoded when writing.
+        byte[][] encodedItems = new byte[equipment.length][];
+        for (int i = 0; i < equipment.length; i++) {
+            for (int j = 0; j < this.equipment.length; j++) {
+                if (equipment[i].getSlot() == this.equipment[j].getSlot()) {
+                    if (Objects.equals(equipment[i].getItem(), this.equipment[j].getItem())) {
+                        encodedItems[i] = this.encodedItems[j];
+                    }
+
+                    break;
+                }
+            }
+        }
+
+        return new ServerEntityEquipmentPacket(this.entityId, equipment, encodedItems);
+    }
 
     @Override
     public void read(NetInput in) throws IOException {
         this.entityId = in.readVarInt();
+        Equipment[] equipment = new Equipment[EquipmentSlot.values().length];
+        int size = 0;
         boolean hasNextEntry = true;
-        List<Equipment> list = new ArrayList<>();
         while (hasNextEntry) {
             int rawSlot = in.readByte();
             EquipmentSlot slot = MagicValues.key(EquipmentSlot.class, ((byte) rawSlot) & 127);
             ItemStack item = ItemStack.read(in);
-            list.add(new Equipment(slot, item));
+            if (size == equipment.length) {
+                equipment = Arrays.copyOf(equipment, size << 1);
+            }
+
+            equipment[size++] = new Equipment(slot, item);
             hasNextEntry = (rawSlot & 128) == 128;
         }
-        this.equipment = list.toArray(new Equipment[0]);
+
+        this.equipment = size == equipment.length ? equipment : Arrays.copyOf(equipment, size);
+        this.encodedItems = null;
     }
 
     @Override
@@ -52,7 +118,11 @@ public class ServerEntityEquipmentPacket implements Packet {
                 rawSlot = rawSlot | 128;
             }
             out.writeByte(rawSlot);
-            ItemStack.write(out, this.equipment[i].getItem());
+            if (this.encodedItems != null && this.encodedItems[i] != null) {
+                out.writeBytes(this.encodedItems[i]);
+            } else {
+                ItemStack.write(out, this.equipment[i].getItem());
+            }
         }
     }
 
@@ -16,21 +16,36 @@ import java.io.IOException;
 @With
 @Setter(AccessLevel.NONE)
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor
+@AllArgsConstructor(staticName = "ofRaw")
 public class ServerEntityHeadLookPacket implements Packet {
     private int entityId;
-    private float headYaw;
+    /**
+     * Head yaw as sent over the network, in 1/256 turns.
+     */
+    private byte rawHeadYaw;
+
+    public ServerEntityHeadLookPacket(int entityId, float headYaw) {
+        this(entityId, (byte) (headYaw * 256 / 360));
+    }
+
+    public float getHeadYaw() {
+        return this.rawHeadYaw * 360 / 256f;
+    }
+
+    public ServerEntityHeadLookPacket withHeadYaw(float headYaw) {
+        return this.withRawHeadYaw((byte) (headYaw * 256 / 360));
+    }
 
     @Override
     public void read(NetInput in) throws IOException {
         this.entityId = in.readVarInt();
-        this.headYaw = in.readByte() * 360 / 256f;
+        this.rawHeadYaw = in.readByte();
     }
 
     @Override
     public void write(NetOutput out) throws IOException {
         out.writeVarInt(this.entityId);
-        out.writeByte((byte) (this.headYaw * 256 / 360));
+        out.writeByte(this.rawHeadYaw);
     }
 
     @Override
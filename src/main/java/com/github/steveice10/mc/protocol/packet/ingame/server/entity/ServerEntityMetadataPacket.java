@@ -5,11 +5,13 @@ import com.github.steveice10.packetlib.io.NetInput;
 import com.github.steveice10.packetlib.io.NetOutput;
 import com.github.steveice10.packetlib.packet.Packet;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.Setter;
+import lombok.ToString;
 import lombok.With;
 
 import java.io.IOException;
@@ -18,10 +20,40 @@ import java.io.IOException;
 @With
 @Setter(AccessLevel.NONE)
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor
 public class ServerEntityMetadataPacket implements Packet {
     private int entityId;
     private @NonNull EntityMetadata[] metadata;
+    /**
+     * Encoding of the metadata as written by {@link EntityMetadata#write(NetOutput, EntityMetadata[])}, or null to encode it when writing.
+     */
+    @Getter(AccessLevel.NONE)
+    @With(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private byte[] encodedMetadata;
+
+    public ServerEntityMetadataPacket(int entityId, @NonNull EntityMetadata[] metadata) {
+        this(entityId, metadata, null);
+    }
+
+    /**
+     * Creates an entity metadata packet that writes already encoded metadata.
+     *
+     * @param entityId        Id of the entity.
+     * @param metadata        The metadata.
+     * @param encodedMetadata Encoding of the metadata as written by {@link EntityMetadata#write(NetOutput, EntityMetadata[])},
+     *                        or null to encode it when writing. The array is shared and must not be modified.
+     */
+    public ServerEntityMetadataPacket(int entityId, @NonNull EntityMetadata[] metadata, byte[] encodedMetadata) {
+        this.entityId = entityId;
+        this.metadata = metadata;
+        this.encodedMetadata = encodedMetadata;
+    }
+
+    public ServerEntityMetadataPacket withMetadata(@NonNull EntityMetadata[] metadata) {
+        // The encoding belongs to the old metadata, so it is not carried over.
+        return this.metadata == metadata ? this : new ServerEntityMetadataPacket(this.entityId, metadata);
+    }
 
     @Override
     public void read(NetInput in) throws IOException {
@@ -32,7 +64,11 @@ public class ServerEntityMetadataPacket implements Packet {
     @Override
     public void write(NetOutput out) throws IOException {
         out.writeVarInt(this.entityId);
-        EntityMetadata.write(out, this.metadata);
+        if (this.encodedMetadata != null) {
+            out.writeBytes(this.encodedMetadata);
+        } else {
+            EntityMetadata.write(out, this.metadata);
+        }
     }
 
     @Override
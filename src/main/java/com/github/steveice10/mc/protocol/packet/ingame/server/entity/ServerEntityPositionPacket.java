@@ -16,29 +16,60 @@ import java.io.IOException;
 @With
 @Setter(AccessLevel.NONE)
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor
+@AllArgsConstructor(staticName = "ofRaw")
 public class ServerEntityPositionPacket implements Packet {
     private int entityId;
-    private double moveX;
-    private double moveY;
-    private double moveZ;
+    /**
+     * Movement along each axis as sent over the network, in 1/4096 blocks.
+     */
+    private short rawMoveX;
+    private short rawMoveY;
+    private short rawMoveZ;
     private boolean onGround;
 
+    public ServerEntityPositionPacket(int entityId, double moveX, double moveY, double moveZ, boolean onGround) {
+        this(entityId, (short) (moveX * 4096), (short) (moveY * 4096), (short) (moveZ * 4096), onGround);
+    }
+
+    public double getMoveX() {
+        return this.rawMoveX / 4096D;
+    }
+
+    public double getMoveY() {
+        return this.rawMoveY / 4096D;
+    }
+
+    public double getMoveZ() {
+        return this.rawMoveZ / 4096D;
+    }
+
+    public ServerEntityPositionPacket withMoveX(double moveX) {
+        return this.withRawMoveX((short) (moveX * 4096));
+    }
+
+    public ServerEntityPositionPacket withMoveY(double moveY) {
+        return this.withRawMoveY((short) (moveY * 4096));
+    }
+
+    public ServerEntityPositionPacket withMoveZ(double moveZ) {
+        return this.withRawMoveZ((short) (moveZ * 4096));
+    }
+
     @Override
     public void read(NetInput in) throws IOException {
         this.entityId = in.readVarInt();
-        this.moveX = in.readShort() / 4096D;
-        this.moveY = in.readShort() / 4096D;
-        this.moveZ = in.readShort() / 4096D;
+        this.rawMoveX = in.readShort();
+        this.rawMoveY = in.readShort();
+        this.rawMoveZ = in.readShort();
         this.onGround = in.readBoolean();
     }
 
     @Override
     public void write(NetOutput out) throws IOException {
         out.writeVarInt(this.entityId);
-        out.writeShort((int) (this.moveX * 4096));
-        out.writeShort((int) (this.moveY * 4096));
-        out.writeShort((int) (this.moveZ * 4096));
+        out.writeShort(this.rawMoveX);
+        out.writeShort(this.rawMoveY);
+        out.writeShort(this.rawMoveZ);
         out.writeBoolean(this.onGround);
     }
 
@@ -16,35 +16,85 @@ import java.io.IOException;
 @With
 @Setter(AccessLevel.NONE)
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor
+@AllArgsConstructor(staticName = "ofRaw")
 public class ServerEntityPositionRotationPacket implements Packet {
     private int entityId;
-    private double moveX;
-    private double moveY;
-    private double moveZ;
-    private float yaw;
-    private float pitch;
+    /**
+     * Movement along each axis as sent over the network, in 1/4096 blocks.
+     */
+    private short rawMoveX;
+    private short rawMoveY;
+    private short rawMoveZ;
+    /**
+     * Rotation as sent over the network, in 1/256 turns.
+     */
+    private byte rawYaw;
+    private byte rawPitch;
     private boolean onGround;
 
+    public ServerEntityPositionRotationPacket(int entityId, double moveX, double moveY, double moveZ, float yaw, float pitch, boolean onGround) {
+        this(entityId, (short) (moveX * 4096), (short) (moveY * 4096), (short) (moveZ * 4096), (byte) (yaw * 256 / 360), (byte) (pitch * 256 / 360), onGround);
+    }
+
+    public double getMoveX() {
+        return this.rawMoveX / 4096D;
+    }
+
+    public double getMoveY() {
+        return this.rawMoveY / 4096D;
+    }
+
+    public double getMoveZ() {
+        return this.rawMoveZ / 4096D;
+    }
+
+    public float getYaw() {
+        return this.rawYaw * 360 / 256f;
+    }
+
+    public float getPitch() {
+        return this.rawPitch * 360 / 256f;
+    }
+
+    public ServerEntityPositionRotationPacket withMoveX(double moveX) {
+        return this.withRawMoveX((short) (moveX * 4096));
+    }
+
+    public ServerEntityPositionRotationPacket withMoveY(double moveY) {
+        return this.withRawMoveY((short) (moveY * 4096));
+    }
+
+    public ServerEntityPositionRotationPacket withMoveZ(double moveZ) {
+        return this.withRawMoveZ((short) (moveZ * 4096));
+    }
+
+    public ServerEntityPositionRotationPacket withYaw(float yaw) {
+        return this.withRawYaw((byte) (yaw * 256 / 360));
+    }
+
+    public ServerEntityPositionRotationPacket withPitch(float pitch) {
+        return this.withRawPitch((byte) (pitch * 256 / 360));
+    }
+
     @Override
     public void read(NetInput in) throws IOException {
         this.entityId = in.readVarInt();
-        this.moveX = in.readShort() / 4096D;
-        this.moveY = in.readShort() / 4096D;
-        this.moveZ = in.readShort() / 4096D;
-        this.yaw = in.readByte() * 360 / 256f;
-        this.pitch = in.readByte() * 360 / 256f;
+        this.rawMoveX = in.readShort();
+        this.rawMoveY = in.readShort();
+        this.rawMoveZ = in.readShort();
+        this.rawYaw = in.readByte();
+        this.rawPitch = in.readByte();
         this.onGround = in.readBoolean();
     }
 
     @Override
     public void write(NetOutput out) throws IOException {
         out.writeVarInt(this.entityId);
-        out.writeShort((int) (this.moveX * 4096));
-        out.writeShort((int) (this.moveY * 4096));
-        out.writeShort((int) (this.moveZ * 4096));
-        out.writeByte((byte) (this.yaw * 256 / 360));
-        out.writeByte((byte) (this.pitch * 256 / 360));
+        out.writeShort(this.rawMoveX);
+        out.writeShort(this.rawMoveY);
+        out.writeShort(this.rawMoveZ);
+        out.writeByte(this.rawYaw);
+        out.writeByte(this.rawPitch);
         out.writeBoolean(this.onGround);
     }
 
@@ -1,11 +1,7 @@
 package com.github.steveice10.mc.protocol.packet.ingame.server.entity;
 
-import com.github.steveice10.mc.protocol.data.MagicValues;
-import com.github.steveice10.mc.protocol.data.game.Identifier;
 import com.github.steveice10.mc.protocol.data.game.entity.attribute.Attribute;
-import com.github.steveice10.mc.protocol.data.game.entity.attribute.AttributeModifier;
-import com.github.steveice10.mc.protocol.data.game.entity.attribute.AttributeType;
-import com.github.steveice10.mc.protocol.data.game.entity.attribute.ModifierOperation;
+import com.github.steveice10.mc.protocol.data.game.entity.attribute.PackedAttributes;
 import com.github.steveice10.packetlib.io.NetInput;
 import com.github.steveice10.packetlib.io.NetOutput;
 import com.github.steveice10.packetlib.packet.Packet;
@@ -18,7 +14,6 @@ import lombok.Setter;
 import lombok.With;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
 @Data
@@ -28,40 +23,45 @@ import java.util.List;
 @AllArgsConstructor
 public class ServerEntityPropertiesPacket implements Packet {
     private int entityId;
-    private @NonNull List<Attribute> attributes;
+    /**
+     * The attributes in their packed form, which is what the packet writes and compares.
+     */
+    private @NonNull PackedAttributes packedAttributes;
+
+    /**
+     * Creates an entity properties packet from attribute objects, which are packed once when the packet is created.
+     * Later changes to the list are not reflected in this packet.
+     *
+     * @param attributes The attributes.
+     */
+    public ServerEntityPropertiesPacket(int entityId, @NonNull List<Attribute> attributes) {
+        this(entityId, PackedAttributes.of(attributes));
+    }
+
+    /**
+     * Gets the attributes as objects, unpacking them from the packed attributes on each call.
+     * Changes made to the returned list are not reflected in this packet.
+     *
+     * @return The attributes.
+     */
+    public List<Attribute> getAttributes() {
+        return this.packedAttributes.toAttributes();
+    }
+
+    public ServerEntityPropertiesPacket withAttributes(@NonNull List<Attribute> attributes) {
+        return new ServerEntityPropertiesPacket(this.entityId, attributes);
+    }
 
     @Override
     public void read(NetInput in) throws IOException {
         this.entityId = in.readVarInt();
-        this.attributes = new ArrayList<>();
-        int length = in.readVarInt();
-        for (int index = 0; index < length; index++) {
-            String key = in.readString();
-            double value = in.readDouble();
-            List<AttributeModifier> modifiers = new ArrayList<AttributeModifier>();
-            int len = in.readVarInt();
-            for (int ind = 0; ind < len; ind++) {
-                modifiers.add(new AttributeModifier(in.readUUID(), in.readDouble(), MagicValues.key(ModifierOperation.class, in.readByte())));
-            }
-
-            this.attributes.add(new Attribute(MagicValues.key(AttributeType.class, Identifier.formalize(key)), value, modifiers));
-        }
+        this.packedAttributes = PackedAttributes.read(in);
     }
 
     @Override
     public void write(NetOutput out) throws IOException {
         out.writeVarInt(this.entityId);
-        out.writeVarInt(this.attributes.size());
-        for (Attribute attribute : this.attributes) {
-            out.writeString(MagicValues.value(String.class, attribute.getType()));
-            out.writeDouble(attribute.getValue());
-            out.writeVarInt(attribute.getModifiers().size());
-            for (AttributeModifier modifier : attribute.getModifiers()) {
-                out.writeUUID(modifier.getUuid());
-                out.writeDouble(modifier.getAmount());
-                out.writeByte(MagicValues.value(Integer.class, modifier.getOperation()));
-            }
-        }
+        PackedAttributes.write(out, this.packedAttributes);
     }
 
     @Override
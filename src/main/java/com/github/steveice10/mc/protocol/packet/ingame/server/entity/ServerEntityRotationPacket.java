@@ -16,26 +16,49 @@ import java.io.IOException;
 @With
 @Setter(AccessLevel.NONE)
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor
+@AllArgsConstructor(staticName = "ofRaw")
 public class ServerEntityRotationPacket implements Packet {
     private int entityId;
-    private float yaw;
-    private float pitch;
+    /**
+     * Rotation as sent over the network, in 1/256 turns.
+     */
+    private byte rawYaw;
+    private byte rawPitch;
     private boolean onGround;
 
+    public ServerEntityRotationPacket(int entityId, float yaw, float pitch, boolean onGround) {
+        this(entityId, (byte) (yaw * 256 / 360), (byte) (pitch * 256 / 360), onGround);
+    }
+
+    public float getYaw() {
+        return this.rawYaw * 360 / 256f;
+    }
+
+    public float getPitch() {
+        return this.rawPitch * 360 / 256f;
+    }
+
+    public ServerEntityRotationPacket withYaw(float yaw) {
+        return this.withRawYaw((byte) (yaw * 256 / 360));
+    }
+
+    public ServerEntityRotationPacket withPitch(float pitch) {
+        return this.withRawPitch((byte) (pitch * 256 / 360));
+    }
+
     @Override
     public void read(NetInput in) throws IOException {
         this.entityId = in.readVarInt();
-        this.yaw = in.readByte() * 360 / 256f;
-        this.pitch = in.readByte() * 360 / 256f;
+        this.rawYaw = in.readByte();
+        this.rawPitch = in.readByte();
         this.onGround = in.readBoolean();
     }
 
     @Override
     public void write(NetOutput out) throws IOException {
         out.writeVarInt(this.entityId);
-        out.writeByte((byte) (this.yaw * 256 / 360));
-        out.writeByte((byte) (this.pitch * 256 / 360));
+        out.writeByte(this.rawYaw);
+        out.writeByte(this.rawPitch);
         out.writeBoolean(this.onGround);
     }
 
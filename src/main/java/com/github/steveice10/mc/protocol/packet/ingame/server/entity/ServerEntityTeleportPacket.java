@@ -16,24 +16,47 @@ import java.io.IOException;
 @With
 @Setter(AccessLevel.NONE)
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor
+@AllArgsConstructor(staticName = "ofRaw")
 public class ServerEntityTeleportPacket implements Packet {
     private int entityId;
     private double x;
     private double y;
     private double z;
-    private float yaw;
-    private float pitch;
+    /**
+     * Rotation as sent over the network, in 1/256 turns.
+     */
+    private byte rawYaw;
+    private byte rawPitch;
     private boolean onGround;
 
+    public ServerEntityTeleportPacket(int entityId, double x, double y, double z, float yaw, float pitch, boolean onGround) {
+        this(entityId, x, y, z, (byte) (yaw * 256 / 360), (byte) (pitch * 256 / 360), onGround);
+    }
+
+    public float getYaw() {
+        return this.rawYaw * 360 / 256f;
+    }
+
+    public float getPitch() {
+        return this.rawPitch * 360 / 256f;
+    }
+
+    public ServerEntityTeleportPacket withYaw(float yaw) {
+        return this.withRawYaw((byte) (yaw * 256 / 360));
+    }
+
+    public ServerEntityTeleportPacket withPitch(float pitch) {
+        return this.withRawPitch((byte) (pitch * 256 / 360));
+    }
+
     @Override
     public void read(NetInput in) throws IOException {
         this.entityId = in.readVarInt();
         this.x = in.readDouble();
         this.y = in.readDouble();
         this.z = in.readDouble();
-        this.yaw = in.readByte() * 360 / 256f;
-        this.pitch = in.readByte() * 360 / 256f;
+        this.rawYaw = in.readByte();
+        this.rawPitch = in.readByte();
         this.onGround = in.readBoolean();
     }
 
@@ -43,8 +66,8 @@ public class ServerEntityTeleportPacket implements Packet {
         out.writeDouble(this.x);
         out.writeDouble(this.y);
         out.writeDouble(this.z);
-        out.writeByte((byte) (this.yaw * 256 / 360));
-        out.writeByte((byte) (this.pitch * 256 / 360));
+        out.writeByte(this.rawYaw);
+        out.writeByte(this.rawPitch);
         out.writeBoolean(this.onGround);
     }
 
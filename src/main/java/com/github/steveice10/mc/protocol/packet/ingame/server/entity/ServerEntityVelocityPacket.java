@@ -16,27 +16,58 @@ import java.io.IOException;
 @With
 @Setter(AccessLevel.NONE)
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor
+@AllArgsConstructor(staticName = "ofRaw")
 public class ServerEntityVelocityPacket implements Packet {
     private int entityId;
-    private double motionX;
-    private double motionY;
-    private double motionZ;
+    /**
+     * Velocity along each axis as sent over the network, in 1/8000 blocks per tick.
+     */
+    private short rawMotionX;
+    private short rawMotionY;
+    private short rawMotionZ;
+
+    public ServerEntityVelocityPacket(int entityId, double motionX, double motionY, double motionZ) {
+        this(entityId, (short) (motionX * 8000), (short) (motionY * 8000), (short) (motionZ * 8000));
+    }
+
+    public double getMotionX() {
+        return this.rawMotionX / 8000D;
+    }
+
+    public double getMotionY() {
+        return this.rawMotionY / 8000D;
+    }
+
+    public double getMotionZ() {
+        return this.rawMotionZ / 8000D;
+    }
+
+    public ServerEntityVelocityPacket withMotionX(double motionX) {
+        return this.withRawMotionX((short) (motionX * 8000));
+    }
+
+    public ServerEntityVelocityPacket withMotionY(double motionY) {
+        return this.withRawMotionY((short) (motionY * 8000));
+    }
+
+    public ServerEntityVelocityPacket withMotionZ(double motionZ) {
+        return this.withRawMotionZ((short) (motionZ * 8000));
+    }
 
     @Override
     public void read(NetInput in) throws IOException {
         this.entityId = in.readVarInt();
-        this.motionX = in.readShort() / 8000D;
-        this.motionY = in.readShort() / 8000D;
-        this.motionZ = in.readShort() / 8000D;
+        this.rawMotionX = in.readShort();
+        this.rawMotionY = in.readShort();
+        this.rawMotionZ = in.readShort();
     }
 
     @Override
     public void write(NetOutput out) throws IOException {
         out.writeVarInt(this.entityId);
-        out.writeShort((int) (this.motionX * 8000));
-        out.writeShort((int) (this.motionY * 8000));
-        out.writeShort((int) (this.motionZ * 8000));
+        out.writeShort(this.rawMotionX);
+        out.writeShort(this.rawMotionY);
+        out.writeShort(this.rawMotionZ);
     }
 
     @Override
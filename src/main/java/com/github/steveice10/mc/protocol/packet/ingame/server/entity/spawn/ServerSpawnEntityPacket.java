@@ -27,7 +27,7 @@ import java.util.UUID;
 @With
 @Setter(AccessLevel.NONE)
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor
+@AllArgsConstructor(staticName = "ofRaw")
 public class ServerSpawnEntityPacket implements Packet {
     private static final GenericObjectData EMPTY_DATA = new GenericObjectData(0);
 
@@ -38,11 +38,17 @@ public class ServerSpawnEntityPacket implements Packet {
     private double x;
     private double y;
     private double z;
-    private float yaw;
-    private float pitch;
-    private double motionX;
-    private double motionY;
-    private double motionZ;
+    /**
+     * Rotation as sent over the network, in 1/256 turns.
+     */
+    private byte rawYaw;
+    private byte rawPitch;
+    /**
+     * Velocity along each axis as sent over the network, in 1/8000 blocks per tick.
+     */
+    private short rawMotionX;
+    private short rawMotionY;
+    private short rawMotionZ;
 
     public ServerSpawnEntityPacket(int entityId, @NonNull UUID uuid, @NonNull EntityType type,
                                    double x, double y, double z, float yaw, float pitch) {
@@ -60,6 +66,53 @@ public class ServerSpawnEntityPacket implements Packet {
         this(entityId, uuid, type, EMPTY_DATA, x, y, z, yaw, pitch, motionX, motionY, motionZ);
     }
 
+    public ServerSpawnEntityPacket(int entityId, @NonNull UUID uuid, @NonNull EntityType type, @NonNull ObjectData data,
+                                   double x, double y, double z, float yaw, float pitch,
+                                   double motionX, double motionY, double motionZ) {
+        this(entityId, uuid, type, data, x, y, z, (byte) (yaw * 256 / 360), (byte) (pitch * 256 / 360),
+                (short) (motionX * 8000), (short) (motionY * 8000), (short) (motionZ * 8000));
+    }
+
+    public float getYaw() {
+        return this.rawYaw * 360 / 256f;
+    }
+
+    public float getPitch() {
+        return this.rawPitch * 360 / 256f;
+    }
+
+    public double getMotionX() {
+        return this.rawMotionX / 8000D;
+    }
+
+    public double getMotionY() {
+        return this.rawMotionY / 8000D;
+    }
+
+    public double getMotionZ() {
+        return this.rawMotionZ / 8000D;
+    }
+
+    public ServerSpawnEntityPacket withYaw(float yaw) {
+        return this.withRawYaw((byte) (yaw * 256 / 360));
+    }
+
+    public ServerSpawnEntityPacket withPitch(float pitch) {
+        return this.withRawPitch((byte) (pitch * 256 / 360));
+    }
+
+    public ServerSpawnEntityPacket withMotionX(double motionX) {
+        return this.withRawMotionX((short) (motionX * 8000));
+    }
+
+    public ServerSpawnEntityPacket withMotionY(double motionY) {
+        return this.withRawMotionY((short) (motionY * 8000));
+    }
+
+    public ServerSpawnEntityPacket withMotionZ(double motionZ) {
+        return this.withRawMotionZ((short) (motionZ * 8000));
+    }
+
     @Override
     public void read(NetInput in) throws IOException {
         this.entityId = in.readVarInt();
@@ -68,8 +121,8 @@ public class ServerSpawnEntityPacket implements Packet {
         this.x = in.readDouble();
         this.y = in.readDouble();
         this.z = in.readDouble();
-        this.pitch = in.readByte() * 360 / 256f;
-        this.yaw = in.readByte() * 360 / 256f;
+        this.rawPitch = in.readByte();
+        this.rawYaw = in.readByte();
 
         int data = in.readInt();
         if (this.type == EntityType.MINECART) {
@@ -91,9 +144,9 @@ public class ServerSpawnEntityPacket implements Packet {
             }
         }
 
-        this.motionX = in.readShort() / 8000D;
-        this.motionY = in.readShort() / 8000D;
-        this.motionZ = in.readShort() / 8000D;
+        this.rawMotionX = in.readShort();
+        this.rawMotionY = in.readShort();
+        this.rawMotionZ = in.readShort();
     }
 
     @Override
@@ -104,8 +157,8 @@ public class ServerSpawnEntityPacket implements Packet {
         out.writeDouble(this.x);
         out.writeDouble(this.y);
         out.writeDouble(this.z);
-        out.writeByte((byte) (this.pitch * 256 / 360));
-        out.writeByte((byte) (this.yaw * 256 / 360));
+        out.writeByte(this.rawPitch);
+        out.writeByte(this.rawYaw);
 
         int data = 0;
         if (this.data instanceof MinecartType) {
@@ -124,9 +177,9 @@ public class ServerSpawnEntityPacket implements Packet {
 
         out.writeInt(data);
 
-        out.writeShort((int) (this.motionX * 8000));
-        out.writeShort((int) (this.motionY * 8000));
-        out.writeShort((int) (this.motionZ * 8000));
+        out.writeShort(this.rawMotionX);
+        out.writeShort(this.rawMotionY);
+        out.writeShort(this.rawMotionZ);
     }
 
     @Override
@@ -20,7 +20,7 @@ import java.util.UUID;
 @With
 @Setter(AccessLevel.NONE)
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor
+@AllArgsConstructor(staticName = "ofRaw")
 public class ServerSpawnLivingEntityPacket implements Packet {
     private int entityId;
     private @NonNull UUID uuid;
@@ -28,12 +28,73 @@ public class ServerSpawnLivingEntityPacket implements Packet {
     private double x;
     private double y;
     private double z;
-    private float pitch;
-    private float yaw;
-    private float headYaw;
-    private double motionX;
-    private double motionY;
-    private double motionZ;
+    /**
+     * Rotation as sent over the network, in 1/256 turns.
+     */
+    private byte rawPitch;
+    private byte rawYaw;
+    private byte rawHeadYaw;
+    /**
+     * Velocity along each axis as sent over the network, in 1/8000 blocks per tick.
+     */
+    private short rawMotionX;
+    private short rawMotionY;
+    private short rawMotionZ;
+
+    public ServerSpawnLivingEntityPacket(int entityId, @NonNull UUID uuid, @NonNull EntityType type,
+                                         double x, double y, double z, float pitch, float yaw, float headYaw,
+                                         double motionX, double motionY, double motionZ) {
+        this(entityId, uuid, type, x, y, z, (byte) (pitch * 256 / 360), (byte) (yaw * 256 / 360), (byte) (headYaw * 256 / 360),
+                (short) (motionX * 8000), (short) (motionY * 8000), (short) (motionZ * 8000));
+    }
+
+    public float getPitch() {
+        return this.rawPitch * 360 / 256f;
+    }
+
+    public float getYaw() {
+        return this.rawYaw * 360 / 256f;
+    }
+
+    public float getHeadYaw() {
+        return this.rawHeadYaw * 360 / 256f;
+    }
+
+    public double getMotionX() {
+        return this.rawMotionX / 8000D;
+    }
+
+    public double getMotionY() {
+        return this.rawMotionY / 8000D;
+    }
+
+    public double getMotionZ() {
+        return this.rawMotionZ / 8000D;
+    }
+
+    public ServerSpawnLivingEntityPacket withPitch(float pitch) {
+        return this.withRawPitch((byte) (pitch * 256 / 360));
+    }
+
+    public ServerSpawnLivingEntityPacket withYaw(float yaw) {
+        return this.withRawYaw((byte) (yaw * 256 / 360));
+    }
+
+    public ServerSpawnLivingEntityPacket withHeadYaw(float headYaw) {
+        return this.withRawHeadYaw((byte) (headYaw * 256 / 360));
+    }
+
+    public ServerSpawnLivingEntityPacket withMotionX(double motionX) {
+        return this.withRawMotionX((short) (motionX * 8000));
+    }
+
+    public ServerSpawnLivingEntityPacket withMotionY(double motionY) {
+        return this.withRawMotionY((short) (motionY * 8000));
+    }
+
+    public ServerSpawnLivingEntityPacket withMotionZ(double motionZ) {
+        return this.withRawMotionZ((short) (motionZ * 8000));
+    }
 
     @Override
     public void read(NetInput in) throws IOException {
@@ -43,12 +104,12 @@ public class ServerSpawnLivingEntityPacket implements Packet {
         this.x = in.readDouble();
         this.y = in.readDouble();
         this.z = in.readDouble();
-        this.yaw = in.readByte() * 360 / 256f;
-        this.pitch = in.readByte() * 360 / 256f;
-        this.headYaw = in.readByte() * 360 / 256f;
-        this.motionX = in.readShort() / 8000D;
-        this.motionY = in.readShort() / 8000D;
-        this.motionZ = in.readShort() / 8000D;
+        this.rawYaw = in.readByte();
+        this.rawPitch = in.readByte();
+        this.rawHeadYaw = in.readByte();
+        this.rawMotionX = in.readShort();
+        this.rawMotionY = in.readShort();
+        this.rawMotionZ = in.readShort();
     }
 
     @Override
@@ -59,12 +120,12 @@ public class ServerSpawnLivingEntityPacket implements Packet {
         out.writeDouble(this.x);
         out.writeDouble(this.y);
         out.writeDouble(this.z);
-        out.writeByte((byte) (this.yaw * 256 / 360));
-        out.writeByte((byte) (this.pitch * 256 / 360));
-        out.writeByte((byte) (this.headYaw * 256 / 360));
-        out.writeShort((int) (this.motionX * 8000));
-        out.writeShort((int) (this.motionY * 8000));
-        out.writeShort((int) (this.motionZ * 8000));
+        out.writeByte(this.rawYaw);
+        out.writeByte(this.rawPitch);
+        out.writeByte(this.rawHeadYaw);
+        out.writeShort(this.rawMotionX);
+        out.writeShort(this.rawMotionY);
+        out.writeShort(this.rawMotionZ);
     }
 
     @Override
@@ -18,15 +18,38 @@ import java.util.UUID;
 @With
 @Setter(AccessLevel.NONE)
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor
+@AllArgsConstructor(staticName = "ofRaw")
 public class ServerSpawnPlayerPacket implements Packet {
     private int entityId;
     private @NonNull UUID uuid;
     private double x;
     private double y;
     private double z;
-    private float yaw;
-    private float pitch;
+    /**
+     * Rotation as sent over the network, in 1/256 turns.
+     */
+    private byte rawYaw;
+    private byte rawPitch;
+
+    public ServerSpawnPlayerPacket(int entityId, @NonNull UUID uuid, double x, double y, double z, float yaw, float pitch) {
+        this(entityId, uuid, x, y, z, (byte) (yaw * 256 / 360), (byte) (pitch * 256 / 360));
+    }
+
+    public float getYaw() {
+        return this.rawYaw * 360 / 256f;
+    }
+
+    public float getPitch() {
+        return this.rawPitch * 360 / 256f;
+    }
+
+    public ServerSpawnPlayerPacket withYaw(float yaw) {
+        return this.withRawYaw((byte) (yaw * 256 / 360));
+    }
+
+    public ServerSpawnPlayerPacket withPitch(float pitch) {
+        return this.withRawPitch((byte) (pitch * 256 / 360));
+    }
 
     @Override
     public void read(NetInput in) throws IOException {
@@ -35,8 +58,8 @@ public class ServerSpawnPlayerPacket implements Packet {
         this.x = in.readDouble();
         this.y = in.readDouble();
         this.z = in.readDouble();
-        this.yaw = in.readByte() * 360 / 256f;
-        this.pitch = in.readByte() * 360 / 256f;
+        this.rawYaw = in.readByte();
+        this.rawPitch = in.readByte();
     }
 
     @Override
@@ -46,8 +69,8 @@ public class ServerSpawnPlayerPacket implements Packet {
         out.writeDouble(this.x);
         out.writeDouble(this.y);
         out.writeDouble(this.z);
-        out.writeByte((byte) (this.yaw * 256 / 360));
-        out.writeByte((byte) (this.pitch * 256 / 360));
+        out.writeByte(this.rawYaw);
+        out.writeByte(this.rawPitch);
     }
 
     @Override
@@ -1,13 +1,14 @@
 package com.github.steveice10.mc.protocol.packet.ingame.server.world;
 
+import com.github.steveice10.mc.protocol.MinecraftProtocol;
 import com.github.steveice10.mc.protocol.data.game.NBT;
+import com.github.steveice10.mc.protocol.data.game.chunk.BiomeStorage;
 import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
 import com.github.steveice10.mc.protocol.data.game.chunk.Column;
 import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
 import com.github.steveice10.packetlib.io.NetInput;
 import com.github.steveice10.packetlib.io.NetOutput;
 import com.github.steveice10.packetlib.io.stream.StreamNetInput;
-import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
 import com.github.steveice10.packetlib.packet.Packet;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -18,7 +19,6 @@ import lombok.Setter;
 import lombok.With;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.BitSet;
 
@@ -30,23 +30,33 @@ import java.util.BitSet;
 public class ServerChunkDataPacket implements Packet {
     private @NonNull Column column;
 
+    /**
+     * Gets whether this packet keeps the sections of the column it reads serialized until they are accessed.
+     * See {@link Column#lazy(int, int, BitSet, int, byte[], CompoundTag[], CompoundTag, BiomeStorage)}.
+     *
+     * @return Whether lazy section decoding is enabled.
+     */
+    protected boolean isLazySectionDecoding() {
+        return false;
+    }
+
     @Override
     public void read(NetInput in) throws IOException {
         int x = in.readInt();
         int z = in.readInt();
         BitSet chunkMask = BitSet.valueOf(in.readLongs(in.readVarInt()));
         CompoundTag heightMaps = NBT.read(in);
-        int[] biomeData = new int[in.readVarInt()];
-        for (int index = 0; index < biomeData.length; index++) {
-            biomeData[index] = in.readVarInt();
-        }
+        BiomeStorage biomes = BiomeStorage.read(in);
         byte[] data = in.readBytes(in.readVarInt());
 
-        NetInput dataIn = new StreamNetInput(new ByteArrayInputStream(data));
-        Chunk[] chunks = new Chunk[chunkMask.size()];
-        for (int index = 0; index < chunks.length; index++) {
-            if (chunkMask.get(index)) {
-                chunks[index] = Chunk.read(dataIn);
+        Chunk[] chunks = null;
+        if (!this.isLazySectionDecoding()) {
+            NetInput dataIn = new StreamNetInput(new ByteArrayInputStream(data));
+            chunks = new Chunk[chunkMask.size()];
+            for (int index = 0; index < chunks.length; index++) {
+                if (chunkMask.get(index)) {
+                    chunks[index] = Chunk.read(dataIn);
+                }
             }
         }
 
@@ -55,38 +65,34 @@ public class ServerChunkDataPacket implements Packet {
             tileEntities[i] = NBT.read(in);
         }
 
-        this.column = new Column(x, z, chunks, tileEntities, heightMaps, biomeData);
+        if (chunks != null) {
+            this.column = new Column(x, z, chunks, tileEntities, heightMaps, biomes);
+        } else {
+            this.column = Column.lazy(x, z, chunkMask, chunkMask.size(), data, tileEntities, heightMaps, biomes);
+        }
     }
 
     @Override
     public void write(NetOutput out) throws IOException {
-        ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
-        NetOutput dataOut = new StreamNetOutput(dataBytes);
-
-        BitSet bitSet = new BitSet();
-        Chunk[] chunks = this.column.getChunks();
-        for (int index = 0; index < chunks.length; index++) {
-            Chunk chunk = chunks[index];
-            if (chunk != null && !chunk.isEmpty()) {
-                bitSet.set(index);
-                Chunk.write(dataOut, chunk);
-            }
+        byte[] cached = this.column.getCachedPacketData();
+        if (cached != null) {
+            out.writeBytes(cached);
+            return;
         }
 
+        // Size the section data up front so it can be streamed straight after its length prefix.
+        Column.SectionSnapshot sections = this.column.snapshotSections();
         out.writeInt(this.column.getX());
         out.writeInt(this.column.getZ());
-        long[] longArray = bitSet.toLongArray();
+        long[] longArray = sections.getMask().toLongArray();
         out.writeVarInt(longArray.length);
         for (long content : longArray) {
             out.writeLong(content);
         }
         NBT.write(out, this.column.getHeightMaps());
-        out.writeVarInt(this.column.getBiomeData().length);
-        for (int biomeData : this.column.getBiomeData()) {
-            out.writeVarInt(biomeData);
-        }
-        out.writeVarInt(dataBytes.size());
-        out.writeBytes(dataBytes.toByteArray(), dataBytes.size());
+        BiomeStorage.write(out, this.column.getBiomes());
+        out.writeVarInt(sections.getSize());
+        sections.write(out);
         out.writeVarInt(this.column.getTileEntities().length);
         for (CompoundTag tag : this.column.getTileEntities()) {
             NBT.write(out, tag);
@@ -97,4 +103,19 @@ public class ServerChunkDataPacket implements Packet {
     public boolean isPriority() {
         return false;
     }
+
+    /**
+     * A chunk data packet that keeps the sections of the column it reads serialized until they are accessed.
+     * Protocols with {@link MinecraftProtocol#setLazySectionDecoding(boolean) lazy section decoding} enabled
+     * receive chunk data as this type.
+     */
+    public static class Lazy extends ServerChunkDataPacket {
+        private Lazy() {
+        }
+
+        @Override
+        protected boolean isLazySectionDecoding() {
+            return true;
+        }
+    }
 }
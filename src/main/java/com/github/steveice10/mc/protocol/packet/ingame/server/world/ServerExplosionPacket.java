@@ -5,11 +5,13 @@ import com.github.steveice10.packetlib.io.NetInput;
 import com.github.steveice10.packetlib.io.NetOutput;
 import com.github.steveice10.packetlib.packet.Packet;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.Setter;
+import lombok.ToString;
 import lombok.With;
 
 import java.io.IOException;
@@ -18,31 +20,107 @@ import java.util.List;
 
 @Data
 @With
+@ToString(doNotUseGetters = true)
 @Setter(AccessLevel.NONE)
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
-@AllArgsConstructor
 public class ServerExplosionPacket implements Packet {
     private float x;
     private float y;
     private float z;
     private float radius;
+    /**
+     * Exploded block offsets from the explosion's block position, packed as consecutive x, y and z bytes.
+     */
+    @Getter(AccessLevel.NONE)
+    @With(AccessLevel.NONE)
+    private byte[] offsets;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
     private @NonNull List<ExplodedBlockRecord> exploded;
     private float pushX;
     private float pushY;
     private float pushZ;
 
+    public ServerExplosionPacket(float x, float y, float z, float radius, @NonNull List<ExplodedBlockRecord> exploded, float pushX, float pushY, float pushZ) {
+        this(x, y, z, radius, null, exploded, pushX, pushY, pushZ);
+    }
+
+    /**
+     * Creates an explosion packet from packed offsets, without creating a record per block.
+     *
+     * @param offsets Exploded block offsets from the explosion's block position, packed as consecutive x, y and z bytes.
+     */
+    public ServerExplosionPacket(float x, float y, float z, float radius, @NonNull byte[] offsets, float pushX, float pushY, float pushZ) {
+        this(x, y, z, radius, offsets, null, pushX, pushY, pushZ);
+        if (offsets.length % 3 != 0) {
+            throw new IllegalArgumentException("Offsets must contain 3 bytes per exploded block.");
+        }
+    }
+
+    private ServerExplosionPacket(float x, float y, float z, float radius, byte[] offsets, List<ExplodedBlockRecord> exploded, float pushX, float pushY, float pushZ) {
+        // Used by the generated withers; the records are the source of truth whenever they are present.
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.radius = radius;
+        if (exploded != null) {
+            this.exploded = exploded;
+        } else {
+            this.offsets = offsets;
+        }
+
+        this.pushX = pushX;
+        this.pushY = pushY;
+        this.pushZ = pushZ;
+    }
+
+    /**
+     * Gets the exploded block offsets from the explosion's block position, packed as consecutive x, y and z bytes.
+     *
+     * @return The packed offsets.
+     */
+    public byte[] getOffsets() {
+        if (this.exploded == null) {
+            return this.offsets;
+        }
+
+        byte[] offsets = new byte[this.exploded.size() * 3];
+        int index = 0;
+        for (ExplodedBlockRecord record : this.exploded) {
+            offsets[index++] = (byte) record.getX();
+            offsets[index++] = (byte) record.getY();
+            offsets[index++] = (byte) record.getZ();
+        }
+
+        return offsets;
+    }
+
+    /**
+     * Gets the exploded blocks as records, creating them from the packed offsets when first called.
+     *
+     * @return The exploded block records.
+     */
+    public List<ExplodedBlockRecord> getExploded() {
+        if (this.exploded == null) {
+            List<ExplodedBlockRecord> exploded = new ArrayList<>(this.offsets.length / 3);
+            for (int index = 0; index < this.offsets.length; index += 3) {
+                exploded.add(new ExplodedBlockRecord(this.offsets[index], this.offsets[index + 1], this.offsets[index + 2]));
+            }
+
+            this.exploded = exploded;
+            this.offsets = null;
+        }
+
+        return this.exploded;
+    }
+
     @Override
     public void read(NetInput in) throws IOException {
         this.x = in.readFloat();
         this.y = in.readFloat();
         this.z = in.readFloat();
         this.radius = in.readFloat();
-        this.exploded = new ArrayList<ExplodedBlockRecord>();
-        int length = in.readVarInt();
-        for (int count = 0; count < length; count++) {
-            this.exploded.add(new ExplodedBlockRecord(in.readByte(), in.readByte(), in.readByte()));
-        }
-
+        this.offsets = in.readBytes(in.readVarInt() * 3);
         this.pushX = in.readFloat();
         this.pushY = in.readFloat();
         this.pushZ = in.readFloat();
@@ -54,13 +132,9 @@ public class ServerExplosionPacket implements Packet {
         out.writeFloat(this.y);
         out.writeFloat(this.z);
         out.writeFloat(this.radius);
-        out.writeVarInt(this.exploded.size());
-        for (ExplodedBlockRecord record : this.exploded) {
-            out.writeByte(record.getX());
-            out.writeByte(record.getY());
-            out.writeByte(record.getZ());
-        }
-
+        byte[] offsets = this.getOffsets();
+        out.writeVarInt(offsets.length / 3);
+        out.writeBytes(offsets);
         out.writeFloat(this.pushX);
         out.writeFloat(this.pushY);
         out.writeFloat(this.pushZ);
@@ -7,15 +7,19 @@ import com.github.steveice10.packetlib.io.NetOutput;
 import com.github.steveice10.packetlib.packet.Packet;
 import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.Setter;
+import lombok.ToString;
 import lombok.With;
 
 import java.io.IOException;
 
 @Data
 @With
+@ToString(doNotUseGetters = true)
 @Setter(AccessLevel.NONE)
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class ServerMultiBlockChangePacket implements Packet {
@@ -23,9 +27,20 @@ public class ServerMultiBlockChangePacket implements Packet {
     private int chunkY;
     private int chunkZ;
     private boolean ignoreOldLight;
+    /**
+     * Local positions of the changed blocks, packed as {@code x << 8 | z << 4 | y}.
+     */
+    @Getter(AccessLevel.NONE)
+    @With(AccessLevel.NONE)
+    private short[] positions;
+    @Getter(AccessLevel.NONE)
+    @With(AccessLevel.NONE)
+    private int[] states;
     /**
      * The server sends the record position in terms of the local chunk coordinate but it is stored here in terms of global coordinates.
      */
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
     private @NonNull BlockChangeRecord[] records;
 
     public ServerMultiBlockChangePacket(int chunkX, int chunkY, int chunkZ, boolean ignoreOldLight, BlockChangeRecord... records) {
@@ -40,6 +55,104 @@ public class ServerMultiBlockChangePacket implements Packet {
         this.records = records;
     }
 
+    /**
+     * Creates a multi block change packet from primitive arrays, without creating a record per block.
+     *
+     * @param positions Local positions of the changed blocks, packed as {@code x << 8 | z << 4 | y}.
+     * @param states    New block states, in the same order as the positions.
+     */
+    public ServerMultiBlockChangePacket(int chunkX, int chunkY, int chunkZ, boolean ignoreOldLight, @NonNull short[] positions, @NonNull int[] states) {
+        if (positions.length == 0) {
+            throw new IllegalArgumentException("Records must contain at least 1 value.");
+        }
+
+        if (positions.length != states.length) {
+            throw new IllegalArgumentException("Positions and states must have the same length.");
+        }
+
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.chunkZ = chunkZ;
+        this.ignoreOldLight = ignoreOldLight;
+        this.positions = positions;
+        this.states = states;
+    }
+
+    private ServerMultiBlockChangePacket(int chunkX, int chunkY, int chunkZ, boolean ignoreOldLight, short[] positions, int[] states, BlockChangeRecord[] records) {
+        // Used by the generated withers; the records are the source of truth whenever they are present.
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.chunkZ = chunkZ;
+        this.ignoreOldLight = ignoreOldLight;
+        if (records != null) {
+            this.records = records;
+        } else {
+            this.positions = positions;
+            this.states = states;
+        }
+    }
+
+    /**
+     * Gets the local positions of the changed blocks, packed as {@code x << 8 | z << 4 | y}.
+     *
+     * @return The packed positions.
+     */
+    public short[] getPositions() {
+        if (this.records == null) {
+            return this.positions;
+        }
+
+        short[] positions = new short[this.records.length];
+        for (int index = 0; index < positions.length; index++) {
+            Position position = this.records[index].getPosition();
+            positions[index] = (short) ((position.getX() - (this.chunkX << 4)) << 8 | (position.getZ() - (this.chunkZ << 4)) << 4 | (position.getY() - (this.chunkY << 4)));
+        }
+
+        return positions;
+    }
+
+    /**
+     * Gets the new states of the changed blocks, in the same order as {@link #getPositions()}.
+     *
+     * @return The block states.
+     */
+    public int[] getStates() {
+        if (this.records == null) {
+            return this.states;
+        }
+
+        int[] states = new int[this.records.length];
+        for (int index = 0; index < states.length; index++) {
+            states[index] = this.records[index].getBlock();
+        }
+
+        return states;
+    }
+
+    /**
+     * Gets the changed blocks as records, creating them from the packed positions and states when first called.
+     *
+     * @return The block change records.
+     */
+    public BlockChangeRecord[] getRecords() {
+        if (this.records == null) {
+            BlockChangeRecord[] records = new BlockChangeRecord[this.positions.length];
+            for (int index = 0; index < records.length; index++) {
+                short position = this.positions[index];
+                int x = (this.chunkX << 4) + (position >>> 8 & 0xF);
+                int y = (this.chunkY << 4) + (position & 0xF);
+                int z = (this.chunkZ << 4) + (position >>> 4 & 0xF);
+                records[index] = new BlockChangeRecord(new Position(x, y, z), this.states[index]);
+            }
+
+            this.records = records;
+            this.positions = null;
+            this.states = null;
+        }
+
+        return this.records;
+    }
+
     @Override
     public void read(NetInput in) throws IOException {
         long chunkPosition = in.readLong();
@@ -47,14 +160,13 @@ public class ServerMultiBlockChangePacket implements Packet {
         this.chunkY = (int) (chunkPosition << 44 >> 44);
         this.chunkZ = (int) (chunkPosition << 22 >> 42);
         this.ignoreOldLight = in.readBoolean();
-        this.records = new BlockChangeRecord[in.readVarInt()];
-        for (int index = 0; index < this.records.length; index++) {
+        int length = in.readVarInt();
+        this.positions = new short[length];
+        this.states = new int[length];
+        for (int index = 0; index < length; index++) {
             long blockData = in.readVarLong();
-            short position = (short) (blockData & 0xFFFL);
-            int x = (this.chunkX << 4) + (position >>> 8 & 0xF);
-            int y = (this.chunkY << 4) + (position & 0xF);
-            int z = (this.chunkZ << 4) + (position >>> 4 & 0xF);
-            this.records[index] = new BlockChangeRecord(new Position(x, y, z), (int) (blockData >>> 12));
+            this.positions[index] = (short) (blockData & 0xFFFL);
+            this.states[index] = (int) (blockData >>> 12);
         }
     }
 
@@ -65,10 +177,11 @@ public class ServerMultiBlockChangePacket implements Packet {
         chunkPosition |= (this.chunkZ & 0x3FFFFFL) << 20;
         out.writeLong(chunkPosition | (this.chunkY & 0xFFFFFL));
         out.writeBoolean(this.ignoreOldLight);
-        out.writeVarInt(this.records.length);
-        for (BlockChangeRecord record : this.records) {
-            short position = (short) ((record.getPosition().getX() - (this.chunkX << 4)) << 8 | (record.getPosition().getZ() - (this.chunkZ << 4)) << 4 | (record.getPosition().getY() - (this.chunkY << 4)));
-            out.writeVarLong((long) record.getBlock() << 12 | position);
+        short[] positions = this.getPositions();
+        int[] states = this.getStates();
+        out.writeVarInt(positions.length);
+        for (int index = 0; index < positions.length; index++) {
+            out.writeVarLong((long) states[index] << 12 | positions[index]);
         }
     }
 
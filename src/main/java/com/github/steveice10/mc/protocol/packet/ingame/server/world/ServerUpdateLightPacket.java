@@ -1,5 +1,6 @@
 package com.github.steveice10.mc.protocol.packet.ingame.server.world;
 
+import com.github.steveice10.mc.protocol.data.game.chunk.NibbleArrayPool;
 import com.github.steveice10.packetlib.io.NetInput;
 import com.github.steveice10.packetlib.io.NetOutput;
 import com.github.steveice10.packetlib.packet.Packet;
@@ -10,6 +11,7 @@ import lombok.NonNull;
 import lombok.Setter;
 import lombok.With;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.BitSet;
@@ -34,12 +36,12 @@ public class ServerUpdateLightPacket implements Packet {
                                    @NonNull BitSet emptySkyYMask, @NonNull BitSet emptyBlockYMask,
                                    @NonNull List<byte[]> skyUpdates, @NonNull List<byte[]> blockUpdates, boolean trustEdges) {
         for (byte[] content : skyUpdates) {
-            if (content.length != 2048) {
+            if (content.length != NibbleArrayPool.SECTION_SIZE) {
                 throw new IllegalArgumentException("All arrays in skyUpdates must be length of 2048!");
             }
         }
         for (byte[] content : blockUpdates) {
-            if (content.length != 2048) {
+            if (content.length != NibbleArrayPool.SECTION_SIZE) {
                 throw new IllegalArgumentException("All arrays in blockUpdates must be length of 2048!");
             }
         }
@@ -54,8 +56,44 @@ public class ServerUpdateLightPacket implements Packet {
         this.trustEdges = trustEdges;
     }
 
+    /**
+     * Reads a light update packet into arrays taken from a pool. Sections with the same light level throughout
+     * are read as the shared arrays from {@link NibbleArrayPool#uniform(int)}, which must not be modified. Once
+     * the packet has been handled, its arrays can be returned with {@link #release(NibbleArrayPool)}.
+     *
+     * @param in   Input to read from.
+     * @param pool Pool to take light arrays from.
+     * @return The read packet.
+     * @throws IOException If the packet could not be read.
+     */
+    public static ServerUpdateLightPacket read(@NonNull NetInput in, @NonNull NibbleArrayPool pool) throws IOException {
+        ServerUpdateLightPacket packet = new ServerUpdateLightPacket();
+        packet.read(in, pool);
+        return packet;
+    }
+
+    /**
+     * Returns this packet's light arrays to the pool it was {@link #read(NetInput, NibbleArrayPool) read} with.
+     * Neither this packet nor its light arrays may be used afterwards.
+     *
+     * @param pool Pool the packet was read with.
+     */
+    public void release(@NonNull NibbleArrayPool pool) {
+        for (byte[] array : this.skyUpdates) {
+            pool.release(array);
+        }
+
+        for (byte[] array : this.blockUpdates) {
+            pool.release(array);
+        }
+    }
+
     @Override
     public void read(NetInput in) throws IOException {
+        this.read(in, null);
+    }
+
+    private void read(NetInput in, NibbleArrayPool pool) throws IOException {
         this.x = in.readVarInt();
         this.z = in.readVarInt();
         this.trustEdges = in.readBoolean();
@@ -68,13 +106,13 @@ public class ServerUpdateLightPacket implements Packet {
         int skyUpdateSize = in.readVarInt();
         skyUpdates = new ArrayList<>(skyUpdateSize);
         for (int i = 0; i < skyUpdateSize; i++) {
-            skyUpdates.add(in.readBytes(in.readVarInt()));
+            skyUpdates.add(readLightArray(in, pool));
         }
 
         int blockUpdateSize = in.readVarInt();
         blockUpdates = new ArrayList<>(blockUpdateSize);
         for (int i = 0; i < blockUpdateSize; i++) {
-            blockUpdates.add(in.readBytes(in.readVarInt()));
+            blockUpdates.add(readLightArray(in, pool));
         }
     }
 
@@ -107,6 +145,32 @@ public class ServerUpdateLightPacket implements Packet {
         return false;
     }
 
+    private static byte[] readLightArray(NetInput in, NibbleArrayPool pool) throws IOException {
+        int length = in.readVarInt();
+        if (pool == null || length != NibbleArrayPool.SECTION_SIZE) {
+            return in.readBytes(length);
+        }
+
+        byte[] array = pool.acquire();
+        for (int read = 0; read < array.length; ) {
+            int count = in.readBytes(array, read, array.length - read);
+            if (count < 0) {
+                pool.release(array);
+                throw new EOFException("Unexpected end of light data.");
+            }
+
+            read += count;
+        }
+
+        int level = NibbleArrayPool.uniformLevel(array);
+        if (level != -1) {
+            pool.release(array);
+            return NibbleArrayPool.uniform(level);
+        }
+
+        return array;
+    }
+
     private void writeBitSet(NetOutput out, BitSet bitSet) throws IOException {
         long[] array = bitSet.toLongArray();
         out.writeVarInt(array.length);
@@ -0,0 +1,322 @@
+package com.github.steveice10.mc.protocol.world;
+
+import com.github.steveice10.mc.protocol.data.game.NBT;
+import com.github.steveice10.mc.protocol.data.game.chunk.BlockRegion;
+import com.github.steveice10.mc.protocol.data.game.chunk.Column;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.Position;
+import com.github.steveice10.mc.protocol.data.game.world.block.BlockChangeRecord;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerBlockChangePacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerChunkDataPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerMultiBlockChangePacket;
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.packetlib.Session;
+import com.github.steveice10.packetlib.io.NetOutput;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import com.github.steveice10.packetlib.packet.Packet;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Collects block changes over a tick and turns them into as few bytes of packets as possible.
+ * <p>
+ * Changes are grouped by the 16x16x16 section they are in. When flushed, a section with a single change
+ * becomes a {@link ServerBlockChangePacket} and other sections become a {@link ServerMultiBlockChangePacket}.
+ * <p>
+ * The protocol has no packet that resends a single section, so the smallest full resend is a column.
+ * If a column source is given and a {@link ServerChunkDataPacket} of a column is smaller than all of the
+ * block change packets for it, the column is resent instead. The size of the column packet is calculated
+ * exactly from the column's sections, biomes and NBT, which are only measured when the sections and biomes
+ * alone are smaller than the changes. The column source must already reflect the accumulated changes when flushing.
+ * <p>
+ * Changing the same block more than once before flushing only sends its latest state. This class is not thread-safe.
+ */
+public class BlockChangeAccumulator {
+    /**
+     * Bytes every packet takes besides its fields: at least one for the length prefix and one for the packet id.
+     */
+    private static final int PACKET_OVERHEAD = 2;
+
+    private final BlockRegion.ColumnSource columns;
+
+    private final LongObjectMap<SectionChanges> sections = new LongObjectHashMap<>();
+    private int size;
+
+    /**
+     * Creates a new block change accumulator that never resends whole columns.
+     */
+    public BlockChangeAccumulator() {
+        this(null);
+    }
+
+    /**
+     * Creates a new block change accumulator.
+     *
+     * @param columns Source of the columns to resend when that is smaller than sending their changes, or null to never resend columns.
+     */
+    public BlockChangeAccumulator(BlockRegion.ColumnSource columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Adds a block change.
+     *
+     * @param x     X coordinate of the block.
+     * @param y     Y coordinate of the block.
+     * @param z     Z coordinate of the block.
+     * @param state The new block state.
+     */
+    public void add(int x, int y, int z, int state) {
+        int sectionX = x >> 4;
+        int sectionY = y >> 4;
+        int sectionZ = z >> 4;
+        long key = (sectionX & 0x3FFFFFL) << 42 | (sectionZ & 0x3FFFFFL) << 20 | (sectionY & 0xFFFFFL);
+        SectionChanges changes = this.sections.get(key);
+        if (changes == null) {
+            changes = new SectionChanges(sectionX, sectionY, sectionZ);
+            this.sections.put(key, changes);
+        }
+
+        if (changes.add((short) ((x & 15) << 8 | (z & 15) << 4 | (y & 15)), state)) {
+            this.size++;
+        }
+    }
+
+    /**
+     * Adds a block change.
+     *
+     * @param record The block change.
+     */
+    public void add(@NonNull BlockChangeRecord record) {
+        Position position = record.getPosition();
+        this.add(position.getX(), position.getY(), position.getZ(), record.getBlock());
+    }
+
+    /**
+     * Gets the number of distinct blocks changed since the last flush.
+     *
+     * @return The number of changed blocks.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets whether no blocks have been changed since the last flush.
+     *
+     * @return Whether there are no changes.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Discards all changes.
+     */
+    public void clear() {
+        this.sections.clear();
+        this.size = 0;
+    }
+
+    /**
+     * Creates the packets for all changes since the last flush and discards the changes.
+     *
+     * @return The packets to send.
+     */
+    public List<Packet> flush() {
+        List<Packet> packets = new ArrayList<>(this.sections.size());
+        LongObjectMap<List<SectionChanges>> byColumn = new LongObjectHashMap<>();
+        for (SectionChanges changes : this.sections.values()) {
+            long key = WorldCache.chunkKey(changes.x, changes.z);
+            List<SectionChanges> list = byColumn.get(key);
+            if (list == null) {
+                list = new ArrayList<>(1);
+                byColumn.put(key, list);
+            }
+
+            list.add(changes);
+        }
+
+        for (List<SectionChanges> list : byColumn.values()) {
+            SectionChanges first = list.get(0);
+            Column column = this.columns != null ? this.columns.getColumn(first.x, first.z) : null;
+            if (column != null) {
+                int changeSize = 0;
+                for (SectionChanges changes : list) {
+                    changeSize += PACKET_OVERHEAD + changes.getPacketSize();
+                }
+
+                if (isColumnSmaller(column, changeSize)) {
+                    packets.add(new ServerChunkDataPacket(column));
+                    continue;
+                }
+            }
+
+            for (SectionChanges changes : list) {
+                packets.add(changes.toPacket());
+            }
+        }
+
+        this.clear();
+        return packets;
+    }
+
+    /**
+     * Sends all changes since the last flush to a session and discards the changes.
+     *
+     * @param session Session to send to.
+     */
+    public void flush(@NonNull Session session) {
+        for (Packet packet : this.flush()) {
+            session.send(packet);
+        }
+    }
+
+    /**
+     * Sends all changes since the last flush to every given session and discards the changes.
+     * The packets are created once and shared between the sessions.
+     *
+     * @param sessions Sessions to send to.
+     */
+    public void flush(@NonNull Collection<? extends Session> sessions) {
+        List<Packet> packets = this.flush();
+        for (Session session : sessions) {
+            for (Packet packet : packets) {
+                session.send(packet);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of bytes a {@link ServerChunkDataPacket} of a column takes, including the packet overhead.
+     *
+     * @param column Column to get the packet size of.
+     * @return The packet size.
+     */
+    static int getColumnPacketSize(Column column) {
+        return getColumnDataSize(column) + getColumnNbtSize(column);
+    }
+
+    private static boolean isColumnSmaller(Column column, int changeSize) {
+        int size = getColumnDataSize(column);
+        return size < changeSize && size + getColumnNbtSize(column) < changeSize;
+    }
+
+    private static int getColumnDataSize(Column column) {
+        Column.SectionSnapshot sections = column.snapshotSections();
+        int maskLength = sections.getMask().toLongArray().length;
+        return PACKET_OVERHEAD + 8 + varIntSize(maskLength) + maskLength * 8 + column.getBiomes().getSerializedSize()
+                + varIntSize(sections.getSize()) + sections.getSize();
+    }
+
+    private static int getColumnNbtSize(Column column) {
+        CountingOutputStream counter = new CountingOutputStream();
+        NetOutput out = new StreamNetOutput(counter);
+        CompoundTag[] tileEntities = column.getTileEntities();
+        try {
+            NBT.write(out, column.getHeightMaps());
+            for (CompoundTag tag : tileEntities) {
+                NBT.write(out, tag);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to measure column NBT.", e);
+        }
+
+        return counter.count + varIntSize(tileEntities.length);
+    }
+
+    private static int varIntSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+
+        return size;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private int count;
+
+        @Override
+        public void write(int b) {
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            this.count += len;
+        }
+    }
+
+    private static class SectionChanges {
+        private final int x;
+        private final int y;
+        private final int z;
+        private final long[] changed = new long[64];
+        private short[] positions = new short[8];
+        private int[] states = new int[8];
+        private int count;
+
+        private SectionChanges(int x, int y, int z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        private boolean add(short position, int state) {
+            long bit = 1L << position;
+            if ((this.changed[position >> 6] & bit) != 0) {
+                for (int index = 0; index < this.count; index++) {
+                    if (this.positions[index] == position) {
+                        this.states[index] = state;
+                        break;
+                    }
+                }
+
+                return false;
+            }
+
+            this.changed[position >> 6] |= bit;
+            if (this.count == this.positions.length) {
+                this.positions = Arrays.copyOf(this.positions, this.count << 1);
+                this.states = Arrays.copyOf(this.states, this.count << 1);
+            }
+
+            this.positions[this.count] = position;
+            this.states[this.count] = state;
+            this.count++;
+            return true;
+        }
+
+        private int getPacketSize() {
+            if (this.count == 1) {
+                return 8 + varIntSize(this.states[0]);
+            }
+
+            int size = 8 + 1 + varIntSize(this.count);
+            for (int index = 0; index < this.count; index++) {
+                size += varIntSize((long) this.states[index] << 12 | this.positions[index]);
+            }
+
+            return size;
+        }
+
+        private Packet toPacket() {
+            if (this.count == 1) {
+                short position = this.positions[0];
+                Position blockPosition = new Position((this.x << 4) + (position >> 8 & 15), (this.y << 4) + (position & 15), (this.z << 4) + (position >> 4 & 15));
+                return new ServerBlockChangePacket(new BlockChangeRecord(blockPosition, this.states[0]));
+            }
+
+            return new ServerMultiBlockChangePacket(this.x, this.y, this.z, false, Arrays.copyOf(this.positions, this.count), Arrays.copyOf(this.states, this.count));
+        }
+    }
+}
@@ -0,0 +1,738 @@
+package com.github.steveice10.mc.protocol.world;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
+import com.github.steveice10.mc.protocol.data.game.chunk.Column;
+import com.github.steveice10.mc.protocol.data.game.chunk.NibbleArray3d;
+import com.github.steveice10.mc.protocol.data.game.chunk.NibbleArrayPool;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerUpdateLightPacket;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Computes block and sky light for loaded columns and tracks which light sections have changed,
+ * so that servers can send {@link ServerUpdateLightPacket}s.
+ * <p>
+ * Light is spread with a breadth-first search over blocks, using the opacity and emission reported by
+ * the engine's {@link LightProperties}. Block changes are queued with {@link #markChanged(int, int, int)}
+ * and processed together by {@link #tick()}, which first removes light that is no longer supported and
+ * then spreads light into the affected area. Packets for every section whose light changed since the last
+ * call can then be built with {@link #collectUpdates()}.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class LightEngine {
+    private static final int[] OFFSET_X = {0, 0, 0, 0, -1, 1};
+    private static final int[] OFFSET_Y = {-1, 1, 0, 0, 0, 0};
+    private static final int[] OFFSET_Z = {0, 0, -1, 1, 0, 0};
+    private static final int DOWN = 0;
+
+    /**
+     * Sky light of sections entirely above the terrain, shared by all of them until one is changed.
+     */
+    private static final NibbleArray3d FULLY_LIT = new NibbleArray3d(NibbleArrayPool.uniform(15));
+
+    /**
+     * Light-related properties of block states.
+     */
+    public interface LightProperties {
+        /**
+         * Gets the light level emitted by a block state.
+         *
+         * @param state Block state.
+         * @return The emitted light level, between 0 and 15.
+         */
+        int getEmission(int state);
+
+        /**
+         * Gets how much a block state reduces light passing through it.
+         *
+         * @param state Block state.
+         * @return The opacity, between 0 for fully transparent and 15 for fully opaque.
+         */
+        int getOpacity(int state);
+    }
+
+    private final LightProperties properties;
+    private final int minY;
+    private final boolean hasSkyLight;
+    private final NibbleArrayPool pool;
+
+    private final LongObjectMap<ColumnLight> lights = new LongObjectHashMap<>();
+    private final List<ColumnLight> dirty = new ArrayList<>();
+    private final LongQueue changes = new LongQueue();
+    private final Channel sky = new Channel(true);
+    private final Channel block = new Channel(false);
+
+    private ColumnLight lastLight;
+
+    /**
+     * Creates a new light engine that allocates its light arrays individually.
+     *
+     * @param properties  Light properties of block states.
+     * @param minY        Lowest Y coordinate of the world, which the first section of each column starts at.
+     * @param hasSkyLight Whether the world has sky light.
+     */
+    public LightEngine(@NonNull LightProperties properties, int minY, boolean hasSkyLight) {
+        this(properties, minY, hasSkyLight, null);
+    }
+
+    /**
+     * Creates a new light engine.
+     *
+     * @param properties  Light properties of block states.
+     * @param minY        Lowest Y coordinate of the world, which the first section of each column starts at.
+     * @param hasSkyLight Whether the world has sky light.
+     * @param pool        Pool to take light arrays from and return them to, or null to allocate them individually.
+     */
+    public LightEngine(@NonNull LightProperties properties, int minY, boolean hasSkyLight, NibbleArrayPool pool) {
+        this.properties = properties;
+        this.minY = minY;
+        this.hasSkyLight = hasSkyLight;
+        this.pool = pool;
+    }
+
+    /**
+     * Loads a column and computes its initial light, replacing any column loaded at the same coordinates.
+     * Light spreading from and into neighbouring columns is applied on the next {@link #tick()}.
+     * The column's blocks must be changed through {@link #markChanged(int, int, int)} afterwards.
+     *
+     * @param column Column to load.
+     */
+    public void loadColumn(@NonNull Column column) {
+        this.unloadColumn(column.getX(), column.getZ());
+
+        ColumnLight light = new ColumnLight(column, this.hasSkyLight);
+        this.lights.put(WorldCache.chunkKey(column.getX(), column.getZ()), light);
+        this.lastLight = light;
+
+        this.seedBlockLight(light);
+        if (this.hasSkyLight) {
+            this.seedSkyLight(light);
+        }
+
+        int baseX = column.getX() << 4;
+        int baseZ = column.getZ() << 4;
+        for (int i = 0; i < 16; i++) {
+            this.seedEdge(light, baseX + i, baseZ, baseX + i, baseZ - 1);
+            this.seedEdge(light, baseX + i, baseZ + 15, baseX + i, baseZ + 16);
+            this.seedEdge(light, baseX, baseZ + i, baseX - 1, baseZ + i);
+            this.seedEdge(light, baseX + 15, baseZ + i, baseX + 16, baseZ + i);
+        }
+    }
+
+    /**
+     * Unloads the column at the given chunk coordinates, returning its light arrays to the pool.
+     *
+     * @param x X coordinate of the column.
+     * @param z Z coordinate of the column.
+     */
+    public void unloadColumn(int x, int z) {
+        ColumnLight light = this.lights.remove(WorldCache.chunkKey(x, z));
+        if (light == null) {
+            return;
+        }
+
+        light.unloaded = true;
+        if (this.lastLight == light) {
+            this.lastLight = null;
+        }
+
+        if (this.pool != null) {
+            release(this.pool, light.sky);
+            release(this.pool, light.block);
+        }
+    }
+
+    /**
+     * Queues a block whose state has changed to have its light updated on the next {@link #tick()}.
+     *
+     * @param x X coordinate of the block.
+     * @param y Y coordinate of the block.
+     * @param z Z coordinate of the block.
+     */
+    public void markChanged(int x, int y, int z) {
+        this.changes.add(pack(x, y, z), 0);
+    }
+
+    /**
+     * Updates light for all blocks changed and columns loaded since the last tick.
+     */
+    public void tick() {
+        while (!this.changes.isEmpty()) {
+            long pos = this.changes.poll();
+            int x = unpackX(pos);
+            int y = unpackY(pos);
+            int z = unpackZ(pos);
+            ColumnLight light = this.lookup(x, z);
+            if (light == null || !this.isInWorld(light, y)) {
+                continue;
+            }
+
+            int state = this.getState(light, x, y, z);
+            this.queueChange(this.block, light, x, y, z, state);
+            if (this.hasSkyLight) {
+                this.updateHeight(light, x, y, z, state);
+                this.queueChange(this.sky, light, x, y, z, state);
+            }
+        }
+
+        this.remove(this.block);
+        this.propagate(this.block);
+        if (this.hasSkyLight) {
+            this.remove(this.sky);
+            this.propagate(this.sky);
+        }
+    }
+
+    /**
+     * Creates light update packets for every section whose light changed since the last call.
+     *
+     * @return The light update packets, one per column with changes.
+     */
+    public List<ServerUpdateLightPacket> collectUpdates() {
+        List<ServerUpdateLightPacket> packets = new ArrayList<>(this.dirty.size());
+        for (ColumnLight light : this.dirty) {
+            light.queued = false;
+            if (!light.unloaded) {
+                packets.add(this.createPacket(light, light.dirtySky, light.dirtyBlock));
+            }
+
+            light.dirtySky.clear();
+            light.dirtyBlock.clear();
+        }
+
+        this.dirty.clear();
+        return packets;
+    }
+
+    /**
+     * Creates a light update packet containing every light section of a column, for example to send
+     * along with its chunk data.
+     *
+     * @param x X coordinate of the column.
+     * @param z Z coordinate of the column.
+     * @return The light update packet, or null if the column is not loaded.
+     */
+    public ServerUpdateLightPacket createPacket(int x, int z) {
+        ColumnLight light = this.lights.get(WorldCache.chunkKey(x, z));
+        if (light == null) {
+            return null;
+        }
+
+        BitSet all = new BitSet();
+        all.set(0, light.block.length);
+        return this.createPacket(light, this.hasSkyLight ? all : new BitSet(), all);
+    }
+
+    /**
+     * Gets the sky light level at the given position.
+     *
+     * @param x X coordinate of the block.
+     * @param y Y coordinate of the block.
+     * @param z Z coordinate of the block.
+     * @return The sky light level, or 0 if the block is not loaded.
+     */
+    public int getSkyLight(int x, int y, int z) {
+        ColumnLight light = this.lookup(x, z);
+        return light != null && this.hasSkyLight ? this.getLevel(light, true, x, y, z) : 0;
+    }
+
+    /**
+     * Gets the block light level at the given position.
+     *
+     * @param x X coordinate of the block.
+     * @param y Y coordinate of the block.
+     * @param z Z coordinate of the block.
+     * @return The block light level, or 0 if the block is not loaded.
+     */
+    public int getBlockLight(int x, int y, int z) {
+        ColumnLight light = this.lookup(x, z);
+        return light != null ? this.getLevel(light, false, x, y, z) : 0;
+    }
+
+    private void queueChange(Channel channel, ColumnLight light, int x, int y, int z, int state) {
+        long pos = pack(x, y, z);
+        int level = this.getLevel(light, channel.sky, x, y, z);
+        if (level > 0) {
+            this.setLevel(light, channel.sky, x, y, z, 0);
+            channel.decreases.add(pos, level);
+        }
+
+        int source = this.getSourceLevel(channel, light, y, state);
+        if (source > 0) {
+            this.setLevel(light, channel.sky, x, y, z, source);
+            channel.increases.add(pos, 0);
+        }
+
+        // Light may now be able to pass through the changed block.
+        for (int dir = 0; dir < 6; dir++) {
+            int nx = x + OFFSET_X[dir];
+            int ny = y + OFFSET_Y[dir];
+            int nz = z + OFFSET_Z[dir];
+            ColumnLight neighbour = this.lookup(nx, nz);
+            if (neighbour != null && this.isInWorld(neighbour, ny) && this.getLevel(neighbour, channel.sky, nx, ny, nz) > 0) {
+                channel.increases.add(pack(nx, ny, nz), 0);
+            }
+        }
+    }
+
+    private void remove(Channel channel) {
+        LongQueue queue = channel.decreases;
+        while (!queue.isEmpty()) {
+            int level = queue.peekLevel();
+            long pos = queue.poll();
+            int x = unpackX(pos);
+            int y = unpackY(pos);
+            int z = unpackZ(pos);
+            for (int dir = 0; dir < 6; dir++) {
+                int nx = x + OFFSET_X[dir];
+                int ny = y + OFFSET_Y[dir];
+                int nz = z + OFFSET_Z[dir];
+                ColumnLight neighbour = this.lookup(nx, nz);
+                if (neighbour == null || !this.isInWorld(neighbour, ny)) {
+                    continue;
+                }
+
+                int neighbourLevel = this.getLevel(neighbour, channel.sky, nx, ny, nz);
+                if (neighbourLevel == 0) {
+                    continue;
+                }
+
+                long neighbourPos = pack(nx, ny, nz);
+                if (neighbourLevel < level || (channel.sky && dir == DOWN && level == 15 && neighbourLevel == 15)) {
+                    this.setLevel(neighbour, channel.sky, nx, ny, nz, 0);
+                    queue.add(neighbourPos, neighbourLevel);
+
+                    int source = this.getSourceLevel(channel, neighbour, ny, this.getState(neighbour, nx, ny, nz));
+                    if (source > 0) {
+                        this.setLevel(neighbour, channel.sky, nx, ny, nz, source);
+                        channel.increases.add(neighbourPos, 0);
+                    }
+                } else {
+                    // Lit from elsewhere, so it can refill the area being cleared.
+                    channel.increases.add(neighbourPos, 0);
+                }
+            }
+        }
+    }
+
+    private void propagate(Channel channel) {
+        LongQueue queue = channel.increases;
+        while (!queue.isEmpty()) {
+            long pos = queue.poll();
+            int x = unpackX(pos);
+            int y = unpackY(pos);
+            int z = unpackZ(pos);
+            ColumnLight light = this.lookup(x, z);
+            if (light == null) {
+                continue;
+            }
+
+            int level = this.getLevel(light, channel.sky, x, y, z);
+            if (level <= 1) {
+                continue;
+            }
+
+            for (int dir = 0; dir < 6; dir++) {
+                int nx = x + OFFSET_X[dir];
+                int ny = y + OFFSET_Y[dir];
+                int nz = z + OFFSET_Z[dir];
+                ColumnLight neighbour = this.lookup(nx, nz);
+                if (neighbour == null || !this.isInWorld(neighbour, ny)) {
+                    continue;
+                }
+
+                int opacity = this.properties.getOpacity(this.getState(neighbour, nx, ny, nz));
+                int target;
+                if (channel.sky && dir == DOWN && level == 15 && opacity == 0) {
+                    // Direct sky light travels straight down without dimming.
+                    target = 15;
+                } else {
+                    target = level - Math.max(1, opacity);
+                }
+
+                if (target > this.getLevel(neighbour, channel.sky, nx, ny, nz)) {
+                    this.setLevel(neighbour, channel.sky, nx, ny, nz, target);
+                    queue.add(pack(nx, ny, nz), 0);
+                }
+            }
+        }
+    }
+
+    private void seedBlockLight(ColumnLight light) {
+        Column column = light.column;
+        int baseX = column.getX() << 4;
+        int baseZ = column.getZ() << 4;
+        for (int index = 0; index < light.block.length; index++) {
+            Chunk chunk = column.getChunk(index);
+            if (chunk == null) {
+                continue;
+            }
+
+            int baseY = this.minY + (index << 4);
+            int[] states = chunk.getPaletteStates();
+            if (states == null) {
+                for (int block = 0; block < 4096; block++) {
+                    int emission = this.properties.getEmission(chunk.get(block & 15, block >> 8, block >> 4 & 15));
+                    if (emission > 0) {
+                        this.seed(this.block, light, baseX + (block & 15), baseY + (block >> 8), baseZ + (block >> 4 & 15), emission);
+                    }
+                }
+
+                continue;
+            }
+
+            for (int state : states) {
+                int emission = this.properties.getEmission(state);
+                if (emission > 0) {
+                    chunk.find(state, block -> this.seed(this.block, light, baseX + (block & 15), baseY + (block >> 8), baseZ + (block >> 4 & 15), emission));
+                }
+            }
+        }
+    }
+
+    private void seedSkyLight(ColumnLight light) {
+        int top = this.minY + (light.sky.length << 4);
+        int baseX = light.column.getX() << 4;
+        int baseZ = light.column.getZ() << 4;
+
+        int maxHeight = this.minY;
+        for (int lz = 0; lz < 16; lz++) {
+            for (int lx = 0; lx < 16; lx++) {
+                int height = this.findHeight(light, baseX + lx, top - 1, baseZ + lz);
+                light.heights[lz << 4 | lx] = height;
+                maxHeight = Math.max(maxHeight, height);
+            }
+        }
+
+        // Sections entirely above the terrain are fully lit, and share one array until they are changed.
+        int firstLit = (maxHeight - this.minY + 15) >> 4;
+        for (int index = firstLit; index < light.sky.length; index++) {
+            light.sky[index] = FULLY_LIT;
+            this.markDirty(light, true, index);
+        }
+
+        int litBottom = this.minY + (firstLit << 4);
+        for (int lz = 0; lz < 16; lz++) {
+            for (int lx = 0; lx < 16; lx++) {
+                int height = light.heights[lz << 4 | lx];
+                for (int y = height; y < litBottom; y++) {
+                    this.setLevel(light, true, baseX + lx, y, baseZ + lz, 15);
+                }
+
+                // Spread sideways wherever a neighbour in this column is shaded, and down into the first shaded block.
+                int neighbourHeight = height + 1;
+                if (lx > 0) {
+                    neighbourHeight = Math.max(neighbourHeight, light.heights[lz << 4 | (lx - 1)]);
+                }
+                if (lx < 15) {
+                    neighbourHeight = Math.max(neighbourHeight, light.heights[lz << 4 | (lx + 1)]);
+                }
+                if (lz > 0) {
+                    neighbourHeight = Math.max(neighbourHeight, light.heights[(lz - 1) << 4 | lx]);
+                }
+                if (lz < 15) {
+                    neighbourHeight = Math.max(neighbourHeight, light.heights[(lz + 1) << 4 | lx]);
+                }
+
+                for (int y = height; y < Math.min(neighbourHeight, top); y++) {
+                    this.sky.increases.add(pack(baseX + lx, y, baseZ + lz), 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the height below which a block column is not lit directly by the sky after a block in it changed.
+     */
+    private void updateHeight(ColumnLight light, int x, int y, int z, int state) {
+        int index = (z & 15) << 4 | (x & 15);
+        int height = light.heights[index];
+        if (this.properties.getOpacity(state) > 0) {
+            if (y >= height) {
+                light.heights[index] = y + 1;
+            }
+        } else if (y == height - 1) {
+            light.heights[index] = this.findHeight(light, x, y - 1, z);
+        }
+    }
+
+    private int findHeight(ColumnLight light, int x, int startY, int z) {
+        int y = startY;
+        while (y >= this.minY && this.properties.getOpacity(this.getState(light, x, y, z)) == 0) {
+            y--;
+        }
+
+        return y + 1;
+    }
+
+    private void seedEdge(ColumnLight light, int x, int z, int nx, int nz) {
+        ColumnLight neighbour = this.lookup(nx, nz);
+        if (neighbour == null) {
+            return;
+        }
+
+        // Block light only needs to flow in from the neighbour, since this column's own light is already queued.
+        for (int index = 0; index < neighbour.block.length; index++) {
+            if (neighbour.block[index] == null) {
+                continue;
+            }
+
+            int baseY = this.minY + (index << 4);
+            for (int y = baseY; y < baseY + 16; y++) {
+                if (this.getLevel(neighbour, false, nx, y, nz) > 1) {
+                    this.block.increases.add(pack(nx, y, nz), 0);
+                }
+            }
+        }
+
+        if (this.hasSkyLight) {
+            // Whichever side is directly lit further down spreads sideways into the other.
+            int height = light.heights[(z & 15) << 4 | (x & 15)];
+            int neighbourHeight = neighbour.heights[(nz & 15) << 4 | (nx & 15)];
+            for (int y = height; y < neighbourHeight; y++) {
+                this.sky.increases.add(pack(x, y, z), 0);
+            }
+
+            for (int y = neighbourHeight; y < height; y++) {
+                this.sky.increases.add(pack(nx, y, nz), 0);
+            }
+        }
+    }
+
+    private void seed(Channel channel, ColumnLight light, int x, int y, int z, int level) {
+        if (level > this.getLevel(light, channel.sky, x, y, z)) {
+            this.setLevel(light, channel.sky, x, y, z, level);
+            channel.increases.add(pack(x, y, z), 0);
+        }
+    }
+
+    private int getSourceLevel(Channel channel, ColumnLight light, int y, int state) {
+        if (!channel.sky) {
+            return this.properties.getEmission(state);
+        }
+
+        // The top layer of the world is lit directly by the sky above it.
+        return y == this.minY + (light.sky.length << 4) - 1 && this.properties.getOpacity(state) == 0 ? 15 : 0;
+    }
+
+    private ServerUpdateLightPacket createPacket(ColumnLight light, BitSet skySections, BitSet blockSections) {
+        BitSet skyMask = new BitSet();
+        BitSet emptySkyMask = new BitSet();
+        List<byte[]> skyUpdates = new ArrayList<>();
+        collect(light.sky, skySections, skyMask, emptySkyMask, skyUpdates);
+
+        BitSet blockMask = new BitSet();
+        BitSet emptyBlockMask = new BitSet();
+        List<byte[]> blockUpdates = new ArrayList<>();
+        collect(light.block, blockSections, blockMask, emptyBlockMask, blockUpdates);
+
+        return new ServerUpdateLightPacket(light.column.getX(), light.column.getZ(), skyMask, blockMask,
+                emptySkyMask, emptyBlockMask, skyUpdates, blockUpdates, true);
+    }
+
+    private static void collect(NibbleArray3d[] arrays, BitSet sections, BitSet mask, BitSet emptyMask, List<byte[]> updates) {
+        for (int index = sections.nextSetBit(0); index >= 0 && index < arrays.length; index = sections.nextSetBit(index + 1)) {
+            byte[] data = arrays[index] != null ? arrays[index].getData() : null;
+            int level = data != null ? NibbleArrayPool.uniformLevel(data) : 0;
+            // Light sections start one section below the world.
+            if (level == 0) {
+                emptyMask.set(index + 1);
+            } else {
+                mask.set(index + 1);
+                updates.add(level > 0 ? NibbleArrayPool.uniform(level) : data.clone());
+            }
+        }
+    }
+
+    private ColumnLight lookup(int x, int z) {
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        ColumnLight light = this.lastLight;
+        if (light != null && light.column.getX() == chunkX && light.column.getZ() == chunkZ) {
+            return light;
+        }
+
+        light = this.lights.get(WorldCache.chunkKey(chunkX, chunkZ));
+        if (light != null) {
+            this.lastLight = light;
+        }
+
+        return light;
+    }
+
+    private boolean isInWorld(ColumnLight light, int y) {
+        return y >= this.minY && y < this.minY + (light.block.length << 4);
+    }
+
+    private int getState(ColumnLight light, int x, int y, int z) {
+        Chunk chunk = light.column.getChunk((y - this.minY) >> 4);
+        return chunk != null ? chunk.get(x & 15, (y - this.minY) & 15, z & 15) : 0;
+    }
+
+    private int getLevel(ColumnLight light, boolean sky, int x, int y, int z) {
+        int index = (y - this.minY) >> 4;
+        NibbleArray3d[] arrays = sky ? light.sky : light.block;
+        if (index < 0) {
+            return 0;
+        } else if (index >= arrays.length) {
+            return sky ? 15 : 0;
+        }
+
+        NibbleArray3d array = arrays[index];
+        return array != null ? array.get(x & 15, (y - this.minY) & 15, z & 15) : 0;
+    }
+
+    private void setLevel(ColumnLight light, boolean sky, int x, int y, int z, int level) {
+        int index = (y - this.minY) >> 4;
+        NibbleArray3d[] arrays = sky ? light.sky : light.block;
+        if (index < 0 || index >= arrays.length) {
+            return;
+        }
+
+        NibbleArray3d array = arrays[index];
+        if (array == null) {
+            if (level == 0) {
+                return;
+            }
+
+            array = this.allocate();
+            arrays[index] = array;
+        }
+
+        if (array.get(x & 15, (y - this.minY) & 15, z & 15) != level) {
+            if (array == FULLY_LIT) {
+                array = this.allocate();
+                array.fill(15);
+                arrays[index] = array;
+            }
+
+            array.set(x & 15, (y - this.minY) & 15, z & 15, level);
+            this.markDirty(light, sky, index);
+        }
+    }
+
+    private void markDirty(ColumnLight light, boolean sky, int index) {
+        (sky ? light.dirtySky : light.dirtyBlock).set(index);
+        if (!light.queued) {
+            light.queued = true;
+            this.dirty.add(light);
+        }
+    }
+
+    private NibbleArray3d allocate() {
+        if (this.pool == null) {
+            return new NibbleArray3d(4096);
+        }
+
+        NibbleArray3d array = this.pool.acquireNibbleArray();
+        array.fill(0);
+        return array;
+    }
+
+    private static void release(NibbleArrayPool pool, NibbleArray3d[] arrays) {
+        for (NibbleArray3d array : arrays) {
+            if (array != null) {
+                pool.release(array.getData());
+            }
+        }
+    }
+
+    private static long pack(int x, int y, int z) {
+        return (x & 0x3FFFFFFL) << 38 | (z & 0x3FFFFFFL) << 12 | (y & 0xFFFL);
+    }
+
+    private static int unpackX(long pos) {
+        return (int) (pos >> 38);
+    }
+
+    private static int unpackY(long pos) {
+        return (int) (pos << 52 >> 52);
+    }
+
+    private static int unpackZ(long pos) {
+        return (int) (pos << 26 >> 38);
+    }
+
+    private static class ColumnLight {
+        private final Column column;
+        private final NibbleArray3d[] sky;
+        private final NibbleArray3d[] block;
+        private final int[] heights = new int[256];
+        private final BitSet dirtySky = new BitSet();
+        private final BitSet dirtyBlock = new BitSet();
+        private boolean queued;
+        private boolean unloaded;
+
+        private ColumnLight(Column column, boolean hasSkyLight) {
+            this.column = column;
+            this.sky = new NibbleArray3d[hasSkyLight ? column.getChunkCount() : 0];
+            this.block = new NibbleArray3d[column.getChunkCount()];
+        }
+    }
+
+    private static class Channel {
+        private final boolean sky;
+        private final LongQueue increases = new LongQueue();
+        private final LongQueue decreases = new LongQueue();
+
+        private Channel(boolean sky) {
+            this.sky = sky;
+        }
+    }
+
+    /**
+     * A growable ring buffer of packed block positions, each with a light level.
+     */
+    private static class LongQueue {
+        private long[] positions = new long[1024];
+        private byte[] levels = new byte[1024];
+        private int head;
+        private int size;
+
+        private boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        private void add(long pos, int level) {
+            if (this.size == this.positions.length) {
+                this.grow();
+            }
+
+            int index = (this.head + this.size) & (this.positions.length - 1);
+            this.positions[index] = pos;
+            this.levels[index] = (byte) level;
+            this.size++;
+        }
+
+        private int peekLevel() {
+            return this.levels[this.head];
+        }
+
+        private long poll() {
+            long pos = this.positions[this.head];
+            this.head = (this.head + 1) & (this.positions.length - 1);
+            this.size--;
+            return pos;
+        }
+
+        private void grow() {
+            long[] positions = new long[this.positions.length << 1];
+            byte[] levels = new byte[positions.length];
+            for (int i = 0; i < this.size; i++) {
+                int index = (this.head + i) & (this.positions.length - 1);
+                positions[i] = this.positions[index];
+                levels[i] = this.levels[index];
+            }
+
+            this.positions = positions;
+            this.levels = levels;
+            this.head = 0;
+        }
+    }
+}
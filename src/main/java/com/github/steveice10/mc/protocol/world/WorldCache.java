@@ -0,0 +1,517 @@
+package com.github.steveice10.mc.protocol.world;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.BlockRegion;
+import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
+import com.github.steveice10.mc.protocol.data.game.chunk.ChunkSectionStore;
+import com.github.steveice10.mc.protocol.data.game.chunk.Column;
+import com.github.steveice10.mc.protocol.data.game.chunk.NibbleArrayPool;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.Position;
+import com.github.steveice10.mc.protocol.data.game.world.block.BlockChangeRecord;
+import com.github.steveice10.mc.protocol.packet.ingame.server.ServerJoinGamePacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.ServerRespawnPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerBlockChangePacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerChunkDataPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerMultiBlockChangePacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerUnloadChunkPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerUpdateLightPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerUpdateTileEntityPacket;
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.opennbt.tag.builtin.IntTag;
+import com.github.steveice10.opennbt.tag.builtin.Tag;
+import com.github.steveice10.packetlib.event.session.PacketReceivedEvent;
+import com.github.steveice10.packetlib.event.session.SessionAdapter;
+import com.github.steveice10.packetlib.packet.Packet;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A client-side copy of the world, kept up to date from the chunk, block change, tile entity, light
+ * and unload packets a session receives. Add it to a client session as a listener to use it.
+ * <p>
+ * The cache may be read from any thread while packets are being applied. Reads are attempted
+ * optimistically without taking a lock and only fall back to a read lock when they overlap an update.
+ * Columns returned by {@link #getColumn(int, int)} are live and must not be modified by other threads.
+ */
+public class WorldCache extends SessionAdapter implements BlockRegion.ColumnSource {
+    private static final int SECTION_SIZE = 2048;
+    private static final int NOT_DECODED = -1;
+
+    private final LongObjectMap<Column> columns = new LongObjectHashMap<>();
+    private final LongObjectMap<ColumnLight> light = new LongObjectHashMap<>();
+    private final StampedLock lock = new StampedLock();
+
+    private final ChunkSectionStore sectionStore;
+
+    private volatile int minY;
+
+    /**
+     * Creates a new world cache for a world starting at Y 0. The lowest Y coordinate is updated
+     * from the dimension sent when joining or respawning.
+     */
+    public WorldCache() {
+        this(0);
+    }
+
+    /**
+     * Creates a new world cache.
+     *
+     * @param minY Lowest Y coordinate of the world, which the first section of each column starts at.
+     */
+    public WorldCache(int minY) {
+        this(minY, null);
+    }
+
+    /**
+     * Creates a new world cache that deduplicates the sections of its columns against a section store.
+     * Sections are released from the store when their column is replaced, unloaded or cleared.
+     *
+     * @param minY         Lowest Y coordinate of the world, which the first section of each column starts at.
+     * @param sectionStore Store to intern sections into, or null to not deduplicate sections.
+     */
+    public WorldCache(int minY, ChunkSectionStore sectionStore) {
+        this.minY = minY;
+        this.sectionStore = sectionStore;
+    }
+
+    /**
+     * Packs chunk coordinates into the key columns are stored under.
+     *
+     * @param x X coordinate of the column.
+     * @param z Z coordinate of the column.
+     * @return The packed coordinates.
+     */
+    public static long chunkKey(int x, int z) {
+        return (x & 0xFFFFFFFFL) | (z & 0xFFFFFFFFL) << 32;
+    }
+
+    /**
+     * Gets the lowest Y coordinate of the current world.
+     *
+     * @return The lowest Y coordinate.
+     */
+    public int getMinY() {
+        return this.minY;
+    }
+
+    @Override
+    public void packetReceived(PacketReceivedEvent event) {
+        Packet packet = event.getPacket();
+        if (packet instanceof ServerChunkDataPacket) {
+            this.putColumn(((ServerChunkDataPacket) packet).getColumn());
+        } else if (packet instanceof ServerBlockChangePacket) {
+            BlockChangeRecord record = ((ServerBlockChangePacket) packet).getRecord();
+            Position position = record.getPosition();
+            this.setBlock(position.getX(), position.getY(), position.getZ(), record.getBlock());
+        } else if (packet instanceof ServerMultiBlockChangePacket) {
+            this.applyMultiBlockChange((ServerMultiBlockChangePacket) packet);
+        } else if (packet instanceof ServerUnloadChunkPacket) {
+            ServerUnloadChunkPacket unload = (ServerUnloadChunkPacket) packet;
+            this.removeColumn(unload.getX(), unload.getZ());
+        } else if (packet instanceof ServerUpdateTileEntityPacket) {
+            ServerUpdateTileEntityPacket update = (ServerUpdateTileEntityPacket) packet;
+            Position position = update.getPosition();
+            this.setTileEntity(position.getX(), position.getY(), position.getZ(), update.getNbt());
+        } else if (packet instanceof ServerUpdateLightPacket) {
+            this.applyLightUpdate((ServerUpdateLightPacket) packet);
+        } else if (packet instanceof ServerJoinGamePacket) {
+            this.changeDimension(((ServerJoinGamePacket) packet).getDimension());
+        } else if (packet instanceof ServerRespawnPacket) {
+            this.changeDimension(((ServerRespawnPacket) packet).getDimension());
+        }
+    }
+
+    /**
+     * Gets the column at the given chunk coordinates.
+     *
+     * @param x X coordinate of the column.
+     * @param z Z coordinate of the column.
+     * @return The column, or null if it is not loaded.
+     */
+    @Override
+    public Column getColumn(int x, int z) {
+        long key = chunkKey(x, z);
+        long stamp = this.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Column column = this.columns.get(key);
+                if (this.lock.validate(stamp)) {
+                    return column;
+                }
+            } catch (RuntimeException e) {
+                // The map was resized under us; retry under the read lock.
+            }
+        }
+
+        stamp = this.lock.readLock();
+        try {
+            return this.columns.get(key);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Gets the block state at the given position.
+     *
+     * @param x X coordinate of the block.
+     * @param y Y coordinate of the block.
+     * @param z Z coordinate of the block.
+     * @return The block state, or 0 (air) if the block is not loaded.
+     */
+    public int getBlock(int x, int y, int z) {
+        long key = chunkKey(x >> 4, z >> 4);
+        long stamp = this.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int state = this.readBlock(key, x, y, z, true);
+                if (state != NOT_DECODED && this.lock.validate(stamp)) {
+                    return state;
+                }
+            } catch (RuntimeException e) {
+                // A concurrent update left the structures inconsistent; retry under the read lock.
+            }
+        }
+
+        stamp = this.lock.readLock();
+        try {
+            return this.readBlock(key, x, y, z, false);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Gets the block state at the given position.
+     *
+     * @param position Position of the block.
+     * @return The block state, or 0 (air) if the block is not loaded.
+     */
+    public int getBlock(Position position) {
+        return this.getBlock(position.getX(), position.getY(), position.getZ());
+    }
+
+    /**
+     * Gets the sky light level at the given position.
+     *
+     * @param x X coordinate of the block.
+     * @param y Y coordinate of the block.
+     * @param z Z coordinate of the block.
+     * @return The sky light level, or 0 if it is not known.
+     */
+    public int getSkyLight(int x, int y, int z) {
+        return this.getLight(true, x, y, z);
+    }
+
+    /**
+     * Gets the block light level at the given position.
+     *
+     * @param x X coordinate of the block.
+     * @param y Y coordinate of the block.
+     * @param z Z coordinate of the block.
+     * @return The block light level, or 0 if it is not known.
+     */
+    public int getBlockLight(int x, int y, int z) {
+        return this.getLight(false, x, y, z);
+    }
+
+    /**
+     * Gets a snapshot of the loaded columns.
+     *
+     * @return The loaded columns.
+     */
+    public List<Column> getColumns() {
+        long stamp = this.lock.readLock();
+        try {
+            return new ArrayList<>(this.columns.values());
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Gets the number of loaded columns.
+     *
+     * @return The number of loaded columns.
+     */
+    public int getColumnCount() {
+        long stamp = this.lock.readLock();
+        try {
+            return this.columns.size();
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Stores a column, replacing any column at the same coordinates.
+     *
+     * @param column Column to store.
+     */
+    public void putColumn(Column column) {
+        if (this.sectionStore != null) {
+            column.setSectionStore(this.sectionStore);
+        }
+
+        long stamp = this.lock.writeLock();
+        try {
+            this.release(this.columns.put(chunkKey(column.getX(), column.getZ()), column));
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the column and light data at the given chunk coordinates.
+     *
+     * @param x X coordinate of the column.
+     * @param z Z coordinate of the column.
+     */
+    public void removeColumn(int x, int z) {
+        long key = chunkKey(x, z);
+        long stamp = this.lock.writeLock();
+        try {
+            this.release(this.columns.remove(key));
+            this.light.remove(key);
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sets the block state at the given position. Blocks in unloaded columns are ignored.
+     *
+     * @param x     X coordinate of the block.
+     * @param y     Y coordinate of the block.
+     * @param z     Z coordinate of the block.
+     * @param state Block state to set.
+     */
+    public void setBlock(int x, int y, int z, int state) {
+        long stamp = this.lock.writeLock();
+        try {
+            this.writeBlock(this.columns.get(chunkKey(x >> 4, z >> 4)), x, y, z, state);
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Gets the tile entity at the given position.
+     *
+     * @param x X coordinate of the block.
+     * @param y Y coordinate of the block.
+     * @param z Z coordinate of the block.
+     * @return The tile entity's NBT, or null if there is none or the block is not loaded.
+     */
+    public CompoundTag getTileEntity(int x, int y, int z) {
+        long stamp = this.lock.readLock();
+        try {
+            Column column = this.columns.get(chunkKey(x >> 4, z >> 4));
+            return column != null ? column.getTileEntity(x, y, z) : null;
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Sets or removes the tile entity at the given position. Tile entities in unloaded columns are ignored.
+     *
+     * @param x   X coordinate of the block.
+     * @param y   Y coordinate of the block.
+     * @param z   Z coordinate of the block.
+     * @param tag The tile entity's NBT, or null to remove it.
+     */
+    public void setTileEntity(int x, int y, int z, CompoundTag tag) {
+        long stamp = this.lock.writeLock();
+        try {
+            Column column = this.columns.get(chunkKey(x >> 4, z >> 4));
+            if (column != null) {
+                column.setTileEntity(x, y, z, tag);
+            }
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes all columns and light data.
+     */
+    public void clear() {
+        long stamp = this.lock.writeLock();
+        try {
+            Iterator<Column> iterator = this.columns.values().iterator();
+            while (iterator.hasNext()) {
+                this.release(iterator.next());
+            }
+
+            this.columns.clear();
+            this.light.clear();
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    private void applyMultiBlockChange(ServerMultiBlockChangePacket packet) {
+        long stamp = this.lock.writeLock();
+        try {
+            Column column = this.columns.get(chunkKey(packet.getChunkX(), packet.getChunkZ()));
+            if (column == null) {
+                return;
+            }
+
+            int baseX = packet.getChunkX() << 4;
+            int baseY = packet.getChunkY() << 4;
+            int baseZ = packet.getChunkZ() << 4;
+            short[] positions = packet.getPositions();
+            int[] states = packet.getStates();
+            for (int index = 0; index < positions.length; index++) {
+                short position = positions[index];
+                this.writeBlock(column, baseX + (position >>> 8 & 0xF), baseY + (position & 0xF), baseZ + (position >>> 4 & 0xF), states[index]);
+            }
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    private void applyLightUpdate(ServerUpdateLightPacket packet) {
+        long key = chunkKey(packet.getX(), packet.getZ());
+        long stamp = this.lock.writeLock();
+        try {
+            ColumnLight columnLight = this.light.get(key);
+            if (columnLight == null) {
+                columnLight = new ColumnLight();
+                this.light.put(key, columnLight);
+            }
+
+            columnLight.sky = applyLight(columnLight.sky, packet.getSkyYMask(), packet.getEmptySkyYMask(), packet.getSkyUpdates());
+            columnLight.block = applyLight(columnLight.block, packet.getBlockYMask(), packet.getEmptyBlockYMask(), packet.getBlockUpdates());
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    private void changeDimension(CompoundTag dimension) {
+        Tag minY = dimension.get("min_y");
+        if (minY instanceof IntTag) {
+            this.minY = ((IntTag) minY).getValue();
+        }
+
+        this.clear();
+    }
+
+    private int readBlock(long key, int x, int y, int z, boolean optimistic) {
+        Column column = this.columns.get(key);
+        if (column == null) {
+            return 0;
+        }
+
+        int index = (y - this.minY) >> 4;
+        if (index < 0 || index >= column.getChunkCount()) {
+            return 0;
+        }
+
+        if (optimistic && !column.isChunkDecoded(index)) {
+            // Decoding a lazily read section allocates and locks the column, which an optimistic read must not do.
+            return NOT_DECODED;
+        }
+
+        Chunk chunk = column.getChunk(index);
+        return chunk != null ? chunk.get(x & 15, (y - this.minY) & 15, z & 15) : 0;
+    }
+
+    private void writeBlock(Column column, int x, int y, int z, int state) {
+        if (column == null) {
+            return;
+        }
+
+        int index = (y - this.minY) >> 4;
+        if (index < 0 || index >= column.getChunkCount()) {
+            return;
+        }
+
+        column.setBlock(x & 15, y - this.minY, z & 15, state);
+    }
+
+    private int getLight(boolean sky, int x, int y, int z) {
+        long key = chunkKey(x >> 4, z >> 4);
+        long stamp = this.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int level = this.readLight(key, sky, x, y, z);
+                if (this.lock.validate(stamp)) {
+                    return level;
+                }
+            } catch (RuntimeException e) {
+                // A concurrent update left the structures inconsistent; retry under the read lock.
+            }
+        }
+
+        stamp = this.lock.readLock();
+        try {
+            return this.readLight(key, sky, x, y, z);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    private int readLight(long key, boolean sky, int x, int y, int z) {
+        ColumnLight columnLight = this.light.get(key);
+        if (columnLight == null) {
+            return 0;
+        }
+
+        byte[][] sections = sky ? columnLight.sky : columnLight.block;
+        // Light sections start one section below the world.
+        int index = ((y - this.minY) >> 4) + 1;
+        if (index < 0 || index >= sections.length || sections[index] == null) {
+            return 0;
+        }
+
+        int block = ((y - this.minY) & 15) << 8 | (z & 15) << 4 | (x & 15);
+        return sections[index][block >> 1] >> ((block & 1) << 2) & 15;
+    }
+
+    private static byte[][] applyLight(byte[][] sections, BitSet mask, BitSet emptyMask, List<byte[]> updates) {
+        int length = Math.max(mask.length(), emptyMask.length());
+        if (sections.length < length) {
+            sections = Arrays.copyOf(sections, length);
+        }
+
+        int update = 0;
+        for (int index = mask.nextSetBit(0); index >= 0; index = mask.nextSetBit(index + 1)) {
+            if (update < updates.size()) {
+                byte[] data = updates.get(update++);
+                if (data.length != SECTION_SIZE) {
+                    sections[index] = null;
+                } else {
+                    // Packets may return their arrays to a pool once handled, so only the shared uniform arrays,
+                    // which are never modified, are kept as they are.
+                    sections[index] = NibbleArrayPool.isUniform(data) ? data : data.clone();
+                }
+            }
+        }
+
+        for (int index = emptyMask.nextSetBit(0); index >= 0; index = emptyMask.nextSetBit(index + 1)) {
+            sections[index] = null;
+        }
+
+        return sections;
+    }
+
+    private void release(Column column) {
+        if (column != null && this.sectionStore != null) {
+            this.sectionStore.release(column);
+        }
+    }
+
+    private static class ColumnLight {
+        private byte[][] sky = new byte[0][];
+        private byte[][] block = new byte[0][];
+    }
+}
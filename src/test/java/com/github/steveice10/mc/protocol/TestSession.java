@@ -0,0 +1,79 @@
+package com.github.steveice10.mc.protocol;
+
+import com.github.steveice10.packetlib.Session;
+import com.github.steveice10.packetlib.event.session.DisconnectedEvent;
+import com.github.steveice10.packetlib.event.session.SessionListener;
+import com.github.steveice10.packetlib.packet.Packet;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A session that is not connected to anything, recording the packets sent to it.
+ */
+public class TestSession {
+    private final Map<String, Object> flags = Collections.synchronizedMap(new HashMap<>());
+    private final List<SessionListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<Packet> sentPackets = Collections.synchronizedList(new ArrayList<>());
+    private final Session session;
+
+    public TestSession() {
+        this.session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getFlag":
+                    Object value = this.flags.get((String) args[0]);
+                    return value != null || args.length == 1 ? value : args[1];
+                case "hasFlag":
+                    return this.flags.containsKey((String) args[0]);
+                case "setFlag":
+                    this.flags.put((String) args[0], args[1]);
+                    return null;
+                case "getFlags":
+                    return Collections.unmodifiableMap(this.flags);
+                case "addListener":
+                    this.listeners.add((SessionListener) args[0]);
+                    return null;
+                case "removeListener":
+                    this.listeners.remove((SessionListener) args[0]);
+                    return null;
+                case "getListeners":
+                    return Collections.unmodifiableList(this.listeners);
+                case "send":
+                    this.sentPackets.add((Packet) args[0]);
+                    return null;
+                case "isConnected":
+                    return true;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "TestSession";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    public Session getSession() {
+        return this.session;
+    }
+
+    public List<Packet> getSentPackets() {
+        synchronized (this.sentPackets) {
+            return new ArrayList<>(this.sentPackets);
+        }
+    }
+
+    public void disconnect() {
+        DisconnectedEvent event = new DisconnectedEvent(this.session, "Disconnected", null);
+        for (SessionListener listener : this.listeners) {
+            listener.disconnected(event);
+        }
+    }
+}
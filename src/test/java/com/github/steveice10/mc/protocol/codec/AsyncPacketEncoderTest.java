@@ -0,0 +1,139 @@
+package com.github.steveice10.mc.protocol.codec;
+
+import com.github.steveice10.mc.protocol.TestSession;
+import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
+import com.github.steveice10.mc.protocol.data.game.chunk.Column;
+import com.github.steveice10.mc.protocol.packet.ingame.server.ServerKeepAlivePacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerChunkDataPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerUnloadChunkPacket;
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.packetlib.io.stream.StreamNetInput;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import com.github.steveice10.packetlib.packet.BufferedPacket;
+import com.github.steveice10.packetlib.packet.Packet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncPacketEncoderTest {
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final TestSession session = new TestSession();
+    private AsyncPacketEncoder encoder;
+
+    @Before
+    public void setup() {
+        this.encoder = new AsyncPacketEncoder(this.tasks::add);
+        this.encoder.enable(ServerUnloadChunkPacket.class);
+    }
+
+    @Test
+    public void testOrderWithOutOfOrderCompletion() {
+        ServerUnloadChunkPacket first = new ServerUnloadChunkPacket(1, 1);
+        ServerKeepAlivePacket second = new ServerKeepAlivePacket(2);
+        ServerUnloadChunkPacket third = new ServerUnloadChunkPacket(3, 3);
+        this.encoder.send(this.session.getSession(), first);
+        this.encoder.send(this.session.getSession(), second);
+        this.encoder.send(this.session.getSession(), third);
+        assertEquals(0, this.session.getSentPackets().size());
+
+        this.tasks.get(1).run();
+        assertEquals(0, this.session.getSentPackets().size());
+
+        this.tasks.get(0).run();
+        List<Packet> sent = this.session.getSentPackets();
+        assertEquals(3, sent.size());
+        assertTrue(sent.get(0) instanceof BufferedPacket);
+        assertSame(second, sent.get(1));
+        assertTrue(sent.get(2) instanceof BufferedPacket);
+    }
+
+    @Test
+    public void testSyncPacketsSentImmediately() {
+        ServerKeepAlivePacket packet = new ServerKeepAlivePacket(1);
+        this.encoder.send(this.session.getSession(), packet);
+        assertEquals(1, this.session.getSentPackets().size());
+        assertSame(packet, this.session.getSentPackets().get(0));
+        assertTrue(this.tasks.isEmpty());
+    }
+
+    @Test
+    public void testSubclassOfEnabledType() throws Exception {
+        this.encoder.enable(ServerChunkDataPacket.class);
+        assertTrue(this.encoder.isEnabled(ServerChunkDataPacket.Lazy.class));
+        assertFalse(this.encoder.isEnabled(ServerKeepAlivePacket.class));
+
+        Column column = new Column(0, 0, new Chunk[16], new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1024]);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ServerChunkDataPacket(column).write(new StreamNetOutput(out));
+        Constructor<ServerChunkDataPacket.Lazy> constructor = ServerChunkDataPacket.Lazy.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        ServerChunkDataPacket.Lazy lazy = constructor.newInstance();
+        lazy.read(new StreamNetInput(new ByteArrayInputStream(out.toByteArray())));
+
+        this.encoder.send(this.session.getSession(), lazy);
+        assertEquals(1, this.tasks.size());
+        this.tasks.get(0).run();
+        BufferedPacket sent = (BufferedPacket) this.session.getSentPackets().get(0);
+        assertEquals(ServerChunkDataPacket.class, sent.getPacketClass());
+
+        this.encoder.disable(ServerChunkDataPacket.class);
+        assertFalse(this.encoder.isEnabled(ServerChunkDataPacket.Lazy.class));
+    }
+
+    @Test
+    public void testDisconnectDropsQueue() {
+        this.encoder.send(this.session.getSession(), new ServerUnloadChunkPacket(1, 1));
+        this.encoder.send(this.session.getSession(), new ServerKeepAlivePacket(2));
+        this.session.disconnect();
+        assertNull(this.session.getSession().getFlag("async-packet-encoder-queue"));
+
+        this.tasks.get(0).run();
+        assertEquals(0, this.session.getSentPackets().size());
+    }
+
+    @Test
+    public void testOrderAcrossThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AsyncPacketEncoder encoder = new AsyncPacketEncoder(executor);
+            encoder.enable(ServerUnloadChunkPacket.class);
+            for (int index = 0; index < 1000; index++) {
+                if (index % 3 == 0) {
+                    encoder.send(this.session.getSession(), new ServerKeepAlivePacket(index));
+                } else {
+                    encoder.send(this.session.getSession(), new ServerUnloadChunkPacket(index, 0));
+                }
+            }
+
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Packet> sent = this.session.getSentPackets();
+        assertEquals(1000, sent.size());
+        for (int index = 0; index < sent.size(); index++) {
+            Packet packet = sent.get(index);
+            if (index % 3 == 0) {
+                assertEquals(index, ((ServerKeepAlivePacket) packet).getPingId());
+            } else {
+                assertEquals(ServerUnloadChunkPacket.class, ((BufferedPacket) packet).getPacketClass());
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.steveice10.mc.protocol.codec;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
+import com.github.steveice10.mc.protocol.data.game.chunk.Column;
+import com.github.steveice10.mc.protocol.data.game.chunk.HeightmapType;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerChunkDataPacket;
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkDataCacheTest {
+    @Test
+    public void testInvalidation() throws Exception {
+        Chunk chunk = new Chunk();
+        chunk.set(0, 0, 0, 10);
+        Column column = new Column(0, 0, new Chunk[]{chunk}, new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1024]);
+
+        ChunkDataCache cache = new ChunkDataCache(1024 * 1024);
+        byte[] first = cache.encode(column);
+        assertSame(first, cache.encode(column));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        column.getChunk(0).set(1, 0, 0, 11);
+        assertNull(column.getCachedPacketData());
+        assertNotSame(first, cache.encode(column));
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    public void testHeightmapInvalidation() throws Exception {
+        Column column = new Column(0, 0, new Chunk[]{new Chunk()}, new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1024]);
+        column.trackHeightmap(HeightmapType.MOTION_BLOCKING, 16, state -> state != 0);
+
+        ChunkDataCache cache = new ChunkDataCache(1024 * 1024);
+        byte[] first = cache.encode(column);
+        column.getHeightmap(HeightmapType.MOTION_BLOCKING).set(3, 4, 12);
+        assertNull(column.getCachedPacketData());
+        assertFalse(Arrays.equals(first, cache.encode(column)));
+    }
+
+    @Test
+    public void testBiomeInvalidation() throws Exception {
+        Column column = new Column(0, 0, new Chunk[]{new Chunk()}, new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1024]);
+
+        ChunkDataCache cache = new ChunkDataCache(1024 * 1024);
+        byte[] first = cache.encode(column);
+        column.getBiomes().set(5, 7);
+        assertNull(column.getCachedPacketData());
+        byte[] second = cache.encode(column);
+        assertFalse(Arrays.equals(first, second));
+
+        column.getBiomes().set(5, 7);
+        assertArrayEquals(second, cache.encode(column));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testModifiedWhileEncoding() throws Exception {
+        Chunk chunk = new Chunk();
+        chunk.set(0, 0, 0, 10);
+        Column column = new Column(0, 0, new Chunk[]{chunk}, new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1024]);
+        Column.ModState state = column.getModState();
+        byte[] data = new byte[]{1, 2, 3};
+
+        chunk.set(1, 0, 0, 11);
+        assertFalse(column.setCachedPacketData(state, data));
+        assertNull(column.getCachedPacketData());
+
+        state = column.getModState();
+        column.setTileEntity(0, 0, 0, new CompoundTag(""));
+        assertFalse(column.setCachedPacketData(state, data));
+
+        state = column.getModState();
+        assertTrue(column.setCachedPacketData(state, data));
+        assertSame(data, column.getCachedPacketData());
+        column.setChunk(0, null);
+        assertNull(column.getCachedPacketData());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        Column first = new Column(0, 0, new Chunk[]{new Chunk()}, new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1024]);
+        Column second = new Column(1, 0, new Chunk[]{new Chunk()}, new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1024]);
+
+        ChunkDataCache cache = new ChunkDataCache(cacheSizeFor(first) + 1);
+        cache.encode(first);
+        cache.encode(second);
+        assertEquals(1, cache.getEvictions());
+        assertNull(first.getCachedPacketData());
+    }
+
+    private static long cacheSizeFor(Column column) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ServerChunkDataPacket(column).write(new StreamNetOutput(out));
+        return out.size();
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.steveice10.mc.protocol.codec;
+
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityPositionPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityTeleportPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerRemoveEntitiesPacket;
+import com.github.steveice10.packetlib.io.NetInput;
+import com.github.steveice10.packetlib.io.stream.StreamNetInput;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import com.github.steveice10.packetlib.packet.Packet;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PacketPoolTest {
+    private static final ServerEntityTeleportPacket FIRST = new ServerEntityTeleportPacket(1, 1.5, 64, -2.5, 90f, 45f, true);
+    private static final ServerEntityTeleportPacket SECOND = new ServerEntityTeleportPacket(2, -8, 70, 16, -90f, 0f, false);
+
+    @Test
+    public void testReuse() throws IOException {
+        PacketPool pool = new PacketPool();
+        ServerEntityTeleportPacket first = pool.read(ServerEntityTeleportPacket.class, input(FIRST));
+        assertEquals(FIRST, first);
+
+        pool.release(first);
+        ServerEntityTeleportPacket second = pool.read(ServerEntityTeleportPacket.class, input(SECOND));
+        assertSame(first, second);
+        assertEquals(SECOND, second);
+    }
+
+    @Test
+    public void testMaxSize() throws IOException {
+        PacketPool pool = new PacketPool(1);
+        ServerEntityTeleportPacket first = pool.read(ServerEntityTeleportPacket.class, input(FIRST));
+        ServerEntityTeleportPacket second = pool.read(ServerEntityTeleportPacket.class, input(FIRST));
+        pool.release(first);
+        pool.release(second);
+
+        assertSame(first, pool.read(ServerEntityTeleportPacket.class, input(SECOND)));
+        ServerEntityTeleportPacket third = pool.read(ServerEntityTeleportPacket.class, input(SECOND));
+        assertNotSame(first, third);
+        assertNotSame(second, third);
+    }
+
+    @Test
+    public void testFailedReadReleases() throws IOException {
+        PacketPool pool = new PacketPool();
+        byte[] data = encode(FIRST);
+        try {
+            pool.read(ServerEntityTeleportPacket.class, new StreamNetInput(new ByteArrayInputStream(Arrays.copyOf(data, 4))));
+            fail("Expected a truncated packet to fail.");
+        } catch (IOException ignored) {
+        }
+
+        ServerEntityTeleportPacket packet = pool.read(ServerEntityTeleportPacket.class, input(SECOND));
+        pool.release(packet);
+        assertSame(packet, pool.read(ServerEntityTeleportPacket.class, input(FIRST)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnpooledType() {
+        new PacketPool().release(new ServerRemoveEntitiesPacket(new int[]{1}));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDoubleRelease() throws IOException {
+        PacketPool pool = new PacketPool();
+        pool.setDebug(true);
+        ServerEntityTeleportPacket packet = pool.read(ServerEntityTeleportPacket.class, input(FIRST));
+        pool.release(packet);
+        pool.release(packet);
+    }
+
+    @Test
+    public void testUseAfterRelease() throws IOException {
+        PacketPool pool = new PacketPool();
+        pool.setDebug(true);
+        ServerEntityTeleportPacket teleport = pool.read(ServerEntityTeleportPacket.class, input(FIRST));
+        ServerEntityPositionPacket position = pool.read(ServerEntityPositionPacket.class, input(ServerEntityPositionPacket.ofRaw(3, (short) 1, (short) 2, (short) 3, true)));
+        pool.release(teleport);
+        pool.release(position);
+        assertTrue(pool.isReleased(teleport));
+        assertTrue(pool.isReleased(position));
+
+        // Released instances are not reused, and their getters return values that cannot come from a read.
+        ServerEntityTeleportPacket next = pool.read(ServerEntityTeleportPacket.class, input(SECOND));
+        assertNotSame(teleport, next);
+        assertFalse(pool.isReleased(next));
+        assertEquals(Integer.MIN_VALUE, teleport.getEntityId());
+        assertTrue(Double.isNaN(teleport.getX()));
+        assertEquals(Byte.MIN_VALUE, teleport.getRawYaw());
+        assertFalse(teleport.isOnGround());
+        assertEquals(Short.MIN_VALUE, position.getRawMoveX());
+        assertEquals(SECOND, next);
+    }
+
+    @Test
+    public void testDebugPerPool() throws IOException {
+        PacketPool debug = new PacketPool();
+        PacketPool pool = new PacketPool();
+        debug.setDebug(true);
+        assertTrue(debug.isDebug());
+        assertFalse(pool.isDebug());
+
+        ServerEntityTeleportPacket packet = pool.read(ServerEntityTeleportPacket.class, input(FIRST));
+        pool.release(packet);
+        assertFalse(pool.isReleased(packet));
+        assertFalse(debug.isReleased(packet));
+        assertSame(packet, pool.read(ServerEntityTeleportPacket.class, input(SECOND)));
+
+        debug.setDebug(false);
+        packet = debug.read(ServerEntityTeleportPacket.class, input(FIRST));
+        debug.release(packet);
+        assertSame(packet, debug.read(ServerEntityTeleportPacket.class, input(SECOND)));
+    }
+
+    private static NetInput input(Packet packet) throws IOException {
+        return new StreamNetInput(new ByteArrayInputStream(encode(packet)));
+    }
+
+    private static byte[] encode(Packet packet) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet.write(new StreamNetOutput(out));
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.steveice10.mc.protocol.data.game.chunk;
+
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.packetlib.io.stream.StreamNetInput;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+public class BiomeStorageTest {
+    @Test
+    public void testSingleBiome() throws IOException {
+        BiomeStorage storage = new BiomeStorage(1024, 300);
+        assertEquals(1, storage.getPaletteSize());
+        assertEquals(300, storage.get(1023));
+
+        int[] expected = new int[1024];
+        Arrays.fill(expected, 300);
+        assertArrayEquals(expected, storage.toIntArray());
+        assertArrayEquals(encode(expected), write(storage));
+        assertEquals(storage, read(write(storage)));
+    }
+
+    @Test
+    public void testPaletteGrowth() throws IOException {
+        Random random = new Random(0);
+        int[] biomes = new int[1536];
+        BiomeStorage storage = new BiomeStorage(biomes.length, 0);
+        for (int distinct : new int[]{2, 3, 5, 17, 200}) {
+            for (int index = 0; index < biomes.length; index++) {
+                biomes[index] = random.nextInt(distinct) * 7;
+                storage.set(index, biomes[index]);
+            }
+
+            assertArrayEquals(biomes, storage.toIntArray());
+            assertArrayEquals(encode(biomes), write(storage));
+            assertEquals(storage, read(write(storage)));
+            assertEquals(storage, BiomeStorage.of(biomes));
+            assertEquals(storage.hashCode(), BiomeStorage.of(biomes).hashCode());
+        }
+    }
+
+    @Test
+    public void testColumnTracking() {
+        int[] biomes = new int[1024];
+        biomes[10] = 4;
+        Column column = new Column(0, 0, new Chunk[1], new CompoundTag[0], new CompoundTag("HeightMaps"), biomes);
+
+        // Biome data is a copy, so changing it does not change the column.
+        int[] data = column.getBiomeData();
+        assertArrayEquals(biomes, data);
+        data[10] = 5;
+        assertEquals(4, column.getBiomes().get(10));
+        assertEquals(2, column.getBiomes().getPaletteSize());
+
+        int modCount = column.getModCount();
+        column.getBiomes().set(10, 4);
+        assertEquals(modCount, column.getModCount());
+        column.getBiomes().set(10, 5);
+        assertNotEquals(modCount, column.getModCount());
+        assertEquals(5, column.getBiomeData()[10]);
+    }
+
+    @Test
+    public void testVarIntSizes() throws IOException {
+        int[] biomes = new int[1024];
+        int[] values = {0, 127, 128, 16384, Integer.MAX_VALUE, -1};
+        for (int index = 0; index < biomes.length; index++) {
+            biomes[index] = values[(index / 3) % values.length];
+        }
+
+        BiomeStorage storage = BiomeStorage.of(biomes);
+        assertArrayEquals(encode(biomes), write(storage));
+        assertEquals(write(storage).length, storage.getSerializedSize());
+        assertArrayEquals(biomes, read(write(storage)).toIntArray());
+
+        Arrays.fill(biomes, -1);
+        storage = BiomeStorage.of(biomes);
+        assertEquals(1, storage.getPaletteSize());
+        assertArrayEquals(encode(biomes), write(storage));
+        assertArrayEquals(encode(new int[0]), write(BiomeStorage.of(new int[0])));
+    }
+
+    @Test
+    public void testSharedStorage() {
+        BiomeStorage storage = BiomeStorage.of(new int[1024]);
+        Column first = new Column(0, 0, new Chunk[1], new CompoundTag[0], new CompoundTag("HeightMaps"), storage);
+        try {
+            new Column(1, 0, new Chunk[1], new CompoundTag[0], new CompoundTag("HeightMaps"), storage);
+            fail("Expected a storage of another column to be rejected.");
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        // A copy belongs to no column, so changing it does not mark the first column as modified.
+        Column second = new Column(1, 0, new Chunk[1], new CompoundTag[0], new CompoundTag("HeightMaps"), storage.copy());
+        assertEquals(storage, second.getBiomes());
+        int modCount = first.getModCount();
+        second.getBiomes().set(0, 3);
+        assertEquals(modCount, first.getModCount());
+        assertEquals(0, storage.get(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        new BiomeStorage(1024, 0).set(1024, 1);
+    }
+
+    private static byte[] write(BiomeStorage storage) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BiomeStorage.write(new StreamNetOutput(out), storage);
+        return out.toByteArray();
+    }
+
+    private static BiomeStorage read(byte[] data) throws IOException {
+        return BiomeStorage.read(new StreamNetInput(new ByteArrayInputStream(data)));
+    }
+
+    private static byte[] encode(int[] biomes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamNetOutput netOut = new StreamNetOutput(out);
+        netOut.writeVarInt(biomes.length);
+        for (int biome : biomes) {
+            netOut.writeVarInt(biome);
+        }
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.steveice10.mc.protocol.data.game.chunk;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class BitStorageTest {
+    private static final int[] SIZES = {1, 63, 64, 65, 4095, 4096};
+
+    @Test
+    public void testForEachMatchSmallWidths() {
+        Random random = new Random(0);
+        for (int bitsPerEntry = 1; bitsPerEntry <= 8; bitsPerEntry++) {
+            for (int size : SIZES) {
+                BitStorage storage = randomStorage(random, bitsPerEntry, size);
+                for (int value = 0; value < 1 << bitsPerEntry; value++) {
+                    assertMatches(storage, value);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testForEachMatchLargeWidths() {
+        Random random = new Random(0);
+        for (int bitsPerEntry = 9; bitsPerEntry <= 32; bitsPerEntry++) {
+            long maxValue = (1L << bitsPerEntry) - 1;
+            for (int size : SIZES) {
+                BitStorage storage = randomStorage(random, bitsPerEntry, size);
+                assertMatches(storage, 0);
+                assertMatches(storage, (int) maxValue);
+
+                for (int sample = 0; sample < 16; sample++) {
+                    assertMatches(storage, storage.get(random.nextInt(size)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testForEachMatchZero() {
+        for (int bitsPerEntry = 1; bitsPerEntry <= 32; bitsPerEntry++) {
+            for (int size : SIZES) {
+                BitStorage storage = new BitStorage(bitsPerEntry, size);
+                assertEquals(size, storage.forEachMatch(0, index -> {
+                }));
+
+                storage.set(size - 1, 1);
+                assertMatches(storage, 0);
+                assertMatches(storage, 1);
+            }
+        }
+    }
+
+    @Test
+    public void testForEachMatchOutOfRange() {
+        BitStorage storage = new BitStorage(4, 4096);
+        assertEquals(0, storage.forEachMatch(-1, index -> {
+        }));
+        assertEquals(0, storage.forEachMatch(16, index -> {
+        }));
+    }
+
+    private static BitStorage randomStorage(Random random, int bitsPerEntry, int size) {
+        int valuesPerLong = 64 / bitsPerEntry;
+        long[] data = new long[(size + valuesPerLong - 1) / valuesPerLong];
+        for (int index = 0; index < data.length; index++) {
+            // Padding bits are left random, as they may be in data read from the network.
+            data[index] = random.nextLong();
+        }
+
+        BitStorage storage = new BitStorage(bitsPerEntry, size, data);
+        if (bitsPerEntry > 4) {
+            // Make sure small values, including 0, occur in wide storages too.
+            for (int index = 0; index < size; index += 7) {
+                storage.set(index, random.nextInt(4));
+            }
+        }
+
+        return storage;
+    }
+
+    private static void assertMatches(BitStorage storage, int value) {
+        List<Integer> expected = new ArrayList<>();
+        for (int index = 0; index < storage.getSize(); index++) {
+            if (storage.get(index) == value) {
+                expected.add(index);
+            }
+        }
+
+        List<Integer> actual = new ArrayList<>();
+        int count = storage.forEachMatch(value, actual::add);
+        assertEquals("bitsPerEntry=" + storage.getBitsPerEntry() + ", size=" + storage.getSize() + ", value=" + value, expected, actual);
+        assertEquals(expected.size(), count);
+    }
+}
@@ -0,0 +1,158 @@
+package com.github.steveice10.mc.protocol.data.game.chunk;
+
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BlockRegionTest {
+    private static final int MIN_Y = -64;
+
+    private final Map<Long, Column> columns = new HashMap<>();
+    private final BlockRegion.ColumnSource source = (x, z) -> this.columns.get((long) x << 32 | (z & 0xFFFFFFFFL));
+
+    @Before
+    public void setup() {
+        for (int x = -1; x <= 1; x++) {
+            for (int z = -1; z <= 1; z++) {
+                this.columns.put((long) x << 32 | (z & 0xFFFFFFFFL), new Column(x, z, new Chunk[24], new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1536]));
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Random random = new Random(0);
+        int[] states = new int[20 * 40 * 20];
+        for (int index = 0; index < states.length; index++) {
+            states[index] = random.nextInt(8);
+        }
+
+        BlockRegion.write(this.source, MIN_Y, -10, -20, -10, 20, 40, 20, states);
+        assertArrayEquals(states, BlockRegion.read(this.source, MIN_Y, -10, -20, -10, 20, 40, 20));
+        assertBlockCounts();
+
+        // Blocks are stored where Chunk.get expects them.
+        Column column = this.source.getColumn(-1, -1);
+        assertEquals(states[0], column.getChunk((-20 - MIN_Y) >> 4).get(-10 & 15, -20 & 15, -10 & 15));
+    }
+
+    @Test
+    public void testPaletteResize() {
+        Random random = new Random(0);
+        for (int distinct : new int[]{1, 16, 17, 256, 257, 1000}) {
+            int[] states = new int[16 * 16 * 16];
+            for (int index = 0; index < states.length; index++) {
+                states[index] = index < distinct ? index : random.nextInt(distinct);
+            }
+
+            BlockRegion.write(this.source, MIN_Y, 0, 0, 0, 16, 16, 16, states);
+            assertArrayEquals("distinct=" + distinct, states, BlockRegion.read(this.source, MIN_Y, 0, 0, 0, 16, 16, 16));
+            assertBlockCounts();
+        }
+    }
+
+    @Test
+    public void testPartialSection() {
+        // Fill all 16 palette entries, with air first.
+        Chunk chunk = new Chunk();
+        for (int state = 0; state < 16; state++) {
+            chunk.set(state, 0, 0, state);
+        }
+
+        this.source.getColumn(0, 0).setChunk(4, chunk);
+        int[] states = {0, 20, 21, 22};
+        BlockRegion.write(this.source, MIN_Y, 0, 0, 0, 4, 1, 1, states);
+        assertEquals(5, chunk.storage().getBitsPerEntry());
+        assertArrayEquals(states, BlockRegion.read(this.source, MIN_Y, 0, 0, 0, 4, 1, 1));
+        for (int x = 4; x < 16; x++) {
+            assertEquals(x, chunk.get(x, 0, 0));
+        }
+
+        assertBlockCounts();
+    }
+
+    @Test
+    public void testSharedSection() {
+        ChunkSectionStore store = new ChunkSectionStore();
+        Chunk first = new Chunk();
+        first.set(0, 0, 0, 0);
+        first.set(0, 0, 0, 10);
+        Chunk second = new Chunk();
+        second.set(0, 0, 0, 0);
+        second.set(0, 0, 0, 10);
+        store.intern(first);
+        store.intern(second);
+
+        this.source.getColumn(0, 0).setChunk(4, second);
+        BlockRegion.write(this.source, MIN_Y, 0, 0, 0, 2, 1, 1, new int[]{11, 12});
+        assertEquals(10, first.get(0, 0, 0));
+        assertEquals(0, first.get(1, 0, 0));
+        assertEquals(11, second.get(0, 0, 0));
+        assertEquals(12, second.get(1, 0, 0));
+    }
+
+    @Test
+    public void testPartialWriteIntoMissingSection() {
+        BlockRegion.write(this.source, MIN_Y, 0, 0, 0, 2, 1, 1, new int[]{11, 12});
+        Chunk chunk = this.source.getColumn(0, 0).getChunk(4);
+        assertEquals(11, chunk.get(0, 0, 0));
+        assertEquals(12, chunk.get(1, 0, 0));
+        assertEquals(0, chunk.get(2, 0, 0));
+        assertEquals(2, chunk.getBlockCount());
+        assertEquals(0, chunk.getPalette().idToState(0));
+        assertBlockCounts();
+    }
+
+    @Test
+    public void testSetBlockIntoMissingSection() {
+        Column column = this.source.getColumn(0, 0);
+        column.setBlock(3, -MIN_Y + 5, 7, 11);
+        Chunk chunk = column.getChunk(4);
+        assertEquals(11, chunk.get(3, 5, 7));
+        assertEquals(0, chunk.get(0, 0, 0));
+        assertEquals(1, chunk.getBlockCount());
+
+        // The section is created with air in its palette, so only the block itself is stored.
+        assertEquals(1, chunk.getModCount());
+        assertEquals(2, chunk.getPalette().size());
+        assertEquals(0, chunk.getPalette().idToState(0));
+    }
+
+    @Test
+    public void testAirIntoMissingSection() {
+        BlockRegion.write(this.source, MIN_Y, 0, 0, 0, 16, 16, 16, new int[16 * 16 * 16]);
+        assertNull(this.source.getColumn(0, 0).getChunk(4));
+    }
+
+    private void assertBlockCounts() {
+        for (Column column : this.columns.values()) {
+            for (int index = 0; index < column.getChunkCount(); index++) {
+                Chunk chunk = column.getChunk(index);
+                if (chunk == null) {
+                    continue;
+                }
+
+                int count = 0;
+                for (int y = 0; y < 16; y++) {
+                    for (int z = 0; z < 16; z++) {
+                        for (int x = 0; x < 16; x++) {
+                            if (chunk.get(x, y, z) != 0) {
+                                count++;
+                            }
+                        }
+                    }
+                }
+
+                assertEquals(count, chunk.getBlockCount());
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.steveice10.mc.protocol.data.game.chunk;
+
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ChunkSectionStoreTest {
+    @Test
+    public void testCopyOnWrite() {
+        ChunkSectionStore store = new ChunkSectionStore();
+        Chunk first = new Chunk();
+        first.set(0, 0, 0, 10);
+        Chunk second = new Chunk();
+        second.set(0, 0, 0, 10);
+
+        store.intern(first);
+        store.intern(second);
+        assertSame(first.storage(), second.storage());
+        assertEquals(1, store.getEntryCount());
+        assertEquals(1, store.getHits());
+
+        second.set(0, 0, 0, 11);
+        assertNotSame(first.storage(), second.storage());
+        assertEquals(10, first.get(0, 0, 0));
+        assertEquals(11, second.get(0, 0, 0));
+        assertEquals(0, store.getSavedBytes());
+
+        store.release(first);
+        assertEquals(0, store.getEntryCount());
+    }
+
+    @Test
+    public void testUnsampledDifference() {
+        ChunkSectionStore store = new ChunkSectionStore();
+        Chunk first = new Chunk();
+        first.set(0, 0, 0, 10);
+        first.set(0, 0, 1, 10);
+        Chunk second = new Chunk();
+        second.set(0, 0, 0, 10);
+        second.set(1, 0, 1, 10);
+
+        store.intern(first);
+        store.intern(second);
+        assertNotSame(first.storage(), second.storage());
+        assertEquals(2, store.getEntryCount());
+        assertEquals(0, store.getHits());
+    }
+
+    @Test
+    public void testColumnSectionStore() throws Exception {
+        Chunk chunk = new Chunk();
+        chunk.set(1, 2, 3, 10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Chunk.write(new StreamNetOutput(out), chunk);
+        BitSet mask = new BitSet();
+        mask.set(0);
+
+        ChunkSectionStore store = new ChunkSectionStore();
+        Chunk copy = new Chunk();
+        copy.set(1, 2, 3, 10);
+        Column eager = new Column(0, 0, new Chunk[]{copy}, new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1024]);
+        eager.setSectionStore(store);
+        assertTrue(copy.isShared());
+
+        Column lazy = Column.lazy(1, 0, mask, 1, out.toByteArray(), new CompoundTag[0], new CompoundTag("HeightMaps"), BiomeStorage.of(new int[1024]));
+        lazy.setSectionStore(store);
+        assertEquals(1, store.getLookups());
+        assertSame(copy.storage(), lazy.getChunk(0).storage());
+        assertEquals(1, store.getHits());
+
+        Column unstored = Column.lazy(2, 0, mask, 1, out.toByteArray(), new CompoundTag[0], new CompoundTag("HeightMaps"), BiomeStorage.of(new int[1024]));
+        assertFalse(unstored.getChunk(0).isShared());
+        assertEquals(2, store.getLookups());
+    }
+}
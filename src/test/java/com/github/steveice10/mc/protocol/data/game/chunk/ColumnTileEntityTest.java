@@ -0,0 +1,94 @@
+package com.github.steveice10.mc.protocol.data.game.chunk;
+
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.opennbt.tag.builtin.IntTag;
+import com.github.steveice10.opennbt.tag.builtin.StringTag;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ColumnTileEntityTest {
+    @Test
+    public void testTagCopied() {
+        Column column = createColumn();
+        CompoundTag tag = new CompoundTag("");
+        tag.put(new StringTag("id", "minecraft:chest"));
+
+        column.setTileEntity(3, 70, 5, tag);
+        assertFalse(tag.contains("x"));
+
+        CompoundTag stored = column.getTileEntity(3, 70, 5);
+        assertNotSame(tag, stored);
+        assertEquals("minecraft:chest", ((StringTag) stored.get("id")).getValue());
+        assertEquals(3, ((IntTag) stored.get("x")).getValue().intValue());
+        assertEquals(70, ((IntTag) stored.get("y")).getValue().intValue());
+        assertEquals(5, ((IntTag) stored.get("z")).getValue().intValue());
+    }
+
+    @Test
+    public void testOrderKept() {
+        CompoundTag unpositioned = new CompoundTag("");
+        unpositioned.put(new StringTag("id", "unpositioned"));
+        Column column = new Column(0, 0, new Chunk[1], new CompoundTag[]{
+                tileEntity("a", 1, 1, 1), unpositioned, tileEntity("b", 2, 2, 2)
+        }, new CompoundTag("HeightMaps"), new int[1024]);
+
+        column.setTileEntity(1, 1, 1, tileEntity("a2", 0, 0, 0));
+        assertIds(column, "a2", "unpositioned", "b");
+
+        column.setTileEntity(3, 3, 3, tileEntity("c", 0, 0, 0));
+        assertIds(column, "a2", "unpositioned", "b", "c");
+
+        column.setTileEntity(2, 2, 2, null);
+        assertIds(column, "a2", "unpositioned", "c");
+
+        column.setTileEntity(2, 2, 2, tileEntity("b2", 0, 0, 0));
+        assertIds(column, "a2", "unpositioned", "c", "b2");
+        assertSame(unpositioned, column.getTileEntities()[1]);
+    }
+
+    @Test
+    public void testModification() {
+        Column column = createColumn();
+        CompoundTag[] tileEntities = column.getTileEntities();
+
+        int modCount = column.getModCount();
+        column.setTileEntity(0, 0, 0, null);
+        assertEquals(modCount, column.getModCount());
+        assertSame(tileEntities, column.getTileEntities());
+
+        column.setTileEntity(0, 0, 0, tileEntity("a", 0, 0, 0));
+        assertNotEquals(modCount, column.getModCount());
+        assertEquals(1, column.getTileEntities().length);
+
+        column.setTileEntity(0, 0, 0, null);
+        assertNull(column.getTileEntity(0, 0, 0));
+        assertEquals(0, column.getTileEntities().length);
+    }
+
+    private static Column createColumn() {
+        return new Column(0, 0, new Chunk[1], new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1024]);
+    }
+
+    private static CompoundTag tileEntity(String id, int x, int y, int z) {
+        CompoundTag tag = new CompoundTag("");
+        tag.put(new StringTag("id", id));
+        tag.put(new IntTag("x", x));
+        tag.put(new IntTag("y", y));
+        tag.put(new IntTag("z", z));
+        return tag;
+    }
+
+    private static void assertIds(Column column, String... ids) {
+        CompoundTag[] tileEntities = column.getTileEntities();
+        assertEquals(ids.length, tileEntities.length);
+        for (int index = 0; index < ids.length; index++) {
+            assertEquals(ids[index], ((StringTag) tileEntities[index].get("id")).getValue());
+        }
+    }
+}
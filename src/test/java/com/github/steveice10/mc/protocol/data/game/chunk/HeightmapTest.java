@@ -0,0 +1,150 @@
+package com.github.steveice10.mc.protocol.data.game.chunk;
+
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.opennbt.tag.builtin.LongArrayTag;
+import org.junit.Test;
+
+import java.util.function.IntPredicate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HeightmapTest {
+    private static final int STONE = 1;
+    private static final int LEAVES = 2;
+
+    private static final IntPredicate WORLD_SURFACE = state -> state != 0;
+    private static final IntPredicate MOTION_BLOCKING = state -> state != 0 && state != LEAVES;
+
+    @Test
+    public void testSizedFromWorldHeight() {
+        // Columns read from packets have as many chunk slots as the section mask has bits, not as the world has sections.
+        Column column = new Column(0, 0, new Chunk[64], new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1024]);
+        Heightmap heightmap = column.trackHeightmap(HeightmapType.WORLD_SURFACE, 384, WORLD_SURFACE);
+        assertEquals(37, Heightmap.getDataLength(384));
+        assertEquals(37, heightmap.toLongArray().length);
+        assertEquals(22, Heightmap.getDataLength(16));
+    }
+
+    @Test
+    public void testRecalculate() {
+        Column column = createColumn();
+        column.getChunk(1).set(2, 5, 3, STONE);
+        column.getChunk(2).set(2, 8, 3, LEAVES);
+
+        Heightmap surface = column.trackHeightmap(HeightmapType.WORLD_SURFACE, 64, WORLD_SURFACE);
+        Heightmap motion = column.trackHeightmap(HeightmapType.MOTION_BLOCKING, 64, MOTION_BLOCKING);
+        assertEquals(41, surface.get(2, 3));
+        assertEquals(22, motion.get(2, 3));
+        assertEquals(0, surface.get(3, 2));
+        assertEquals(0, motion.get(3, 2));
+
+        assertSame(surface, column.getHeightmap(HeightmapType.WORLD_SURFACE));
+        assertSame(surface, column.trackHeightmap(HeightmapType.WORLD_SURFACE, 64, MOTION_BLOCKING));
+    }
+
+    @Test
+    public void testUpdate() {
+        Column column = createColumn();
+        assertNull(column.getHeightmap(HeightmapType.WORLD_SURFACE));
+        Heightmap surface = column.trackHeightmap(HeightmapType.WORLD_SURFACE, 64, WORLD_SURFACE);
+        Heightmap motion = column.trackHeightmap(HeightmapType.MOTION_BLOCKING, 64, MOTION_BLOCKING);
+
+        column.setBlock(2, 21, 3, STONE);
+        column.setBlock(2, 40, 3, LEAVES);
+        assertEquals(41, surface.get(2, 3));
+        assertEquals(22, motion.get(2, 3));
+
+        column.setBlock(2, 50, 3, STONE);
+        assertEquals(51, surface.get(2, 3));
+        assertEquals(51, motion.get(2, 3));
+
+        column.setBlock(2, 50, 3, 0);
+        assertEquals(41, surface.get(2, 3));
+        assertEquals(22, motion.get(2, 3));
+
+        // Blocks below the top one do not change the height.
+        column.setBlock(2, 10, 3, STONE);
+        assertEquals(22, motion.get(2, 3));
+
+        // A section created for a block only holds that block.
+        column.setBlock(1, 60, 1, STONE);
+        assertEquals(61, surface.get(1, 1));
+        assertEquals(0, column.getBlock(0, 60, 0));
+        assertEquals(0, surface.get(0, 0));
+    }
+
+    @Test
+    public void testSet() {
+        Column column = createColumn();
+        Heightmap heightmap = column.trackHeightmap(HeightmapType.MOTION_BLOCKING, 64, MOTION_BLOCKING);
+        column.getHeightMaps();
+
+        int modCount = column.getModCount();
+        heightmap.set(3, 4, 12);
+        assertEquals(12, heightmap.get(3, 4));
+        assertTrue(column.getModCount() != modCount);
+
+        modCount = column.getModCount();
+        heightmap.set(3, 4, 12);
+        assertEquals(modCount, column.getModCount());
+
+        LongArrayTag tag = (LongArrayTag) column.getHeightMaps().get(HeightmapType.MOTION_BLOCKING.name());
+        assertArrayEquals(heightmap.toLongArray(), tag.getValue());
+    }
+
+    @Test
+    public void testPack() {
+        Heightmap heightmap = new Heightmap(HeightmapType.WORLD_SURFACE, 384, WORLD_SURFACE);
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                heightmap.set(x, z, (z * 16 + x) * 3 % 385);
+            }
+        }
+
+        // 9 bits per entry, 7 entries per long, entries do not span longs.
+        long[] data = heightmap.toLongArray();
+        assertEquals(37, data.length);
+        assertEquals(heightmap.get(0, 0), data[0] & 0x1FF);
+        assertEquals(heightmap.get(6, 0), data[0] >>> 54 & 0x1FF);
+        assertEquals(heightmap.get(7, 0), data[1] & 0x1FF);
+        assertEquals(heightmap.get(15, 15), data[36] >>> 27 & 0x1FF);
+
+        Heightmap read = new Heightmap(HeightmapType.WORLD_SURFACE, 384, data, WORLD_SURFACE);
+        assertEquals(heightmap, read);
+        assertFalse(read.equals(new Heightmap(HeightmapType.MOTION_BLOCKING, 384, data, WORLD_SURFACE)));
+    }
+
+    @Test
+    public void testParse() {
+        Heightmap source = new Heightmap(HeightmapType.WORLD_SURFACE, 64, WORLD_SURFACE);
+        source.set(5, 5, 33);
+        CompoundTag heightMaps = new CompoundTag("HeightMaps");
+        heightMaps.put(new LongArrayTag(HeightmapType.WORLD_SURFACE.name(), source.toLongArray()));
+
+        Column column = new Column(0, 0, new Chunk[4], new CompoundTag[0], heightMaps, new int[1024]);
+        assertEquals(33, column.trackHeightmap(HeightmapType.WORLD_SURFACE, 64, WORLD_SURFACE).get(5, 5));
+
+        // Heights packed for another world height are calculated from the blocks instead.
+        column = new Column(0, 0, new Chunk[4], new CompoundTag[0], heightMaps, new int[1024]);
+        Heightmap recalculated = column.trackHeightmap(HeightmapType.WORLD_SURFACE, 384, WORLD_SURFACE);
+        assertEquals(0, recalculated.get(5, 5));
+        assertEquals(37, recalculated.toLongArray().length);
+    }
+
+    private static Column createColumn() {
+        // The top section is left missing.
+        Chunk[] chunks = new Chunk[4];
+        for (int index = 0; index < 3; index++) {
+            chunks[index] = new Chunk();
+            // Air must be the first state in the palette of a new chunk.
+            chunks[index].set(0, 0, 0, 0);
+        }
+
+        return new Column(0, 0, chunks, new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1024]);
+    }
+}
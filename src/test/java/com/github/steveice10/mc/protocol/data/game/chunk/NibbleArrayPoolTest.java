@@ -0,0 +1,111 @@
+package com.github.steveice10.mc.protocol.data.game.chunk;
+
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerUpdateLightPacket;
+import com.github.steveice10.packetlib.io.stream.StreamNetInput;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NibbleArrayPoolTest {
+    @Test
+    public void testReuse() {
+        NibbleArrayPool pool = new NibbleArrayPool(2);
+        byte[] first = pool.acquire();
+        byte[] second = pool.acquire();
+        byte[] third = pool.acquire();
+        assertEquals(NibbleArrayPool.SECTION_SIZE, first.length);
+        assertNotSame(first, second);
+
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+        assertEquals(2, pool.getSize());
+
+        assertSame(first, pool.acquire());
+        assertSame(second, pool.acquire());
+        assertEquals(0, pool.getSize());
+        assertNotSame(third, pool.acquire());
+    }
+
+    @Test
+    public void testIgnoredArrays() {
+        NibbleArrayPool pool = new NibbleArrayPool(16);
+        pool.release(NibbleArrayPool.uniform(15));
+        pool.release(new byte[16]);
+        assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    public void testUniform() {
+        for (int level = 0; level < 16; level++) {
+            byte[] array = NibbleArrayPool.uniform(level);
+            assertTrue(NibbleArrayPool.isUniform(array));
+            assertEquals(level, NibbleArrayPool.uniformLevel(array));
+            assertEquals(level, NibbleArrayPool.uniformLevel(array.clone()));
+        }
+
+        byte[] array = new byte[NibbleArrayPool.SECTION_SIZE];
+        array[100] = 1;
+        assertEquals(-1, NibbleArrayPool.uniformLevel(array));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDoubleRelease() {
+        NibbleArrayPool pool = new NibbleArrayPool(16);
+        pool.setDebug(true);
+        byte[] array = pool.acquire();
+        pool.release(array);
+        pool.release(array);
+    }
+
+    @Test
+    public void testReleaseAfterReacquire() {
+        NibbleArrayPool pool = new NibbleArrayPool(16);
+        pool.setDebug(true);
+        byte[] array = pool.acquire();
+        pool.release(array);
+        assertSame(array, pool.acquire());
+        pool.release(array);
+        assertEquals(1, pool.getSize());
+    }
+
+    @Test
+    public void testPooledLightPacket() throws Exception {
+        byte[] varied = new byte[NibbleArrayPool.SECTION_SIZE];
+        for (int index = 0; index < varied.length; index++) {
+            varied[index] = (byte) index;
+        }
+
+        byte[] uniform = new byte[NibbleArrayPool.SECTION_SIZE];
+        Arrays.fill(uniform, (byte) 0xFF);
+        BitSet mask = new BitSet();
+        mask.set(1);
+        ServerUpdateLightPacket packet = new ServerUpdateLightPacket(0, 0, mask, mask, new BitSet(), new BitSet(),
+                Collections.singletonList(uniform), Collections.singletonList(varied), true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet.write(new StreamNetOutput(out));
+
+        NibbleArrayPool pool = new NibbleArrayPool(16);
+        pool.setDebug(true);
+        ServerUpdateLightPacket read = ServerUpdateLightPacket.read(new StreamNetInput(new ByteArrayInputStream(out.toByteArray())), pool);
+        assertSame(NibbleArrayPool.uniform(15), read.getSkyUpdates().get(0));
+        assertArrayEquals(varied, read.getBlockUpdates().get(0));
+        assertEquals(0, pool.getSize());
+
+        byte[] array = read.getBlockUpdates().get(0);
+        read.release(pool);
+        assertEquals(1, pool.getSize());
+        assertSame(array, pool.acquire());
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.data.game.entity.attribute.Attribute;
+import com.github.steveice10.mc.protocol.data.game.entity.attribute.AttributeModifier;
+import com.github.steveice10.mc.protocol.data.game.entity.attribute.AttributeType;
+import com.github.steveice10.mc.protocol.data.game.entity.attribute.ModifierOperation;
+import com.github.steveice10.mc.protocol.data.game.entity.attribute.PackedAttributes;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityPropertiesPacket;
+import com.github.steveice10.packetlib.io.stream.StreamNetInput;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EntityAttributeStoreTest {
+    private static final UUID FIRST = new UUID(1, 2);
+    private static final UUID SECOND = new UUID(3, 4);
+
+    @Test
+    public void testUpdatePacket() throws Exception {
+        EntityAttributeStore store = new EntityAttributeStore(8);
+        assertNull(store.createUpdatePacket());
+
+        assertTrue(store.setValue(AttributeType.GENERIC_ARMOR, 4));
+        assertTrue(store.setValue(AttributeType.GENERIC_MAX_HEALTH, 40));
+        ServerEntityPropertiesPacket packet = store.createUpdatePacket();
+        assertEquals(8, packet.getEntityId());
+        assertTypes(packet, AttributeType.GENERIC_MAX_HEALTH, AttributeType.GENERIC_ARMOR);
+        assertFalse(store.hasChanges());
+        assertNull(store.createUpdatePacket());
+
+        // Only attributes whose value changed are sent again.
+        assertFalse(store.setValue(AttributeType.GENERIC_MAX_HEALTH, 40));
+        assertTrue(store.setValue(AttributeType.GENERIC_ARMOR, 6));
+        packet = store.createUpdatePacket();
+        assertTypes(packet, AttributeType.GENERIC_ARMOR);
+        assertEquals(6, packet.getPackedAttributes().getValue(0), 0);
+        assertArrayEquals(encode(new ServerEntityPropertiesPacket(8, packet.getAttributes())), encode(packet));
+
+        // Snapshots contain every attribute and do not affect what is sent as an update.
+        ServerEntityPropertiesPacket snapshot = store.getSnapshotPacket();
+        assertTypes(snapshot, AttributeType.GENERIC_MAX_HEALTH, AttributeType.GENERIC_ARMOR);
+        assertSame(snapshot, store.getSnapshotPacket());
+        assertNull(store.createUpdatePacket());
+    }
+
+    @Test
+    public void testModifiers() {
+        EntityAttributeStore store = new EntityAttributeStore(8);
+        store.setValue(AttributeType.GENERIC_MAX_HEALTH, 20);
+        store.setValue(AttributeType.GENERIC_MOVEMENT_SPEED, 0.1);
+        store.createUpdatePacket();
+        ServerEntityPropertiesPacket snapshot = store.getSnapshotPacket();
+
+        // Adding a modifier marks only its attribute as changed.
+        assertTrue(store.setModifier(AttributeType.GENERIC_MOVEMENT_SPEED, FIRST, 0.25, ModifierOperation.ADD_MULTIPLIED));
+        assertTrue(store.setModifier(AttributeType.GENERIC_MOVEMENT_SPEED, SECOND, -0.5, ModifierOperation.MULTIPLY));
+        assertNotSame(snapshot, store.getSnapshotPacket());
+        PackedAttributes attributes = store.createUpdatePacket().getPackedAttributes();
+        assertEquals(1, attributes.size());
+        assertEquals(AttributeType.GENERIC_MOVEMENT_SPEED, attributes.getType(0));
+        assertEquals(2, attributes.getModifierCount(0));
+        assertEquals(FIRST, attributes.getModifierUuid(0, 0));
+        assertEquals(ModifierOperation.ADD_MULTIPLIED, attributes.getModifierOperation(0, 0));
+        assertEquals(SECOND.getMostSignificantBits(), attributes.getModifierUuidMost(0, 1));
+        assertEquals(SECOND.getLeastSignificantBits(), attributes.getModifierUuidLeast(0, 1));
+        assertEquals(-0.5, attributes.getModifierAmount(0, 1), 0);
+        assertEquals(ModifierOperation.MULTIPLY, attributes.getModifierOperation(0, 1));
+
+        assertFalse(store.setModifier(AttributeType.GENERIC_MOVEMENT_SPEED, FIRST, 0.25, ModifierOperation.ADD_MULTIPLIED));
+        assertNull(store.createUpdatePacket());
+        assertTrue(store.setModifier(AttributeType.GENERIC_MOVEMENT_SPEED, FIRST, 0.25, ModifierOperation.ADD));
+        assertTypes(store.createUpdatePacket(), AttributeType.GENERIC_MOVEMENT_SPEED);
+
+        // Removing a modifier marks its attribute as changed, and the other modifiers keep their order.
+        assertFalse(store.removeModifier(AttributeType.GENERIC_MAX_HEALTH, FIRST));
+        assertTrue(store.removeModifier(AttributeType.GENERIC_MOVEMENT_SPEED, FIRST));
+        assertFalse(store.removeModifier(AttributeType.GENERIC_MOVEMENT_SPEED, FIRST));
+        attributes = store.createUpdatePacket().getPackedAttributes();
+        assertEquals(1, attributes.size());
+        assertEquals(1, attributes.getModifierCount(0));
+        assertEquals(SECOND, attributes.getModifierUuid(0, 0));
+        assertEquals(1, store.getModifierCount(AttributeType.GENERIC_MOVEMENT_SPEED));
+    }
+
+    @Test
+    public void testIdentifiers() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamNetOutput netOut = new StreamNetOutput(out);
+        netOut.writeVarInt(3);
+        for (String identifier : new String[]{"generic.max_health", "minecraft:generic.armor", "forge:entity_gravity"}) {
+            netOut.writeString(identifier);
+            netOut.writeDouble(1);
+            netOut.writeVarInt(0);
+        }
+
+        PackedAttributes attributes = PackedAttributes.read(new StreamNetInput(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(AttributeType.GENERIC_MAX_HEALTH, attributes.getType(0));
+        assertEquals(AttributeType.GENERIC_ARMOR, attributes.getType(1));
+        assertEquals(AttributeType.ENTITY_GRAVITY, attributes.getType(2));
+    }
+
+    @Test
+    public void testPacketAttributes() throws Exception {
+        List<Attribute> list = Collections.singletonList(new Attribute(AttributeType.GENERIC_MOVEMENT_SPEED, 0.1,
+                Collections.singletonList(new AttributeModifier(FIRST, 0.25, ModifierOperation.ADD_MULTIPLIED))));
+        ServerEntityPropertiesPacket packet = new ServerEntityPropertiesPacket(8, list);
+
+        // Attributes are packed once, and reading them back does not change the packet.
+        PackedAttributes packed = packet.getPackedAttributes();
+        byte[] encoded = encode(packet);
+        assertEquals(list, packet.getAttributes());
+        assertSame(packed, packet.getPackedAttributes());
+        assertArrayEquals(encoded, encode(packet));
+        assertEquals(packet, new ServerEntityPropertiesPacket(8, packed));
+    }
+
+    private static void assertTypes(ServerEntityPropertiesPacket packet, AttributeType... types) {
+        PackedAttributes attributes = packet.getPackedAttributes();
+        assertEquals(types.length, attributes.size());
+        for (int index = 0; index < types.length; index++) {
+            assertEquals(types[index], attributes.getType(index));
+        }
+    }
+
+    private static byte[] encode(ServerEntityPropertiesPacket packet) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet.write(new StreamNetOutput(out));
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.TestSession;
+import com.github.steveice10.mc.protocol.data.game.entity.type.EntityType;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityPositionPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntitySetPassengersPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityTeleportPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerRemoveEntitiesPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn.ServerSpawnEntityPacket;
+import com.github.steveice10.packetlib.event.session.PacketReceivedEvent;
+import com.github.steveice10.packetlib.packet.Packet;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class EntityCacheTest {
+    private final EntityCache cache = new EntityCache();
+    private final TestSession session = new TestSession();
+
+    @Test
+    public void testPassengers() {
+        this.spawn(1, EntityType.BOAT, 0.5, 64, 0.5);
+        this.spawn(2, EntityType.ZOMBIE, 0.5, 64, 0.5);
+        this.spawn(3, EntityType.ZOMBIE, 0.5, 64, 0.5);
+        this.receive(new ServerEntitySetPassengersPacket(1, new int[]{2, 3}));
+        assertArrayEquals(new int[]{2, 3}, this.cache.getEntity(1).getPassengerIds());
+        assertEquals(1, this.cache.getEntity(2).getVehicleId());
+        assertEquals(1, this.cache.getEntity(3).getVehicleId());
+
+        // Entities left out of a new passenger list no longer ride the vehicle.
+        this.receive(new ServerEntitySetPassengersPacket(1, new int[]{3}));
+        assertEquals(-1, this.cache.getEntity(2).getVehicleId());
+        assertEquals(1, this.cache.getEntity(3).getVehicleId());
+
+        this.receive(new ServerRemoveEntitiesPacket(new int[]{3}));
+        assertArrayEquals(new int[0], this.cache.getEntity(1).getPassengerIds());
+
+        this.receive(new ServerEntitySetPassengersPacket(1, new int[]{2}));
+        this.receive(new ServerRemoveEntitiesPacket(new int[]{1}));
+        assertEquals(-1, this.cache.getEntity(2).getVehicleId());
+    }
+
+    @Test
+    public void testSpawnReplacesEntity() {
+        this.spawn(1, EntityType.BOAT, 0.5, 64, 0.5);
+        this.spawn(2, EntityType.ZOMBIE, 0.5, 64, 0.5);
+        this.receive(new ServerEntitySetPassengersPacket(1, new int[]{2}));
+
+        this.spawn(2, EntityType.PIG, 100.5, 64, 100.5);
+        assertEquals(2, this.cache.getEntityCount());
+        CachedEntity entity = this.cache.getEntity(2);
+        assertEquals(EntityType.PIG, entity.getType());
+        assertEquals(-1, entity.getVehicleId());
+        assertArrayEquals(new int[0], this.cache.getEntity(1).getPassengerIds());
+        assertArrayEquals(new int[]{1}, ids(this.cache.getEntitiesInRange(0.5, 64, 0.5, 8)));
+        assertArrayEquals(new int[]{2}, ids(this.cache.getEntitiesInRange(100.5, 64, 100.5, 8)));
+    }
+
+    @Test
+    public void testCellMoves() {
+        this.spawn(1, EntityType.ZOMBIE, 15.5, 64, 0.5);
+        this.spawn(2, EntityType.ZOMBIE, 8.5, 64, 0.5);
+        this.spawn(3, EntityType.ZOMBIE, 4.5, 64, 0.5);
+
+        // One block east crosses into the next chunk.
+        this.receive(ServerEntityPositionPacket.ofRaw(1, (short) 4096, (short) 0, (short) 0, true));
+        assertEquals(16.5, this.cache.getEntity(1).getX(), 0);
+        assertArrayEquals(new int[]{2, 3}, ids(this.cache.getEntitiesInBox(0, 0, 0, 15.9, 128, 15.9)));
+        assertArrayEquals(new int[]{1}, ids(this.cache.getEntitiesInBox(16, 0, 0, 31.9, 128, 15.9)));
+
+        // Seventeen blocks west ends up at a negative coordinate, which belongs to chunk -1.
+        this.receive(ServerEntityPositionPacket.ofRaw(1, (short) (-4096 * 8), (short) 0, (short) 0, true));
+        this.receive(ServerEntityPositionPacket.ofRaw(1, (short) (-4096 * 8), (short) 0, (short) 0, true));
+        this.receive(ServerEntityPositionPacket.ofRaw(1, (short) -4096, (short) 0, (short) 0, true));
+        assertEquals(-0.5, this.cache.getEntity(1).getX(), 0);
+        assertArrayEquals(new int[]{1}, ids(this.cache.getEntitiesInBox(-1, 0, 0, -0.1, 128, 15.9)));
+        assertArrayEquals(new int[]{2, 3}, ids(this.cache.getEntitiesInBox(0, 0, 0, 15.9, 128, 15.9)));
+
+        this.receive(new ServerEntityTeleportPacket(2, 1000.5, 64, -1000.5, 0f, 0f, true));
+        assertArrayEquals(new int[]{3}, ids(this.cache.getEntitiesInBox(0, 0, 0, 15.9, 128, 15.9)));
+        assertArrayEquals(new int[]{2}, ids(this.cache.getEntitiesInRange(1000.5, 64, -1000.5, 1)));
+
+        this.receive(new ServerRemoveEntitiesPacket(new int[]{3}));
+        assertArrayEquals(new int[0], ids(this.cache.getEntitiesInBox(0, 0, 0, 15.9, 128, 15.9)));
+        assertArrayEquals(new int[]{1, 2}, ids(this.cache.getEntities()));
+    }
+
+    @Test
+    public void testSnapshots() {
+        this.spawn(1, EntityType.ZOMBIE, 0.5, 64, 0.5);
+        CachedEntity snapshot = this.cache.getEntity(1);
+        assertNotSame(snapshot, this.cache.getEntity(1));
+
+        this.receive(ServerEntityPositionPacket.ofRaw(1, (short) 4096, (short) 0, (short) 0, false));
+        assertEquals(0.5, snapshot.getX(), 0);
+        assertEquals(1.5, this.cache.getEntity(1).getX(), 0);
+        assertEquals(1.5, this.cache.getEntitiesInRange(1.5, 64, 0.5, 1).get(0).getX(), 0);
+
+        this.receive(new ServerRemoveEntitiesPacket(new int[]{1}));
+        assertNull(this.cache.getEntity(1));
+        assertEquals(0.5, snapshot.getX(), 0);
+    }
+
+    private void spawn(int entityId, EntityType type, double x, double y, double z) {
+        this.receive(new ServerSpawnEntityPacket(entityId, UUID.randomUUID(), type, x, y, z, 0, 0));
+    }
+
+    private void receive(Packet packet) {
+        this.cache.packetReceived(new PacketReceivedEvent(this.session.getSession(), packet));
+    }
+
+    private static int[] ids(List<CachedEntity> entities) {
+        return entities.stream().mapToInt(CachedEntity::getEntityId).sorted().toArray();
+    }
+}
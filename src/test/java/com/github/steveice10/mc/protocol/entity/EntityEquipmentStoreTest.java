@@ -0,0 +1,140 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.data.game.entity.EquipmentSlot;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.Equipment;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.ItemStack;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityEquipmentPacket;
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.opennbt.tag.builtin.IntTag;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import com.github.steveice10.packetlib.packet.Packet;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EntityEquipmentStoreTest {
+    @Test
+    public void testUpdatePacket() throws IOException {
+        EntityEquipmentStore store = new EntityEquipmentStore(4);
+        assertNull(store.createUpdatePacket());
+
+        assertTrue(store.setItem(EquipmentSlot.HELMET, new ItemStack(5)));
+        assertTrue(store.setItem(EquipmentSlot.MAIN_HAND, new ItemStack(7, 2)));
+        ServerEntityEquipmentPacket packet = store.createUpdatePacket();
+        assertEquals(4, packet.getEntityId());
+        assertSlots(packet, EquipmentSlot.MAIN_HAND, EquipmentSlot.HELMET);
+        assertFalse(store.hasChanges());
+        assertNull(store.createUpdatePacket());
+
+        // Only slots that changed since the last update are sent.
+        assertFalse(store.setItem(EquipmentSlot.HELMET, new ItemStack(5)));
+        assertTrue(store.setItem(EquipmentSlot.MAIN_HAND, new ItemStack(7, 3)));
+        packet = store.createUpdatePacket();
+        assertSlots(packet, EquipmentSlot.MAIN_HAND);
+        assertEquals(new ItemStack(7, 3), packet.getEquipment()[0].getItem());
+        assertArrayEquals(encode(new ServerEntityEquipmentPacket(4, packet.getEquipment())), encode(packet));
+    }
+
+    @Test
+    public void testEncodingsReused() throws Exception {
+        EntityEquipmentStore store = new EntityEquipmentStore(4);
+        store.setItem(EquipmentSlot.HELMET, new ItemStack(5));
+        store.setItem(EquipmentSlot.BOOTS, new ItemStack(6));
+        ServerEntityEquipmentPacket update = store.createUpdatePacket();
+
+        // Every viewer gets the same snapshot, and it writes the bytes encoded for the update.
+        ServerEntityEquipmentPacket snapshot = store.getSnapshotPacket();
+        assertSame(snapshot, store.getSnapshotPacket());
+        assertSame(encodedItems(update)[0], encodedItems(snapshot)[0]);
+        assertSame(encodedItems(update)[1], encodedItems(snapshot)[1]);
+
+        // Changing one slot encodes that slot again and keeps the other encoding.
+        store.setItem(EquipmentSlot.HELMET, new ItemStack(8));
+        ServerEntityEquipmentPacket changed = store.getSnapshotPacket();
+        assertNotSame(snapshot, changed);
+        assertSame(encodedItems(snapshot)[0], encodedItems(changed)[0]);
+        assertNotSame(encodedItems(snapshot)[1], encodedItems(changed)[1]);
+        assertArrayEquals(encode(new ServerEntityEquipmentPacket(4, changed.getEquipment())), encode(changed));
+    }
+
+    @Test
+    public void testClearSlot() throws IOException {
+        EntityEquipmentStore store = new EntityEquipmentStore(4);
+        assertFalse(store.setItem(EquipmentSlot.OFF_HAND, null));
+        store.setItem(EquipmentSlot.OFF_HAND, new ItemStack(9));
+        store.createUpdatePacket();
+
+        assertTrue(store.setItem(EquipmentSlot.OFF_HAND, null));
+        assertNull(store.getItem(EquipmentSlot.OFF_HAND));
+        ServerEntityEquipmentPacket packet = store.createUpdatePacket();
+        assertSlots(packet, EquipmentSlot.OFF_HAND);
+        assertNull(packet.getEquipment()[0].getItem());
+        assertArrayEquals(encode(new ServerEntityEquipmentPacket(4, packet.getEquipment())), encode(packet));
+
+        // New viewers are not sent empty slots.
+        assertNull(store.getSnapshotPacket());
+    }
+
+    @Test
+    public void testItemsCopied() throws IOException {
+        CompoundTag nbt = new CompoundTag("");
+        nbt.put(new IntTag("Damage", 1));
+        ItemStack item = new ItemStack(5, 1, nbt);
+
+        EntityEquipmentStore store = new EntityEquipmentStore(4);
+        store.setItem(EquipmentSlot.HELMET, item);
+        byte[] encoded = encode(store.getSnapshotPacket());
+
+        nbt.put(new IntTag("Damage", 2));
+        assertEquals(1, ((IntTag) store.getItem(EquipmentSlot.HELMET).getNbt().get("Damage")).getValue().intValue());
+        assertArrayEquals(encoded, encode(store.getSnapshotPacket()));
+        assertTrue(store.setItem(EquipmentSlot.HELMET, item));
+    }
+
+    @Test
+    public void testWithEquipment() throws Exception {
+        EntityEquipmentStore store = new EntityEquipmentStore(4);
+        store.setItem(EquipmentSlot.HELMET, new ItemStack(5));
+        store.setItem(EquipmentSlot.BOOTS, new ItemStack(6));
+        ServerEntityEquipmentPacket packet = store.getSnapshotPacket();
+
+        Equipment[] equipment = {
+                new Equipment(EquipmentSlot.HELMET, new ItemStack(5)),
+                new Equipment(EquipmentSlot.BOOTS, new ItemStack(7))
+        };
+        ServerEntityEquipmentPacket changed = packet.withEquipment(equipment);
+        assertSame(encodedItems(packet)[1], encodedItems(changed)[0]);
+        assertNull(encodedItems(changed)[1]);
+        assertArrayEquals(encode(new ServerEntityEquipmentPacket(4, equipment)), encode(changed));
+    }
+
+    private static void assertSlots(ServerEntityEquipmentPacket packet, EquipmentSlot... slots) {
+        Equipment[] equipment = packet.getEquipment();
+        assertEquals(slots.length, equipment.length);
+        for (int index = 0; index < slots.length; index++) {
+            assertEquals(slots[index], equipment[index].getSlot());
+        }
+    }
+
+    private static byte[][] encodedItems(ServerEntityEquipmentPacket packet) throws Exception {
+        Field field = ServerEntityEquipmentPacket.class.getDeclaredField("encodedItems");
+        field.setAccessible(true);
+        return (byte[][]) field.get(packet);
+    }
+
+    private static byte[] encode(Packet packet) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet.write(new StreamNetOutput(out));
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.ByteEntityMetadata;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.EntityMetadata;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.MetadataType;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityMetadataPacket;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EntityMetadataStoreTest {
+    @Test
+    public void testUpdatePacket() {
+        EntityMetadataStore store = new EntityMetadataStore(12);
+        assertNull(store.createUpdatePacket());
+
+        assertTrue(store.setFloat(9, 2.5f));
+        assertTrue(store.setByte(0, (byte) 1));
+        assertTrue(store.setInt(70, 3));
+        assertTrue(store.isDirty());
+
+        ServerEntityMetadataPacket packet = store.createUpdatePacket();
+        assertEquals(12, packet.getEntityId());
+        assertIds(packet, 0, 9, 70);
+        assertFalse(store.isDirty());
+        assertNull(store.createUpdatePacket());
+
+        // Unchanged values are not sent again.
+        assertFalse(store.setFloat(9, 2.5f));
+        assertFalse(store.setByte(0, (byte) 1));
+        assertFalse(store.set(new ByteEntityMetadata(0, (byte) 1)));
+        assertNull(store.createUpdatePacket());
+
+        assertTrue(store.setFloat(9, 3f));
+        assertTrue(store.setFlag(0, 0x20, true));
+        assertFalse(store.setFlag(0, 0x20, true));
+        packet = store.createUpdatePacket();
+        assertIds(packet, 0, 9);
+        assertEquals((byte) 0x21, packet.getMetadata()[0].getValue());
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    public void testTypeChange() {
+        EntityMetadataStore store = new EntityMetadataStore(1);
+        store.setInt(5, 7);
+        store.createUpdatePacket();
+
+        assertTrue(store.setInt(5, MetadataType.BLOCK_STATE, 7));
+        assertEquals(MetadataType.BLOCK_STATE, store.get(5).getType());
+        assertFalse(store.setInt(5, MetadataType.BLOCK_STATE, 7));
+    }
+
+    @Test
+    public void testSnapshotPacket() throws Exception {
+        EntityMetadataStore store = new EntityMetadataStore(12);
+        store.setByte(0, (byte) 1);
+        store.setBoolean(3, true);
+        store.setFloat(8, 20f);
+
+        ServerEntityMetadataPacket first = store.getSnapshotPacket();
+        assertIds(first, 0, 3, 8);
+        ServerEntityMetadataPacket second = store.getSnapshotPacket();
+        assertSame(first.getMetadata(), second.getMetadata());
+        assertArrayEquals(encode(new ServerEntityMetadataPacket(12, first.getMetadata())), encode(second));
+
+        // Snapshots do not mark entries as sent.
+        assertIds(store.createUpdatePacket(), 0, 3, 8);
+
+        store.setBoolean(3, false);
+        ServerEntityMetadataPacket third = store.getSnapshotPacket();
+        assertNotSame(first.getMetadata(), third.getMetadata());
+        assertEquals(false, third.getMetadata()[1].getValue());
+        assertArrayEquals(encode(new ServerEntityMetadataPacket(12, third.getMetadata())), encode(third));
+    }
+
+    @Test
+    public void testIdRange() {
+        EntityMetadataStore store = new EntityMetadataStore(1);
+        assertTrue(store.setByte(EntityMetadataStore.MAX_ENTRIES - 1, (byte) 1));
+
+        try {
+            store.setByte(EntityMetadataStore.MAX_ENTRIES, (byte) 1);
+            throw new AssertionError("Expected an exception for id 255.");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFlagOnOtherType() {
+        EntityMetadataStore store = new EntityMetadataStore(1);
+        store.setInt(0, 1);
+        store.setFlag(0, 0x20, true);
+    }
+
+    private static void assertIds(ServerEntityMetadataPacket packet, int... ids) {
+        EntityMetadata[] metadata = packet.getMetadata();
+        assertEquals(ids.length, metadata.length);
+        for (int index = 0; index < ids.length; index++) {
+            assertEquals(ids[index], metadata[index].getId());
+        }
+    }
+
+    private static byte[] encode(ServerEntityMetadataPacket packet) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet.write(new StreamNetOutput(out));
+        return out.toByteArray();
+    }
+}
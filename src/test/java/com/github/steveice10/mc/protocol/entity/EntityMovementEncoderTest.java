@@ -0,0 +1,162 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityHeadLookPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityPositionPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityPositionRotationPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityRotationPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityTeleportPacket;
+import com.github.steveice10.packetlib.packet.Packet;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EntityMovementEncoderTest {
+    private static final double STEP = 1 / 4096D;
+
+    // Moves from (0, 64, 0) with yaw 0, pitch 0 and on ground, and the packet each one is expected to produce.
+    private static final Object[][] MOVES = {
+            {"unchanged", 0D, 64D, 0D, 0F, 0F, true, null},
+            {"below fixed point", STEP / 2, 64D, 0D, 0F, 0F, true, null},
+            {"on ground only", 0D, 64D, 0D, 0F, 0F, false, ServerEntityPositionPacket.class},
+            {"rotation only", 0D, 64D, 0D, 90F, 0F, true, ServerEntityRotationPacket.class},
+            {"move and rotation", 1D, 64D, 0D, 90F, -45F, true, ServerEntityPositionRotationPacket.class},
+            {"just below +8", 8 - STEP, 64D, 0D, 0F, 0F, true, ServerEntityPositionPacket.class},
+            {"exactly +8", 8D, 64D, 0D, 0F, 0F, true, ServerEntityTeleportPacket.class},
+            {"exactly -8", 0D, 56D, 0D, 0F, 0F, true, ServerEntityPositionPacket.class},
+            {"just beyond -8", 0D, 56 - STEP, 0D, 0F, 0F, true, ServerEntityTeleportPacket.class},
+            {"beyond +8 on one axis", 1D, 64D, 100D, 0F, 0F, true, ServerEntityTeleportPacket.class}
+    };
+
+    private static final float[] ANGLES = {-0.5F, -1F, -1.5F, -45F, -45.5F, -100F, -180F, -359.9F, 270F, 359.9F};
+
+    @Test
+    public void testMoves() {
+        for (Object[] move : MOVES) {
+            String name = (String) move[0];
+            EntityMovementEncoder encoder = new EntityMovementEncoder();
+            encoder.add(1, 0, 64, 0, 0, 0, 0, true);
+            encoder.move(1, (double) move[1], (double) move[2], (double) move[3], (float) move[4], (float) move[5], (boolean) move[6]);
+            List<Packet> packets = encoder.flush();
+
+            Class<?> expected = (Class<?>) move[7];
+            if (expected == null) {
+                assertTrue(name, packets.isEmpty());
+                continue;
+            }
+
+            assertEquals(name, 1, packets.size());
+            assertEquals(name, expected, packets.get(0).getClass());
+            assertTrue(name, encoder.flush().isEmpty());
+        }
+    }
+
+    @Test
+    public void testShortMoveBoundary() {
+        EntityMovementEncoder encoder = new EntityMovementEncoder();
+        encoder.add(1, 0, 64, 0, 0, 0, 0, true);
+        encoder.move(1, 8 - STEP, 56, 0, 0, 0, true);
+        ServerEntityPositionPacket packet = (ServerEntityPositionPacket) encoder.flush().get(0);
+        assertEquals(Short.MAX_VALUE, packet.getRawMoveX());
+        assertEquals(Short.MIN_VALUE, packet.getRawMoveY());
+        assertEquals(0, packet.getRawMoveZ());
+    }
+
+    @Test
+    public void testOnGroundOnly() {
+        EntityMovementEncoder encoder = new EntityMovementEncoder();
+        encoder.add(1, 0.3, 64, 0.7, 0, 0, 0, false);
+        encoder.move(1, 0.3, 64, 0.7, 0, 0, true);
+        ServerEntityPositionPacket packet = (ServerEntityPositionPacket) encoder.flush().get(0);
+        assertEquals(0, packet.getRawMoveX());
+        assertEquals(0, packet.getRawMoveY());
+        assertEquals(0, packet.getRawMoveZ());
+        assertTrue(packet.isOnGround());
+    }
+
+    @Test
+    public void testResyncInterval() {
+        EntityMovementEncoder encoder = new EntityMovementEncoder(3);
+        encoder.add(1, 0, 64, 0, 0, 0, 0, true);
+        for (int tick = 1; tick <= 3; tick++) {
+            encoder.move(1, tick, 64, 0, 0, 0, true);
+            assertEquals(ServerEntityPositionPacket.class, encoder.flush().get(0).getClass());
+        }
+
+        encoder.move(1, 4, 64, 0, 0, 0, true);
+        ServerEntityTeleportPacket teleport = (ServerEntityTeleportPacket) encoder.flush().get(0);
+        assertEquals(4, teleport.getX(), 0);
+
+        // The interval restarts at the teleport, and an entity that does not change is never resynced.
+        for (int tick = 0; tick < 5; tick++) {
+            assertTrue(encoder.flush().isEmpty());
+        }
+
+        encoder.move(1, 5, 64, 0, 0, 0, true);
+        assertEquals(ServerEntityTeleportPacket.class, encoder.flush().get(0).getClass());
+        encoder.move(1, 6, 64, 0, 0, 0, true);
+        assertEquals(ServerEntityPositionPacket.class, encoder.flush().get(0).getClass());
+    }
+
+    @Test
+    public void testNoResync() {
+        EntityMovementEncoder encoder = new EntityMovementEncoder(0);
+        encoder.add(1, 0, 64, 0, 0, 0, 0, true);
+        for (int tick = 1; tick <= 1000; tick++) {
+            encoder.move(1, tick % 2, 64, 0, 0, 0, true);
+            assertEquals(ServerEntityPositionPacket.class, encoder.flush().get(0).getClass());
+        }
+    }
+
+    @Test
+    public void testHeadYawOnly() {
+        EntityMovementEncoder encoder = new EntityMovementEncoder();
+        encoder.add(1, 0, 64, 0, 0, 0, 0, true);
+        encoder.setHeadYaw(1, 90);
+        List<Packet> packets = encoder.flush();
+        assertEquals(1, packets.size());
+        assertEquals(64, ((ServerEntityHeadLookPacket) packets.get(0)).getRawHeadYaw());
+
+        encoder.setHeadYaw(1, 90);
+        assertTrue(encoder.flush().isEmpty());
+
+        encoder.move(1, 1, 64, 0, 0, 0, true);
+        encoder.setHeadYaw(1, 180);
+        packets = encoder.flush();
+        assertEquals(2, packets.size());
+        assertEquals(ServerEntityPositionPacket.class, packets.get(0).getClass());
+        assertEquals(ServerEntityHeadLookPacket.class, packets.get(1).getClass());
+    }
+
+    @Test
+    public void testNegativeAngles() {
+        for (float angle : ANGLES) {
+            String name = String.valueOf(angle);
+            byte expected = new ServerEntityRotationPacket(1, angle, angle, true).getRawYaw();
+            assertEquals(name, expected, new ServerEntityHeadLookPacket(1, angle).getRawHeadYaw());
+
+            EntityMovementEncoder encoder = new EntityMovementEncoder();
+            encoder.add(1, 0, 64, 0, 0, 0, 0, true);
+            encoder.move(1, 0, 64, 0, angle, angle, true);
+            encoder.setHeadYaw(1, angle);
+            List<Packet> packets = encoder.flush();
+            if (expected == 0) {
+                assertTrue(name, packets.isEmpty());
+                continue;
+            }
+
+            ServerEntityRotationPacket rotation = (ServerEntityRotationPacket) packets.get(0);
+            assertEquals(name, expected, rotation.getRawYaw());
+            assertEquals(name, expected, rotation.getRawPitch());
+            assertEquals(name, expected, ((ServerEntityHeadLookPacket) packets.get(1)).getRawHeadYaw());
+
+            // An entity added with the angle it was spawned with has nothing to send.
+            encoder.add(2, 0, 64, 0, angle, angle, angle, true);
+            encoder.move(2, 0, 64, 0, angle, angle, true);
+            encoder.setHeadYaw(2, angle);
+            assertTrue(name, encoder.flush().isEmpty());
+        }
+    }
+}
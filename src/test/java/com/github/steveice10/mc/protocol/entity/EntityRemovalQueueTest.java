@@ -0,0 +1,125 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.TestSession;
+import com.github.steveice10.mc.protocol.data.game.entity.type.EntityType;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityHeadLookPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerRemoveEntitiesPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn.ServerSpawnEntityPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn.ServerSpawnExpOrbPacket;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import com.github.steveice10.packetlib.packet.BufferedPacket;
+import com.github.steveice10.packetlib.packet.Packet;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EntityRemovalQueueTest {
+    private final TestSession session = new TestSession();
+    private final EntityRemovalQueue queue = new EntityRemovalQueue(this.session.getSession());
+
+    @Test
+    public void testBatchedRemovals() {
+        this.queue.remove(1);
+        this.queue.remove(2);
+        this.queue.remove(1);
+        assertEquals(2, this.queue.getPendingCount());
+        assertTrue(this.queue.isPending(1));
+        assertFalse(this.queue.isPending(3));
+        assertTrue(this.session.getSentPackets().isEmpty());
+
+        this.queue.flush();
+        this.queue.flush();
+        List<Packet> packets = this.session.getSentPackets();
+        assertEquals(1, packets.size());
+        assertArrayEquals(new int[]{1, 2}, ((ServerRemoveEntitiesPacket) packets.get(0)).getEntityIds());
+        assertFalse(this.queue.isPending(1));
+
+        // An id flushed before may be removed again.
+        this.queue.remove(1);
+        this.queue.flush();
+        assertArrayEquals(new int[]{1}, ((ServerRemoveEntitiesPacket) this.session.getSentPackets().get(1)).getEntityIds());
+    }
+
+    @Test
+    public void testManyRemovals() {
+        for (int entityId = 0; entityId < 10000; entityId++) {
+            this.queue.remove(entityId);
+            this.queue.remove(entityId);
+        }
+
+        assertEquals(10000, this.queue.getPendingCount());
+        this.queue.flush();
+        int[] entityIds = ((ServerRemoveEntitiesPacket) this.session.getSentPackets().get(0)).getEntityIds();
+        assertEquals(10000, entityIds.length);
+        assertEquals(9999, entityIds[9999]);
+    }
+
+    @Test
+    public void testSpawnFlushesPendingRemoval() {
+        this.queue.remove(5);
+        this.queue.remove(6);
+        Packet other = new ServerSpawnExpOrbPacket(7, 0, 64, 0, 1);
+        this.queue.send(other);
+        assertEquals(2, this.queue.getPendingCount());
+
+        Packet spawn = new ServerSpawnEntityPacket(5, UUID.randomUUID(), EntityType.ZOMBIE, 0, 64, 0, 0, 0);
+        this.queue.send(spawn);
+        List<Packet> packets = this.session.getSentPackets();
+        assertEquals(3, packets.size());
+        assertSame(other, packets.get(0));
+        assertArrayEquals(new int[]{5, 6}, ((ServerRemoveEntitiesPacket) packets.get(1)).getEntityIds());
+        assertSame(spawn, packets.get(2));
+    }
+
+    @Test
+    public void testBufferedSpawnFlushesPendingRemoval() throws IOException {
+        this.queue.remove(300);
+
+        // A buffered packet that is not a spawn is sent as is, even if it starts with a pending id.
+        Packet headLook = buffer(ServerEntityHeadLookPacket.ofRaw(300, (byte) 0));
+        this.queue.send(headLook);
+        assertEquals(1, this.queue.getPendingCount());
+
+        Packet spawn = buffer(new ServerSpawnEntityPacket(301, UUID.randomUUID(), EntityType.ZOMBIE, 0, 64, 0, 0, 0));
+        this.queue.send(spawn);
+        assertEquals(1, this.queue.getPendingCount());
+
+        spawn = buffer(new ServerSpawnEntityPacket(300, UUID.randomUUID(), EntityType.ZOMBIE, 0, 64, 0, 0, 0));
+        this.queue.send(spawn);
+        List<Packet> packets = this.session.getSentPackets();
+        assertEquals(4, packets.size());
+        assertArrayEquals(new int[]{300}, ((ServerRemoveEntitiesPacket) packets.get(2)).getEntityIds());
+        assertSame(spawn, packets.get(3));
+    }
+
+    @Test
+    public void testSessionQueue() {
+        TestSession session = new TestSession();
+        EntityRemovalQueue.flushBeforeSpawn(session.getSession(), 1);
+        assertTrue(session.getSentPackets().isEmpty());
+
+        EntityRemovalQueue queue = EntityRemovalQueue.get(session.getSession());
+        assertSame(queue, EntityRemovalQueue.get(session.getSession()));
+        queue.remove(1);
+        EntityRemovalQueue.flushBeforeSpawn(session.getSession(), 2);
+        assertTrue(session.getSentPackets().isEmpty());
+        EntityRemovalQueue.flushBeforeSpawn(session.getSession(), 1);
+        assertEquals(1, session.getSentPackets().size());
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    private static Packet buffer(Packet packet) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet.write(new StreamNetOutput(out));
+        return new BufferedPacket(packet.getClass(), out.toByteArray());
+    }
+}
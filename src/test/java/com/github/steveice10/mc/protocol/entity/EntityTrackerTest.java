@@ -0,0 +1,164 @@
+package com.github.steveice10.mc.protocol.entity;
+
+import com.github.steveice10.mc.protocol.TestSession;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerEntityHeadLookPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.entity.ServerRemoveEntitiesPacket;
+import com.github.steveice10.packetlib.packet.BufferedPacket;
+import com.github.steveice10.packetlib.packet.Packet;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EntityTrackerTest {
+    private final EntityTracker tracker = new EntityTracker();
+
+    @Test
+    public void testShowAndHide() {
+        TestSession viewer = new TestSession();
+        this.tracker.addViewer(viewer.getSession(), 1, 8, 8, 2);
+        this.tracker.track(new TestEntity(1), 8, 8);
+        this.tracker.track(new TestEntity(2), 40, 8);
+        this.tracker.track(new TestEntity(3), 60, 8);
+        this.tracker.update();
+
+        // The viewer's own entity and entities out of range are not sent.
+        assertSpawns(viewer.getSentPackets(), 2);
+        assertEquals(1, this.tracker.getViewerCount(2));
+        assertEquals(0, this.tracker.getViewerCount(3));
+
+        this.tracker.move(2, 60, 8);
+        this.tracker.update();
+        List<Packet> packets = viewer.getSentPackets();
+        assertEquals(2, packets.size());
+        assertArrayEquals(new int[]{2}, ((ServerRemoveEntitiesPacket) packets.get(1)).getEntityIds());
+
+        this.tracker.moveViewer(viewer.getSession(), 40, 8);
+        this.tracker.update();
+        packets = viewer.getSentPackets();
+        assertEquals(4, packets.size());
+        assertEquals(1, this.tracker.getViewerCount(2));
+        assertEquals(1, this.tracker.getViewerCount(3));
+    }
+
+    @Test
+    public void testSpawnSharedBetweenViewers() {
+        TestSession first = new TestSession();
+        TestSession second = new TestSession();
+        this.tracker.addViewer(first.getSession(), -1, 0, 0, 2);
+        this.tracker.addViewer(second.getSession(), -1, 16, 0, 2);
+        TestEntity entity = new TestEntity(5);
+        this.tracker.track(entity, 8, 8);
+        this.tracker.update();
+
+        assertEquals(1, entity.spawnCount);
+        Packet packet = first.getSentPackets().get(0);
+        assertTrue(packet instanceof BufferedPacket);
+        assertSame(packet, second.getSentPackets().get(0));
+    }
+
+    @Test
+    public void testRemovesBeforeSpawns() {
+        TestSession viewer = new TestSession();
+        this.tracker.addViewer(viewer.getSession(), -1, 0, 0, 2);
+        this.tracker.track(new TestEntity(1), 0, 0);
+        this.tracker.update();
+
+        this.tracker.untrack(1);
+        this.tracker.track(new TestEntity(1), 0, 0);
+        this.tracker.track(new TestEntity(2), 0, 0);
+        this.tracker.update();
+
+        List<Packet> packets = viewer.getSentPackets();
+        assertEquals(4, packets.size());
+        assertArrayEquals(new int[]{1}, ((ServerRemoveEntitiesPacket) packets.get(1)).getEntityIds());
+        assertSpawns(packets.subList(2, 4), 1, 2);
+    }
+
+    @Test
+    public void testMovesBetweenUpdates() {
+        TestSession viewer = new TestSession();
+        this.tracker.addViewer(viewer.getSession(), -1, 0, 0, 1);
+        TestEntity entity = new TestEntity(1);
+        this.tracker.track(entity, 0, 0);
+        this.tracker.update();
+        assertEquals(1, viewer.getSentPackets().size());
+
+        // Only the position at the time of the update counts.
+        this.tracker.move(1, 160, 0);
+        this.tracker.move(1, 8, 8);
+        this.tracker.update();
+        assertEquals(1, viewer.getSentPackets().size());
+
+        // An entity that comes into range and leaves it again before the update is never spawned.
+        this.tracker.move(1, 160, 0);
+        this.tracker.update();
+        this.tracker.move(1, 0, 0);
+        this.tracker.move(1, 160, 0);
+        this.tracker.update();
+        assertEquals(2, viewer.getSentPackets().size());
+        assertEquals(1, entity.spawnCount);
+        assertEquals(0, this.tracker.getViewerCount(1));
+    }
+
+    @Test
+    public void testPendingRemovalFlushedBeforeSpawn() {
+        TestSession viewer = new TestSession();
+        EntityRemovalQueue.get(viewer.getSession()).remove(7);
+        this.tracker.addViewer(viewer.getSession(), -1, 0, 0, 2);
+        this.tracker.track(new TestEntity(7), 0, 0);
+        this.tracker.update();
+
+        List<Packet> packets = viewer.getSentPackets();
+        assertEquals(2, packets.size());
+        assertArrayEquals(new int[]{7}, ((ServerRemoveEntitiesPacket) packets.get(0)).getEntityIds());
+        assertSpawns(packets.subList(1, 2), 7);
+    }
+
+    @Test
+    public void testRemoveViewer() {
+        TestSession viewer = new TestSession();
+        this.tracker.addViewer(viewer.getSession(), -1, 0, 0, 2);
+        this.tracker.track(new TestEntity(1), 0, 0);
+        this.tracker.update();
+        assertEquals(1, this.tracker.getViewerCount(1));
+
+        this.tracker.removeViewer(viewer.getSession());
+        assertEquals(0, this.tracker.getViewerCount(1));
+        this.tracker.move(1, 20, 0);
+        this.tracker.update();
+        assertEquals(1, viewer.getSentPackets().size());
+    }
+
+    private static void assertSpawns(List<Packet> packets, int... entityIds) {
+        assertEquals(entityIds.length, packets.size());
+        for (int index = 0; index < entityIds.length; index++) {
+            assertEquals(entityIds[index], ((ServerEntityHeadLookPacket) packets.get(index)).getEntityId());
+        }
+    }
+
+    private static class TestEntity implements TrackedEntity {
+        private final int entityId;
+        private int spawnCount;
+
+        private TestEntity(int entityId) {
+            this.entityId = entityId;
+        }
+
+        @Override
+        public int getEntityId() {
+            return this.entityId;
+        }
+
+        @Override
+        public List<Packet> createSpawnPackets() {
+            this.spawnCount++;
+            return Collections.singletonList(ServerEntityHeadLookPacket.ofRaw(this.entityId, (byte) 0));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.steveice10.mc.protocol.packet.ingame.server.entity;
+
+import com.github.steveice10.mc.protocol.packet.PacketTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ServerEntityHeadLookPacketTest extends PacketTest {
+
+    @Before
+    public void setup() {
+        this.setPackets(
+                ServerEntityHeadLookPacket.ofRaw(3, (byte) -128),
+                ServerEntityHeadLookPacket.ofRaw(3, (byte) 127),
+                new ServerEntityHeadLookPacket(3, -45f)
+        );
+    }
+
+    @Test
+    public void testRawAccessors() {
+        ServerEntityHeadLookPacket packet = ServerEntityHeadLookPacket.ofRaw(3, (byte) 64);
+        assertEquals(64, packet.getRawHeadYaw());
+        assertEquals(90f, packet.getHeadYaw(), 0);
+        assertEquals(-32, packet.withRawHeadYaw((byte) -32).getRawHeadYaw());
+
+        // A float argument goes through the angle conversion instead of being taken as a raw value.
+        assertEquals(-32, new ServerEntityHeadLookPacket(3, -45f).getRawHeadYaw());
+        assertEquals(packet, new ServerEntityHeadLookPacket(3, packet.getHeadYaw()));
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.steveice10.mc.protocol.packet.ingame.server.entity;
+
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.BooleanEntityMetadata;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.ByteEntityMetadata;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.EntityMetadata;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.FloatEntityMetadata;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.IntEntityMetadata;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.MetadataType;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.Pose;
+import com.github.steveice10.mc.protocol.packet.PacketTest;
+import org.junit.Before;
+
+public class ServerEntityMetadataPacketTest extends PacketTest {
+    @Before
+    public void setup() {
+        this.setPackets(
+                new ServerEntityMetadataPacket(12, new EntityMetadata[] {
+                        new ByteEntityMetadata(0, (byte) 0x20),
+                        new IntEntityMetadata(1, 300),
+                        new EntityMetadata(2, MetadataType.STRING, "name"),
+                        new BooleanEntityMetadata(3, true),
+                        new EntityMetadata(6, MetadataType.POSE, Pose.SNEAKING),
+                        new FloatEntityMetadata(8, 20f),
+                        new IntEntityMetadata(9, MetadataType.BLOCK_STATE, 1),
+                        new EntityMetadata(10, MetadataType.INT, 5)
+                })
+        );
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.steveice10.mc.protocol.packet.ingame.server.entity;
+
+import com.github.steveice10.mc.protocol.packet.PacketTest;
+import org.junit.Before;
+
+public class ServerEntityPositionRotationPacketTest extends PacketTest {
+
+    @Before
+    public void setup() {
+        this.setPackets(
+                ServerEntityPositionRotationPacket.ofRaw(4, (short) -4096, (short) 1, (short) 32767, (byte) -128, (byte) 64, true),
+                new ServerEntityPositionRotationPacket(4, 1.5, -0.25, 7.99, 90f, -45f, false)
+        );
+    }
+}
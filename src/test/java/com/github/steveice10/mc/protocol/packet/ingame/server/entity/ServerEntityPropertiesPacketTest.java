@@ -0,0 +1,32 @@
+package com.github.steveice10.mc.protocol.packet.ingame.server.entity;
+
+import com.github.steveice10.mc.protocol.data.game.entity.attribute.Attribute;
+import com.github.steveice10.mc.protocol.data.game.entity.attribute.AttributeModifier;
+import com.github.steveice10.mc.protocol.data.game.entity.attribute.AttributeType;
+import com.github.steveice10.mc.protocol.data.game.entity.attribute.ModifierOperation;
+import com.github.steveice10.mc.protocol.entity.EntityAttributeStore;
+import com.github.steveice10.mc.protocol.packet.PacketTest;
+import org.junit.Before;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+public class ServerEntityPropertiesPacketTest extends PacketTest {
+
+    @Before
+    public void setup() {
+        EntityAttributeStore store = new EntityAttributeStore(3);
+        store.setValue(AttributeType.GENERIC_ARMOR, 4);
+        store.setModifier(AttributeType.ENTITY_GRAVITY, new UUID(5, 6), -0.5, ModifierOperation.MULTIPLY);
+
+        this.setPackets(
+                new ServerEntityPropertiesPacket(1, Collections.emptyList()),
+                new ServerEntityPropertiesPacket(2, Arrays.asList(
+                        new Attribute(AttributeType.GENERIC_MAX_HEALTH, 40),
+                        new Attribute(AttributeType.GENERIC_MOVEMENT_SPEED, 0.1, Collections.singletonList(
+                                new AttributeModifier(new UUID(1, 2), 0.25, ModifierOperation.ADD_MULTIPLIED))))),
+                store.getSnapshotPacket()
+        );
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.steveice10.mc.protocol.packet.ingame.server.entity;
+
+import com.github.steveice10.mc.protocol.packet.PacketTest;
+import com.github.steveice10.packetlib.io.stream.StreamNetInput;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import com.github.steveice10.packetlib.packet.Packet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ServerEntityVelocityPacketTest extends PacketTest {
+
+    @Before
+    public void setup() {
+        this.setPackets(
+                ServerEntityVelocityPacket.ofRaw(7, Short.MIN_VALUE, (short) 1, Short.MAX_VALUE),
+                new ServerEntityVelocityPacket(7, 0.5, -3.9, 0.001)
+        );
+    }
+
+    @Test
+    public void testRawRoundTrip() throws Exception {
+        ServerEntityVelocityPacket packet = ServerEntityVelocityPacket.ofRaw(7, Short.MIN_VALUE, (short) -1, Short.MAX_VALUE);
+        byte[] encoded = encode(packet);
+        assertArrayEquals(new byte[]{7, (byte) 0x80, 0, (byte) 0xFF, (byte) 0xFF, 0x7F, (byte) 0xFF}, encoded);
+
+        // Raw values are decoded and encoded as is, without a conversion to and from doubles.
+        ServerEntityVelocityPacket decoded = decode(encoded);
+        assertEquals(Short.MIN_VALUE, decoded.getRawMotionX());
+        assertEquals(-1, decoded.getRawMotionY());
+        assertEquals(Short.MAX_VALUE, decoded.getRawMotionZ());
+        assertArrayEquals(encoded, encode(decoded));
+        assertArrayEquals(encoded, encode(decoded.withRawMotionY((short) 1).withRawMotionY((short) -1)));
+
+        assertEquals(-1 / 8000D, decoded.getMotionY(), 0);
+        assertEquals(4000, new ServerEntityVelocityPacket(7, 0.5, 0, 0).getRawMotionX());
+    }
+
+    private static byte[] encode(Packet packet) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet.write(new StreamNetOutput(out));
+        return out.toByteArray();
+    }
+
+    private static ServerEntityVelocityPacket decode(byte[] data) throws Exception {
+        Constructor<ServerEntityVelocityPacket> constructor = ServerEntityVelocityPacket.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        ServerEntityVelocityPacket packet = constructor.newInstance();
+        packet.read(new StreamNetInput(new ByteArrayInputStream(data)));
+        return packet;
+    }
+}
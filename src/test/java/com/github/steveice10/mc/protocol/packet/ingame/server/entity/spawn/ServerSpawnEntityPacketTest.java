@@ -0,0 +1,35 @@
+package com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn;
+
+import com.github.steveice10.mc.protocol.data.game.entity.object.GenericObjectData;
+import com.github.steveice10.mc.protocol.data.game.entity.type.EntityType;
+import com.github.steveice10.mc.protocol.packet.PacketTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class ServerSpawnEntityPacketTest extends PacketTest {
+    private static final UUID UUID = new UUID(1, 2);
+
+    @Before
+    public void setup() {
+        this.setPackets(
+                ServerSpawnEntityPacket.ofRaw(5, UUID, EntityType.ZOMBIE, new GenericObjectData(0), 0.5, 64, -0.5,
+                        (byte) -128, (byte) 127, Short.MIN_VALUE, (short) 0, Short.MAX_VALUE),
+                new ServerSpawnEntityPacket(5, UUID, EntityType.ZOMBIE, 0.5, 64, -0.5, 90f, -45f, 0.25, 0, -0.25)
+        );
+    }
+
+    @Test
+    public void testRawAccessors() {
+        ServerSpawnEntityPacket packet = ServerSpawnEntityPacket.ofRaw(5, UUID, EntityType.ZOMBIE, new GenericObjectData(0), 0.5, 64, -0.5,
+                (byte) 64, (byte) -32, (short) 2000, (short) -1000, (short) 0);
+        assertEquals(packet, new ServerSpawnEntityPacket(5, UUID, EntityType.ZOMBIE, 0.5, 64, -0.5, 90f, -45f, 0.25, -0.125, 0));
+        assertEquals(90f, packet.getYaw(), 0);
+        assertEquals(-45f, packet.getPitch(), 0);
+        assertEquals(0.25, packet.getMotionX(), 0);
+        assertEquals(-1, packet.withRawMotionX((short) -1).getRawMotionX());
+    }
+}
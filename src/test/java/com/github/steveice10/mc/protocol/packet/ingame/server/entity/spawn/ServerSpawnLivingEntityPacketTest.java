@@ -0,0 +1,63 @@
+package com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn;
+
+import com.github.steveice10.mc.protocol.data.game.entity.type.EntityType;
+import com.github.steveice10.mc.protocol.packet.PacketTest;
+import com.github.steveice10.packetlib.io.stream.StreamNetInput;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import com.github.steveice10.packetlib.packet.Packet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ServerSpawnLivingEntityPacketTest extends PacketTest {
+    private static final UUID UUID = new UUID(1, 2);
+
+    @Before
+    public void setup() {
+        this.setPackets(
+                ServerSpawnLivingEntityPacket.ofRaw(5, UUID, EntityType.ZOMBIE, 0.5, 64, -0.5,
+                        (byte) -128, (byte) 127, (byte) 1, Short.MIN_VALUE, (short) 0, Short.MAX_VALUE),
+                new ServerSpawnLivingEntityPacket(5, UUID, EntityType.ZOMBIE, 0.5, 64, -0.5, -45f, 90f, 180f, 0.25, 0, -0.25)
+        );
+    }
+
+    @Test
+    public void testRawRoundTrip() throws Exception {
+        ServerSpawnLivingEntityPacket packet = ServerSpawnLivingEntityPacket.ofRaw(5, UUID, EntityType.ZOMBIE, 0.5, 64, -0.5,
+                (byte) -1, (byte) 127, (byte) -128, (short) -1, Short.MIN_VALUE, (short) 3);
+        byte[] encoded = encode(packet);
+        ServerSpawnLivingEntityPacket decoded = decode(encoded);
+        assertEquals(-1, decoded.getRawPitch());
+        assertEquals(127, decoded.getRawYaw());
+        assertEquals(-128, decoded.getRawHeadYaw());
+        assertEquals(-1, decoded.getRawMotionX());
+        assertEquals(Short.MIN_VALUE, decoded.getRawMotionY());
+        assertEquals(3, decoded.getRawMotionZ());
+        assertArrayEquals(encoded, encode(decoded));
+
+        assertEquals(-128 * 360 / 256f, decoded.getHeadYaw(), 0);
+        assertEquals(64, decoded.withHeadYaw(90f).getRawHeadYaw());
+    }
+
+    private static byte[] encode(Packet packet) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet.write(new StreamNetOutput(out));
+        return out.toByteArray();
+    }
+
+    private static ServerSpawnLivingEntityPacket decode(byte[] data) throws Exception {
+        Constructor<ServerSpawnLivingEntityPacket> constructor = ServerSpawnLivingEntityPacket.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        ServerSpawnLivingEntityPacket packet = constructor.newInstance();
+        packet.read(new StreamNetInput(new ByteArrayInputStream(data)));
+        return packet;
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.steveice10.mc.protocol.packet.ingame.server.entity.spawn;
+
+import com.github.steveice10.mc.protocol.packet.PacketTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class ServerSpawnPlayerPacketTest extends PacketTest {
+    private static final UUID UUID = new UUID(1, 2);
+
+    @Before
+    public void setup() {
+        this.setPackets(
+                ServerSpawnPlayerPacket.ofRaw(5, UUID, 0.5, 64, -0.5, (byte) -128, (byte) 127),
+                new ServerSpawnPlayerPacket(5, UUID, 0.5, 64, -0.5, 90f, -45f)
+        );
+    }
+
+    @Test
+    public void testRawAccessors() {
+        ServerSpawnPlayerPacket packet = ServerSpawnPlayerPacket.ofRaw(5, UUID, 0.5, 64, -0.5, (byte) 64, (byte) -32);
+        assertEquals(packet, new ServerSpawnPlayerPacket(5, UUID, 0.5, 64, -0.5, 90f, -45f));
+        assertEquals(90f, packet.getYaw(), 0);
+        assertEquals(-45f, packet.getPitch(), 0);
+        assertEquals(-128, packet.withRawYaw((byte) -128).getRawYaw());
+    }
+}
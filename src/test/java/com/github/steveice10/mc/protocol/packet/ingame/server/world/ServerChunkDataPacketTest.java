@@ -1,10 +1,26 @@
 package com.github.steveice10.mc.protocol.packet.ingame.server.world;
 
+import com.github.steveice10.mc.protocol.codec.ChunkDataCache;
+import com.github.steveice10.mc.protocol.data.game.NBT;
+import com.github.steveice10.mc.protocol.data.game.chunk.BiomeStorage;
 import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
 import com.github.steveice10.mc.protocol.data.game.chunk.Column;
 import com.github.steveice10.mc.protocol.packet.PacketTest;
 import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.packetlib.io.NetInput;
+import com.github.steveice10.packetlib.io.stream.StreamNetInput;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
 import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Constructor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 
 public class ServerChunkDataPacketTest extends PacketTest {
     @Before
@@ -35,4 +51,106 @@ public class ServerChunkDataPacketTest extends PacketTest {
                 )
         );
     }
+
+    @Test
+    public void testLazySectionDecoding() throws Exception {
+        byte[] encoded = encode(createLazyTestPacket());
+        ServerChunkDataPacket decoded = decode(ServerChunkDataPacket.Lazy.class, encoded);
+        assertArrayEquals(encoded, encode(decoded));
+
+        assertEquals(10, decoded.getColumn().getChunk(5).get(1, 2, 3));
+        decoded.getColumn().getChunk(5).set(1, 2, 3, 11);
+        assertEquals(11, decode(ServerChunkDataPacket.class, encode(decoded)).getColumn().getChunk(5).get(1, 2, 3));
+        assertEquals(10, decode(ServerChunkDataPacket.class, encode(decoded)).getColumn().getChunk(0).get(1, 2, 3));
+    }
+
+    @Test
+    public void testDirectStorageAccess() throws Exception {
+        ServerChunkDataPacket decoded = decode(ServerChunkDataPacket.Lazy.class, encode(createLazyTestPacket()));
+        Chunk chunk = decoded.getColumn().getChunk(0);
+        chunk.getMutableStorage().set(0, chunk.getStorage().get(1 | 2 << 8 | 3 << 4));
+        assertEquals(10, decode(ServerChunkDataPacket.class, encode(decoded)).getColumn().getChunk(0).get(0, 0, 0));
+    }
+
+    @Test
+    public void testReadingDoesNotModify() throws Exception {
+        byte[] encoded = encode(createLazyTestPacket());
+        Column first = decode(ServerChunkDataPacket.Lazy.class, encoded).getColumn();
+        Column second = decode(ServerChunkDataPacket.Lazy.class, encoded).getColumn();
+        Column eager = decode(ServerChunkDataPacket.class, encoded).getColumn();
+        assertEquals(first, second);
+        assertEquals(first, eager);
+        assertEquals(first.hashCode(), eager.hashCode());
+        assertFalse(first.isChunkDecoded(5));
+
+        Chunk chunk = first.getChunk(0);
+        chunk.getPalette();
+        chunk.getStorage();
+        assertEquals(0, chunk.getModCount());
+        assertEquals(first, eager);
+
+        chunk.set(0, 0, 0, 12);
+        assertNotEquals(first, eager);
+    }
+
+    @Test
+    public void testSectionDataLength() throws Exception {
+        ServerChunkDataPacket eager = createLazyTestPacket();
+        assertSectionDataLength(encode(eager), 2);
+
+        ServerChunkDataPacket lazy = decode(ServerChunkDataPacket.Lazy.class, encode(eager));
+        assertSectionDataLength(encode(lazy), 2);
+        lazy.getColumn().getChunk(5).set(15, 15, 15, 1234);
+        assertSectionDataLength(encode(lazy), 2);
+
+        ChunkDataCache cache = new ChunkDataCache(1 << 20);
+        ServerChunkDataPacket cached = decode(ServerChunkDataPacket.Lazy.class, encode(eager));
+        assertSectionDataLength(cache.encode(cached.getColumn()), 2);
+        assertSectionDataLength(encode(cached), 2);
+        cached.getColumn().getChunk(0).set(0, 0, 0, 5678);
+        assertSectionDataLength(cache.encode(cached.getColumn()), 2);
+    }
+
+    private static void assertSectionDataLength(byte[] encoded, int sections) throws Exception {
+        ByteArrayInputStream stream = new ByteArrayInputStream(encoded);
+        NetInput in = new StreamNetInput(stream);
+        in.readInt();
+        in.readInt();
+        in.readLongs(in.readVarInt());
+        NBT.read(in);
+        BiomeStorage.read(in);
+        int size = in.readVarInt();
+
+        NetInput dataIn = new StreamNetInput(new ByteArrayInputStream(in.readBytes(size)));
+        for (int index = 0; index < sections; index++) {
+            Chunk.read(dataIn);
+        }
+
+        assertEquals(0, dataIn.available());
+        assertEquals(0, in.readVarInt());
+        assertEquals(0, stream.available());
+    }
+
+    private static ServerChunkDataPacket createLazyTestPacket() {
+        Chunk chunk = new Chunk();
+        chunk.set(1, 2, 3, 10);
+        Chunk[] chunks = new Chunk[64];
+        chunks[0] = chunk;
+        chunks[5] = chunk;
+        return new ServerChunkDataPacket(new Column(0, 0, chunks, new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1024]));
+    }
+
+    private static byte[] encode(ServerChunkDataPacket packet) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet.write(new StreamNetOutput(out));
+        return out.toByteArray();
+    }
+
+    private static ServerChunkDataPacket decode(Class<? extends ServerChunkDataPacket> type, byte[] encoded) throws Exception {
+        Constructor<? extends ServerChunkDataPacket> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        ServerChunkDataPacket packet = constructor.newInstance();
+        packet.read(new StreamNetInput(new ByteArrayInputStream(encoded)));
+        return packet;
+    }
 }
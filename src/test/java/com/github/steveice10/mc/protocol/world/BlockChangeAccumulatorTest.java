@@ -0,0 +1,131 @@
+package com.github.steveice10.mc.protocol.world;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
+import com.github.steveice10.mc.protocol.data.game.chunk.Column;
+import com.github.steveice10.mc.protocol.data.game.chunk.HeightmapType;
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.Position;
+import com.github.steveice10.mc.protocol.data.game.world.block.BlockChangeRecord;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerBlockChangePacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerChunkDataPacket;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerMultiBlockChangePacket;
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.opennbt.tag.builtin.StringTag;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import com.github.steveice10.packetlib.packet.Packet;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BlockChangeAccumulatorTest {
+    @Test
+    public void testSingleChange() {
+        BlockChangeAccumulator accumulator = new BlockChangeAccumulator();
+        accumulator.add(-1, 64, 17, 5);
+
+        List<Packet> packets = accumulator.flush();
+        assertEquals(1, packets.size());
+        BlockChangeRecord record = ((ServerBlockChangePacket) packets.get(0)).getRecord();
+        assertEquals(new Position(-1, 64, 17), record.getPosition());
+        assertEquals(5, record.getBlock());
+        assertTrue(accumulator.isEmpty());
+    }
+
+    @Test
+    public void testSectionGrouping() {
+        BlockChangeAccumulator accumulator = new BlockChangeAccumulator();
+        accumulator.add(0, 0, 0, 1);
+        accumulator.add(15, 15, 15, 2);
+        accumulator.add(0, 0, 0, 3);
+        accumulator.add(16, 0, 0, 4);
+        assertEquals(3, accumulator.size());
+
+        List<Packet> packets = accumulator.flush();
+        assertEquals(2, packets.size());
+        for (Packet packet : packets) {
+            if (packet instanceof ServerMultiBlockChangePacket) {
+                ServerMultiBlockChangePacket multi = (ServerMultiBlockChangePacket) packet;
+                assertEquals(0, multi.getChunkX());
+                assertEquals(0, multi.getChunkY());
+                assertEquals(0, multi.getChunkZ());
+                assertArrayEquals(new short[]{0, 0xFFF}, multi.getPositions());
+                assertArrayEquals(new int[]{3, 2}, multi.getStates());
+            } else {
+                BlockChangeRecord record = ((ServerBlockChangePacket) packet).getRecord();
+                assertEquals(new Position(16, 0, 0), record.getPosition());
+                assertEquals(4, record.getBlock());
+            }
+        }
+
+        assertEquals(0, accumulator.size());
+        assertTrue(accumulator.flush().isEmpty());
+    }
+
+    @Test
+    public void testColumnResend() {
+        Column column = createColumn(new Random(0));
+        BlockChangeAccumulator accumulator = new BlockChangeAccumulator((x, z) -> x == 0 && z == 0 ? column : null);
+
+        accumulator.add(1, 2, 3, 4);
+        accumulator.add(1, 3, 3, 4);
+        assertFalse(accumulator.flush().get(0) instanceof ServerChunkDataPacket);
+
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    accumulator.add(x, y, z, (x + y + z) & 15);
+                }
+            }
+        }
+
+        // Changes in another column are still sent as block changes.
+        accumulator.add(40, 0, 0, 1);
+
+        List<Packet> packets = accumulator.flush();
+        assertEquals(2, packets.size());
+        int columns = 0;
+        for (Packet packet : packets) {
+            if (packet instanceof ServerChunkDataPacket) {
+                assertSame(column, ((ServerChunkDataPacket) packet).getColumn());
+                columns++;
+            }
+        }
+
+        assertEquals(1, columns);
+    }
+
+    @Test
+    public void testColumnPacketSize() throws Exception {
+        Column column = createColumn(new Random(0));
+        column.trackHeightmap(HeightmapType.WORLD_SURFACE, 64, state -> state != 0);
+        CompoundTag tileEntity = new CompoundTag("");
+        tileEntity.put(new StringTag("id", "minecraft:chest"));
+        column.setTileEntity(1, 2, 3, tileEntity);
+        column.getBiomes().set(100, 300);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ServerChunkDataPacket(column).write(new StreamNetOutput(out));
+        assertEquals(out.size() + 2, BlockChangeAccumulator.getColumnPacketSize(column));
+    }
+
+    private static Column createColumn(Random random) {
+        Chunk chunk = new Chunk();
+        chunk.set(0, 0, 0, 0);
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    chunk.set(x, y, z, random.nextInt(16));
+                }
+            }
+        }
+
+        return new Column(0, 0, new Chunk[]{chunk, null, null, null}, new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1024]);
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.steveice10.mc.protocol.world;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
+import com.github.steveice10.mc.protocol.data.game.chunk.Column;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerUpdateLightPacket;
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LightEngineTest {
+    private static final int STONE = 1;
+    private static final int TORCH = 2;
+
+    private LightEngine engine;
+
+    @Before
+    public void setup() {
+        this.engine = new LightEngine(new LightEngine.LightProperties() {
+            @Override
+            public int getEmission(int state) {
+                return state == TORCH ? 14 : 0;
+            }
+
+            @Override
+            public int getOpacity(int state) {
+                return state == STONE ? 15 : 0;
+            }
+        }, 0, true);
+    }
+
+    @Test
+    public void testOpenSky() {
+        this.engine.loadColumn(createColumn(0, 0));
+        assertEquals(15, this.engine.getSkyLight(3, 63, 3));
+        assertEquals(15, this.engine.getSkyLight(3, 1, 3));
+        assertEquals(0, this.engine.getSkyLight(3, 0, 3));
+    }
+
+    @Test
+    public void testBlockLight() {
+        Column column = createColumn(0, 0);
+        this.engine.loadColumn(column);
+        column.getChunk(0).set(8, 1, 8, TORCH);
+        this.engine.markChanged(8, 1, 8);
+        this.engine.tick();
+
+        assertEquals(14, this.engine.getBlockLight(8, 1, 8));
+        assertEquals(13, this.engine.getBlockLight(9, 1, 8));
+        assertEquals(11, this.engine.getBlockLight(8, 4, 8));
+        assertEquals(0, this.engine.getBlockLight(8, 0, 8));
+
+        column.getChunk(0).set(8, 1, 8, 0);
+        this.engine.markChanged(8, 1, 8);
+        this.engine.tick();
+        assertEquals(0, this.engine.getBlockLight(8, 1, 8));
+        assertEquals(0, this.engine.getBlockLight(9, 1, 8));
+    }
+
+    @Test
+    public void testFullyLitSectionsCopiedOnWrite() {
+        Column first = createColumn(0, 0);
+        this.engine.loadColumn(first);
+        this.engine.loadColumn(createColumn(4, 4));
+
+        // Shade a block in a section that was fully lit.
+        setBlock(first, 8, 50, 8, STONE);
+        this.engine.markChanged(8, 50, 8);
+        this.engine.tick();
+
+        assertEquals(0, this.engine.getSkyLight(8, 50, 8));
+        assertEquals(14, this.engine.getSkyLight(8, 49, 8));
+        assertEquals(15, this.engine.getSkyLight(4 * 16 + 8, 49, 4 * 16 + 8));
+        assertEquals(15, this.engine.getSkyLight(4 * 16 + 8, 50, 4 * 16 + 8));
+    }
+
+    @Test
+    public void testHeightsFollowChanges() {
+        Column roofed = createColumn(0, 0);
+        this.engine.loadColumn(roofed);
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                setBlock(roofed, x, 40, z, STONE);
+                this.engine.markChanged(x, 40, z);
+            }
+        }
+
+        this.engine.tick();
+        assertEquals(0, this.engine.getSkyLight(8, 20, 8));
+        assertEquals(0, this.engine.getSkyLight(15, 20, 8));
+
+        // Light from the open neighbour only flows in under the roof if the roof is reflected in the heights.
+        this.engine.loadColumn(createColumn(1, 0));
+        this.engine.tick();
+        assertEquals(14, this.engine.getSkyLight(15, 20, 8));
+        assertEquals(13, this.engine.getSkyLight(14, 20, 8));
+
+        // Removing the roof block lets the sky straight down again.
+        setBlock(roofed, 8, 40, 8, 0);
+        this.engine.markChanged(8, 40, 8);
+        this.engine.tick();
+        assertEquals(15, this.engine.getSkyLight(8, 20, 8));
+    }
+
+    @Test
+    public void testCollectUpdates() {
+        this.engine.loadColumn(createColumn(0, 0));
+        this.engine.tick();
+        List<ServerUpdateLightPacket> packets = this.engine.collectUpdates();
+        assertEquals(1, packets.size());
+        assertTrue(packets.get(0).getSkyYMask().get(4));
+        assertTrue(this.engine.collectUpdates().isEmpty());
+    }
+
+    private static Column createColumn(int x, int z) {
+        Chunk ground = new Chunk();
+        ground.set(0, 0, 0, 0);
+        for (int bz = 0; bz < 16; bz++) {
+            for (int bx = 0; bx < 16; bx++) {
+                ground.set(bx, 0, bz, STONE);
+            }
+        }
+
+        return new Column(x, z, new Chunk[]{ground, null, null, null}, new CompoundTag[0], new CompoundTag("HeightMaps"), new int[256]);
+    }
+
+    private static void setBlock(Column column, int x, int y, int z, int state) {
+        Chunk chunk = column.getChunk(y >> 4);
+        if (chunk == null) {
+            chunk = new Chunk();
+            chunk.set(0, 0, 0, 0);
+            column.setChunk(y >> 4, chunk);
+        }
+
+        chunk.set(x & 15, y & 15, z & 15, state);
+    }
+}
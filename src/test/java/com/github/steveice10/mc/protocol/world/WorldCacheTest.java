@@ -0,0 +1,134 @@
+package com.github.steveice10.mc.protocol.world;
+
+import com.github.steveice10.mc.protocol.TestSession;
+import com.github.steveice10.mc.protocol.data.game.chunk.BiomeStorage;
+import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
+import com.github.steveice10.mc.protocol.data.game.chunk.Column;
+import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerUpdateLightPacket;
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.packetlib.event.session.PacketReceivedEvent;
+import com.github.steveice10.packetlib.io.stream.StreamNetOutput;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WorldCacheTest {
+    private static final int MIN_Y = -64;
+
+    @Test
+    public void testLightArraysCopied() {
+        WorldCache cache = new WorldCache(MIN_Y);
+        byte[] data = new byte[2048];
+        Arrays.fill(data, (byte) 0x77);
+        BitSet mask = new BitSet();
+        mask.set(1);
+        ServerUpdateLightPacket packet = new ServerUpdateLightPacket(0, 0, mask, new BitSet(), new BitSet(), new BitSet(),
+                Collections.singletonList(data), Collections.emptyList(), true);
+        cache.packetReceived(new PacketReceivedEvent(new TestSession().getSession(), packet));
+        assertEquals(7, cache.getSkyLight(3, MIN_Y, 5));
+
+        // The packet's array may be reused once the packet has been handled.
+        Arrays.fill(data, (byte) 0);
+        assertEquals(7, cache.getSkyLight(3, MIN_Y, 5));
+    }
+
+    @Test
+    public void testLazyColumnDecodedOnRead() throws Exception {
+        WorldCache cache = new WorldCache(MIN_Y);
+        Column column = lazyColumn(0, 0, 10);
+        cache.putColumn(column);
+        assertFalse(column.isChunkDecoded(0));
+
+        assertEquals(10, cache.getBlock(1, MIN_Y + 2, 3));
+        assertTrue(column.isChunkDecoded(0));
+        assertEquals(0, cache.getBlock(1, MIN_Y + 2, 4));
+        assertEquals(0, cache.getBlock(1, MIN_Y + 16, 3));
+    }
+
+    @Test
+    public void testRemoveColumn() {
+        WorldCache cache = new WorldCache(MIN_Y);
+        cache.putColumn(new Column(0, 0, new Chunk[24], new CompoundTag[0], new CompoundTag("HeightMaps"), new int[1536]));
+        cache.setBlock(1, 0, 1, 5);
+        assertEquals(5, cache.getBlock(1, 0, 1));
+
+        cache.removeColumn(0, 0);
+        assertNull(cache.getColumn(0, 0));
+        assertEquals(0, cache.getBlock(1, 0, 1));
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        WorldCache cache = new WorldCache(MIN_Y);
+        for (int x = 0; x < 4; x++) {
+            cache.putColumn(lazyColumn(x, 0, 10));
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> readers = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            Thread reader = new Thread(() -> {
+                started.countDown();
+                try {
+                    while (running.get()) {
+                        for (int x = 0; x < 4; x++) {
+                            int state = cache.getBlock(x << 4 | 1, MIN_Y + 2, 3);
+                            if (state != 10 && state != 20 && state != 0) {
+                                throw new AssertionError("Read unexpected state " + state);
+                            }
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        started.await();
+        for (int round = 0; round < 200; round++) {
+            int x = round & 3;
+            cache.putColumn(lazyColumn(x, 0, 10));
+            cache.setBlock(x << 4 | 1, MIN_Y + 2, 3, 20);
+            if ((round & 7) == 0) {
+                cache.removeColumn(x, 0);
+            }
+        }
+
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    private static Column lazyColumn(int x, int z, int state) throws Exception {
+        Chunk chunk = new Chunk();
+        chunk.set(0, 0, 0, 0);
+        chunk.set(1, 2, 3, state);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Chunk.write(new StreamNetOutput(out), chunk);
+        BitSet mask = new BitSet();
+        mask.set(0);
+        return Column.lazy(x, z, mask, 24, out.toByteArray(), new CompoundTag[0], new CompoundTag("HeightMaps"), BiomeStorage.of(new int[1536]));
+    }
+}